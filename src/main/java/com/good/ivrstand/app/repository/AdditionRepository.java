@@ -1,19 +1,36 @@
 package com.good.ivrstand.app.repository;
 
 import com.good.ivrstand.domain.Addition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface AdditionRepository extends JpaRepository<Addition, Long> {
+public interface AdditionRepository extends JpaRepository<Addition, Long>, CatalogPatchRepository {
+    @EntityGraph(Addition.GRAPH_DETAIL)
     Addition findById(long id);
     void deleteById(long id);
+
+    @EntityGraph(Addition.GRAPH_DETAIL)
     Page<Addition> findByItemId(long itemId, Pageable pageable);
 
-    @Query("SELECT a from Addition a WHERE a.descriptionHash = :descriptionHash AND SIZE(a.audio) > 0")
-    Page<Addition> findByHashAndAudioExistence(@Param("descriptionHash") String descriptionHash, Pageable pageable);
+    @EntityGraph(Addition.GRAPH_DETAIL)
+    Window<Addition> findByItemIdOrderByIdAsc(long itemId, ScrollPosition position, Limit limit);
+
+    @EntityGraph(Addition.GRAPH_DETAIL)
+    Window<Addition> findAllByOrderByIdAsc(ScrollPosition position, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Addition a SET a.gifPreview = :gifPreview WHERE a.gifLink = :gifLink AND a.gifPreview IS NULL")
+    int fillMissingGifPreview(@Param("gifLink") String gifLink, @Param("gifPreview") String gifPreview);
 }
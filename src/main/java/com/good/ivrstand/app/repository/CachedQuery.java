@@ -0,0 +1,28 @@
+package com.good.ivrstand.app.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает запрос каталога как кэшируемый в кэше запросов Hibernate.
+ * Результаты сбрасываются автоматически при любой записи в таблицы, которые читает запрос.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+@QueryHints({
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CachedQuery.REGION)
+})
+public @interface CachedQuery {
+
+    /**
+     * Регион кэша результатов запросов каталога.
+     */
+    String REGION = "catalog-queries";
+}
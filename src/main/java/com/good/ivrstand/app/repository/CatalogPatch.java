@@ -0,0 +1,28 @@
+package com.good.ivrstand.app.repository;
+
+import java.util.List;
+
+/**
+ * Частичное изменение услуги, категории или дополнения.
+ * Поле со значением null не меняется, пустая строка очищает поле.
+ *
+ * @param gifLink         ссылка на GIF-анимацию
+ * @param gifPreview      ссылка на GIF-превью
+ * @param mainIconLink    ссылка на главную иконку
+ * @param addIconLinks    добавляемые иконки или null
+ * @param removeIconLinks удаляемые иконки или null
+ */
+public record CatalogPatch(String gifLink,
+                           String gifPreview,
+                           String mainIconLink,
+                           List<String> addIconLinks,
+                           List<String> removeIconLinks) {
+
+    /**
+     * Меняет ли изменение список иконок.
+     */
+    public boolean changesIcons() {
+        return addIconLinks != null && !addIconLinks.isEmpty()
+                || removeIconLinks != null && !removeIconLinks.isEmpty();
+    }
+}
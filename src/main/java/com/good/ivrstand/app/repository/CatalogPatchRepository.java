@@ -0,0 +1,20 @@
+package com.good.ivrstand.app.repository;
+
+/**
+ * Частичные изменения сущностей каталога точечными UPDATE без загрузки сущности.
+ */
+public interface CatalogPatchRepository {
+
+    /**
+     * Применяет изменение к сущности, если её версия совпадает с ожидаемой, и увеличивает версию.
+     * Кэш второго уровня для затронутых таблиц сбрасывается.
+     *
+     * @param entityType      класс сущности
+     * @param id              идентификатор сущности
+     * @param version         ожидаемая версия
+     * @param patch           изменение
+     * @param knownGifPreview превью новой GIF-анимации, которое ставится, если у сущности превью нет
+     * @return true, если сущность изменена; false, если её нет или версия не совпала
+     */
+    boolean patch(Class<?> entityType, long id, long version, CatalogPatch patch, String knownGifPreview);
+}
@@ -0,0 +1,156 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Item;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Реализация частичных изменений через Criteria UPDATE и SQL для таблиц иконок.
+ * Регион сущности и кэш запросов Hibernate сбрасывает сам по затронутым таблицам,
+ * список иконок изменённой сущности сбрасывается явно.
+ */
+public class CatalogPatchRepositoryImpl implements CatalogPatchRepository {
+
+    /**
+     * Таблицы иконок сущностей, у которых есть список иконок.
+     */
+    private static final Map<Class<?>, IconTable> ICON_TABLES = Map.of(
+            Item.class, new IconTable("item_icons", "item_id"),
+            Addition.class, new IconTable("addition_icons", "addition_id")
+    );
+
+    private final EntityManager entityManager;
+
+    public CatalogPatchRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public boolean patch(Class<?> entityType, long id, long version, CatalogPatch patch, String knownGifPreview) {
+        if (!updateFields(entityType, id, version, patch, knownGifPreview)) {
+            return false;
+        }
+
+        if (patch.changesIcons()) {
+            IconTable icons = ICON_TABLES.get(entityType);
+            if (icons == null) {
+                throw new IllegalArgumentException("У сущности " + entityType.getSimpleName() + " нет иконок");
+            }
+            if (patch.removeIconLinks() != null) {
+                for (String iconLink : patch.removeIconLinks()) {
+                    iconsQuery(entityType, icons, "DELETE FROM %1$s WHERE %2$s = :id AND icon_link = :link", id, iconLink)
+                            .executeUpdate();
+                }
+            }
+            if (patch.addIconLinks() != null) {
+                for (String iconLink : patch.addIconLinks()) {
+                    iconsQuery(entityType, icons, "INSERT INTO %1$s (%2$s, icon_link) SELECT :id, :link " +
+                            "WHERE NOT EXISTS (SELECT 1 FROM %1$s WHERE %2$s = :id AND icon_link = :link)", id, iconLink)
+                            .executeUpdate();
+                }
+            }
+            evictIcons(entityType, id);
+        }
+        return true;
+    }
+
+    /**
+     * Обновляет поля сущности и её версию одним UPDATE с проверкой версии.
+     *
+     * @return true, если строка обновлена
+     */
+    private <T> boolean updateFields(Class<T> entityType, long id, long version, CatalogPatch patch, String knownGifPreview) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = builder.createCriteriaUpdate(entityType);
+        Root<T> root = update.from(entityType);
+
+        if (patch.gifLink() != null) {
+            update.set(root.<String>get("gifLink"), valueOf(builder, patch.gifLink()));
+        }
+        Path<String> gifPreview = root.get("gifPreview");
+        if (patch.gifPreview() != null) {
+            update.set(gifPreview, valueOf(builder, patch.gifPreview()));
+        } else if (knownGifPreview != null) {
+            update.set(gifPreview, builder.coalesce(gifPreview, knownGifPreview));
+        }
+        if (patch.mainIconLink() != null) {
+            update.set(root.<String>get("mainIconLink"), valueOf(builder, patch.mainIconLink()));
+        }
+
+        EntityType<T> model = entityManager.getMetamodel().entity(entityType);
+        Path<Long> versionPath = root.get(attributeName(model, SingularAttribute::isVersion));
+        update.set(versionPath, builder.sum(versionPath, 1L));
+        update.where(builder.equal(root.get(attributeName(model, SingularAttribute::isId)), id),
+                builder.equal(versionPath, version));
+
+        return entityManager.createQuery(update).executeUpdate() > 0;
+    }
+
+    /**
+     * Значение поля: пустая строка очищает поле.
+     */
+    private static Expression<String> valueOf(CriteriaBuilder builder, String value) {
+        return value.isEmpty() ? builder.nullLiteral(String.class) : builder.literal(value);
+    }
+
+    private static String attributeName(EntityType<?> model, Predicate<SingularAttribute<?, ?>> filter) {
+        return model.getSingularAttributes().stream()
+                .filter(filter)
+                .findFirst()
+                .orElseThrow()
+                .getName();
+    }
+
+    /**
+     * Запрос к таблице иконок. Таблица и сущность объявляются затронутыми, чтобы Hibernate
+     * сбросил кэш запросов по ним, а не весь кэш второго уровня.
+     */
+    private Query iconsQuery(Class<?> entityType, IconTable icons, String sql, long id, String iconLink) {
+        Query query = entityManager.createNativeQuery(String.format(sql, icons.table(), icons.ownerColumn()))
+                .setParameter("id", id)
+                .setParameter("link", iconLink);
+        query.unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(entityType)
+                .addSynchronizedQuerySpace(icons.table());
+        return query;
+    }
+
+    /**
+     * Сбрасывает закэшированный список иконок сущности сразу и после завершения транзакции,
+     * чтобы параллельное чтение не вернуло в кэш список до изменения.
+     */
+    private void evictIcons(Class<?> entityType, long id) {
+        Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        String role = entityType.getName() + ".iconLinks";
+        cache.evictCollectionData(role, id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evictCollectionData(role, id);
+                }
+            });
+        }
+    }
+
+    private record IconTable(String table, String ownerColumn) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.CategoryClosure;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Репозиторий таблицы замыкания дерева категорий.
+ * Изменяющие нативные запросы объявляют затрагиваемые таблицы, чтобы Hibernate не сбрасывал из-за них весь кэш второго уровня.
+ */
+@Repository
+public interface CategoryClosureRepository extends JpaRepository<CategoryClosure, CategoryClosure.Key> {
+
+    @Query("SELECT t.descendantId FROM CategoryClosure t WHERE t.ancestorId = :categoryId")
+    List<Long> findSubtreeIds(@Param("categoryId") long categoryId);
+
+    @Query("SELECT MAX(t.depth) FROM CategoryClosure t WHERE t.descendantId = :categoryId")
+    Integer findDepth(@Param("categoryId") long categoryId);
+
+    boolean existsByAncestorIdAndDescendantId(long ancestorId, long descendantId);
+
+    @Query("SELECT COUNT(t) FROM CategoryClosure t WHERE t.depth = 0")
+    long countRoots();
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) VALUES (:categoryId, :categoryId, 0)",
+            nativeQuery = true)
+    void addCategory(@Param("categoryId") long categoryId);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT a.ancestor_id, d.descendant_id, a.depth + d.depth + 1 " +
+            "FROM category_closure a CROSS JOIN category_closure d " +
+            "WHERE a.descendant_id = :parentId AND d.ancestor_id = :categoryId",
+            nativeQuery = true)
+    int attachSubtree(@Param("categoryId") long categoryId, @Param("parentId") long parentId);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Query(value = "DELETE FROM category_closure " +
+            "WHERE descendant_id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId) " +
+            "AND ancestor_id NOT IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId)",
+            nativeQuery = true)
+    int detachSubtree(@Param("categoryId") long categoryId);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Query(value = "UPDATE category_closure SET depth = depth - 1 " +
+            "WHERE descendant_id IN (SELECT descendant_id FROM category_closure WHERE ancestor_id = :categoryId AND depth > 0) " +
+            "AND ancestor_id IN (SELECT ancestor_id FROM category_closure WHERE descendant_id = :categoryId AND depth > 0)",
+            nativeQuery = true)
+    int shortenPathsThrough(@Param("categoryId") long categoryId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CategoryClosure t WHERE t.ancestorId = :categoryId OR t.descendantId = :categoryId")
+    int removeCategory(@Param("categoryId") long categoryId);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"))
+    @Query(value = "DELETE FROM category_closure", nativeQuery = true)
+    void clear();
+
+    @Transactional
+    @Modifying
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "category_closure"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "categories")
+    })
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (" +
+            "SELECT category_id, category_id, 0 FROM categories " +
+            "UNION ALL " +
+            "SELECT t.ancestor_id, c.category_id, t.depth + 1 FROM tree t JOIN categories c ON c.parent_category_id = t.descendant_id) " +
+            "SELECT ancestor_id, descendant_id, depth FROM tree",
+            nativeQuery = true)
+    int rebuild();
+}
@@ -1,20 +1,66 @@
 package com.good.ivrstand.app.repository;
 
 import com.good.ivrstand.domain.Category;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
-public interface CategoryRepository extends JpaRepository<Category, Long> {
+public interface CategoryRepository extends JpaRepository<Category, Long>, CatalogPatchRepository {
+    @CachedQuery
+    @EntityGraph(Category.GRAPH_DETAIL)
     Category findById(long id);
     void deleteById(long id);
 
+    @CachedQuery
+    @Override
+    @EntityGraph(Category.GRAPH_LIST)
+    Page<Category> findAll(Pageable pageable);
+
+    @EntityGraph(Category.GRAPH_LIST)
+    Window<Category> findAllByOrderByIdAsc(ScrollPosition position, Limit limit);
+
+    @CachedQuery
+    @EntityGraph(Category.GRAPH_LIST)
     @Query("SELECT c FROM Category c WHERE SIZE(c.childrenCategories) = 0 AND c.parentCategory IS NULL")
     Page<Category> findUnallocatedCategories(Pageable pageable);
 
+    @CachedQuery
+    @EntityGraph(Category.GRAPH_LIST)
     @Query("SELECT c FROM Category c WHERE c.parentCategory IS NULL")
     Page<Category> findMainCategories(Pageable pageable);
+
+    @CachedQuery
+    @EntityGraph(Category.GRAPH_LIST)
+    @Query("SELECT c FROM Category c, CategoryClosure t WHERE t.descendantId = c.id AND t.ancestorId = :categoryId ORDER BY t.depth, c.id")
+    List<Category> findSubtree(@Param("categoryId") long categoryId);
+
+    @CachedQuery
+    @Query("SELECT c FROM Category c, CategoryClosure t WHERE t.ancestorId = c.id AND t.descendantId = :categoryId ORDER BY t.depth DESC")
+    List<Category> findPath(@Param("categoryId") long categoryId);
+
+    @Query("SELECT new com.good.ivrstand.app.repository.CategorySummary(c.id, p.id, c.title, c.mainIconLink, c.titleAudio) " +
+            "FROM Category c LEFT JOIN c.parentCategory p ORDER BY c.id")
+    List<CategorySummary> findAllSummaries();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Category c SET c.parentCategory = :parent WHERE c.parentCategory.id = :categoryId")
+    int reparentChildren(@Param("categoryId") long categoryId, @Param("parent") Category parent);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Category c SET c.gifPreview = :gifPreview WHERE c.gifLink = :gifLink AND c.gifPreview IS NULL")
+    int fillMissingGifPreview(@Param("gifLink") String gifLink, @Param("gifPreview") String gifPreview);
 }
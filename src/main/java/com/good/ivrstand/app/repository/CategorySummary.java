@@ -0,0 +1,13 @@
+package com.good.ivrstand.app.repository;
+
+/**
+ * Краткие данные категории для построения дерева.
+ *
+ * @param id           идентификатор категории
+ * @param parentId     идентификатор родительской категории или null
+ * @param title        заголовок
+ * @param mainIconLink ссылка на главную иконку
+ * @param titleAudio   ссылка на аудио заголовка
+ */
+public record CategorySummary(long id, Long parentId, String title, String mainIconLink, String titleAudio) {
+}
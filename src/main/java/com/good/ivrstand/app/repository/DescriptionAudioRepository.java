@@ -0,0 +1,15 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.DescriptionAudio;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DescriptionAudioRepository extends JpaRepository<DescriptionAudio, String>, DescriptionAudioRepositoryCustom {
+
+    @EntityGraph(attributePaths = "audio")
+    Optional<DescriptionAudio> findByDescriptionHash(String descriptionHash);
+}
@@ -0,0 +1,19 @@
+package com.good.ivrstand.app.repository;
+
+import java.util.List;
+
+/**
+ * Сохранение озвучки описаний без конфликтов при параллельной озвучке одного описания.
+ */
+public interface DescriptionAudioRepositoryCustom {
+
+    /**
+     * Сохраняет озвучку описания, если для этого хэша её ещё нет.
+     * Конфликт не прерывает текущую транзакцию, поэтому метод можно вызывать внутри транзакции вызывающего.
+     *
+     * @param descriptionHash хэш описания
+     * @param audio           ссылки на аудио блоков описания
+     * @return true, если озвучка сохранена, false, если она уже была сохранена раньше
+     */
+    boolean insertIfAbsent(String descriptionHash, List<String> audio);
+}
@@ -0,0 +1,46 @@
+package com.good.ivrstand.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Реализация сохранения озвучки через INSERT ... ON CONFLICT DO NOTHING Postgres.
+ * В отличие от перехвата нарушения первичного ключа, конфликт не помечает транзакцию на откат.
+ */
+public class DescriptionAudioRepositoryImpl implements DescriptionAudioRepositoryCustom {
+
+    private static final String INSERT_DESCRIPTION = """
+            INSERT INTO description_audio (description_hash)
+            VALUES (?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_LINK =
+            "INSERT INTO description_audio_links (description_hash, audio_order, audio) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DescriptionAudioRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public boolean insertIfAbsent(String descriptionHash, List<String> audio) {
+        // Параллельная вставка того же хэша ждёт фиксации первой и ничего не вставляет
+        if (jdbcTemplate.update(INSERT_DESCRIPTION, descriptionHash) == 0) {
+            return false;
+        }
+
+        List<Object[]> arguments = new ArrayList<>(audio.size());
+        for (int i = 0; i < audio.size(); i++) {
+            arguments.add(new Object[]{descriptionHash, i, audio.get(i)});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_LINK, arguments);
+        return true;
+    }
+}
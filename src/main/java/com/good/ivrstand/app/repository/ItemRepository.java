@@ -1,22 +1,71 @@
 package com.good.ivrstand.app.repository;
 
 import com.good.ivrstand.domain.Item;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, CatalogPatchRepository {
+    @CachedQuery
+    @EntityGraph(Item.GRAPH_DETAIL)
     Item findById(long id);
     void deleteById(long id);
+
+    @CachedQuery
+    @Override
+    @EntityGraph(Item.GRAPH_LIST)
+    Page<Item> findAll(Pageable pageable);
+
+    @CachedQuery
+    @EntityGraph(Item.GRAPH_LIST)
     Page<Item> findByCategoryId(long categoryId, Pageable pageable);
 
+    @CachedQuery
+    @EntityGraph(Item.GRAPH_LIST)
+    @Query(value = "SELECT i FROM Item i WHERE i.category.id IN (SELECT t.descendantId FROM CategoryClosure t WHERE t.ancestorId = :categoryId)",
+            countQuery = "SELECT COUNT(i) FROM Item i WHERE i.category.id IN (SELECT t.descendantId FROM CategoryClosure t WHERE t.ancestorId = :categoryId)")
+    Page<Item> findInCategoryTree(@Param("categoryId") long categoryId, Pageable pageable);
+
+    @CachedQuery
+    @EntityGraph(Item.GRAPH_SEARCH)
+    List<Item> findByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new com.good.ivrstand.app.repository.ItemSummary(i.id, c.id, i.title, i.mainIconLink, i.titleAudio) " +
+            "FROM Item i JOIN i.category c ORDER BY i.id")
+    List<ItemSummary> findAllSummaries();
+
+    @CachedQuery
+    @EntityGraph(Item.GRAPH_LIST)
     @Query("SELECT i FROM Item i WHERE i.category IS NULL")
     Page<Item> findItemsWithNullCategory(Pageable pageable);
 
-    @Query("SELECT i from Item i WHERE i.descriptionHash = :descriptionHash AND SIZE(i.audio) > 0")
-    Page<Item> findByHashAndAudioExistence(@Param("descriptionHash") String descriptionHash, Pageable pageable);
-}
\ No newline at end of file
+    @EntityGraph(Item.GRAPH_LIST)
+    Window<Item> findAllByOrderByIdAsc(ScrollPosition position, Limit limit);
+
+    @EntityGraph(Item.GRAPH_LIST)
+    Window<Item> findByCategoryIdOrderByIdAsc(long categoryId, ScrollPosition position, Limit limit);
+
+    @EntityGraph(Item.GRAPH_LIST)
+    Window<Item> findByCategoryIdInOrderByIdAsc(Collection<Long> categoryIds, ScrollPosition position, Limit limit);
+
+    @EntityGraph(Item.GRAPH_LIST)
+    Window<Item> findByCategoryIsNullOrderByIdAsc(ScrollPosition position, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Item i SET i.gifPreview = :gifPreview WHERE i.gifLink = :gifLink AND i.gifPreview IS NULL")
+    int fillMissingGifPreview(@Param("gifLink") String gifLink, @Param("gifPreview") String gifPreview);
+}
@@ -0,0 +1,13 @@
+package com.good.ivrstand.app.repository;
+
+/**
+ * Краткие данные услуги для построения дерева категорий.
+ *
+ * @param id           идентификатор услуги
+ * @param categoryId   идентификатор категории
+ * @param title        заголовок
+ * @param mainIconLink ссылка на главную иконку
+ * @param titleAudio   ссылка на аудио заголовка
+ */
+public record ItemSummary(long id, long categoryId, String title, String mainIconLink, String titleAudio) {
+}
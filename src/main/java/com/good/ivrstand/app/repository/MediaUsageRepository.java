@@ -0,0 +1,22 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.MediaUsage;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MediaUsageRepository extends JpaRepository<MediaUsage, String>, MediaUsageRepositoryCustom {
+
+    @Query(value = "SELECT * FROM media_usage ORDER BY COALESCE(size_bytes, 0) * access_count / GREATEST(EXTRACT(EPOCH FROM (now() - first_seen_at)) / 86400, 1) DESC, size_bytes DESC NULLS LAST",
+            countQuery = "SELECT count(*) FROM media_usage",
+            nativeQuery = true)
+    Page<MediaUsage> findByCostDesc(Pageable pageable);
+
+    @Query(value = "SELECT * FROM media_usage ORDER BY COALESCE(size_bytes, 0) * access_count / GREATEST(EXTRACT(EPOCH FROM (now() - first_seen_at)) / 86400, 1) ASC, size_bytes DESC NULLS LAST",
+            countQuery = "SELECT count(*) FROM media_usage",
+            nativeQuery = true)
+    Page<MediaUsage> findByCostAsc(Pageable pageable);
+}
@@ -0,0 +1,26 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.MediaUsage;
+
+import java.util.Collection;
+
+/**
+ * Пакетные операции со статистикой использования медиафайлов.
+ */
+public interface MediaUsageRepositoryCustom {
+
+    /**
+     * Одним пакетом прибавляет накопленные обращения к статистике файлов.
+     * Для файлов без статистики создаются новые записи.
+     *
+     * @param deltas накопленные изменения: число обращений, размер (если известен) и время последнего обращения
+     */
+    void addUsage(Collection<MediaUsage> deltas);
+
+    /**
+     * Одним пакетом удаляет статистику удалённых файлов.
+     *
+     * @param urls ссылки на удалённые файлы
+     */
+    void deleteUsage(Collection<String> urls);
+}
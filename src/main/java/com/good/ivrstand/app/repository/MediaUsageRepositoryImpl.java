@@ -0,0 +1,65 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.MediaUsage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Реализация пакетных операций со статистикой через JDBC batch и upsert Postgres.
+ */
+public class MediaUsageRepositoryImpl implements MediaUsageRepositoryCustom {
+
+    private static final String UPSERT = """
+            INSERT INTO media_usage (url, size_bytes, access_count, first_seen_at, last_accessed_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (url) DO UPDATE SET
+                size_bytes = COALESCE(EXCLUDED.size_bytes, media_usage.size_bytes),
+                access_count = media_usage.access_count + EXCLUDED.access_count,
+                last_accessed_at = GREATEST(EXCLUDED.last_accessed_at, media_usage.last_accessed_at)
+            """;
+
+    private static final String DELETE = "DELETE FROM media_usage WHERE url = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MediaUsageRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void addUsage(Collection<MediaUsage> deltas) {
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> arguments = new ArrayList<>(deltas.size());
+        for (MediaUsage delta : deltas) {
+            arguments.add(new Object[]{
+                    delta.getUrl(),
+                    delta.getSizeBytes(),
+                    delta.getAccessCount(),
+                    now,
+                    delta.getLastAccessedAt() != null ? Timestamp.from(delta.getLastAccessedAt()) : null
+            });
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT, arguments,
+                new int[]{Types.VARCHAR, Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP});
+    }
+
+    @Override
+    @Transactional
+    public void deleteUsage(Collection<String> urls) {
+        List<Object[]> arguments = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            arguments.add(new Object[]{url});
+        }
+
+        jdbcTemplate.batchUpdate(DELETE, arguments);
+    }
+}
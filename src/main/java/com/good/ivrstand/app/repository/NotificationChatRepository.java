@@ -1,11 +1,23 @@
 package com.good.ivrstand.app.repository;
 
 import com.good.ivrstand.domain.NotificationChat;
+import com.good.ivrstand.domain.enumeration.NotificationCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
 public interface NotificationChatRepository extends JpaRepository<NotificationChat, Long> {
     void deleteById(long id);
     List<NotificationChat> findByChatId(String id);
+
+    /**
+     * Возвращает id чатов, подписанных на категорию уведомлений.
+     *
+     * @param category категория
+     * @return id чатов без повторов
+     */
+    @Query("SELECT DISTINCT c.chatId FROM NotificationChat c WHERE c.notificationCategory = :category")
+    List<String> findChatIdsByCategory(@Param("category") NotificationCategory category);
 }
@@ -0,0 +1,43 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.OutboxEmail;
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    /**
+     * Находит письма, которые пора отправить, в порядке очереди.
+     */
+    @Query("SELECT e.id FROM OutboxEmail e WHERE e.status = com.good.ivrstand.domain.enumeration.OutboxEmailStatus.PENDING " +
+            "AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt, e.id")
+    List<Long> findDueIds(@Param("now") Instant now, Pageable pageable);
+
+    /**
+     * Захватывает письма на отправку: помечает их меткой пакета и продлевает срок до окончания аренды.
+     * Условное обновление не дает двум экземплярам приложения отправить одно письмо.
+     *
+     * @return количество захваченных писем
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE OutboxEmail e SET e.claimId = :claimId, e.nextAttemptAt = :leaseUntil " +
+            "WHERE e.id IN :ids AND e.status = com.good.ivrstand.domain.enumeration.OutboxEmailStatus.PENDING " +
+            "AND e.nextAttemptAt <= :now")
+    int claim(@Param("ids") List<Long> ids, @Param("claimId") String claimId,
+              @Param("leaseUntil") Instant leaseUntil, @Param("now") Instant now);
+
+    List<OutboxEmail> findByClaimIdOrderById(String claimId);
+
+    long countByStatus(OutboxEmailStatus status);
+}
@@ -0,0 +1,21 @@
+package com.good.ivrstand.app.repository;
+
+import com.good.ivrstand.domain.TokenRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface TokenRevocationRepository extends JpaRepository<TokenRevocation, Long> {
+
+    List<TokenRevocation> findByRevokedAtGreaterThanEqual(Instant revokedAt);
+
+    @Modifying
+    @Query("DELETE FROM TokenRevocation r WHERE r.revokedAt < :revokedAt")
+    int deleteRevokedBefore(@Param("revokedAt") Instant revokedAt);
+}
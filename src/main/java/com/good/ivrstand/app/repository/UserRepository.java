@@ -2,8 +2,41 @@ package com.good.ivrstand.app.repository;
 
 import com.good.ivrstand.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByUsernameIgnoreCase(String name);
     User findById(long id);
+
+    /**
+     * Сбрасывает истекшие токены сброса пароля указанных пользователей.
+     * Токен, перевыпущенный после постановки срока, не истек и не затрагивается.
+     *
+     * @return количество сброшенных токенов
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.resetToken = 'no-token', u.resetTokenExpiresAt = null WHERE u.id IN :ids AND u.resetTokenExpiresAt <= :now")
+    int expireResetTokens(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.resetToken = 'no-token', u.resetTokenExpiresAt = null WHERE u.resetTokenExpiresAt <= :now")
+    int expireAllResetTokens(@Param("now") Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.confirmToken = null, u.confirmTokenExpiresAt = null WHERE u.id IN :ids AND u.confirmTokenExpiresAt <= :now")
+    int expireConfirmTokens(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE User u SET u.confirmToken = null, u.confirmTokenExpiresAt = null WHERE u.confirmTokenExpiresAt <= :now")
+    int expireAllConfirmTokens(@Param("now") Instant now);
 }
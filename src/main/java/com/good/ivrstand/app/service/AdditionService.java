@@ -2,20 +2,25 @@ package com.good.ivrstand.app.service;
 
 
 import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CatalogPatch;
 import com.good.ivrstand.domain.Addition;
 import com.good.ivrstand.exception.AdditionUpdateException;
 import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.VersionConflictException;
 import com.good.ivrstand.exception.notfound.AdditionNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Сервис для работы с дополнениями
@@ -27,12 +32,16 @@ public class AdditionService {
     private final AdditionRepository additionRepository;
     private final SpeechService speechService;
     private final EncodeService encodeService;
+    private final GifPreviewService gifPreviewService;
+    private final DescriptionAudioService descriptionAudioService;
 
     @Autowired
-    public AdditionService(AdditionRepository additionRepository, SpeechService speechService, EncodeService encodeService) {
+    public AdditionService(AdditionRepository additionRepository, SpeechService speechService, EncodeService encodeService, GifPreviewService gifPreviewService, DescriptionAudioService descriptionAudioService) {
         this.additionRepository = additionRepository;
         this.speechService = speechService;
         this.encodeService = encodeService;
+        this.gifPreviewService = gifPreviewService;
+        this.descriptionAudioService = descriptionAudioService;
     }
 
     /**
@@ -53,6 +62,7 @@ public class AdditionService {
                 String titleAudio = speechService.generateAudio(addition.getTitle());
                 addition.setTitleAudio(titleAudio);
             }
+            addition.setGifPreview(gifPreviewService.resolvePreview(addition.getGifLink(), addition.getGifPreview()));
             Addition savedAddition = additionRepository.save(addition);
             log.info("Создано дополнение с id {}", savedAddition.getId());
             return savedAddition;
@@ -133,6 +143,7 @@ public class AdditionService {
     public void updateGifLinkToAddition(long additionId, String gifLink) throws AdditionNotFoundException {
         Addition addition = getAdditionById(additionId);
         addition.setGifLink(gifLink);
+        addition.setGifPreview(gifPreviewService.resolvePreview(gifLink, addition.getGifPreview()));
         additionRepository.save(addition);
         log.info("Ссылка на GIF обновлена для дополнения с id {}", additionId);
     }
@@ -165,6 +176,27 @@ public class AdditionService {
         log.info("Ссылка на главную иконку обновлена для дополнения с id {}", additionId);
     }
 
+    /**
+     * Применяет частичное изменение дополнения точечным UPDATE без загрузки дополнения.
+     *
+     * @param additionId Идентификатор дополнения.
+     * @param version    Версия дополнения, которую видел клиент.
+     * @param patch      Изменение.
+     * @return Новая версия дополнения.
+     * @throws VersionConflictException если дополнение изменили после получения версии
+     */
+    public long patchAddition(long additionId, long version, CatalogPatch patch) throws AdditionNotFoundException, VersionConflictException {
+        if (!additionRepository.patch(Addition.class, additionId, version, patch, gifPreviewService.resolvePreview(patch))) {
+            if (!additionRepository.existsById(additionId)) {
+                throw new AdditionNotFoundException("Дополнение с id " + additionId + " не найдено");
+            }
+            throw new VersionConflictException(String.format("Дополнение с id %s изменено после версии %s", additionId, version));
+        }
+
+        log.info("Применено частичное изменение дополнения с id {}, версия {}", additionId, version + 1);
+        return version + 1;
+    }
+
     /**
      * Ищет дополнения по идентификатору категории, с поддержкой пагинации.
      *
@@ -176,6 +208,22 @@ public class AdditionService {
         return additionRepository.findByItemId(itemId, pageable);
     }
 
+    /**
+     * Получает порцию дополнений услуги по возрастанию идентификатора.
+     *
+     * @param itemId  Идентификатор услуги.
+     * @param afterId Идентификатор, после которого начинается порция, или null для первой порции.
+     * @param size    Размер порции.
+     * @return Порция дополнений.
+     */
+    public Window<Addition> scrollByItemId(long itemId, Long afterId, int size) {
+        // Поле идентификатора дополнения называется Id, а сортировка из имени метода - id: ключ нужен под обоими именами
+        ScrollPosition position = afterId == null
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(Map.of("id", afterId, "Id", afterId));
+        return additionRepository.findByItemIdOrderByIdAsc(itemId, position, Limit.of(size));
+    }
+
     /**
      * Добавляет иконку для дополнения.
      *
@@ -256,26 +304,23 @@ public class AdditionService {
 
     /**
      * Генерирует аудио для описания дополнения.
-     * По хэш-функции проверяет, не было ли раннее сгенерировано такое аудио.
+     * По хэш-функции проверяет, не было ли раннее сгенерировано такое аудио у услуги или дополнения.
      *
      * @param addition дополнение
      * @throws IOException исключение
      */
     private void generateDescriptionAudio(Addition addition) throws IOException, FileDuplicateException {
-        Page<Addition> additionsWithSameDescriptionRequest = additionRepository.findByHashAndAudioExistence(addition.getDescriptionHash(), PageRequest.of(0, 1));
-        if (additionsWithSameDescriptionRequest.hasContent()) {
-            Addition additionWithSameDescription = additionsWithSameDescriptionRequest.getContent().getFirst();
-            List<String> sameAudio = new ArrayList<>(additionWithSameDescription.getAudio());
-            addition.getAudio().clear();
-            for (String audioLink : sameAudio) {
-                addition.getAudio().add(audioLink);
-            }
+        Optional<List<String>> sameAudio = descriptionAudioService.findAudio(addition.getDescriptionHash());
+        addition.getAudio().clear();
+        if (sameAudio.isPresent()) {
+            addition.getAudio().addAll(sameAudio.get());
         } else {
             String[] descriptionBlocks = speechService.splitDescription(addition.getDescription());
             for (String block : descriptionBlocks) {
                 String audioLink = speechService.generateAudio(block);
                 addition.getAudio().add(audioLink);
             }
+            descriptionAudioService.saveAudio(addition.getDescriptionHash(), addition.getAudio());
         }
     }
 }
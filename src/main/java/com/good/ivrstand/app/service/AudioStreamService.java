@@ -0,0 +1,265 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.exception.NoSuchFileException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервис потоковой отдачи озвучки описания.
+ * <p>
+ * Озвучка описания хранится блоками - отдельными WAV-файлами. Сервис склеивает их в один
+ * непрерывный WAV-поток: один общий заголовок и подряд идущие аудиоданные блоков.
+ * Из хранилища читаются только заголовки блоков и запрошенные диапазоны данных,
+ * поэтому запрос с Range на середину описания не скачивает файлы целиком.
+ */
+@Component
+@Slf4j
+public class AudioStreamService {
+
+    /**
+     * Сколько байт от начала блока читать в поисках заголовков WAV.
+     */
+    private static final int HEADER_PROBE_SIZE = 4096;
+
+    /**
+     * Сколько раскладок помнить. Раскладка зависит только от ссылок на блоки,
+     * а ссылки неизменяемы, поэтому кэш никогда не устаревает.
+     */
+    private static final int CACHED_LAYOUTS = 256;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final S3Service s3Service;
+    private final MediaUsageService mediaUsageService;
+
+    private final Map<List<String>, AudioLayout> layouts = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, AudioLayout> eldest) {
+            return size() > CACHED_LAYOUTS;
+        }
+    });
+
+    public AudioStreamService(S3Service s3Service, MediaUsageService mediaUsageService) {
+        this.s3Service = s3Service;
+        this.mediaUsageService = mediaUsageService;
+    }
+
+    /**
+     * Возвращает раскладку общего потока для блоков озвучки.
+     *
+     * @param audio ссылки на блоки озвучки по порядку
+     * @return раскладка потока
+     * @throws NoSuchFileException если озвучки нет или блок не найден в хранилище
+     * @throws IOException         если блок не является WAV-файлом или форматы блоков различаются
+     */
+    public AudioLayout getLayout(List<String> audio) throws NoSuchFileException, IOException {
+        if (audio == null || audio.isEmpty()) {
+            throw new NoSuchFileException("Озвучка не найдена!");
+        }
+
+        List<String> key = List.copyOf(audio);
+        AudioLayout layout = layouts.get(key);
+        if (layout == null) {
+            layout = buildLayout(key);
+            layouts.put(key, layout);
+        }
+
+        return layout;
+    }
+
+    /**
+     * Пишет диапазон общего потока. Блоки, не пересекающиеся с диапазоном, не читаются.
+     *
+     * @param layout раскладка потока
+     * @param start  смещение первого байта
+     * @param end    смещение последнего байта включительно
+     * @param output куда писать
+     * @throws IOException если блок не удалось прочитать или записать
+     */
+    public void write(AudioLayout layout, long start, long end, OutputStream output) throws IOException {
+        byte[] header = layout.header();
+        if (start < header.length) {
+            int headerEnd = (int) Math.min(end, header.length - 1);
+            output.write(header, (int) start, headerEnd - (int) start + 1);
+        }
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (AudioSegment segment : layout.segments()) {
+            long segmentEnd = segment.position() + segment.length() - 1;
+            if (segmentEnd < start || segment.position() > end) {
+                continue;
+            }
+
+            long from = Math.max(start, segment.position()) - segment.position();
+            long to = Math.min(end, segmentEnd) - segment.position();
+            mediaUsageService.recordAccess(segment.url());
+            try (InputStream input = s3Service.downloadFileRange(segment.url(),
+                    segment.dataOffset() + from, segment.dataOffset() + to)) {
+                long remaining = to - from + 1;
+                while (remaining > 0) {
+                    int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read == -1) {
+                        throw new IOException("Блок озвучки оказался короче ожидаемого: " + segment.url());
+                    }
+                    output.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            } catch (NoSuchFileException e) {
+                throw new IOException("Блок озвучки не найден: " + segment.url(), e);
+            }
+        }
+    }
+
+    /**
+     * Читает заголовки всех блоков и строит раскладку общего потока.
+     *
+     * @param audio ссылки на блоки
+     * @return раскладка потока
+     */
+    private AudioLayout buildLayout(List<String> audio) throws NoSuchFileException, IOException {
+        byte[] format = null;
+        List<AudioSegment> segments = new ArrayList<>();
+        List<long[]> dataChunks = new ArrayList<>();
+
+        for (String url : audio) {
+            long size = s3Service.getFileSize(url);
+            if (size < 12) {
+                throw new IOException("Блок озвучки не является WAV-файлом: " + url);
+            }
+
+            byte[] probe;
+            try (InputStream input = s3Service.downloadFileRange(url, 0, Math.min(size, HEADER_PROBE_SIZE) - 1)) {
+                probe = input.readAllBytes();
+            }
+
+            WavHeader wav = parseHeader(probe, size, url);
+            if (format == null) {
+                format = wav.format();
+            } else if (!Arrays.equals(format, wav.format())) {
+                throw new IOException("Формат блока озвучки отличается от первого блока: " + url);
+            }
+            dataChunks.add(new long[]{wav.dataOffset(), wav.dataLength()});
+        }
+
+        long dataLength = dataChunks.stream().mapToLong(chunk -> chunk[1]).sum();
+        byte[] header = createHeader(format, dataLength);
+
+        long position = header.length;
+        for (int i = 0; i < audio.size(); i++) {
+            long[] chunk = dataChunks.get(i);
+            if (chunk[1] > 0) {
+                segments.add(new AudioSegment(audio.get(i), chunk[0], chunk[1], position));
+                position += chunk[1];
+            }
+        }
+
+        log.info("Построена раскладка озвучки: блоков {}, байт {}", audio.size(), position);
+        return new AudioLayout(header, List.copyOf(segments), position);
+    }
+
+    /**
+     * Находит в начале WAV-файла содержимое чанка fmt и расположение чанка data.
+     *
+     * @param probe начало файла
+     * @param size  размер файла
+     * @param url   ссылка на файл для сообщений об ошибке
+     * @return заголовок блока
+     * @throws IOException если файл не является WAV-файлом
+     */
+    private WavHeader parseHeader(byte[] probe, long size, String url) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(probe).order(ByteOrder.LITTLE_ENDIAN);
+        if (probe.length < 12 || !chunkId(probe, 0).equals("RIFF") || !chunkId(probe, 8).equals("WAVE")) {
+            throw new IOException("Блок озвучки не является WAV-файлом: " + url);
+        }
+
+        byte[] format = null;
+        int offset = 12;
+        while (offset + 8 <= probe.length) {
+            String id = chunkId(probe, offset);
+            long chunkSize = Integer.toUnsignedLong(buffer.getInt(offset + 4));
+            int body = offset + 8;
+
+            if (id.equals("fmt ")) {
+                if (body + chunkSize > probe.length) {
+                    break;
+                }
+                format = Arrays.copyOfRange(probe, body, body + (int) chunkSize);
+            } else if (id.equals("data")) {
+                if (format == null) {
+                    break;
+                }
+                // Потоковые кодировщики пишут в размер data 0 или 0xFFFFFFFF - доверяем размеру файла
+                long available = size - body;
+                long dataLength = chunkSize == 0 || chunkSize > available ? available : chunkSize;
+                return new WavHeader(format, body, dataLength);
+            }
+
+            offset = body + (int) Math.min(chunkSize + (chunkSize & 1), Integer.MAX_VALUE - body);
+        }
+
+        throw new IOException("Не удалось найти аудиоданные в блоке озвучки: " + url);
+    }
+
+    /**
+     * Собирает заголовок WAV для общего потока.
+     *
+     * @param format     содержимое чанка fmt
+     * @param dataLength суммарная длина аудиоданных
+     * @return заголовок
+     */
+    private byte[] createHeader(byte[] format, long dataLength) {
+        int headerLength = 12 + 8 + format.length + 8;
+        ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) Math.min(headerLength - 8 + dataLength, 0xFFFFFFFFL));
+        header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        header.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        header.putInt(format.length);
+        header.put(format);
+        header.put("data".getBytes(StandardCharsets.US_ASCII));
+        header.putInt((int) Math.min(dataLength, 0xFFFFFFFFL));
+        return header.array();
+    }
+
+    private String chunkId(byte[] bytes, int offset) {
+        return new String(bytes, offset, 4, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Раскладка общего потока озвучки.
+     *
+     * @param header   общий заголовок WAV
+     * @param segments аудиоданные блоков по порядку
+     * @param length   длина потока в байтах
+     */
+    public record AudioLayout(byte[] header, List<AudioSegment> segments, long length) {
+    }
+
+    /**
+     * Аудиоданные одного блока в общем потоке.
+     *
+     * @param url        ссылка на блок
+     * @param dataOffset смещение аудиоданных в файле блока
+     * @param length     длина аудиоданных
+     * @param position   смещение аудиоданных в общем потоке
+     */
+    public record AudioSegment(String url, long dataOffset, long length, long position) {
+    }
+
+    private record WavHeader(byte[] format, long dataOffset, long dataLength) {
+    }
+}
@@ -0,0 +1,667 @@
+package com.good.ivrstand.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.NoSuchFileException;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Сервис выгрузки каталога для автономной работы стендов.
+ * <p>
+ * Бандл - ZIP-архив, в котором лежат каталог (catalog.json), все аудио, иконки и GIF-анимации,
+ * на которые он ссылается (media/), и манифест (manifest.json) с соответствием ссылок файлам архива
+ * и списком ссылок, файлов которых нет в хранилище.
+ * Архив пишется потоково: каталог читается порциями по возрастанию идентификатора, прочитанные
+ * сущности после каждой порции отпускаются, медиафайлы копируются из хранилища напрямую в архив,
+ * целиком в памяти ничего не держится.
+ * <p>
+ * Вместе с полным бандлом строится патч относительно предыдущей версии: в нём каталог,
+ * только новые медиафайлы и список удалённых ссылок. Стенд с предыдущей версией скачивает
+ * патч одним последовательным запросом, стенд с более старой версией - полный бандл.
+ */
+@Component
+@Slf4j
+public class BundleService {
+
+    public static final String CATALOG_ENTRY = "catalog.json";
+    public static final String MANIFEST_ENTRY = "manifest.json";
+
+    private static final String MEDIA_FOLDER = "media/";
+    private static final int PAGE_SIZE = 100;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern MANIFEST_FILE = Pattern.compile("bundle-(\\d+)\\.json");
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+    private final AdditionRepository additionRepository;
+    private final S3Service s3Service;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor taskExecutor;
+    private final Path directory;
+    private final int retain;
+
+    /**
+     * Признак того, что выгрузка уже выполняется.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public BundleService(CategoryRepository categoryRepository,
+                         ItemRepository itemRepository,
+                         AdditionRepository additionRepository,
+                         S3Service s3Service,
+                         ObjectMapper objectMapper,
+                         EntityManager entityManager,
+                         PlatformTransactionManager transactionManager,
+                         @Qualifier("taskExecutor") Executor taskExecutor,
+                         @Value("${bundle.directory}") String directory,
+                         @Value("${bundle.retain}") int retain) throws IOException {
+        if (retain < 1) {
+            throw new IllegalArgumentException("Нужно хранить хотя бы один бандл");
+        }
+
+        this.categoryRepository = categoryRepository;
+        this.itemRepository = itemRepository;
+        this.additionRepository = additionRepository;
+        this.s3Service = s3Service;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.retain = retain;
+        Files.createDirectories(this.directory);
+    }
+
+    /**
+     * Запускает выгрузку бандла в фоне.
+     *
+     * @return true, если выгрузка запущена, false - если предыдущая выгрузка ещё не закончилась
+     */
+    public boolean startExport() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    exportBundle();
+                } catch (Exception e) {
+                    log.error("Не удалось выгрузить бандл", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            log.warn("Очередь задач заполнена, выгрузка бандла не запущена");
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Проверяет, выполняется ли сейчас выгрузка.
+     *
+     * @return true, если выгрузка выполняется
+     */
+    public boolean isExportRunning() {
+        return running.get();
+    }
+
+    /**
+     * Выгружает полный бандл и патч относительно предыдущей версии.
+     *
+     * @return версия выгруженного бандла
+     * @throws IOException если не удалось записать архив
+     */
+    public long exportBundle() throws IOException {
+        List<Long> versions = listVersions();
+        Long baseVersion = versions.isEmpty() ? null : versions.get(versions.size() - 1);
+        long version = Math.max(System.currentTimeMillis(), baseVersion == null ? 0 : baseVersion + 1);
+        Set<String> baseMedia = baseVersion == null ? Set.of() : readMediaUrls(baseVersion);
+
+        Path catalog = Files.createTempFile(directory, ".catalog-", ".tmp");
+        Path bundle = Files.createTempFile(directory, ".bundle-", ".tmp");
+        Path patch = Files.createTempFile(directory, ".patch-", ".tmp");
+        try {
+            Set<String> mediaUrls = writeCatalog(catalog);
+
+            Map<String, MediaEntry> media = new LinkedHashMap<>();
+            Map<String, MediaEntry> patchMedia = new LinkedHashMap<>();
+            Set<String> missing = new LinkedHashSet<>();
+            try (ZipOutputStream bundleZip = new ZipOutputStream(Files.newOutputStream(bundle));
+                 ZipOutputStream patchZip = new ZipOutputStream(Files.newOutputStream(patch))) {
+                copyCatalog(catalog, bundleZip);
+                copyCatalog(catalog, patchZip);
+
+                for (String url : mediaUrls) {
+                    boolean isNew = !baseMedia.contains(url);
+                    MediaEntry entry = copyMedia(url, bundleZip, baseVersion != null && isNew ? patchZip : null);
+                    if (entry == null) {
+                        missing.add(url);
+                    } else {
+                        media.put(url, entry);
+                        if (isNew) {
+                            patchMedia.put(url, entry);
+                        }
+                    }
+                }
+
+                // Пропавший из хранилища файл стенд не удаляет: каталог на него по-прежнему ссылается
+                Set<String> removed = new LinkedHashSet<>(baseMedia);
+                removed.removeAll(media.keySet());
+                removed.removeAll(missing);
+
+                writeManifest(bundleZip, version, null, media.values(), Set.of(), missing);
+                writeManifest(patchZip, version, baseVersion, patchMedia.values(), removed, missing);
+            }
+
+            if (baseVersion != null) {
+                Files.move(patch, patchPath(baseVersion, version), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(bundle, bundlePath(version), StandardCopyOption.ATOMIC_MOVE);
+
+            Path manifest = Files.createTempFile(directory, ".manifest-", ".tmp");
+            try {
+                try (OutputStream output = Files.newOutputStream(manifest)) {
+                    writeManifest(output, version, null, media.values(), Set.of(), missing);
+                }
+                Files.move(manifest, manifestPath(version), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(manifest);
+            }
+
+            if (!missing.isEmpty()) {
+                log.warn("В бандл версии {} не попали отсутствующие в хранилище медиафайлы: {}", version, missing);
+            }
+            log.info("Выгружен бандл версии {}: медиафайлов {}, новых {}, отсутствует {}",
+                    version, media.size(), patchMedia.size(), missing.size());
+        } finally {
+            Files.deleteIfExists(catalog);
+            Files.deleteIfExists(bundle);
+            Files.deleteIfExists(patch);
+        }
+
+        deleteOldBundles();
+        return version;
+    }
+
+    /**
+     * Возвращает последнюю выгруженную версию.
+     *
+     * @return версия бандла
+     * @throws NoSuchFileException если ни одного бандла ещё не выгружено
+     */
+    public long getLatestVersion() throws NoSuchFileException {
+        try {
+            List<Long> versions = listVersions();
+            if (versions.isEmpty()) {
+                throw new NoSuchFileException("Бандл не найден!");
+            }
+            return versions.get(versions.size() - 1);
+        } catch (IOException e) {
+            throw new NoSuchFileException("Бандл не найден!");
+        }
+    }
+
+    /**
+     * Возвращает путь к полному бандлу указанной версии.
+     *
+     * @param version версия
+     * @return путь к архиву
+     * @throws NoSuchFileException если бандла нет
+     */
+    public Path getBundle(long version) throws NoSuchFileException {
+        return existing(bundlePath(version));
+    }
+
+    /**
+     * Возвращает путь к патчу между двумя версиями.
+     *
+     * @param fromVersion версия, которая уже есть на стенде
+     * @param toVersion   версия, до которой нужно обновиться
+     * @return путь к архиву
+     * @throws NoSuchFileException если такого патча нет
+     */
+    public Path getPatch(long fromVersion, long toVersion) throws NoSuchFileException {
+        return existing(patchPath(fromVersion, toVersion));
+    }
+
+    /**
+     * Потоково пишет каталог в файл в одной читающей транзакции.
+     *
+     * @param target файл каталога
+     * @return ссылки на все медиафайлы каталога
+     * @throws IOException если не удалось записать каталог
+     */
+    private Set<String> writeCatalog(Path target) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                Set<String> mediaUrls = new LinkedHashSet<>();
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(Files.newOutputStream(target))) {
+                    generator.writeStartObject();
+
+                    generator.writeArrayFieldStart("categories");
+                    writeAll(categoryRepository::findAllByOrderByIdAsc, this::writeCategory, generator, mediaUrls);
+                    generator.writeEndArray();
+
+                    generator.writeArrayFieldStart("items");
+                    writeAll(itemRepository::findAllByOrderByIdAsc, this::writeItem, generator, mediaUrls);
+                    generator.writeEndArray();
+
+                    generator.writeArrayFieldStart("additions");
+                    writeAll(additionRepository::findAllByOrderByIdAsc, this::writeAddition, generator, mediaUrls);
+                    generator.writeEndArray();
+
+                    generator.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return mediaUrls;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Пишет все сущности порциями по возрастанию идентификатора.
+     * Порция начинается после последнего записанного идентификатора, поэтому чтение не замедляется
+     * к концу каталога и не требует подсчета строк. После каждой порции контекст персистентности
+     * очищается, и память не растет вместе с каталогом.
+     *
+     * @param finder    запрос порции
+     * @param writer    запись одной сущности
+     * @param generator генератор JSON
+     * @param mediaUrls собираемые ссылки на медиафайлы
+     */
+    private <T> void writeAll(BiFunction<ScrollPosition, Limit, Window<T>> finder, EntityWriter<T> writer,
+                              JsonGenerator generator, Set<String> mediaUrls) throws IOException {
+        Window<T> window = finder.apply(ScrollPosition.keyset(), Limit.of(PAGE_SIZE));
+        while (true) {
+            for (T entity : window) {
+                writer.write(generator, entity, mediaUrls);
+            }
+            entityManager.clear();
+            if (!window.hasNext()) {
+                return;
+            }
+            window = finder.apply(window.positionAt(window.size() - 1), Limit.of(PAGE_SIZE));
+        }
+    }
+
+    private void writeCategory(JsonGenerator generator, Category category, Set<String> mediaUrls) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", category.getId());
+        generator.writeStringField("title", category.getTitle());
+        if (category.getParentCategory() != null) {
+            generator.writeNumberField("parentCategoryId", category.getParentCategory().getId());
+        } else {
+            generator.writeNullField("parentCategoryId");
+        }
+        writeMediaField(generator, "gifPreview", category.getGifPreview(), mediaUrls);
+        writeMediaField(generator, "gifLink", category.getGifLink(), mediaUrls);
+        writeMediaField(generator, "mainIconLink", category.getMainIconLink(), mediaUrls);
+        writeMediaField(generator, "titleAudio", category.getTitleAudio(), mediaUrls);
+        generator.writeEndObject();
+    }
+
+    private void writeItem(JsonGenerator generator, Item item, Set<String> mediaUrls) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", item.getId());
+        generator.writeStringField("title", item.getTitle());
+        generator.writeStringField("description", item.getDescription());
+        if (item.getCategory() != null) {
+            generator.writeNumberField("categoryId", item.getCategory().getId());
+        } else {
+            generator.writeNullField("categoryId");
+        }
+        writeMediaField(generator, "gifPreview", item.getGifPreview(), mediaUrls);
+        writeMediaField(generator, "gifLink", item.getGifLink(), mediaUrls);
+        writeMediaField(generator, "mainIconLink", item.getMainIconLink(), mediaUrls);
+        writeMediaField(generator, "titleAudio", item.getTitleAudio(), mediaUrls);
+        writeMediaArray(generator, "iconLinks", item.getIconLinks(), mediaUrls);
+        writeMediaArray(generator, "audio", item.getAudio(), mediaUrls);
+        writeStringArray(generator, "keywords", item.getKeywords());
+        generator.writeEndObject();
+    }
+
+    private void writeAddition(JsonGenerator generator, Addition addition, Set<String> mediaUrls) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", addition.getId());
+        generator.writeNumberField("itemId", addition.getItem().getId());
+        generator.writeStringField("title", addition.getTitle());
+        generator.writeStringField("description", addition.getDescription());
+        writeMediaField(generator, "gifPreview", addition.getGifPreview(), mediaUrls);
+        writeMediaField(generator, "gifLink", addition.getGifLink(), mediaUrls);
+        writeMediaField(generator, "mainIconLink", addition.getMainIconLink(), mediaUrls);
+        writeMediaField(generator, "titleAudio", addition.getTitleAudio(), mediaUrls);
+        writeMediaArray(generator, "iconLinks", addition.getIconLinks(), mediaUrls);
+        writeMediaArray(generator, "audio", addition.getAudio(), mediaUrls);
+        generator.writeEndObject();
+    }
+
+    private void writeMediaField(JsonGenerator generator, String name, String url, Set<String> mediaUrls) throws IOException {
+        generator.writeStringField(name, url);
+        if (url != null && !url.isBlank()) {
+            mediaUrls.add(url);
+        }
+    }
+
+    private void writeMediaArray(JsonGenerator generator, String name, List<String> urls, Set<String> mediaUrls) throws IOException {
+        writeStringArray(generator, name, urls);
+        if (urls != null) {
+            for (String url : urls) {
+                if (url != null && !url.isBlank()) {
+                    mediaUrls.add(url);
+                }
+            }
+        }
+    }
+
+    private void writeStringArray(JsonGenerator generator, String name, List<String> values) throws IOException {
+        generator.writeArrayFieldStart(name);
+        if (values != null) {
+            for (String value : values) {
+                generator.writeString(value);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Копирует файл каталога в архив со сжатием.
+     *
+     * @param catalog файл каталога
+     * @param zip     архив
+     * @throws IOException если не удалось записать архив
+     */
+    private void copyCatalog(Path catalog, ZipOutputStream zip) throws IOException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(CATALOG_ENTRY));
+        Files.copy(catalog, zip);
+        zip.closeEntry();
+    }
+
+    /**
+     * Копирует медиафайл из хранилища в бандл и, если нужно, в патч за одно чтение.
+     * Медиафайлы уже сжаты, поэтому кладутся в архив без повторного сжатия.
+     * Пропускается только файл, которого нет в хранилище; любая другая ошибка хранилища
+     * прерывает выгрузку, чтобы не опубликовать неполный бандл как успешный.
+     *
+     * @param url       ссылка на медиафайл
+     * @param bundleZip архив полного бандла
+     * @param patchZip  архив патча или null
+     * @return запись манифеста или null, если файла нет в хранилище
+     * @throws IOException если не удалось прочитать файл или записать архив
+     */
+    private MediaEntry copyMedia(String url, ZipOutputStream bundleZip, ZipOutputStream patchZip) throws IOException {
+        InputStream input;
+        try {
+            input = s3Service.downloadFile(url);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        String entryName = entryName(url);
+        long size = 0;
+        try (input) {
+            bundleZip.setLevel(Deflater.NO_COMPRESSION);
+            bundleZip.putNextEntry(new ZipEntry(entryName));
+            if (patchZip != null) {
+                patchZip.setLevel(Deflater.NO_COMPRESSION);
+                patchZip.putNextEntry(new ZipEntry(entryName));
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                bundleZip.write(buffer, 0, read);
+                if (patchZip != null) {
+                    patchZip.write(buffer, 0, read);
+                }
+                size += read;
+            }
+
+            bundleZip.closeEntry();
+            if (patchZip != null) {
+                patchZip.closeEntry();
+            }
+        }
+
+        return new MediaEntry(url, entryName, size);
+    }
+
+    /**
+     * Формирует имя файла в архиве по ссылке. Имя зависит только от ссылки,
+     * поэтому совпадает во всех версиях бандла.
+     *
+     * @param url ссылка на медиафайл
+     * @return имя записи архива
+     */
+    private String entryName(String url) {
+        String path = url;
+        try {
+            String uriPath = URI.create(url.replace(" ", "%20")).getPath();
+            if (uriPath != null) {
+                path = uriPath;
+            }
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        int lastSlash = path.lastIndexOf('/');
+        int lastDot = path.lastIndexOf('.');
+        String extension = lastDot > lastSlash ? path.substring(lastDot).toLowerCase() : "";
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return MEDIA_FOLDER + HexFormat.of().formatHex(digest, 0, 16) + extension;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Записывает манифест последней записью архива.
+     */
+    private void writeManifest(ZipOutputStream zip, long version, Long baseVersion,
+                               Iterable<MediaEntry> media, Set<String> removed, Set<String> missing) throws IOException {
+        zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+        writeManifest((OutputStream) zip, version, baseVersion, media, removed, missing);
+        zip.closeEntry();
+    }
+
+    /**
+     * Записывает манифест: версию, базовую версию для патча, медиафайлы архива, удалённые ссылки
+     * и ссылки каталога, файлов которых не оказалось в хранилище.
+     */
+    private void writeManifest(OutputStream output, long version, Long baseVersion,
+                               Iterable<MediaEntry> media, Set<String> removed, Set<String> missing) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        generator.writeStartObject();
+        generator.writeNumberField("version", version);
+        if (baseVersion != null) {
+            generator.writeNumberField("baseVersion", baseVersion);
+        } else {
+            generator.writeNullField("baseVersion");
+        }
+        generator.writeStringField("createdAt", Instant.now().toString());
+        generator.writeStringField("catalog", CATALOG_ENTRY);
+
+        generator.writeArrayFieldStart("media");
+        for (MediaEntry entry : media) {
+            generator.writeStartObject();
+            generator.writeStringField("url", entry.url());
+            generator.writeStringField("entry", entry.entry());
+            generator.writeNumberField("size", entry.size());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("removed");
+        for (String url : removed) {
+            generator.writeString(url);
+        }
+        generator.writeEndArray();
+
+        generator.writeArrayFieldStart("missing");
+        for (String url : missing) {
+            generator.writeString(url);
+        }
+        generator.writeEndArray();
+
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Читает ссылки на медиафайлы из манифеста выгруженной версии.
+     *
+     * @param version версия
+     * @return ссылки на медиафайлы
+     * @throws IOException если манифест не удалось прочитать
+     */
+    private Set<String> readMediaUrls(long version) throws IOException {
+        JsonNode manifest = objectMapper.readTree(manifestPath(version).toFile());
+        Set<String> urls = new HashSet<>();
+        for (JsonNode entry : manifest.path("media")) {
+            urls.add(entry.path("url").asText());
+        }
+        return urls;
+    }
+
+    /**
+     * Возвращает выгруженные версии по возрастанию.
+     * Версия считается выгруженной, когда рядом с архивом записан манифест.
+     *
+     * @return список версий
+     * @throws IOException если каталог не удалось прочитать
+     */
+    private List<Long> listVersions() throws IOException {
+        List<Long> versions = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "bundle-*.json")) {
+            for (Path file : files) {
+                Matcher matcher = MANIFEST_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    versions.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        versions.sort(null);
+        return versions;
+    }
+
+    /**
+     * Удаляет бандлы и патчи старше последних {@code retain} версий.
+     */
+    private void deleteOldBundles() {
+        try {
+            List<Long> versions = listVersions();
+            for (Long version : versions.subList(0, Math.max(0, versions.size() - retain))) {
+                Files.deleteIfExists(manifestPath(version));
+                Files.deleteIfExists(bundlePath(version));
+                try (DirectoryStream<Path> patches = Files.newDirectoryStream(directory, "patch-*-" + version + ".zip")) {
+                    for (Path patch : patches) {
+                        Files.deleteIfExists(patch);
+                    }
+                }
+                log.info("Удалён устаревший бандл версии {}", version);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось удалить устаревшие бандлы: {}", e.getMessage());
+        }
+    }
+
+    private Path existing(Path file) throws NoSuchFileException {
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException("Бандл не найден!");
+        }
+        return file;
+    }
+
+    private Path bundlePath(long version) {
+        return directory.resolve("bundle-" + version + ".zip");
+    }
+
+    private Path manifestPath(long version) {
+        return directory.resolve("bundle-" + version + ".json");
+    }
+
+    private Path patchPath(long fromVersion, long toVersion) {
+        return directory.resolve("patch-" + fromVersion + "-" + toVersion + ".zip");
+    }
+
+    /**
+     * Медиафайл в архиве.
+     *
+     * @param url   ссылка на файл в хранилище
+     * @param entry имя записи в архиве
+     * @param size  размер файла
+     */
+    private record MediaEntry(String url, String entry, long size) {
+    }
+
+    /**
+     * Запись сущности каталога в JSON.
+     */
+    @FunctionalInterface
+    private interface EntityWriter<T> {
+        void write(JsonGenerator generator, T entity, Set<String> mediaUrls) throws IOException;
+    }
+}
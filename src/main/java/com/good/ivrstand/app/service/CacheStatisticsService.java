@@ -0,0 +1,79 @@
+package com.good.ivrstand.app.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сервис статистики кэша второго уровня Hibernate.
+ */
+@Component
+@Slf4j
+public class CacheStatisticsService {
+
+    private final SessionFactory sessionFactory;
+
+    public CacheStatisticsService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    /**
+     * Возвращает статистику по каждому региону кэша с момента запуска или последнего сброса статистики.
+     *
+     * @return статистика регионов, отсортированная по имени региона
+     */
+    public List<RegionStatistics> getRegionStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+        List<RegionStatistics> result = new ArrayList<>();
+        String[] regions = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regions);
+        for (String region : regions) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                result.add(new RegionStatistics(region,
+                        regionStatistics.getHitCount(),
+                        regionStatistics.getMissCount(),
+                        regionStatistics.getPutCount(),
+                        regionStatistics.getElementCountInMemory()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Очищает все регионы кэша, например после изменения данных в базе в обход приложения.
+     */
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+        log.info("Кэш второго уровня очищен");
+    }
+
+    /**
+     * Статистика региона кэша.
+     *
+     * @param region           имя региона
+     * @param hits             попадания
+     * @param misses           промахи
+     * @param puts             записи в кэш
+     * @param elementsInMemory записей в регионе, если провайдер это сообщает, иначе отрицательное число
+     */
+    public record RegionStatistics(String region, long hits, long misses, long puts, long elementsInMemory) {
+
+        /**
+         * Доля попаданий среди всех обращений к региону.
+         *
+         * @return доля от 0 до 1 или 0, если обращений не было
+         */
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
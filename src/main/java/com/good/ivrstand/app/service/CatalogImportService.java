@@ -0,0 +1,472 @@
+package com.good.ivrstand.app.service;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.CatalogImportException;
+import com.good.ivrstand.exception.notfound.CatalogImportNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис массового импорта услуг.
+ * <p>
+ * Файл (JSON-массив или CSV с заголовком) разбирается потоково, по одной записи. Корректные записи
+ * сохраняются пакетами, каждый пакет - в своей транзакции одним JDBC batch. Если пакет не сохранился,
+ * его записи сохраняются по одной, чтобы отсеять только ошибочные. После сохранения услуги пакетами
+ * добавляются в векторный поиск. Ход импорта и ошибки по записям доступны в отчёте.
+ * <p>
+ * Аудио при импорте не генерируется - его можно сгенерировать позже для каждой услуги.
+ */
+@Component
+@Slf4j
+public class CatalogImportService {
+
+    private static final String CSV_LIST_SEPARATOR = "|";
+
+    private final ItemRepository itemRepository;
+    private final CategoryRepository categoryRepository;
+    private final ItemService itemService;
+    private final EncodeService encodeService;
+    private final CategoryTreeService categoryTreeService;
+    private final ObjectReader jsonReader;
+    private final ObjectReader csvReader;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor taskExecutor;
+    private final int batchSize;
+    private final int maxErrors;
+    private final int history;
+
+    /**
+     * Последние импорты по идентификатору, самый старый вытесняется первым.
+     */
+    private final Map<Long, ImportJob> jobs = new LinkedHashMap<>();
+
+    private final AtomicLong jobIds = new AtomicLong();
+
+    /**
+     * Признак того, что импорт уже выполняется.
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public CatalogImportService(ItemRepository itemRepository,
+                                CategoryRepository categoryRepository,
+                                ItemService itemService,
+                                EncodeService encodeService,
+                                CategoryTreeService categoryTreeService,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("taskExecutor") Executor taskExecutor,
+                                @Value("${catalog-import.batch-size}") int batchSize,
+                                @Value("${catalog-import.max-errors}") int maxErrors,
+                                @Value("${catalog-import.history}") int history) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Размер пакета импорта должен быть положительным");
+        }
+
+        this.itemRepository = itemRepository;
+        this.categoryRepository = categoryRepository;
+        this.itemService = itemService;
+        this.encodeService = encodeService;
+        this.categoryTreeService = categoryTreeService;
+        this.jsonReader = objectMapper.readerFor(ImportedItem.class);
+        CsvMapper csvMapper = CsvMapper.builder()
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .build();
+        this.csvReader = csvMapper.readerFor(ImportedItem.class)
+                .with(CsvSchema.emptySchema().withHeader().withArrayElementSeparator(CSV_LIST_SEPARATOR));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.history = history;
+    }
+
+    /**
+     * Сохраняет файл во временный каталог и запускает его импорт в фоне.
+     *
+     * @param input  содержимое файла
+     * @param format формат файла
+     * @return начальный отчёт импорта
+     * @throws CatalogImportException если импорт уже выполняется или очередь задач заполнена
+     * @throws IOException            если файл не удалось сохранить
+     */
+    public ImportReport startImport(InputStream input, Format format) throws CatalogImportException, IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new CatalogImportException("Импорт уже выполняется");
+        }
+
+        Path file;
+        try {
+            file = Files.createTempFile("catalog-import-", "." + format.name().toLowerCase());
+            Files.copy(input, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+
+        ImportJob job = registerJob();
+        try {
+            taskExecutor.execute(() -> {
+                try (InputStream fileInput = Files.newInputStream(file)) {
+                    runImport(job, fileInput, format);
+                } catch (IOException e) {
+                    job.finish(ImportStatus.FAILED, "Файл импорта не удалось прочитать: " + e.getMessage());
+                } catch (RuntimeException e) {
+                    log.error("Импорт {} прерван", job.id, e);
+                    job.finish(ImportStatus.FAILED, "Импорт прерван: " + e.getMessage());
+                } finally {
+                    deleteQuietly(file);
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            deleteQuietly(file);
+            running.set(false);
+            job.finish(ImportStatus.FAILED, "Очередь задач заполнена");
+            throw new CatalogImportException("Очередь задач заполнена, импорт не запущен");
+        }
+
+        return job.toReport();
+    }
+
+    /**
+     * Возвращает отчёт импорта.
+     *
+     * @param importId идентификатор импорта
+     * @return отчёт импорта
+     * @throws CatalogImportNotFoundException если импорт не найден
+     */
+    public ImportReport getReport(long importId) throws CatalogImportNotFoundException {
+        ImportJob job;
+        synchronized (jobs) {
+            job = jobs.get(importId);
+        }
+        if (job == null) {
+            throw new CatalogImportNotFoundException("Импорт с id " + importId + " не найден");
+        }
+        return job.toReport();
+    }
+
+    private ImportJob registerJob() {
+        ImportJob job = new ImportJob(jobIds.incrementAndGet());
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+            while (jobs.size() > history) {
+                jobs.remove(jobs.keySet().iterator().next());
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Разбирает файл, сохраняет корректные записи пакетами и добавляет сохранённые услуги в векторный поиск.
+     */
+    private void runImport(ImportJob job, InputStream input, Format format) {
+        log.info("Начат импорт {} услуг из {}", job.id, format);
+        Map<Long, String> categoryErrors = new HashMap<>();
+        List<PendingItem> batch = new ArrayList<>(batchSize);
+        String parseError = null;
+
+        ObjectReader reader = format == Format.CSV ? csvReader : jsonReader;
+        try (MappingIterator<ImportedItem> records = reader.readValues(input)) {
+            while (records.hasNextValue()) {
+                long number = job.processed.incrementAndGet();
+                ImportedItem record;
+                try {
+                    record = records.nextValue();
+                } catch (JsonMappingException e) {
+                    job.addError(number, "Некорректная запись: " + e.getOriginalMessage());
+                    continue;
+                }
+
+                String error = validate(record, categoryErrors);
+                if (error != null) {
+                    job.addError(number, error);
+                    continue;
+                }
+
+                batch.add(new PendingItem(number, record));
+                if (batch.size() == batchSize) {
+                    saveBatch(job, batch);
+                    batch.clear();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            parseError = "Файл не удалось разобрать после записи " + job.processed.get() + ": " + e.getMessage();
+            log.warn("Импорт {}: {}", job.id, parseError);
+        }
+        saveBatch(job, batch);
+
+        if (!job.importedIds.isEmpty()) {
+            categoryTreeService.invalidate();
+        }
+        index(job);
+
+        job.finish(parseError == null ? ImportStatus.DONE : ImportStatus.FAILED, parseError);
+        log.info("Импорт {} завершён: записей {}, сохранено {}, ошибок {}, добавлено в поиск {}",
+                job.id, job.processed.get(), job.importedIds.size(), job.failed.get(), job.indexed.get());
+    }
+
+    /**
+     * Проверяет запись перед сохранением.
+     *
+     * @param record         запись
+     * @param categoryErrors результаты проверки уже встречавшихся категорий, null - категория подходит
+     * @return текст ошибки или null, если запись корректна
+     */
+    private String validate(ImportedItem record, Map<Long, String> categoryErrors) {
+        if (record == null) {
+            return "Пустая запись";
+        }
+        if (record.title() == null || record.title().isBlank()) {
+            return "Не указан заголовок услуги";
+        }
+        if (record.description() == null || record.description().isBlank()) {
+            return "Не указано описание услуги";
+        }
+        if (record.categoryId() == null) {
+            return null;
+        }
+
+        long categoryId = record.categoryId();
+        if (!categoryErrors.containsKey(categoryId)) {
+            categoryErrors.put(categoryId, transactionTemplate.execute(status -> {
+                Category category = categoryRepository.findById(categoryId);
+                if (category == null) {
+                    return "Категория с id " + categoryId + " не найдена";
+                }
+                if (!category.getChildrenCategories().isEmpty()) {
+                    return String.format("В категории с id %s есть подкатегории - услугу можно добавить только в конечную подкатегорию!", categoryId);
+                }
+                return null;
+            }));
+        }
+        return categoryErrors.get(categoryId);
+    }
+
+    /**
+     * Сохраняет пакет в одной транзакции, а при ошибке - каждую запись пакета в своей транзакции.
+     */
+    private void saveBatch(ImportJob job, List<PendingItem> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            job.importedIds.addAll(transactionTemplate.execute(status -> persist(batch)));
+        } catch (RuntimeException e) {
+            log.warn("Импорт {}: пакет из {} услуг не сохранён, сохраняем по одной: {}", job.id, batch.size(), e.getMessage());
+            for (PendingItem pending : batch) {
+                try {
+                    job.importedIds.addAll(transactionTemplate.execute(status -> persist(List.of(pending))));
+                } catch (RuntimeException ex) {
+                    job.addError(pending.number(), "Услуга не сохранена: " + NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+                }
+            }
+        }
+    }
+
+    private List<Long> persist(List<PendingItem> batch) {
+        List<Item> items = new ArrayList<>(batch.size());
+        for (PendingItem pending : batch) {
+            ImportedItem record = pending.record();
+            items.add(Item.builder()
+                    .title(record.title().trim())
+                    .description(record.description())
+                    .gifPreview(record.gifPreview())
+                    .gifLink(record.gifLink())
+                    .category(record.categoryId() != null ? categoryRepository.getReferenceById(record.categoryId()) : null)
+                    .additions(new ArrayList<>())
+                    .iconLinks(nonBlank(record.iconLinks()))
+                    .keywords(nonBlank(record.keywords()))
+                    .mainIconLink(record.mainIconLink())
+                    .audio(new ArrayList<>())
+                    .descriptionHash(encodeService.generateHashForAudio(record.description()))
+                    .build());
+        }
+
+        List<Item> saved = itemRepository.saveAll(items);
+        itemRepository.flush();
+        return saved.stream().map(Item::getId).toList();
+    }
+
+    /**
+     * Добавляет сохранённые услуги в векторный поиск пакетами по размеру пакета импорта.
+     * Ошибка по одной услуге учитывается в отчёте и не прерывает добавление остальных.
+     */
+    private void index(ImportJob job) {
+        job.status = ImportStatus.INDEXING;
+        List<Long> ids = job.importedIds;
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<Long> chunk = ids.subList(start, Math.min(start + batchSize, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Item item : itemRepository.findByIdIn(chunk)) {
+                    try {
+                        itemService.addToVectorSearch(item);
+                        job.indexed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        job.indexFailed.incrementAndGet();
+                        log.warn("Импорт {}: услуга с id {} не добавлена в поиск: {}", job.id, item.getId(), e.getMessage());
+                    }
+                }
+            });
+        }
+    }
+
+    private static List<String> nonBlank(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    result.add(value.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл импорта {}", file);
+        }
+    }
+
+    /**
+     * Формат файла импорта.
+     */
+    public enum Format {
+        /**
+         * JSON-массив объектов услуг.
+         */
+        JSON,
+        /**
+         * CSV с заголовком, элементы списков разделены символом '|'.
+         */
+        CSV
+    }
+
+    /**
+     * Состояние импорта.
+     */
+    public enum ImportStatus {
+        RUNNING,
+        INDEXING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * Услуга в файле импорта.
+     *
+     * @param title        заголовок
+     * @param description  описание
+     * @param categoryId   конечная категория или null
+     * @param gifLink      ссылка на GIF-анимацию
+     * @param gifPreview   ссылка на превью GIF-анимации
+     * @param mainIconLink ссылка на главную иконку
+     * @param iconLinks    ссылки на иконки
+     * @param keywords     ключевые слова
+     */
+    public record ImportedItem(String title, String description, Long categoryId, String gifLink, String gifPreview,
+                               String mainIconLink, List<String> iconLinks, List<String> keywords) {
+    }
+
+    /**
+     * Ошибка по записи файла.
+     *
+     * @param record  номер записи, начиная с 1
+     * @param message описание ошибки
+     */
+    public record ImportError(long record, String message) {
+    }
+
+    /**
+     * Отчёт импорта.
+     */
+    public record ImportReport(long id, ImportStatus status, long processed, long imported, long failed,
+                               long indexed, long indexFailed, String message, List<ImportError> errors,
+                               Instant startedAt, Instant finishedAt) {
+    }
+
+    private record PendingItem(long number, ImportedItem record) {
+    }
+
+    /**
+     * Изменяемое состояние импорта. Пишется потоком импорта, читается при запросе отчёта.
+     */
+    private class ImportJob {
+        private final long id;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong indexed = new AtomicLong();
+        private final AtomicLong indexFailed = new AtomicLong();
+        private final List<Long> importedIds = Collections.synchronizedList(new ArrayList<>());
+        private final List<ImportError> errors = new ArrayList<>();
+        private volatile ImportStatus status = ImportStatus.RUNNING;
+        private volatile String message;
+        private volatile Instant finishedAt;
+
+        private ImportJob(long id) {
+            this.id = id;
+        }
+
+        private void addError(long record, String error) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportError(record, error));
+                }
+            }
+        }
+
+        private void finish(ImportStatus finalStatus, String finalMessage) {
+            message = finalMessage;
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private ImportReport toReport() {
+            List<ImportError> errorsCopy;
+            synchronized (errors) {
+                errorsCopy = List.copyOf(errors);
+            }
+            return new ImportReport(id, status, processed.get(), importedIds.size(), failed.get(),
+                    indexed.get(), indexFailed.get(), message, errorsCopy, startedAt, finishedAt);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package com.good.ivrstand.app.service;
 
+import com.good.ivrstand.app.repository.CatalogPatch;
+import com.good.ivrstand.app.repository.CategoryClosureRepository;
 import com.good.ivrstand.app.repository.CategoryRepository;
 import com.good.ivrstand.app.service.externinterfaces.FlaskApiVectorSearchService;
 import com.good.ivrstand.exception.CategoryUpdateException;
 import com.good.ivrstand.exception.FileDuplicateException;
 import com.good.ivrstand.exception.ItemCategoryAddDeleteException;
+import com.good.ivrstand.exception.VersionConflictException;
 import com.good.ivrstand.exception.notfound.CategoryNotFoundException;
 import com.good.ivrstand.extern.api.flaskRequests.AddTitleRequest;
 import com.good.ivrstand.domain.Category;
@@ -12,27 +15,45 @@ import com.good.ivrstand.domain.Item;
 import com.good.ivrstand.extern.api.flaskRequests.TitleRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 /**
- * Сервис для работы с категориями
+ * Сервис для работы с категориями.
+ * <p>
+ * Помимо ссылки на родителя, дерево категорий хранится в таблице замыкания ({@link CategoryClosureRepository}),
+ * которую сервис обновляет при каждом изменении дерева. По ней поддерево, путь от корня и глубина
+ * категории получаются одним запросом без обхода дерева.
  */
 @Component
 @Slf4j
 public class CategoryService {
     private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
     private final FlaskApiVectorSearchService flaskApiVectorSearchService;
     private final SpeechService speechService;
+    private final GifPreviewService gifPreviewService;
+    private final CategoryTreeService categoryTreeService;
 
     @Autowired
-    public CategoryService(CategoryRepository categoryRepository, FlaskApiVectorSearchService flaskApiVectorSearchService, SpeechService speechService) {
+    public CategoryService(CategoryRepository categoryRepository, CategoryClosureRepository categoryClosureRepository, FlaskApiVectorSearchService flaskApiVectorSearchService, SpeechService speechService, GifPreviewService gifPreviewService, CategoryTreeService categoryTreeService) {
         this.categoryRepository = categoryRepository;
+        this.categoryClosureRepository = categoryClosureRepository;
         this.flaskApiVectorSearchService = flaskApiVectorSearchService;
         this.speechService = speechService;
+        this.gifPreviewService = gifPreviewService;
+        this.categoryTreeService = categoryTreeService;
     }
 
     /**
@@ -43,6 +64,7 @@ public class CategoryService {
      * @throws IllegalArgumentException Если переданная категория равна null.
      * @throws RuntimeException         Если возникла ошибка при создании категории.
      */
+    @Transactional
     public Category createCategory(Category category, boolean enableAudio) {
         if (category == null) {
             throw new IllegalArgumentException("Категория не может быть null");
@@ -53,7 +75,13 @@ public class CategoryService {
                 String titleAudio = speechService.generateAudio(category.getTitle());
                 category.setTitleAudio(titleAudio);
             }
+            category.setGifPreview(gifPreviewService.resolvePreview(category.getGifLink(), category.getGifPreview()));
             Category savedCategory = categoryRepository.save(category);
+            categoryClosureRepository.addCategory(savedCategory.getId());
+            if (savedCategory.getParentCategory() != null) {
+                categoryClosureRepository.attachSubtree(savedCategory.getId(), savedCategory.getParentCategory().getId());
+            }
+            categoryTreeService.invalidate();
             log.info("Создана категория с id {}", savedCategory.getId());
             return savedCategory;
         } catch (Exception e) {
@@ -85,6 +113,7 @@ public class CategoryService {
      *
      * @param categoryId Идентификатор категории.
      */
+    @Transactional
     public void deleteCategory(long categoryId) throws CategoryNotFoundException {
         Category foundCategory = getCategoryById(categoryId);
         for (Item i : foundCategory.getItemsInCategory()) {
@@ -94,11 +123,12 @@ public class CategoryService {
             AddTitleRequest addTitleRequest = new AddTitleRequest(i.getTitle() + " " + i.getDescription(), i.getId());
             flaskApiVectorSearchService.addTitle(addTitleRequest);
         }
-        for (Category c : foundCategory.getChildrenCategories()) {
-            c.setParentCategory(c.getParentCategory().getParentCategory());
-        }
         categoryRepository.save(foundCategory);
+        categoryRepository.reparentChildren(categoryId, foundCategory.getParentCategory());
+        categoryClosureRepository.shortenPathsThrough(categoryId);
+        categoryClosureRepository.removeCategory(categoryId);
         categoryRepository.deleteById(categoryId);
+        categoryTreeService.invalidate();
         log.info("Удалена категория с id {}", categoryId);
     }
 
@@ -112,6 +142,19 @@ public class CategoryService {
         return categoryRepository.findAll(pageable);
     }
 
+    /**
+     * Получает порцию всех категорий по возрастанию идентификатора.
+     * В отличие от страниц, порция ищется по индексу от последнего идентификатора и не замедляется к концу списка.
+     *
+     * @param afterId Идентификатор, после которого начинается порция, или null для первой порции.
+     * @param size    Размер порции.
+     * @return Порция категорий.
+     */
+    public Window<Category> scrollAllCategories(Long afterId, int size) {
+        ScrollPosition position = afterId == null ? ScrollPosition.keyset() : ScrollPosition.forward(Map.of("id", afterId));
+        return categoryRepository.findAllByOrderByIdAsc(position, Limit.of(size));
+    }
+
     /**
      * Ищет нераспределённые категории (без детей и родителя), с поддержкой пагинации.
      *
@@ -132,14 +175,86 @@ public class CategoryService {
         return categoryRepository.findMainCategories(pageable);
     }
 
+    /**
+     * Получает поддерево категории одним запросом: саму категорию и всех её потомков по уровням.
+     *
+     * @param categoryId Идентификатор категории.
+     * @return Категории поддерева.
+     * @throws CategoryNotFoundException Если категория не найдена.
+     */
+    public List<Category> getSubtree(long categoryId) throws CategoryNotFoundException {
+        List<Category> subtree = categoryRepository.findSubtree(categoryId);
+        if (subtree.isEmpty()) {
+            throw new CategoryNotFoundException("Категория с id " + categoryId + " не найдена");
+        }
+        return subtree;
+    }
+
+    /**
+     * Получает путь к категории одним запросом: от главной категории до самой категории.
+     *
+     * @param categoryId Идентификатор категории.
+     * @return Категории пути.
+     * @throws CategoryNotFoundException Если категория не найдена.
+     */
+    public List<Category> getPath(long categoryId) throws CategoryNotFoundException {
+        List<Category> path = categoryRepository.findPath(categoryId);
+        if (path.isEmpty()) {
+            throw new CategoryNotFoundException("Категория с id " + categoryId + " не найдена");
+        }
+        return path;
+    }
+
+    /**
+     * Получает глубину категории в дереве. У главных категорий глубина 0.
+     *
+     * @param categoryId Идентификатор категории.
+     * @return Глубина категории.
+     * @throws CategoryNotFoundException Если категория не найдена.
+     */
+    public int getDepth(long categoryId) throws CategoryNotFoundException {
+        Integer depth = categoryClosureRepository.findDepth(categoryId);
+        if (depth == null) {
+            throw new CategoryNotFoundException("Категория с id " + categoryId + " не найдена");
+        }
+        return depth;
+    }
+
+    /**
+     * Получает идентификаторы категории и всех её потомков.
+     *
+     * @param categoryId Идентификатор категории.
+     * @return Идентификаторы категорий поддерева.
+     */
+    public List<Long> getSubtreeIds(long categoryId) {
+        return categoryClosureRepository.findSubtreeIds(categoryId);
+    }
+
+    /**
+     * Перестраивает таблицу замыкания по ссылкам на родителей, если она не совпадает с таблицей категорий,
+     * например после первого запуска с таблицей замыкания.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildTreeIfNeeded() {
+        long categories = categoryRepository.count();
+        if (categoryClosureRepository.countRoots() != categories) {
+            categoryClosureRepository.clear();
+            int paths = categoryClosureRepository.rebuild();
+            log.info("Перестроено дерево категорий: категорий {}, путей {}", categories, paths);
+        }
+    }
+
     /**
      * Добавляет подкатегорию в категорию.
      *
      * @param categoryId Идентификатор подкатегории.
      * @param parentId   Идентификатор категорию.
-     * @throws ItemCategoryAddDeleteException Если подкатегория уже в другой категории или категория имеет услуги
+     * @throws ItemCategoryAddDeleteException Если подкатегория уже в другой категории, категория имеет услуги
+     *                                        или категория является потомком подкатегории
      * @throws IllegalArgumentException Если идентификаторы категорий совпадают
      */
+    @Transactional
     public void addToCategory(long categoryId, long parentId) throws ItemCategoryAddDeleteException, CategoryNotFoundException {
         if (categoryId == parentId) {
             throw new IllegalArgumentException("Идентификаторы категорий совпадают: " + categoryId);
@@ -148,11 +263,17 @@ public class CategoryService {
         Category category = getCategoryById(categoryId);
         Category parent = getCategoryById(parentId);
 
+        if (categoryClosureRepository.existsByAncestorIdAndDescendantId(categoryId, parentId)) {
+            throw new ItemCategoryAddDeleteException(String.format("Категория с id %s является потомком подкатегории с id %s!", parentId, categoryId));
+        }
+
         if (parent.getItemsInCategory().isEmpty()) {
             if (category.getParentCategory() == null) {
                 category.setParentCategory(parent);
                 categoryRepository.save(category);
                 categoryRepository.save(parent);
+                categoryClosureRepository.attachSubtree(categoryId, parentId);
+                categoryTreeService.invalidate();
                 log.info("Подкатегория с id {} добавлена в категорию с id {}", categoryId, parentId);
             } else
                 throw new ItemCategoryAddDeleteException(String.format("Подкатегория с id %s уже в другой категории!", categoryId));
@@ -166,12 +287,15 @@ public class CategoryService {
      * @param categoryId Идентификатор подкатегории.
      * @throws ItemCategoryAddDeleteException Если подкатегория не относится к категории
      */
+    @Transactional
     public void removeFromCategory(long categoryId) throws ItemCategoryAddDeleteException, CategoryNotFoundException {
         Category category = getCategoryById(categoryId);
 
         if (category.getParentCategory() != null) {
             category.setParentCategory(null);
             categoryRepository.save(category);
+            categoryClosureRepository.detachSubtree(categoryId);
+            categoryTreeService.invalidate();
             log.info("Подкатегория с id {} удалена из категории", categoryId);
         } else
             throw new ItemCategoryAddDeleteException(String.format("Подкатегория с id %s не относится ни к одной из категорий!", categoryId));
@@ -186,6 +310,7 @@ public class CategoryService {
     public void updateGifLinkToCategory(long categoryId, String gifLink) throws CategoryNotFoundException {
         Category category = getCategoryById(categoryId);
         category.setGifLink(gifLink);
+        category.setGifPreview(gifPreviewService.resolvePreview(gifLink, category.getGifPreview()));
         categoryRepository.save(category);
         log.info("Ссылка на GIF обновлена для категории с id {}", categoryId);
     }
@@ -213,9 +338,39 @@ public class CategoryService {
         Category category = getCategoryById(categoryId);
         category.setMainIconLink(icon);
         categoryRepository.save(category);
+        categoryTreeService.invalidate();
         log.info("Ссылка на главную иконку обновлена для категории с id {}", categoryId);
     }
 
+    /**
+     * Применяет частичное изменение категории точечным UPDATE без загрузки категории.
+     *
+     * @param categoryId Идентификатор категории.
+     * @param version    Версия категории, которую видел клиент.
+     * @param patch      Изменение.
+     * @return Новая версия категории.
+     * @throws CategoryUpdateException  если изменение затрагивает иконки, которых у категорий нет
+     * @throws VersionConflictException если категорию изменили после получения версии
+     */
+    public long patchCategory(long categoryId, long version, CatalogPatch patch) throws CategoryUpdateException, CategoryNotFoundException, VersionConflictException {
+        if (patch.changesIcons()) {
+            throw new CategoryUpdateException("У категорий нет списка иконок, только главная иконка");
+        }
+
+        if (!categoryRepository.patch(Category.class, categoryId, version, patch, gifPreviewService.resolvePreview(patch))) {
+            if (!categoryRepository.existsById(categoryId)) {
+                throw new CategoryNotFoundException("Категория с id " + categoryId + " не найдена");
+            }
+            throw new VersionConflictException(String.format("Категория с id %s изменена после версии %s", categoryId, version));
+        }
+
+        if (patch.mainIconLink() != null) {
+            categoryTreeService.invalidate();
+        }
+        log.info("Применено частичное изменение категории с id {}, версия {}", categoryId, version + 1);
+        return version + 1;
+    }
+
     /**
      * Генерирует аудио заголовка категории.
      *
@@ -228,6 +383,7 @@ public class CategoryService {
             String titleAudio = speechService.generateAudio(category.getTitle());
             category.setTitleAudio(titleAudio);
             categoryRepository.save(category);
+            categoryTreeService.invalidate();
             log.info("Сгенерировано аудио заголовка для категории с id {}", categoryId);
         } else
             throw new CategoryUpdateException(String.format("У категории %s уже есть аудио заголовка!", categoryId));
@@ -246,6 +402,7 @@ public class CategoryService {
         } else {
             category.setTitleAudio(null);
             categoryRepository.save(category);
+            categoryTreeService.invalidate();
             log.info("У категории {} удалено аудио заголовка", categoryId);
         }
     }
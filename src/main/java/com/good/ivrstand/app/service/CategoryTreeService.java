@@ -0,0 +1,184 @@
+package com.good.ivrstand.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.CategorySummary;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.repository.ItemSummary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис полного дерева категорий для главного экрана киоска.
+ * <p>
+ * Дерево собирается в памяти из двух плоских запросов - всех категорий и всех распределённых услуг,
+ * сериализуется один раз и отдаётся из кэша, пока {@link CategoryService} или {@link ItemService}
+ * не изменят состав дерева.
+ * <p>
+ * Поколение ведётся в памяти экземпляра и не видит изменений, прошедших через другие экземпляры,
+ * поэтому дерево кэшируется не дольше срока жизни записей кэша второго уровня каталога.
+ */
+@Component
+@Slf4j
+public class CategoryTreeService {
+
+    private final CategoryRepository categoryRepository;
+    private final ItemRepository itemRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Поколение данных дерева, увеличивается при каждом изменении.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Duration ttl;
+
+    private final Clock clock;
+
+    private volatile CachedTree cached;
+
+    @Autowired
+    public CategoryTreeService(CategoryRepository categoryRepository, ItemRepository itemRepository, ObjectMapper objectMapper,
+                               @Value("${category-tree.ttl}") Duration ttl) {
+        this(categoryRepository, itemRepository, objectMapper, ttl, Clock.systemUTC());
+    }
+
+    public CategoryTreeService(CategoryRepository categoryRepository, ItemRepository itemRepository, ObjectMapper objectMapper,
+                               Duration ttl, Clock clock) {
+        this.categoryRepository = categoryRepository;
+        this.itemRepository = itemRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * Возвращает сериализованное дерево категорий, при необходимости собирая его заново.
+     *
+     * @return дерево и его ETag
+     * @throws IOException если дерево не удалось сериализовать
+     */
+    public CategoryTree getTree() throws IOException {
+        CachedTree current = cached;
+        if (isFresh(current, generation.get())) {
+            return current.tree();
+        }
+
+        synchronized (this) {
+            current = cached;
+            long buildGeneration = generation.get();
+            if (isFresh(current, buildGeneration)) {
+                return current.tree();
+            }
+
+            Instant builtAt = clock.instant();
+            CategoryTree tree = buildTree();
+            // Если дерево изменилось во время сборки, собранное может быть устаревшим - отдаём, но не кэшируем
+            if (generation.get() == buildGeneration) {
+                cached = new CachedTree(buildGeneration, builtAt, tree);
+            }
+            return tree;
+        }
+    }
+
+    /**
+     * Помечает дерево устаревшим. Внутри транзакции срабатывает после фиксации,
+     * чтобы параллельная сборка не закэшировала ещё не зафиксированное состояние.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    generation.incrementAndGet();
+                }
+            });
+        } else {
+            generation.incrementAndGet();
+        }
+    }
+
+    private boolean isFresh(CachedTree current, long currentGeneration) {
+        return current != null
+                && current.generation() == currentGeneration
+                && clock.instant().isBefore(current.builtAt().plus(ttl));
+    }
+
+    /**
+     * Собирает и сериализует дерево.
+     *
+     * @return дерево и его ETag
+     */
+    private CategoryTree buildTree() throws IOException {
+        List<CategorySummary> categories = categoryRepository.findAllSummaries();
+        List<ItemSummary> items = itemRepository.findAllSummaries();
+
+        Map<Long, CategoryNode> nodes = new HashMap<>();
+        for (CategorySummary category : categories) {
+            nodes.put(category.id(), new CategoryNode(category.id(), category.title(), category.mainIconLink(),
+                    category.titleAudio(), new ArrayList<>(), new ArrayList<>()));
+        }
+
+        List<CategoryNode> roots = new ArrayList<>();
+        for (CategorySummary category : categories) {
+            CategoryNode parent = category.parentId() == null ? null : nodes.get(category.parentId());
+            if (parent == null) {
+                roots.add(nodes.get(category.id()));
+            } else {
+                parent.children().add(nodes.get(category.id()));
+            }
+        }
+
+        for (ItemSummary item : items) {
+            CategoryNode category = nodes.get(item.categoryId());
+            if (category != null) {
+                category.items().add(new ItemNode(item.id(), item.title(), item.mainIconLink(), item.titleAudio()));
+            }
+        }
+
+        byte[] body = objectMapper.writeValueAsBytes(roots);
+        String etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        log.info("Собрано дерево категорий: категорий {}, услуг {}, байт {}", categories.size(), items.size(), body.length);
+        return new CategoryTree(body, etag);
+    }
+
+    /**
+     * Сериализованное дерево категорий.
+     *
+     * @param body JSON дерева
+     * @param etag ETag, вычисленный по содержимому
+     */
+    public record CategoryTree(byte[] body, String etag) {
+    }
+
+    /**
+     * Категория в дереве.
+     */
+    public record CategoryNode(long id, String title, String mainIconLink, String titleAudio,
+                               List<CategoryNode> children, List<ItemNode> items) {
+    }
+
+    /**
+     * Услуга в дереве.
+     */
+    public record ItemNode(long id, String title, String mainIconLink, String titleAudio) {
+    }
+
+    private record CachedTree(long generation, Instant builtAt, CategoryTree tree) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.DescriptionAudioRepository;
+import com.good.ivrstand.domain.DescriptionAudio;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Сервис для поиска уже сгенерированной озвучки описаний по хэшу текста.
+ * Поиск - одно чтение по первичному ключу, общее для услуг и дополнений.
+ */
+@Component
+@Slf4j
+public class DescriptionAudioService {
+
+    private final DescriptionAudioRepository descriptionAudioRepository;
+
+    public DescriptionAudioService(DescriptionAudioRepository descriptionAudioRepository) {
+        this.descriptionAudioRepository = descriptionAudioRepository;
+    }
+
+    /**
+     * Ищет озвучку описания с указанным хэшем.
+     *
+     * @param descriptionHash хэш описания
+     * @return ссылки на аудио или пустой результат, если описание ещё не озвучивалось
+     */
+    public Optional<List<String>> findAudio(String descriptionHash) {
+        if (descriptionHash == null) {
+            return Optional.empty();
+        }
+
+        return descriptionAudioRepository.findByDescriptionHash(descriptionHash)
+                .map(DescriptionAudio::getAudio)
+                .filter(audio -> !audio.isEmpty())
+                .map(ArrayList::new);
+    }
+
+    /**
+     * Запоминает озвучку описания с указанным хэшем.
+     * Если озвучку этого описания параллельно уже сохранили, оставляет сохранённую.
+     * Повтор не приводит к ошибке, поэтому транзакция вызывающего не откатывается.
+     *
+     * @param descriptionHash хэш описания
+     * @param audio           ссылки на аудио блоков описания
+     */
+    public void saveAudio(String descriptionHash, List<String> audio) {
+        if (descriptionHash == null || audio.isEmpty()) {
+            return;
+        }
+
+        if (descriptionAudioRepository.insertIfAbsent(descriptionHash, audio)) {
+            log.debug("Сохранена озвучка описания с хэшем {}", descriptionHash);
+        } else {
+            log.debug("Озвучка описания с хэшем {} уже сохранена", descriptionHash);
+        }
+    }
+}
@@ -5,23 +5,40 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.HexFormat;
 
 /**
- * Сервис шифрования
+ * Сервис шифрования.
+ * Инициализированные шифры и состояния хэширования берутся из пулов, а не создаются на каждый вызов.
  */
 @Component
 public class EncodeService {
     private static final String ALGORITHM = "AES";
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
 
-    private final String secretKey;
+    private final SecretKeySpec secretKey;
+    private final InstancePool<Cipher> encryptCiphers;
+    private final InstancePool<Cipher> decryptCiphers;
+    private final InstancePool<HashState> hashStates;
 
     public EncodeService(@Value("${auth.password-encrypt-key}") String secretKey) {
-        this.secretKey = secretKey;
+        this.secretKey = new SecretKeySpec(secretKey.getBytes(), ALGORITHM);
+        this.encryptCiphers = new InstancePool<>(POOL_SIZE, () -> createCipher(Cipher.ENCRYPT_MODE));
+        this.decryptCiphers = new InstancePool<>(POOL_SIZE, () -> createCipher(Cipher.DECRYPT_MODE));
+        this.hashStates = new InstancePool<>(POOL_SIZE, HashState::new);
     }
 
 
@@ -33,11 +50,10 @@ public class EncodeService {
      * @throws RuntimeException ошибка при шифровании
      */
     public String encrypt(String plainText) {
+        Cipher cipher = encryptCiphers.borrow();
         try {
-            SecretKeySpec secretKey = new SecretKeySpec(this.secretKey.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey);
             byte[] encryptedBytes = cipher.doFinal(plainText.getBytes());
+            encryptCiphers.release(cipher);
             return Base64.getEncoder().encodeToString(encryptedBytes);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при шифровании текста: " + plainText, e);
@@ -52,13 +68,12 @@ public class EncodeService {
      * @throws RuntimeException ошибка при дешифровании
      */
     public String decrypt(String encryptedText) {
+        Cipher cipher = decryptCiphers.borrow();
         try {
             encryptedText = encryptedText.replaceAll("\\s", "+");
-            SecretKeySpec secretKey = new SecretKeySpec(this.secretKey.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey);
             byte[] encryptedBytes = Base64.getDecoder().decode(encryptedText);
             byte[] decryptedBytes = cipher.doFinal(encryptedBytes);
+            decryptCiphers.release(cipher);
             return new String(decryptedBytes);
         } catch (Exception e) {
             throw new RuntimeException("Ошибка при дешифровании текста: " + encryptedText, e);
@@ -72,13 +87,101 @@ public class EncodeService {
      * @return хэш
      */
     public String generateHashForAudio(String description) {
+        return generateHash(description);
+    }
+
+    /**
+     * Генерирует SHA-256 хэш текста в UTF-8 в шестнадцатеричном виде.
+     * Текст кодируется частями в буфер фиксированного размера, поэтому длинное описание
+     * не копируется в массив байтов целиком.
+     *
+     * @param text текст
+     * @return хэш
+     */
+    public String generateHash(CharSequence text) {
+        HashState state = hashStates.borrow();
+        String hash = state.hash(text);
+        hashStates.release(state);
+        return hash;
+    }
+
+    /**
+     * Генерирует SHA-256 хэш содержимого потока в шестнадцатеричном виде. Поток читается частями и не закрывается.
+     *
+     * @param input поток
+     * @return хэш
+     * @throws IOException ошибка чтения потока
+     */
+    public String generateHash(InputStream input) throws IOException {
+        HashState state = hashStates.borrow();
+        String hash = state.hash(input);
+        hashStates.release(state);
+        return hash;
+    }
+
+    private Cipher createCipher(int mode) {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(description.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error: algo not found", e);
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(mode, secretKey);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ошибка инициализации шифра " + ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Переиспользуемое состояние хэширования: дайджест, кодировщик UTF-8 и буфер.
+     * После успешного вычисления хэша все части возвращаются в исходное состояние.
+     */
+    private static final class HashState {
+
+        private final MessageDigest digest;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private HashState() {
+            try {
+                digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Error: algo not found", e);
+            }
+        }
+
+        private String hash(CharSequence text) {
+            CharBuffer chars = CharBuffer.wrap(text);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(chars, buffer, true);
+                drain();
+            } while (result.isOverflow());
+            while (encoder.flush(buffer).isOverflow()) {
+                drain();
+            }
+            drain();
+            return HexFormat.of().formatHex(digest.digest());
         }
 
+        private String hash(InputStream input) throws IOException {
+            byte[] bytes = buffer.array();
+            int read;
+            try {
+                while ((read = input.read(bytes)) != -1) {
+                    digest.update(bytes, 0, read);
+                }
+            } catch (IOException e) {
+                digest.reset();
+                throw e;
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void drain() {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
     }
 }
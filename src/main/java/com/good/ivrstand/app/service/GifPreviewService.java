@@ -0,0 +1,402 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CatalogPatch;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.NoSuchFileException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Сервис генерации превью для GIF-анимаций.
+ * <p>
+ * Декодирует кадр загруженной GIF-анимации, уменьшает его до заданных размеров,
+ * сохраняет сжатые JPEG-превью в хранилище и проставляет ссылку на превью первого размера
+ * услугам, категориям и дополнениям с этой GIF-анимацией, если превью у них не задано.
+ * Генерация выполняется на отдельном ограниченном пуле потоков.
+ */
+@Component
+@Slf4j
+public class GifPreviewService {
+
+    /**
+     * Максимальное количество кадров, которое декодируется при поиске характерного кадра.
+     */
+    private static final int MAX_DECODED_FRAMES = 32;
+
+    /**
+     * Сколько последних сгенерированных превью помнить для ссылок, назначаемых позже.
+     */
+    private static final int REMEMBERED_PREVIEWS = 1000;
+
+    private static final String PREVIEW_FOLDER = "previews";
+
+    private final S3Service s3Service;
+    private final ItemRepository itemRepository;
+    private final CategoryRepository categoryRepository;
+    private final AdditionRepository additionRepository;
+    private final Executor gifPreviewExecutor;
+    private final int[] sizes;
+    private final float quality;
+    private final boolean representativeFrame;
+
+    /**
+     * Ссылки на превью по ссылкам на GIF-анимации.
+     */
+    private final Map<String, String> previews = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > REMEMBERED_PREVIEWS;
+        }
+    });
+
+    public GifPreviewService(S3Service s3Service,
+                             ItemRepository itemRepository,
+                             CategoryRepository categoryRepository,
+                             AdditionRepository additionRepository,
+                             @Qualifier("gifPreviewExecutor") Executor gifPreviewExecutor,
+                             @Value("${gif-preview.sizes}") int[] sizes,
+                             @Value("${gif-preview.quality}") float quality,
+                             @Value("${gif-preview.representative-frame}") boolean representativeFrame) {
+        if (sizes.length == 0) {
+            throw new IllegalArgumentException("Не заданы размеры превью GIF");
+        }
+
+        this.s3Service = s3Service;
+        this.itemRepository = itemRepository;
+        this.categoryRepository = categoryRepository;
+        this.additionRepository = additionRepository;
+        this.gifPreviewExecutor = gifPreviewExecutor;
+        this.sizes = sizes;
+        this.quality = quality;
+        this.representativeFrame = representativeFrame;
+    }
+
+    /**
+     * Ставит в очередь генерацию превью для загруженной GIF-анимации.
+     * Если очередь заполнена, превью не генерируется - загрузка файла от этого не замедляется.
+     *
+     * @param gif     содержимое GIF-файла
+     * @param gifLink ссылка на загруженную GIF-анимацию
+     */
+    public void submit(byte[] gif, String gifLink) {
+        try {
+            gifPreviewExecutor.execute(() -> {
+                try {
+                    generatePreview(gif, gifLink);
+                } catch (Exception e) {
+                    log.warn("Не удалось сгенерировать превью для {}: {}", gifLink, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь генерации превью заполнена, превью для {} не будет сгенерировано", gifLink);
+        }
+    }
+
+    /**
+     * Возвращает ссылку на превью для GIF-анимации, если превью уже не задано.
+     *
+     * @param gifLink        ссылка на GIF-анимацию
+     * @param currentPreview текущая ссылка на превью
+     * @return текущее превью, сгенерированное превью или null
+     */
+    public String resolvePreview(String gifLink, String currentPreview) {
+        if (currentPreview != null || gifLink == null) {
+            return currentPreview;
+        }
+
+        return previews.get(gifLink);
+    }
+
+    /**
+     * Возвращает известное превью для GIF-анимации, которую ставит частичное изменение.
+     * Превью не нужно, если изменение само задаёт превью или убирает GIF-анимацию.
+     *
+     * @param patch частичное изменение
+     * @return сгенерированное превью или null
+     */
+    public String resolvePreview(CatalogPatch patch) {
+        if (patch.gifPreview() != null || patch.gifLink() == null || patch.gifLink().isEmpty()) {
+            return null;
+        }
+
+        return previews.get(patch.gifLink());
+    }
+
+    /**
+     * Генерирует превью всех настроенных размеров и проставляет превью сущностям без него.
+     * Сущностям проставляется превью первого настроенного размера, остальные размеры сохраняются
+     * рядом с ним под тем же именем с суффиксом размера (см. {@link #previewLink(String, int)}).
+     *
+     * @param gif     содержимое GIF-файла
+     * @param gifLink ссылка на GIF-анимацию
+     * @return ссылка на превью первого настроенного размера
+     * @throws IOException         если GIF не удалось декодировать или превью не удалось сохранить
+     * @throws NoSuchFileException если ссылка на превью первого размера не относится к хранилищу
+     */
+    public String generatePreview(byte[] gif, String gifLink) throws IOException, FileDuplicateException, NoSuchFileException {
+        BufferedImage frame = decodeFrame(gif);
+
+        String primaryLink = s3Service.uploadFile(previewFile(frame, sizes[0]), PREVIEW_FOLDER);
+        try {
+            for (int i = 1; i < sizes.length; i++) {
+                s3Service.uploadFileNextTo(previewFile(frame, sizes[i]), primaryLink, sizeSuffix(sizes[i]));
+            }
+        } catch (Exception e) {
+            deletePreviews(primaryLink);
+            throw e;
+        }
+
+        previews.put(gifLink, primaryLink);
+        int updated = itemRepository.fillMissingGifPreview(gifLink, primaryLink)
+                + categoryRepository.fillMissingGifPreview(gifLink, primaryLink)
+                + additionRepository.fillMissingGifPreview(gifLink, primaryLink);
+        log.info("Сгенерировано превью GIF, обновлено сущностей: {}", updated);
+
+        return primaryLink;
+    }
+
+    /**
+     * Возвращает ссылку на превью заданного размера по ссылке на превью, проставленное сущности.
+     * Превью первого настроенного размера хранится по самой ссылке, остальные размеры —
+     * рядом с ним, с суффиксом {@code _<размер>} перед расширением.
+     *
+     * @param primaryLink ссылка на превью первого настроенного размера
+     * @param size        размер превью
+     * @return ссылка на превью заданного размера
+     * @throws IllegalArgumentException если такой размер не настроен
+     */
+    public String previewLink(String primaryLink, int size) {
+        if (size == sizes[0]) {
+            return primaryLink;
+        }
+        for (int configured : sizes) {
+            if (configured == size) {
+                return S3Service.insertSuffix(primaryLink, sizeSuffix(size));
+            }
+        }
+
+        throw new IllegalArgumentException("Размер превью GIF не настроен: " + size);
+    }
+
+    /**
+     * Готовит JPEG-превью кадра заданного размера к загрузке.
+     *
+     * @param frame кадр анимации
+     * @param size  максимальный размер большей стороны
+     * @return файл превью
+     * @throws IOException если кодирование не удалось
+     */
+    private MockMultipartFile previewFile(BufferedImage frame, int size) throws IOException {
+        return new MockMultipartFile(
+                "file",
+                "preview.jpg",
+                "image/jpeg",
+                encodeJpeg(scale(frame, size))
+        );
+    }
+
+    private static String sizeSuffix(int size) {
+        return "_" + size;
+    }
+
+    /**
+     * Удаляет уже загруженные размеры превью, если сохранить все размеры не удалось.
+     *
+     * @param primaryLink ссылка на превью первого настроенного размера
+     */
+    private void deletePreviews(String primaryLink) {
+        for (int size : sizes) {
+            try {
+                s3Service.deleteFileByUrl(previewLink(primaryLink, size));
+            } catch (NoSuchFileException e) {
+                // Этот размер не успел загрузиться
+            } catch (RuntimeException e) {
+                log.warn("Не удалось удалить превью {}: {}", previewLink(primaryLink, size), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Декодирует первый или характерный (средний) кадр GIF-анимации.
+     * Кадры GIF хранят только изменившуюся область, поэтому кадры до выбранного
+     * накладываются на холст по своим смещениям. Перед наложением следующего кадра
+     * к холсту применяется способ удаления предыдущего кадра: его область очищается
+     * (restoreToBackgroundColor) или холст возвращается к состоянию до него (restoreToPrevious).
+     *
+     * @param gif содержимое GIF-файла
+     * @return кадр анимации
+     * @throws IOException если GIF не удалось декодировать
+     */
+    private BufferedImage decodeFrame(byte[] gif) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(gif))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("gif");
+            if (!readers.hasNext()) {
+                throw new IOException("Нет декодера GIF");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, false);
+                BufferedImage first = reader.read(0);
+                if (!representativeFrame) {
+                    return first;
+                }
+
+                int frames = Math.min(reader.getNumImages(true), MAX_DECODED_FRAMES);
+                int target = frames / 2;
+                if (target == 0) {
+                    return first;
+                }
+
+                int width = Math.max(first.getWidth(), metadataAttribute(reader.getStreamMetadata(), "LogicalScreenDescriptor", "logicalScreenWidth"));
+                int height = Math.max(first.getHeight(), metadataAttribute(reader.getStreamMetadata(), "LogicalScreenDescriptor", "logicalScreenHeight"));
+                BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D graphics = canvas.createGraphics();
+                try {
+                    for (int i = 0; i <= target; i++) {
+                        BufferedImage image = i == 0 ? first : reader.read(i);
+                        IIOMetadata metadata = reader.getImageMetadata(i);
+                        int left = metadataAttribute(metadata, "ImageDescriptor", "imageLeftPosition");
+                        int top = metadataAttribute(metadata, "ImageDescriptor", "imageTopPosition");
+                        String disposal = i < target ? metadataValue(metadata, "GraphicControlExtension", "disposalMethod") : null;
+
+                        WritableRaster previous = "restoreToPrevious".equals(disposal) ? canvas.copyData(null) : null;
+                        graphics.drawImage(image, left, top, null);
+
+                        if ("restoreToBackgroundColor".equals(disposal)) {
+                            // Фон заливается прозрачным, как в браузерах; белым его сделает scale
+                            graphics.setComposite(AlphaComposite.Clear);
+                            graphics.fillRect(left, top, image.getWidth(), image.getHeight());
+                            graphics.setComposite(AlphaComposite.SrcOver);
+                        } else if (previous != null) {
+                            canvas.setData(previous);
+                        }
+                    }
+                } finally {
+                    graphics.dispose();
+                }
+                return canvas;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Читает числовой атрибут из нативных метаданных GIF.
+     *
+     * @param metadata  метаданные
+     * @param nodeName  имя узла
+     * @param attribute имя атрибута
+     * @return значение атрибута или 0, если его нет
+     */
+    private int metadataAttribute(IIOMetadata metadata, String nodeName, String attribute) {
+        String value = metadataValue(metadata, nodeName, attribute);
+        return value != null ? Integer.parseInt(value) : 0;
+    }
+
+    /**
+     * Читает атрибут из нативных метаданных GIF.
+     *
+     * @param metadata  метаданные
+     * @param nodeName  имя узла
+     * @param attribute имя атрибута
+     * @return значение атрибута или null, если его нет
+     */
+    private String metadataValue(IIOMetadata metadata, String nodeName, String attribute) {
+        if (metadata == null) {
+            return null;
+        }
+
+        Node root = metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals(nodeName)) {
+                Node value = node.getAttributes().getNamedItem(attribute);
+                return value != null ? value.getNodeValue() : null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Уменьшает изображение так, чтобы большая сторона не превышала заданный размер.
+     * Фон заливается белым, так как JPEG не поддерживает прозрачность.
+     *
+     * @param source исходное изображение
+     * @param size   максимальный размер большей стороны
+     * @return уменьшенное изображение
+     */
+    private BufferedImage scale(BufferedImage source, int size) {
+        double ratio = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return result;
+    }
+
+    /**
+     * Кодирует изображение в JPEG с настроенным качеством.
+     *
+     * @param image изображение
+     * @return содержимое JPEG-файла
+     * @throws IOException если кодирование не удалось
+     */
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,142 @@
+package com.good.ivrstand.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Таймер на колесе с корзинами (hashed wheel timer).
+ * Один поток раз в такт обходит одну корзину колеса и собирает наступившие сроки в пакет,
+ * который передается обработчику целиком. Добавление срока - вставка в неблокирующую очередь,
+ * поэтому стоимость таймера не зависит от числа ожидающих сроков. Точность - один такт.
+ *
+ * @param <T> тип элемента, срок которого отслеживается
+ */
+@Slf4j
+public class HashedWheelTimer<T> implements AutoCloseable {
+
+    private final long tickNanos;
+    private final List<Queue<Timeout<T>>> wheel;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> expiredHandler;
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param name           имя потока таймера
+     * @param tick           длительность такта
+     * @param wheelSize      количество корзин колеса
+     * @param expiredHandler обработчик пакета элементов с наступившим сроком
+     */
+    public HashedWheelTimer(String name, Duration tick, int wheelSize, Consumer<List<T>> expiredHandler) {
+        this.tickNanos = tick.toNanos();
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.expiredHandler = expiredHandler;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Добавляет элемент, который будет передан обработчику по истечении задержки.
+     *
+     * @param item  элемент
+     * @param delay задержка
+     */
+    public void schedule(T item, Duration delay) {
+        pending.add(new Timeout<>(item, System.nanoTime() + delay.toNanos()));
+    }
+
+    /**
+     * Останавливает поток таймера. Сроки, которые еще не наступили, отбрасываются.
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (running) {
+            if (!waitForTick(tick)) {
+                return;
+            }
+            transferPending(tick);
+            List<T> expired = expire(wheel.get((int) (tick % wheel.size())));
+            if (!expired.isEmpty()) {
+                try {
+                    expiredHandler.accept(expired);
+                } catch (RuntimeException e) {
+                    log.error("Ошибка обработки истекших сроков таймера", e);
+                }
+            }
+            tick++;
+        }
+    }
+
+    private boolean waitForTick(long tick) {
+        long deadline = startTime + (tick + 1) * tickNanos;
+        long sleepNanos;
+        while ((sleepNanos = deadline - System.nanoTime()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void transferPending(long currentTick) {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            long deadlineTick = Math.max(currentTick, Math.ceilDiv(timeout.deadline - startTime, tickNanos) - 1);
+            timeout.rounds = (deadlineTick - currentTick) / wheel.size();
+            wheel.get((int) (deadlineTick % wheel.size())).add(timeout);
+        }
+    }
+
+    private List<T> expire(Queue<Timeout<T>> bucket) {
+        List<T> expired = new ArrayList<>();
+        Iterator<Timeout<T>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                iterator.remove();
+                expired.add(timeout.item);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Срок в корзине колеса. Число оставшихся оборотов меняет только поток таймера.
+     */
+    private static final class Timeout<T> {
+
+        private final T item;
+        private final long deadline;
+        private long rounds;
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
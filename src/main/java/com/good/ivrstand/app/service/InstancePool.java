@@ -0,0 +1,46 @@
+package com.good.ivrstand.app.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный пул переиспользуемых объектов, не безопасных для одновременного использования,
+ * например {@link javax.crypto.Cipher} и {@link java.security.MessageDigest}.
+ * Объект не привязан к потоку, поэтому пул работает и с виртуальными потоками, которых может быть
+ * сколько угодно. Если свободных объектов нет, создается новый; лишние при возврате отбрасываются.
+ *
+ * @param <T> тип объекта
+ */
+class InstancePool<T> {
+
+    private final BlockingQueue<T> idle;
+    private final Supplier<T> factory;
+
+    /**
+     * @param maxIdle максимальное количество хранимых свободных объектов
+     * @param factory фабрика новых объектов
+     */
+    InstancePool(int maxIdle, Supplier<T> factory) {
+        this.idle = new ArrayBlockingQueue<>(maxIdle);
+        this.factory = factory;
+    }
+
+    /**
+     * Берет свободный объект или создает новый.
+     */
+    T borrow() {
+        T instance = idle.poll();
+        return instance != null ? instance : factory.get();
+    }
+
+    /**
+     * Возвращает объект в пул. Возвращать можно только объект в исходном состоянии:
+     * после ошибки объект следует отбросить.
+     *
+     * @param instance объект
+     */
+    void release(T instance) {
+        idle.offer(instance);
+    }
+}
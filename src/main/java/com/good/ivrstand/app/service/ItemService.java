@@ -1,5 +1,6 @@
 package com.good.ivrstand.app.service;
 
+import com.good.ivrstand.app.repository.CatalogPatch;
 import com.good.ivrstand.app.repository.ItemRepository;
 import com.good.ivrstand.app.service.externinterfaces.FlaskApiVectorSearchService;
 import com.good.ivrstand.domain.*;
@@ -10,14 +11,20 @@ import com.good.ivrstand.extern.api.flaskRequests.AddTitleRequest;
 import com.good.ivrstand.extern.api.flaskRequests.TitleRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * Сервис для работы с услугами
@@ -31,6 +38,10 @@ public class ItemService {
     private final AdditionService additionService;
     private final SpeechService speechService;
     private final EncodeService encodeService;
+    private final GifPreviewService gifPreviewService;
+    private final CategoryTreeService categoryTreeService;
+    private final DescriptionAudioService descriptionAudioService;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
     @Autowired
     public ItemService(ItemRepository itemRepository,
@@ -38,13 +49,22 @@ public class ItemService {
                        AdditionService additionService,
                        FlaskApiVectorSearchService flaskApiVectorSearchService,
                        SpeechService speechService,
-                       EncodeService encodeService) {
+                       EncodeService encodeService,
+                       GifPreviewService gifPreviewService,
+                       CategoryTreeService categoryTreeService,
+                       DescriptionAudioService descriptionAudioService,
+                       PlatformTransactionManager transactionManager) {
         this.itemRepository = itemRepository;
         this.categoryService = categoryService;
         this.additionService = additionService;
         this.flaskApiVectorSearchService = flaskApiVectorSearchService;
         this.speechService = speechService;
         this.encodeService = encodeService;
+        this.gifPreviewService = gifPreviewService;
+        this.categoryTreeService = categoryTreeService;
+        this.descriptionAudioService = descriptionAudioService;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
     }
 
     /**
@@ -66,9 +86,11 @@ public class ItemService {
                 String titleAudio = speechService.generateAudio(item.getTitle());
                 item.setTitleAudio(titleAudio);
             }
+            item.setGifPreview(gifPreviewService.resolvePreview(item.getGifLink(), item.getGifPreview()));
             Item savedItem = itemRepository.save(item);
             AddTitleRequest addTitleRequest = new AddTitleRequest(formatTitle(savedItem), savedItem.getId());
             flaskApiVectorSearchService.addTitle(addTitleRequest);
+            categoryTreeService.invalidate();
             log.info("Создана услуга с id {}", savedItem.getId());
             return savedItem;
         } catch (Exception e) {
@@ -108,6 +130,7 @@ public class ItemService {
                     .forEach(additionService::deleteAddition);
         itemRepository.deleteById(itemId);
         deleteQdrantTitle(foundItem);
+        categoryTreeService.invalidate();
         log.info("Удалена услуга с id {}", itemId);
     }
 
@@ -128,6 +151,7 @@ public class ItemService {
                 item.setCategory(category);
                 itemRepository.save(item);
                 addQdrantTitle(item);
+                categoryTreeService.invalidate();
                 log.info("Услуга с id {} добавлена в категорию с id {}", itemId, categoryId);
             } else
                 throw new ItemCategoryAddDeleteException(String.format("Услуга с id %s уже в другой категории!", itemId));
@@ -149,6 +173,7 @@ public class ItemService {
             item.setCategory(null);
             itemRepository.save(item);
             addQdrantTitle(item);
+            categoryTreeService.invalidate();
             log.info("Услуга с id {} удалена из категории", itemId);
         } else
             throw new ItemCategoryAddDeleteException(String.format("Услуга с id %s не относится ни к одной из категорий!", itemId));
@@ -176,14 +201,71 @@ public class ItemService {
      * @return страница найденных услуг
      */
     public Page<Item> findItemsByTitle(String title, Pageable pageable) throws ItemsFindException, ItemNotFoundException {
+        return findItemsByTitle(title, null, pageable);
+    }
+
+    /**
+     * Ищет услуги по заголовку в поддереве категории, с поддержкой пагинации.
+     * Проверка необходимости синхронизации выполняется по всем найденным услугам, до фильтрации по категории.
+     *
+     * @param title      Часть заголовка для поиска.
+     * @param categoryId Категория, в поддереве которой искать, или null для поиска по всем услугам.
+     * @param pageable   Настройки пагинации.
+     * @return страница найденных услуг
+     */
+    public Page<Item> findItemsByTitle(String title, Long categoryId, Pageable pageable) throws ItemsFindException, ItemNotFoundException {
+        return findItemsByTitle(title, categoryId, pageable, Function.identity());
+    }
+
+    /**
+     * Ищет услуги по заголовку в поддереве категории и преобразует найденные услуги.
+     * Чтение и преобразование выполняются в одной транзакции только для чтения, а синхронизация БД —
+     * после нее: соединение с базой к этому моменту возвращено в пул и не ждет ответа сервиса поиска.
+     *
+     * @param title      Часть заголовка для поиска.
+     * @param categoryId Категория, в поддереве которой искать, или null для поиска по всем услугам.
+     * @param pageable   Настройки пагинации.
+     * @param mapper     Преобразование услуги; может обращаться к ленивым связям.
+     * @return страница преобразованных услуг
+     */
+    public <T> Page<T> findItemsByTitle(String title, Long categoryId, Pageable pageable, Function<Item, T> mapper)
+            throws ItemsFindException, ItemNotFoundException {
         List<Long> result = flaskApiVectorSearchService.getItemIds(title);
 
+        SearchResult<T> search = readOnlyTransactionTemplate.execute(status -> search(result, categoryId, pageable, mapper));
+        if (search.missingId() != null) {
+            throw new ItemNotFoundException("Услуга с id " + search.missingId() + " не найдена");
+        }
+
+        if (search.shouldSync()) {
+            flaskApiVectorSearchService.syncDatabase();
+        }
+
+        return search.page();
+    }
+
+    /**
+     * Загружает найденные услуги, определяет необходимость синхронизации и собирает страницу.
+     *
+     * @param result     идентификаторы услуг в порядке релевантности
+     * @param categoryId категория для фильтрации или null
+     * @param pageable   настройки пагинации
+     * @param mapper     преобразование услуги
+     * @return результат поиска
+     */
+    private <T> SearchResult<T> search(List<Long> result, Long categoryId, Pageable pageable, Function<Item, T> mapper) {
+        Map<Long, Item> foundItems = new HashMap<>();
+        for (Item item : itemRepository.findByIdIn(result)) {
+            foundItems.put(item.getId(), item);
+        }
+
         List<Item> items = new ArrayList<>();
         for (Long element : result) {
-            Item item = getItemById(element);
-            if (item != null) {
-                items.add(item);
+            Item item = foundItems.get(element);
+            if (item == null) {
+                return new SearchResult<>(null, false, element);
             }
+            items.add(item);
         }
 
         int start = (int) pageable.getOffset();
@@ -199,11 +281,17 @@ public class ItemService {
                 ? itemsInBaseQuantity != itemsFoundQuantity
                 : itemsFoundQuantity != 4;
 
-        if (shouldSync) {
-            flaskApiVectorSearchService.syncDatabase();
+        if (categoryId != null) {
+            Set<Long> subtree = new HashSet<>(categoryService.getSubtreeIds(categoryId));
+            List<Item> filtered = items.stream()
+                    .filter(item -> item.getCategory() != null && subtree.contains(item.getCategory().getId()))
+                    .toList();
+            start = Math.min(start, filtered.size());
+            end = Math.min((start + pageable.getPageSize()), filtered.size());
+            page = new PageImpl<>(filtered.subList(start, end), pageable, filtered.size());
         }
 
-        return page;
+        return new SearchResult<>(page.map(mapper), shouldSync, null);
     }
 
     /**
@@ -227,6 +315,56 @@ public class ItemService {
         return itemRepository.findByCategoryId(categoryId, pageable);
     }
 
+    /**
+     * Ищет услуги в категории и во всех её подкатегориях одним запросом, с поддержкой пагинации.
+     *
+     * @param categoryId Категория для поиска.
+     * @param pageable   Настройки пагинации.
+     * @return Страница найденных услуг.
+     */
+    public Page<Item> findItemsInCategoryTree(long categoryId, Pageable pageable) {
+        return itemRepository.findInCategoryTree(categoryId, pageable);
+    }
+
+    /**
+     * Получает порцию всех услуг по возрастанию идентификатора.
+     * В отличие от страниц, порция ищется по индексу от последнего идентификатора и не замедляется к концу списка.
+     *
+     * @param afterId Идентификатор, после которого начинается порция, или null для первой порции.
+     * @param size    Размер порции.
+     * @return Порция услуг.
+     */
+    public Window<Item> scrollAllItems(Long afterId, int size) {
+        return itemRepository.findAllByOrderByIdAsc(position(afterId), Limit.of(size));
+    }
+
+    /**
+     * Получает порцию услуг категории по возрастанию идентификатора.
+     *
+     * @param categoryId           Категория для поиска.
+     * @param includeSubcategories Искать также в подкатегориях.
+     * @param afterId              Идентификатор, после которого начинается порция, или null для первой порции.
+     * @param size                 Размер порции.
+     * @return Порция услуг.
+     */
+    public Window<Item> scrollItemsByCategory(long categoryId, boolean includeSubcategories, Long afterId, int size) {
+        if (includeSubcategories) {
+            return itemRepository.findByCategoryIdInOrderByIdAsc(categoryService.getSubtreeIds(categoryId), position(afterId), Limit.of(size));
+        }
+        return itemRepository.findByCategoryIdOrderByIdAsc(categoryId, position(afterId), Limit.of(size));
+    }
+
+    /**
+     * Получает порцию услуг без категории по возрастанию идентификатора.
+     *
+     * @param afterId Идентификатор, после которого начинается порция, или null для первой порции.
+     * @param size    Размер порции.
+     * @return Порция услуг.
+     */
+    public Window<Item> scrollItemsWithoutCategory(Long afterId, int size) {
+        return itemRepository.findByCategoryIsNullOrderByIdAsc(position(afterId), Limit.of(size));
+    }
+
     /**
      * Обновляет описание услуги.
      *
@@ -257,6 +395,7 @@ public class ItemService {
     public void updateGifLinkToItem(long itemId, String gifLink) throws ItemNotFoundException {
         Item item = getItemById(itemId);
         item.setGifLink(gifLink);
+        item.setGifPreview(gifPreviewService.resolvePreview(gifLink, item.getGifPreview()));
         itemRepository.save(item);
         log.info("Ссылка на GIF обновлена для услуги с id {}", itemId);
     }
@@ -271,6 +410,7 @@ public class ItemService {
         Item item = getItemById(itemId);
         item.setMainIconLink(icon);
         itemRepository.save(item);
+        categoryTreeService.invalidate();
         log.info("Ссылка на главную иконку обновлена для услуги с id {}", itemId);
     }
 
@@ -287,6 +427,30 @@ public class ItemService {
         log.info("Ссылка на GIF-превью обновлена для услуги с id {}", itemId);
     }
 
+    /**
+     * Применяет частичное изменение услуги точечным UPDATE без загрузки услуги.
+     *
+     * @param itemId  Идентификатор услуги.
+     * @param version Версия услуги, которую видел клиент.
+     * @param patch   Изменение.
+     * @return Новая версия услуги.
+     * @throws VersionConflictException если услугу изменили после получения версии
+     */
+    public long patchItem(long itemId, long version, CatalogPatch patch) throws ItemNotFoundException, VersionConflictException {
+        if (!itemRepository.patch(Item.class, itemId, version, patch, gifPreviewService.resolvePreview(patch))) {
+            if (!itemRepository.existsById(itemId)) {
+                throw new ItemNotFoundException("Услуга с id " + itemId + " не найдена");
+            }
+            throw new VersionConflictException(String.format("Услуга с id %s изменена после версии %s", itemId, version));
+        }
+
+        if (patch.mainIconLink() != null) {
+            categoryTreeService.invalidate();
+        }
+        log.info("Применено частичное изменение услуги с id {}, версия {}", itemId, version + 1);
+        return version + 1;
+    }
+
     /**
      * Добавляет иконку для услуги.
      *
@@ -395,6 +559,7 @@ public class ItemService {
             String titleAudio = speechService.generateAudio(item.getTitle());
             item.setTitleAudio(titleAudio);
             itemRepository.save(item);
+            categoryTreeService.invalidate();
             log.info("Сгенерировано аудио заголовка для услуги с id {}", itemId);
         } else
             throw new ItemUpdateException(String.format("У услуги %s уже есть аудио заголовка!", itemId));
@@ -413,10 +578,21 @@ public class ItemService {
         } else {
             item.setTitleAudio(null);
             itemRepository.save(item);
+            categoryTreeService.invalidate();
             log.info("У услуги {} удалено аудио заголовка", itemId);
         }
     }
 
+    /**
+     * Добавляет сохранённую услугу в базу Qdrant.
+     * Используется при импорте, когда услуги сохраняются в базу пакетами, минуя {@link #createItem}.
+     *
+     * @param item Услуга.
+     */
+    public void addToVectorSearch(Item item) {
+        addQdrantTitle(item);
+    }
+
     /**
      * Удаляет услугу из базы Qdrant.
      *
@@ -462,27 +638,43 @@ public class ItemService {
         }
     }
 
+    /**
+     * Позиция порции после указанного идентификатора.
+     *
+     * @param afterId Идентификатор или null для первой порции.
+     */
+    private ScrollPosition position(Long afterId) {
+        return afterId == null ? ScrollPosition.keyset() : ScrollPosition.forward(Map.of("id", afterId));
+    }
+
     /**
      * Генерирует аудио для описания услуги.
-     * По хэш-функции проверяет, не было ли раннее сгенерировано такое аудио.
+     * По хэш-функции проверяет, не было ли раннее сгенерировано такое аудио у услуги или дополнения.
      *
      * @param item услуга
      */
     private void generateDescriptionAudio(Item item) throws IOException, FileDuplicateException {
-        Page<Item> itemsWithSameDescriptionRequest = itemRepository.findByHashAndAudioExistence(item.getDescriptionHash(), PageRequest.of(0, 1));
-        if (itemsWithSameDescriptionRequest.hasContent()) {
-            Item itemWithSameDescription = itemsWithSameDescriptionRequest.getContent().getFirst();
-            List<String> sameAudio = new ArrayList<>(itemWithSameDescription.getAudio());
-            item.getAudio().clear();
-            for (String audioLink : sameAudio) {
-                item.getAudio().add(audioLink);
-            }
+        Optional<List<String>> sameAudio = descriptionAudioService.findAudio(item.getDescriptionHash());
+        item.getAudio().clear();
+        if (sameAudio.isPresent()) {
+            item.getAudio().addAll(sameAudio.get());
         } else {
             String[] descriptionBlocks = speechService.splitDescription(item.getDescription());
             for (String block : descriptionBlocks) {
                 String audioLink = speechService.generateAudio(block);
                 item.getAudio().add(audioLink);
             }
+            descriptionAudioService.saveAudio(item.getDescriptionHash(), item.getAudio());
         }
     }
+
+    /**
+     * Результат поиска услуг.
+     *
+     * @param page       страница преобразованных услуг
+     * @param shouldSync нужна ли синхронизация БД поиска
+     * @param missingId  идентификатор найденной, но отсутствующей в базе услуги, или null
+     */
+    private record SearchResult<T>(Page<T> page, boolean shouldSync, Long missingId) {
+    }
 }
@@ -0,0 +1,69 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.MediaUsageRepository;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.domain.MediaUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис заполнения статистики медиафайлов по содержимому хранилища.
+ * <p>
+ * {@link MediaUsageService} узнаёт о файле только при загрузке через приложение, поэтому у файлов,
+ * загруженных раньше, записей нет и в отчёт они не попадают. Сервис проходит по листингу хранилища
+ * и пакетами добавляет записи с размером файла без обращений; у существующих записей
+ * обновляется только размер, накопленные обращения сохраняются.
+ */
+@Component
+@Slf4j
+public class MediaUsageSeedService {
+
+    private final MediaUsageRepository mediaUsageRepository;
+    private final S3Service s3Service;
+    private final int batchSize;
+
+    public MediaUsageSeedService(MediaUsageRepository mediaUsageRepository, S3Service s3Service,
+                                 @Value("${media-usage.batch-size}") int batchSize) {
+        this.mediaUsageRepository = mediaUsageRepository;
+        this.s3Service = s3Service;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Добавляет в статистику все файлы хранилища с их размерами.
+     *
+     * @return количество учтённых файлов
+     * @throws IOException если хранилище не удалось прочитать
+     */
+    public long seedFromStorage() throws IOException {
+        List<MediaUsage> batch = new ArrayList<>(batchSize);
+        AtomicLong seeded = new AtomicLong();
+
+        s3Service.forEachFile((url, size) -> {
+            batch.add(MediaUsage.builder()
+                    .url(url)
+                    .sizeBytes(size)
+                    .build());
+
+            if (batch.size() == batchSize) {
+                mediaUsageRepository.addUsage(batch);
+                seeded.addAndGet(batch.size());
+                batch.clear();
+            }
+        });
+
+        if (!batch.isEmpty()) {
+            mediaUsageRepository.addUsage(batch);
+            seeded.addAndGet(batch.size());
+        }
+
+        log.info("Статистика медиафайлов заполнена по хранилищу: файлов {}", seeded.get());
+        return seeded.get();
+    }
+}
@@ -0,0 +1,193 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.MediaUsageRepository;
+import com.good.ivrstand.domain.MediaUsage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сервис учёта использования медиафайлов.
+ * <p>
+ * Обращения и загрузки копятся в памяти в счётчиках {@link LongAdder}, которые не блокируют
+ * потоки запросов даже при обращениях к одному файлу. В базу накопленное сбрасывается
+ * пакетами по расписанию, поэтому учёт не добавляет блокировок и ввода/вывода в обработку запроса.
+ */
+@Component
+@Slf4j
+public class MediaUsageService {
+
+    private final MediaUsageRepository mediaUsageRepository;
+    private final int batchSize;
+    private final int maxPending;
+
+    /**
+     * Накопленные с последнего сброса обращения по ссылкам на файлы.
+     */
+    private final ConcurrentHashMap<String, PendingUsage> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Ссылки на удалённые с последнего сброса файлы.
+     */
+    private final ConcurrentLinkedQueue<String> deleted = new ConcurrentLinkedQueue<>();
+
+    public MediaUsageService(MediaUsageRepository mediaUsageRepository,
+                             @Value("${media-usage.batch-size}") int batchSize,
+                             @Value("${media-usage.max-pending}") int maxPending) {
+        this.mediaUsageRepository = mediaUsageRepository;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Учитывает обращение к файлу.
+     *
+     * @param url ссылка на файл
+     */
+    public void recordAccess(String url) {
+        PendingUsage usage = pendingUsage(url);
+        if (usage != null) {
+            usage.accesses.increment();
+            usage.lastAccessedAt = Instant.now();
+        }
+    }
+
+    /**
+     * Учитывает загрузку файла в хранилище.
+     *
+     * @param url  ссылка на файл
+     * @param size размер файла в байтах
+     */
+    public void recordUpload(String url, long size) {
+        PendingUsage usage = pendingUsage(url);
+        if (usage != null) {
+            usage.size = size;
+        }
+    }
+
+    /**
+     * Учитывает удаление файла из хранилища: его статистика будет удалена при сбросе.
+     *
+     * @param url ссылка на файл
+     */
+    public void recordDeletion(String url) {
+        pending.remove(url);
+        deleted.add(url);
+    }
+
+    /**
+     * Возвращает статистику файлов, отсортированную по стоимости - размеру, умноженному
+     * на частоту обращений (обращений в сутки).
+     *
+     * @param leastUsed если true, сначала идут самые невостребованные файлы, среди них - самые большие
+     * @param pageable  информация о странице
+     * @return страница статистики
+     */
+    public Page<MediaUsage> getUsageReport(boolean leastUsed, Pageable pageable) {
+        return leastUsed
+                ? mediaUsageRepository.findByCostAsc(pageable)
+                : mediaUsageRepository.findByCostDesc(pageable);
+    }
+
+    /**
+     * Вычисляет частоту обращений к файлу.
+     *
+     * @param usage статистика файла
+     * @return обращений в сутки
+     */
+    public double getAccessFrequency(MediaUsage usage) {
+        double days = Math.max(Duration.between(usage.getFirstSeenAt(), Instant.now()).toSeconds() / 86400.0, 1.0);
+        return usage.getAccessCount() / days;
+    }
+
+    /**
+     * Сбрасывает накопленную статистику в базу пакетами.
+     */
+    @Scheduled(fixedDelayString = "${media-usage.flush-interval}")
+    public void flush() {
+        Set<String> deletedUrls = new HashSet<>();
+        for (String url = deleted.poll(); url != null; url = deleted.poll()) {
+            deletedUrls.add(url);
+        }
+
+        List<MediaUsage> batch = new ArrayList<>(batchSize);
+        int flushed = 0;
+        for (Map.Entry<String, PendingUsage> entry : pending.entrySet()) {
+            // Запись удаляется из карты до чтения счётчика, поэтому следующие обращения создадут новую запись.
+            // Обращения, получившие старую запись в момент сброса, могут не попасть в статистику - для оценки это допустимо
+            if (!pending.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+
+            PendingUsage usage = entry.getValue();
+            batch.add(MediaUsage.builder()
+                    .url(entry.getKey())
+                    .sizeBytes(usage.size)
+                    .accessCount(usage.accesses.sum())
+                    .lastAccessedAt(usage.lastAccessedAt)
+                    .build());
+
+            if (batch.size() == batchSize) {
+                mediaUsageRepository.addUsage(batch);
+                flushed += batch.size();
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            mediaUsageRepository.addUsage(batch);
+            flushed += batch.size();
+        }
+
+        if (!deletedUrls.isEmpty()) {
+            mediaUsageRepository.deleteUsage(deletedUrls);
+        }
+
+        if (flushed > 0 || !deletedUrls.isEmpty()) {
+            log.debug("Сброшена статистика медиафайлов: обновлено {}, удалено {}", flushed, deletedUrls.size());
+        }
+    }
+
+    /**
+     * Возвращает накопитель для файла. Если накоплено слишком много разных файлов,
+     * новые файлы не учитываются до следующего сброса, чтобы не расходовать память.
+     *
+     * @param url ссылка на файл
+     * @return накопитель или null
+     */
+    private PendingUsage pendingUsage(String url) {
+        PendingUsage usage = pending.get(url);
+        if (usage != null) {
+            return usage;
+        }
+
+        if (pending.size() >= maxPending) {
+            return null;
+        }
+
+        return pending.computeIfAbsent(url, key -> new PendingUsage());
+    }
+
+    /**
+     * Накопленные с последнего сброса данные об одном файле.
+     */
+    private static class PendingUsage {
+        private final LongAdder accesses = new LongAdder();
+        private volatile Long size;
+        private volatile Instant lastAccessedAt;
+    }
+}
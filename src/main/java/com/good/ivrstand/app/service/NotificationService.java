@@ -7,8 +7,7 @@ import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
-import java.time.LocalTime;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
@@ -154,12 +153,21 @@ public class NotificationService {
     }
 
     /**
-     * Создаёт сообщение о вызове помощи на IVR-стендне
+     * Создаёт сообщение о вызове помощи на IVR-стенде.
+     * Повторные вызовы с того же стенда объединяются в одно сообщение с их количеством и временем последнего.
+     *
+     * @param standId   идентификатор стенда
+     * @param count     количество вызовов
+     * @param firstCall время первого вызова
+     * @param lastCall  время последнего вызова
      */
-    public String createHelpMessage() {
-        LocalTime currentTime = LocalTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
-        String formattedTime = currentTime.format(formatter);
-        return String.format("%s, %s: требуется помощь на IVR-стенде", LocalDate.now(), formattedTime);
+    public String createHelpMessage(String standId, int count, LocalDateTime firstCall, LocalDateTime lastCall) {
+        String message = String.format("%s, %s: требуется помощь на IVR-стенде %s",
+                firstCall.toLocalDate(), firstCall.format(DateTimeFormatter.ofPattern("HH:mm")), standId);
+        if (count > 1) {
+            message += String.format("\nВызовов: %d, последний в %s",
+                    count, lastCall.format(DateTimeFormatter.ofPattern("HH:mm:ss")));
+        }
+        return message;
     }
 }
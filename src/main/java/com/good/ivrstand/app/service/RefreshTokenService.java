@@ -0,0 +1,197 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.RefreshTokenRepository;
+import com.good.ivrstand.domain.RefreshToken;
+import com.good.ivrstand.exception.TokenRefreshException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис серверных токенов обновления.
+ * Клиент получает случайную строку, в базе хранится ее хэш. Каждое обновление обменивает токен на новый,
+ * а повторное предъявление обмененного токена считается кражей: отзывается вся сессия устройства.
+ * Индекс в памяти избавляет от чтения токена из базы, состояние токена проверяет условное обновление в базе.
+ */
+@Component
+@Slf4j
+public class RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final EncodeService encodeService;
+    private final Duration lifetime;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, IndexedToken> index = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               EncodeService encodeService,
+                               @Value("${auth.refresh-token.lifetime}") Duration lifetime) {
+        this(refreshTokenRepository, encodeService, lifetime, Clock.systemUTC());
+    }
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, EncodeService encodeService,
+                               Duration lifetime, Clock clock) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.encodeService = encodeService;
+        this.lifetime = lifetime;
+        this.clock = clock;
+    }
+
+    /**
+     * Выдает токен обновления для новой сессии пользователя.
+     *
+     * @param userId ID пользователя
+     * @return токен обновления
+     */
+    public String issue(long userId) {
+        Instant now = clock.instant();
+        return save(userId, UUID.randomUUID().toString(), now, now.plus(lifetime));
+    }
+
+    /**
+     * Обменивает токен обновления на новый токен той же сессии.
+     *
+     * @param refreshToken токен обновления
+     * @return ID пользователя и новый токен
+     * @throws TokenRefreshException если токен не найден, истек, отозван или уже был обменян
+     */
+    @Transactional(noRollbackFor = TokenRefreshException.class)
+    public Rotation rotate(String refreshToken) throws TokenRefreshException {
+        String tokenHash = encodeService.generateHash(refreshToken);
+        IndexedToken token = find(tokenHash);
+
+        if (token == null) {
+            throw new TokenRefreshException("Токен обновления не найден");
+        }
+        if (token.expiresAt().isBefore(clock.instant())) {
+            index.remove(tokenHash);
+            throw new TokenRefreshException("Токен обновления истёк");
+        }
+        if (refreshTokenRepository.markUsed(tokenHash) == 0) {
+            index.remove(tokenHash);
+            revokeFamily(token.familyId());
+            log.warn("Повторное использование токена обновления пользователя с id {}, сессия отозвана", token.userId());
+            throw new TokenRefreshException("Токен обновления уже использован или отозван");
+        }
+
+        index.remove(tokenHash);
+        Instant now = clock.instant();
+        String rotated = save(token.userId(), token.familyId(), now, now.plus(lifetime));
+        log.debug("Токен обновления пользователя с id {} обменян", token.userId());
+        return new Rotation(token.userId(), rotated);
+    }
+
+    /**
+     * Проверяет, можно ли обменять токен обновления.
+     *
+     * @param refreshToken токен обновления
+     * @return true, если токен не обменян, не отозван и не истек
+     */
+    public boolean isActive(String refreshToken) {
+        return refreshTokenRepository.findById(encodeService.generateHash(refreshToken))
+                .map(token -> !token.isUsed() && !token.isRevoked() && token.getExpiresAt().isAfter(clock.instant()))
+                .orElse(false);
+    }
+
+    /**
+     * Отзывает сессию устройства, которой принадлежит токен.
+     *
+     * @param refreshToken токен обновления
+     */
+    @Transactional
+    public void revoke(String refreshToken) {
+        String tokenHash = encodeService.generateHash(refreshToken);
+        IndexedToken token = find(tokenHash);
+        if (token != null) {
+            revokeFamily(token.familyId());
+            log.info("Отозвана сессия пользователя с id {}", token.userId());
+        }
+    }
+
+    /**
+     * Отзывает все сессии пользователя, например после смены пароля.
+     *
+     * @param userId ID пользователя
+     */
+    @Transactional
+    public void revokeAllForUser(long userId) {
+        refreshTokenRepository.revokeByUserId(userId);
+        index.values().removeIf(token -> token.userId() == userId);
+        log.info("Отозваны все сессии пользователя с id {}", userId);
+    }
+
+    /**
+     * Удаляет истекшие токены из базы и индекса.
+     */
+    @Scheduled(fixedDelayString = "${auth.refresh-token.cleanup-interval}")
+    @Transactional
+    public void deleteExpired() {
+        Instant now = clock.instant();
+        index.values().removeIf(token -> token.expiresAt().isBefore(now));
+        int deleted = refreshTokenRepository.deleteExpired(now);
+        log.debug("Удалено истекших токенов обновления: {}", deleted);
+    }
+
+    private void revokeFamily(String familyId) {
+        refreshTokenRepository.revokeFamily(familyId);
+        index.values().removeIf(token -> token.familyId().equals(familyId));
+    }
+
+    private IndexedToken find(String tokenHash) {
+        IndexedToken token = index.get(tokenHash);
+        if (token == null) {
+            token = refreshTokenRepository.findById(tokenHash)
+                    .map(found -> new IndexedToken(found.getUserId(), found.getFamilyId(), found.getExpiresAt()))
+                    .orElse(null);
+        }
+        return token;
+    }
+
+    private String save(long userId, String familyId, Instant createdAt, Instant expiresAt) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        String tokenHash = encodeService.generateHash(refreshToken);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(tokenHash)
+                .userId(userId)
+                .familyId(familyId)
+                .createdAt(createdAt)
+                .expiresAt(expiresAt)
+                .build());
+        index.put(tokenHash, new IndexedToken(userId, familyId, expiresAt));
+        return refreshToken;
+    }
+
+    /**
+     * Результат обмена токена обновления.
+     *
+     * @param userId       ID пользователя
+     * @param refreshToken новый токен обновления
+     */
+    public record Rotation(long userId, String refreshToken) {
+    }
+
+    /**
+     * Неизменяемые данные токена в индексе.
+     */
+    private record IndexedToken(long userId, String familyId, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.good.ivrstand.app.service;
+
+import com.good.ivrstand.app.repository.TokenRevocationRepository;
+import com.good.ivrstand.domain.TokenRevocation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервис отзыва токенов доступа.
+ * Набор отзывов хранится в памяти, поэтому проверка токена не обращается к базе.
+ * Отзывы сохраняются в базе и периодически подтягиваются, чтобы их видели все экземпляры приложения.
+ * Отзыв старше срока жизни токена больше не нужен и удаляется.
+ */
+@Component
+@Slf4j
+public class TokenRevocationService {
+
+    /**
+     * Запас при синхронизации на случай расхождения часов между экземплярами.
+     */
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final TokenRevocationRepository tokenRevocationRepository;
+    private final Duration retention;
+    private final Clock clock;
+    private final Map<Long, Instant> revocations = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    @Autowired
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository,
+                                  @Value("${auth.revocation.retention}") Duration retention) {
+        this(tokenRevocationRepository, retention, Clock.systemUTC());
+    }
+
+    public TokenRevocationService(TokenRevocationRepository tokenRevocationRepository, Duration retention, Clock clock) {
+        this.tokenRevocationRepository = tokenRevocationRepository;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Отзывает все выданные пользователю токены доступа.
+     *
+     * @param userId ID пользователя
+     */
+    public void revoke(long userId) {
+        Instant now = clock.instant();
+        tokenRevocationRepository.save(new TokenRevocation(userId, now));
+        revocations.merge(userId, now, (current, revokedAt) -> revokedAt.isAfter(current) ? revokedAt : current);
+        version.incrementAndGet();
+        log.info("Отозваны токены пользователя с id {}", userId);
+    }
+
+    /**
+     * Проверяет, отозван ли токен. Время выпуска в токене хранится с точностью до секунды,
+     * поэтому токен, выпущенный в ту же секунду, что и отзыв, тоже считается отозванным.
+     *
+     * @param userId   ID пользователя
+     * @param issuedAt время выпуска токена
+     * @return true, если токен выпущен не позже отзыва
+     */
+    public boolean isRevoked(long userId, Instant issuedAt) {
+        Instant revokedAt = revocations.get(userId);
+        return revokedAt != null && issuedAt.getEpochSecond() <= revokedAt.getEpochSecond();
+    }
+
+    /**
+     * Возвращает версию набора отзывов. Версия растет при каждом изменении набора.
+     *
+     * @return версия
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Подтягивает отзывы других экземпляров приложения и удаляет устаревшие отзывы.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.sync-interval}")
+    @Transactional
+    public void sync() {
+        Instant now = clock.instant();
+        Instant expired = now.minus(retention);
+        boolean changed = false;
+
+        List<TokenRevocation> loaded = tokenRevocationRepository.findByRevokedAtGreaterThanEqual(lastSync.minus(SYNC_OVERLAP));
+        for (TokenRevocation revocation : loaded) {
+            if (revocation.getRevokedAt().isBefore(expired)) {
+                continue;
+            }
+            Instant current = revocations.get(revocation.getUserId());
+            if (current == null || revocation.getRevokedAt().isAfter(current)) {
+                revocations.put(revocation.getUserId(), revocation.getRevokedAt());
+                changed = true;
+            }
+        }
+
+        changed |= revocations.values().removeIf(revokedAt -> revokedAt.isBefore(expired));
+        int deleted = tokenRevocationRepository.deleteRevokedBefore(expired);
+
+        if (changed) {
+            version.incrementAndGet();
+        }
+        lastSync = now;
+        log.debug("Синхронизированы отзывы токенов: загружено {}, удалено устаревших {}", loaded.size(), deleted);
+    }
+}
@@ -1,19 +1,29 @@
 package com.good.ivrstand.app.service;
 
 import com.good.ivrstand.app.repository.UserRepository;
-import com.good.ivrstand.domain.User;
+import com.good.ivrstand.domain.enumeration.UserTokenType;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.TaskScheduler;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
- * Сервис для работы с токенам сброса пароля
+ * Сервис для работы с токенами сброса пароля и подтверждения email.
+ * Время истечения хранится вместе с токеном, поэтому истекший токен отклоняется при проверке сразу.
+ * Очистку истекших токенов в базе выполняет таймер на колесе пакетами, а периодический проход
+ * по индексу подбирает сроки, потерянные при перезапуске или поставленные другим экземпляром приложения.
  */
 @Component
 @Slf4j
@@ -24,25 +34,39 @@ public class TokenService {
     /**
      * Значение токена сброса пароля, когда он не задан
      */
-    private static final String NO_TOKEN = "no-token";
-    private final TaskScheduler taskScheduler;
-    private final UserRepository userRepository;
+    public static final String NO_TOKEN = "no-token";
 
-    /**
-     * Запланированные задачи на истечение токенов сброса пароля.
-     */
-    private final ConcurrentHashMap<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    private final UserRepository userRepository;
+    private final Duration resetPasswordLifetime;
+    private final Duration confirmEmailLifetime;
+    private final Duration tick;
+    private final Clock clock;
+    private final SecureRandom random = new SecureRandom();
+    private final HashedWheelTimer<ExpiringToken> expiryTimer;
+
+    @Autowired
+    public TokenService(UserRepository userRepository,
+                        @Value("${auth.reset-password.lifetime}") Duration resetPasswordLifetime,
+                        @Value("${auth.confirm-email.lifetime}") Duration confirmEmailLifetime,
+                        @Value("${auth.token-expiry.tick}") Duration tick,
+                        @Value("${auth.token-expiry.wheel-size}") int wheelSize) {
+        this(userRepository, resetPasswordLifetime, confirmEmailLifetime, tick, wheelSize, Clock.systemUTC());
+    }
 
-    public TokenService(TaskScheduler taskScheduler, UserRepository userRepository) {
-        this.taskScheduler = taskScheduler;
+    public TokenService(UserRepository userRepository, Duration resetPasswordLifetime, Duration confirmEmailLifetime,
+                        Duration tick, int wheelSize, Clock clock) {
         this.userRepository = userRepository;
+        this.resetPasswordLifetime = resetPasswordLifetime;
+        this.confirmEmailLifetime = confirmEmailLifetime;
+        this.tick = tick;
+        this.clock = clock;
+        this.expiryTimer = new HashedWheelTimer<>("TokenExpiry", tick, wheelSize, this::expireTokens);
     }
 
     /**
-     * Генерирует токен сброса пароля
+     * Генерирует одноразовый токен для ссылки в письме
      */
-    public String generateResetPasswordToken() {
-        SecureRandom random = new SecureRandom();
+    public String generateToken() {
         StringBuilder sb = new StringBuilder(LENGTH);
 
         for (int i = 0; i < LENGTH; i++) {
@@ -54,50 +78,79 @@ public class TokenService {
     }
 
     /**
-     * Задаёт пользователю токен сброса пароля, создаёт задачу на его истечение.
+     * Вычисляет время истечения нового токена и ставит его очистку на таймер.
      *
-     * @param userId              id пользователя
-     * @param delayInMilliseconds время действия токена
+     * @param userId id пользователя
+     * @param type   тип токена
+     * @return время истечения, которое сохраняется вместе с токеном
      */
-    @Async
-    public void scheduleTokenInvalidation(long userId, long delayInMilliseconds) {
-        Instant startTime = Instant.now().plusMillis(delayInMilliseconds);
-        User user = userRepository.findById(userId);
-
-        if (user == null)
-            throw new IllegalArgumentException("Пользователь не может быть null");
-
-        ScheduledFuture<?> existingTask = scheduledTasks.get(userId);
-        if (existingTask != null && !existingTask.isDone()) {
-            existingTask.cancel(true);
-            scheduledTasks.remove(userId);
-        }
+    public Instant scheduleTokenInvalidation(long userId, UserTokenType type) {
+        Duration lifetime = type == UserTokenType.RESET_PASSWORD ? resetPasswordLifetime : confirmEmailLifetime;
+        Instant expiresAt = clock.instant().plus(lifetime);
+        // Лишний такт гарантирует, что к срабатыванию таймера токен в базе уже истек
+        expiryTimer.schedule(new ExpiringToken(userId, type), lifetime.plus(tick));
+        log.info("Задан тайм-аут токена {} для пользователя {}", type, userId);
+        return expiresAt;
+    }
 
-        ScheduledFuture<?> newTask = taskScheduler.schedule(() -> invalidateToken(userId), startTime);
-        scheduledTasks.put(userId, newTask);
-        log.info("Задан тайм-аут токена сброса пароля для пользователя {}", userId);
+    /**
+     * Проверяет предъявленный токен: он должен совпадать с сохраненным и не быть истекшим.
+     * Токены сравниваются за постоянное время.
+     *
+     * @param storedToken    сохраненный токен
+     * @param expiresAt      время истечения сохраненного токена
+     * @param presentedToken предъявленный токен
+     * @return true, если токен действителен
+     */
+    public boolean isTokenValid(String storedToken, Instant expiresAt, String presentedToken) {
+        if (storedToken == null || presentedToken == null || NO_TOKEN.equals(storedToken) || expiresAt == null) {
+            return false;
+        }
+        return clock.instant().isBefore(expiresAt)
+                && MessageDigest.isEqual(storedToken.getBytes(StandardCharsets.UTF_8), presentedToken.getBytes(StandardCharsets.UTF_8));
+    }
 
+    /**
+     * Сбрасывает в базе все истекшие токены.
+     */
+    @Scheduled(fixedDelayString = "${auth.token-expiry.sweep-interval}")
+    public void sweepExpiredTokens() {
+        Instant now = clock.instant();
+        int reset = userRepository.expireAllResetTokens(now);
+        int confirm = userRepository.expireAllConfirmTokens(now);
+        log.debug("Очистка истекших токенов: сброса пароля {}, подтверждения email {}", reset, confirm);
     }
 
     /**
-     * Делает токен сброса пароля недействительным.
-     * Удаляет действующий токен из базы и заменяет на "no-token"
-     *
-     * @param userId id пользователя
+     * Останавливает таймер истечения токенов.
      */
-    public void invalidateToken(long userId) {
-        User user = userRepository.findById(userId);
+    @PreDestroy
+    public void shutdown() {
+        expiryTimer.close();
+    }
 
-        if (user == null)
-            throw new IllegalArgumentException("Пользователь не может быть null");
+    private void expireTokens(List<ExpiringToken> tokens) {
+        Instant now = clock.instant();
+        Map<UserTokenType, List<Long>> userIds = tokens.stream()
+                .collect(Collectors.groupingBy(ExpiringToken::type,
+                        Collectors.mapping(ExpiringToken::userId, Collectors.toList())));
 
-        user.setResetToken(NO_TOKEN);
-        ScheduledFuture<?> existingTask = scheduledTasks.get(userId);
-        if (existingTask != null && !existingTask.isDone()) {
-            existingTask.cancel(true);
-            scheduledTasks.remove(userId);
+        List<Long> resetIds = userIds.get(UserTokenType.RESET_PASSWORD);
+        if (resetIds != null) {
+            log.info("Истекли токены сброса пароля: {}", userRepository.expireResetTokens(resetIds, now));
+        }
+        List<Long> confirmIds = userIds.get(UserTokenType.CONFIRM_EMAIL);
+        if (confirmIds != null) {
+            log.info("Истекли токены подтверждения email: {}", userRepository.expireConfirmTokens(confirmIds, now));
         }
-        log.info("Истёк токен сброса пароля для пользователя {}", userId);
-        userRepository.save(user);
+    }
+
+    /**
+     * Срок токена на таймере.
+     *
+     * @param userId id пользователя
+     * @param type   тип токена
+     */
+    private record ExpiringToken(long userId, UserTokenType type) {
     }
 }
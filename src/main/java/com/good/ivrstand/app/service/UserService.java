@@ -5,6 +5,8 @@ import com.good.ivrstand.app.service.externinterfaces.EmailService;
 import com.good.ivrstand.domain.enumeration.EmailData;
 import com.good.ivrstand.domain.User;
 import com.good.ivrstand.domain.enumeration.UserRole;
+import com.good.ivrstand.domain.enumeration.UserTokenType;
+import com.good.ivrstand.exception.ConfirmEmailTokenException;
 import com.good.ivrstand.exception.NotConfirmedEmailException;
 import com.good.ivrstand.exception.ResetPasswordTokenException;
 import com.good.ivrstand.exception.UserDuplicateException;
@@ -29,6 +31,8 @@ public class UserService implements UserDetailsService {
     private final EmailService emailService;
     private final TokenService tokenService;
     private final EncodeService encodeService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
     private final String resetPasswordLink;
     private final String confirmEmailLink;
 
@@ -37,6 +41,8 @@ public class UserService implements UserDetailsService {
                        EmailService emailService,
                        TokenService tokenService,
                        EncodeService encodeService,
+                       TokenRevocationService tokenRevocationService,
+                       RefreshTokenService refreshTokenService,
                        @Value("${auth.reset-password.link}") String resetPasswordLink,
                        @Value("${auth.confirm-email.link}") String confirmEmailLink) {
         this.userRepository = userRepository;
@@ -44,6 +50,8 @@ public class UserService implements UserDetailsService {
         this.emailService = emailService;
         this.tokenService = tokenService;
         this.encodeService = encodeService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
         this.resetPasswordLink = resetPasswordLink;
         this.confirmEmailLink = confirmEmailLink;
     }
@@ -119,31 +127,36 @@ public class UserService implements UserDetailsService {
     }
 
     /**
-     * Удаляет пользователя по его ID.
+     * Удаляет пользователя по его ID и отзывает его токены.
      *
      * @param userId ID пользователя
      */
     public void deleteUser(Long userId) {
         if (userRepository.existsById(userId)) {
+            refreshTokenService.revokeAllForUser(userId);
             userRepository.deleteById(userId);
+            tokenRevocationService.revoke(userId);
             log.info("Удалён пользователь с id {}", userId);
         }
     }
 
     /**
-     * Обновляет пароль пользователя.
+     * Обновляет пароль пользователя и завершает все его сессии.
      *
      * @param userId      зашифрованный ID пользователя
      * @param encodedPass новый пароль
      * @param token       токен сброса
+     * @throws ResetPasswordTokenException если токен не совпадает или истек
      */
     public void updatePassword(String userId, String encodedPass, String token) throws ResetPasswordTokenException, UserNotFoundException {
         long id = Long.parseLong(encodeService.decrypt(userId));
         User user = getUserById(id);
-        if (user.getResetToken().equals(token)) {
+        if (tokenService.isTokenValid(user.getResetToken(), user.getResetTokenExpiresAt(), token)) {
             user.setPassword(encodedPass);
-            tokenService.invalidateToken(id);
+            user.setResetToken(TokenService.NO_TOKEN);
+            user.setResetTokenExpiresAt(null);
             userRepository.save(user);
+            refreshTokenService.revokeAllForUser(id);
             log.info("Обновлён пароль для пользователя с id {}", id);
         } else
             throw new ResetPasswordTokenException("Ошибка токена сброса пароля!");
@@ -162,12 +175,12 @@ public class UserService implements UserDetailsService {
             throw new UserNotFoundException("Пользователь не может быть null");
 
         String id = encodeService.encrypt(user.getId().toString());
-        String token = tokenService.generateResetPasswordToken();
+        String token = tokenService.generateToken();
 
         String message = String.format(EmailData.RESET_PASSWORD.getEmailMessage(), resetPasswordLink, id, token);
         emailService.sendEmail(email, EmailData.RESET_PASSWORD.getEmailSubject(), message);
-        tokenService.scheduleTokenInvalidation(user.getId(), 20 * 60 * 1000);
         user.setResetToken(token);
+        user.setResetTokenExpiresAt(tokenService.scheduleTokenInvalidation(user.getId(), UserTokenType.RESET_PASSWORD));
         userRepository.save(user);
         log.info("Отправлена заявка на сброс пароля");
     }
@@ -176,11 +189,18 @@ public class UserService implements UserDetailsService {
      * Подтверждает email пользователя.
      *
      * @param userId зашифрованный ID пользователя
+     * @param token  токен подтверждения
+     * @throws ConfirmEmailTokenException если токен не совпадает или истек
      */
-    public void confirmEmail(String userId) throws UserNotFoundException {
+    public void confirmEmail(String userId, String token) throws UserNotFoundException, ConfirmEmailTokenException {
         long id = Long.parseLong(encodeService.decrypt(userId));
         User user = getUserById(id);
+        if (!tokenService.isTokenValid(user.getConfirmToken(), user.getConfirmTokenExpiresAt(), token)) {
+            throw new ConfirmEmailTokenException("Ошибка токена подтверждения email!");
+        }
         user.setEmailConfirmed(true);
+        user.setConfirmToken(null);
+        user.setConfirmTokenExpiresAt(null);
         userRepository.save(user);
         log.info("Подтверждён адрес эл. почты для пользователя с id {}", id);
     }
@@ -198,14 +218,19 @@ public class UserService implements UserDetailsService {
             throw new UserNotFoundException("Пользователь не может быть null");
 
         String id = encodeService.encrypt(user.getId().toString());
+        String token = tokenService.generateToken();
 
-        String message = String.format(EmailData.CONFIRM_EMAIL.getEmailMessage(), confirmEmailLink, id);
+        String message = String.format(EmailData.CONFIRM_EMAIL.getEmailMessage(), confirmEmailLink, id, token);
         emailService.sendEmail(email, EmailData.CONFIRM_EMAIL.getEmailSubject(), message);
+        user.setConfirmToken(token);
+        user.setConfirmTokenExpiresAt(tokenService.scheduleTokenInvalidation(user.getId(), UserTokenType.CONFIRM_EMAIL));
+        userRepository.save(user);
         log.info("Отправлено письмо о подтверждении email");
     }
 
     /**
      * Назначает пользователю права администратора.
+     * Токены пользователя отзываются, чтобы новая роль попала в токен при следующем входе.
      *
      * @param userId ID пользователя
      * @throws NotConfirmedEmailException если email пользователя не подтвержден
@@ -218,11 +243,12 @@ public class UserService implements UserDetailsService {
 
         user.addRole(roleService.findRoleByName(UserRole.ROLE_ADMIN));
         userRepository.save(user);
+        tokenRevocationService.revoke(userId);
         log.info("Пользователь с id {} теперь админ", userId);
     }
 
     /**
-     * Убирает у пользователя права администратора.
+     * Убирает у пользователя права администратора и отзывает его токены.
      *
      * @param userId ID пользователя
      */
@@ -230,6 +256,7 @@ public class UserService implements UserDetailsService {
         User user = getUserById(userId);
         user.removeRole(roleService.findRoleByName(UserRole.ROLE_ADMIN));
         userRepository.save(user);
+        tokenRevocationService.revoke(userId);
         log.info("Пользователь с id {} больше не админ", userId);
     }
 
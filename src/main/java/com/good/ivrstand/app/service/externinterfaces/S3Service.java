@@ -5,6 +5,8 @@ import com.good.ivrstand.exception.NoSuchFileException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Сервис для работы с хранилищем S3.
@@ -22,6 +24,23 @@ public interface S3Service {
      */
     String uploadFile(MultipartFile multipartFile, String folderName) throws IOException, FileDuplicateException;
 
+    /**
+     * Загружает файл рядом с уже загруженным, например другой размер того же изображения.
+     * Ключ нового файла совпадает с ключом исходного, к имени которого перед расширением добавлен суффикс
+     * ({@link #insertSuffix(String, String)}), поэтому ссылку на него можно получить из ссылки на исходный файл
+     * тем же преобразованием.
+     *
+     * @param multipartFile файл для загрузки
+     * @param url           ссылка на исходный файл
+     * @param suffix        суффикс имени файла
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким именем уже существует
+     * @throws NoSuchFileException    если ссылка не относится к хранилищу
+     */
+    String uploadFileNextTo(MultipartFile multipartFile, String url, String suffix)
+            throws IOException, FileDuplicateException, NoSuchFileException;
+
     /**
      * Удаляет файл из S3 по указанному URL.
      *
@@ -38,4 +57,57 @@ public interface S3Service {
      * @return ссылка на файл
      */
     String getLinkByFile(MultipartFile multipartFile, String folderName);
+
+    /**
+     * Открывает поток для чтения файла из S3 по указанному URL.
+     *
+     * @param url ссылка на файл
+     * @return поток с содержимым файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    InputStream downloadFile(String url) throws NoSuchFileException;
+
+    /**
+     * Возвращает размер файла в S3.
+     *
+     * @param url ссылка на файл
+     * @return размер файла в байтах
+     * @throws NoSuchFileException если файл не найден
+     */
+    long getFileSize(String url) throws NoSuchFileException;
+
+    /**
+     * Открывает поток для чтения части файла из S3.
+     *
+     * @param url   ссылка на файл
+     * @param start смещение первого байта
+     * @param end   смещение последнего байта включительно
+     * @return поток с указанной частью файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    InputStream downloadFileRange(String url, long start, long end) throws NoSuchFileException;
+
+    /**
+     * Перебирает все файлы хранилища, включая загруженные до появления учёта использования.
+     *
+     * @param consumer получает ссылку на файл и его размер в байтах
+     * @throws IOException если хранилище не удалось прочитать
+     */
+    void forEachFile(ObjLongConsumer<String> consumer) throws IOException;
+
+    /**
+     * Добавляет суффикс к имени файла перед расширением. Применяется и к ключу файла, и к ссылке на него,
+     * поэтому ключ и ссылка файла, загруженного {@link #uploadFileNextTo}, получаются одинаково.
+     *
+     * @param keyOrLink ключ файла или ссылка на него
+     * @param suffix    суффикс
+     * @return ключ или ссылка с суффиксом
+     */
+    static String insertSuffix(String keyOrLink, String suffix) {
+        int lastDot = keyOrLink.lastIndexOf('.');
+        if (lastDot <= keyOrLink.lastIndexOf('/')) {
+            return keyOrLink + suffix;
+        }
+        return keyOrLink.substring(0, lastDot) + suffix + keyOrLink.substring(lastDot);
+    }
 }
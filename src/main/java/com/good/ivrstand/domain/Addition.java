@@ -2,6 +2,8 @@ package com.good.ivrstand.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -10,17 +12,41 @@ import java.util.List;
  */
 @Entity
 @Table(name = "additions")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Addition.CACHE_REGION)
+@NamedEntityGraph(name = Addition.GRAPH_DETAIL, attributeNodes = @NamedAttributeNode("item"))
 @AllArgsConstructor
 @NoArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
 public class Addition {
 
+    /**
+     * Сколько идентификаторов дополнений резервируется за одно обращение к последовательности.
+     * Совпадает с размером пакета вставки, чтобы пакет не ждал последовательность.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Регион кэша второго уровня для дополнений.
+     */
+    public static final String CACHE_REGION = "catalog-additions";
+
+    /**
+     * Регион кэша второго уровня для коллекций дополнений.
+     */
+    public static final String COLLECTION_CACHE_REGION = "catalog-additions-collections";
+
+    /**
+     * Граф загрузки для дополнения и списков дополнений услуги.
+     */
+    public static final String GRAPH_DETAIL = "Addition.detail";
+
     /**
      * Идентификатор дополнения.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "additions_seq")
+    @SequenceGenerator(name = "additions_seq", sequenceName = "additions_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "addition_id")
     @Getter
     @EqualsAndHashCode.Include
@@ -65,7 +91,7 @@ public class Addition {
     /**
      * Услуга, к которой относится дополнение.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     @Getter
     @NonNull
@@ -75,7 +101,8 @@ public class Addition {
      * Иконки к дополнению.
      */
     @Getter
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @ElementCollection
     @CollectionTable(name = "addition_icons", joinColumns = @JoinColumn(name = "addition_id"))
     @Column(name = "icon_link")
     private List<String> iconLinks;
@@ -92,7 +119,8 @@ public class Addition {
      * Аудио описания дополнения.
      */
     @Getter
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @ElementCollection
     @CollectionTable(name = "addition_audio", joinColumns = @JoinColumn(name = "addition_id"))
     @Column(name = "audio")
     private List<String> audio;
@@ -112,4 +140,12 @@ public class Addition {
     @Getter
     @Setter
     private String descriptionHash;
+
+    /**
+     * Версия дополнения для оптимистичной блокировки.
+     */
+    @Version
+    @Column(name = "addition_version", nullable = false)
+    @Getter
+    private long version;
 }
@@ -2,6 +2,8 @@ package com.good.ivrstand.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -10,17 +12,52 @@ import java.util.List;
  */
 @Entity
 @Table(name = "categories")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Category.CACHE_REGION)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Category.GRAPH_LIST, attributeNodes = @NamedAttributeNode("parentCategory")),
+        @NamedEntityGraph(name = Category.GRAPH_DETAIL, attributeNodes = {
+                @NamedAttributeNode("parentCategory"),
+                @NamedAttributeNode("childrenCategories")
+        })
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 @Builder
 public class Category {
 
+    /**
+     * Сколько идентификаторов категорий резервируется за одно обращение к последовательности.
+     * Совпадает с размером пакета вставки, чтобы пакет не ждал последовательность.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Регион кэша второго уровня для категорий.
+     */
+    public static final String CACHE_REGION = "catalog-categories";
+
+    /**
+     * Регион кэша второго уровня для коллекций категорий.
+     */
+    public static final String COLLECTION_CACHE_REGION = "catalog-categories-collections";
+
+    /**
+     * Граф загрузки для списков категорий. Дочерние категории и услуги догружаются пакетно для всей страницы.
+     */
+    public static final String GRAPH_LIST = "Category.list";
+
+    /**
+     * Граф загрузки для карточки категории.
+     */
+    public static final String GRAPH_DETAIL = "Category.detail";
+
     /**
      * Идентификатор категории.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "categories_seq")
+    @SequenceGenerator(name = "categories_seq", sequenceName = "categories_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "category_id")
     @Getter
     @EqualsAndHashCode.Include
@@ -39,21 +76,23 @@ public class Category {
     /**
      * Список услуг, относящихся к данной категории.
      */
-    @OneToMany(mappedBy = "category", cascade = CascadeType.MERGE, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @OneToMany(mappedBy = "category", cascade = CascadeType.MERGE)
     @Getter
     private List<Item> itemsInCategory;
 
     /**
      * Список дочерних категорий данной категории.
      */
-    @OneToMany(mappedBy = "parentCategory", cascade = CascadeType.MERGE, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @OneToMany(mappedBy = "parentCategory", cascade = CascadeType.MERGE)
     @Getter
     private List<Category> childrenCategories;
 
     /**
      * Родительская категория данной категории.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_category_id")
     @Getter
     @Setter
@@ -90,4 +129,12 @@ public class Category {
     @Getter
     @Setter
     private String titleAudio;
+
+    /**
+     * Версия категории для оптимистичной блокировки.
+     */
+    @Version
+    @Column(name = "cat_version", nullable = false)
+    @Getter
+    private long version;
 }
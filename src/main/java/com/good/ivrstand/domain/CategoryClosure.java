@@ -0,0 +1,52 @@
+package com.good.ivrstand.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Запись таблицы замыкания дерева категорий: путь от предка к потомку.
+ * Для каждой категории хранится запись на саму себя с глубиной 0.
+ */
+@Entity
+@Table(name = "category_closure", indexes = @Index(name = "idx_category_closure_descendant", columnList = "descendant_id, depth"))
+@IdClass(CategoryClosure.Key.class)
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategoryClosure {
+
+    /**
+     * Идентификатор категории-предка.
+     */
+    @Id
+    @Column(name = "ancestor_id")
+    @Getter
+    private long ancestorId;
+
+    /**
+     * Идентификатор категории-потомка.
+     */
+    @Id
+    @Column(name = "descendant_id")
+    @Getter
+    private long descendantId;
+
+    /**
+     * Расстояние от предка до потомка.
+     */
+    @Column(name = "depth", nullable = false)
+    @Getter
+    private int depth;
+
+    /**
+     * Составной ключ записи.
+     */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private long ancestorId;
+        private long descendantId;
+    }
+}
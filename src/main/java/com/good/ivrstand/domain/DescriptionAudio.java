@@ -0,0 +1,36 @@
+package com.good.ivrstand.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Озвучка описания по хэшу его текста.
+ * Общая для услуг и дополнений: одинаковое описание озвучивается один раз.
+ */
+@Entity
+@Table(name = "description_audio")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DescriptionAudio {
+
+    /**
+     * Хэш текста описания.
+     */
+    @Id
+    @Column(name = "description_hash")
+    @Getter
+    private String descriptionHash;
+
+    /**
+     * Ссылки на аудио блоков описания в порядке воспроизведения.
+     */
+    @Getter
+    @ElementCollection
+    @CollectionTable(name = "description_audio_links", joinColumns = @JoinColumn(name = "description_hash"))
+    @OrderColumn(name = "audio_order")
+    @Column(name = "audio", nullable = false)
+    private List<String> audio;
+}
@@ -2,6 +2,8 @@ package com.good.ivrstand.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 
@@ -10,16 +12,57 @@ import java.util.List;
  */
 @Entity
 @Table(name = "items")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Item.CACHE_REGION)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Item.GRAPH_LIST, attributeNodes = @NamedAttributeNode("category")),
+        @NamedEntityGraph(name = Item.GRAPH_DETAIL, attributeNodes = {
+                @NamedAttributeNode("category"),
+                @NamedAttributeNode("additions")
+        }),
+        @NamedEntityGraph(name = Item.GRAPH_SEARCH, attributeNodes = @NamedAttributeNode("category"))
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Item {
 
+    /**
+     * Сколько идентификаторов услуг резервируется за одно обращение к последовательности.
+     * Совпадает с размером пакета вставки, чтобы пакет не ждал последовательность.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Регион кэша второго уровня для услуг.
+     */
+    public static final String CACHE_REGION = "catalog-items";
+
+    /**
+     * Регион кэша второго уровня для коллекций услуг.
+     */
+    public static final String COLLECTION_CACHE_REGION = "catalog-items-collections";
+
+    /**
+     * Граф загрузки для списков услуг. Коллекции догружаются пакетно для всей страницы.
+     */
+    public static final String GRAPH_LIST = "Item.list";
+
+    /**
+     * Граф загрузки для карточки услуги.
+     */
+    public static final String GRAPH_DETAIL = "Item.detail";
+
+    /**
+     * Граф загрузки для результатов поиска.
+     */
+    public static final String GRAPH_SEARCH = "Item.search";
+
     /**
      * Идентификатор услуги.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "items_seq")
+    @SequenceGenerator(name = "items_seq", sequenceName = "items_seq", allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "item_id")
     @Getter
     private long id;
@@ -63,7 +106,7 @@ public class Item {
      */
     @Getter
     @Setter
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id")
     private Category category;
 
@@ -72,14 +115,16 @@ public class Item {
      */
     @Getter
     @Setter
-    @OneToMany(mappedBy = "item", cascade = CascadeType.MERGE, fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @OneToMany(mappedBy = "item", cascade = CascadeType.MERGE)
     private List<Addition> additions;
 
     /**
      * Иконки к услуге.
      */
     @Getter
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @ElementCollection
     @CollectionTable(name = "item_icons", joinColumns = @JoinColumn(name = "item_id"))
     @Column(name = "icon_link")
     private List<String> iconLinks;
@@ -96,7 +141,8 @@ public class Item {
      * Ключевые слова к услуге.
      */
     @Getter
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @ElementCollection
     @CollectionTable(name = "item_keywords", joinColumns = @JoinColumn(name = "item_id"))
     @Column(name = "keyword")
     private List<String> keywords;
@@ -105,7 +151,8 @@ public class Item {
      * Аудио описания услуги.
      */
     @Getter
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = COLLECTION_CACHE_REGION)
+    @ElementCollection
     @CollectionTable(name = "item_audio", joinColumns = @JoinColumn(name = "item_id"))
     @Column(name = "audio")
     private List<String> audio;
@@ -125,4 +172,12 @@ public class Item {
     @Getter
     @Setter
     private String descriptionHash;
+
+    /**
+     * Версия услуги для оптимистичной блокировки.
+     */
+    @Version
+    @Column(name = "item_version", nullable = false)
+    @Getter
+    private long version;
 }
@@ -0,0 +1,56 @@
+package com.good.ivrstand.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Сущность статистики использования медиафайла.
+ */
+@Entity
+@Table(name = "media_usage")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MediaUsage {
+
+    /**
+     * Ссылка на медиафайл.
+     */
+    @Id
+    @Column(name = "url", columnDefinition = "TEXT")
+    @Getter
+    private String url;
+
+    /**
+     * Размер файла в байтах, если известен.
+     */
+    @Column(name = "size_bytes")
+    @Getter
+    @Setter
+    private Long sizeBytes;
+
+    /**
+     * Количество обращений к файлу.
+     */
+    @Column(name = "access_count", nullable = false)
+    @Getter
+    @Setter
+    private long accessCount;
+
+    /**
+     * Время, когда файл впервые попал в статистику.
+     */
+    @Column(name = "first_seen_at", nullable = false)
+    @Getter
+    private Instant firstSeenAt;
+
+    /**
+     * Время последнего обращения к файлу.
+     */
+    @Column(name = "last_accessed_at")
+    @Getter
+    @Setter
+    private Instant lastAccessedAt;
+}
@@ -0,0 +1,98 @@
+package com.good.ivrstand.domain;
+
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Письмо в очереди исходящих.
+ * Письмо забирается на отправку меткой захвата и сроком аренды: если экземпляр приложения упал
+ * во время отправки, после истечения аренды письмо снова становится доступным.
+ */
+@Entity
+@Table(name = "email_outbox")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEmail {
+
+    /**
+     * Идентификатор письма.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "email_id")
+    @Getter
+    private Long id;
+
+    /**
+     * Получатель.
+     */
+    @Column(name = "receiver", nullable = false)
+    @Getter
+    private String receiver;
+
+    /**
+     * Тема письма.
+     */
+    @Column(name = "subject", nullable = false)
+    @Getter
+    private String subject;
+
+    /**
+     * Текст письма в HTML.
+     */
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+    @Getter
+    private String content;
+
+    /**
+     * Момент постановки в очередь.
+     */
+    @Column(name = "created_at", nullable = false)
+    @Getter
+    private Instant createdAt;
+
+    /**
+     * Момент следующей попытки или окончания аренды захваченного письма.
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    @Getter
+    @Setter
+    private Instant nextAttemptAt;
+
+    /**
+     * Количество неудачных попыток.
+     */
+    @Column(name = "attempts", nullable = false)
+    @Getter
+    @Setter
+    private int attempts;
+
+    /**
+     * Состояние письма.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    @Getter
+    @Setter
+    private OutboxEmailStatus status;
+
+    /**
+     * Метка пакета, захватившего письмо на отправку.
+     */
+    @Column(name = "claim_id", length = 64)
+    @Getter
+    @Setter
+    private String claimId;
+
+    /**
+     * Ошибка последней попытки.
+     */
+    @Column(name = "last_error", length = 1000)
+    @Getter
+    @Setter
+    private String lastError;
+}
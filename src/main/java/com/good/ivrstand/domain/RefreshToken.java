@@ -0,0 +1,69 @@
+package com.good.ivrstand.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Токен обновления сессии.
+ * В базе хранится только хэш токена. Токены одного входа с одного устройства образуют семейство:
+ * при каждом обновлении старый токен помечается использованным и выдается новый токен того же семейства.
+ */
+@Entity
+@Table(name = "refresh_tokens")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RefreshToken {
+
+    /**
+     * SHA-256 хэш токена.
+     */
+    @Id
+    @Column(name = "token_hash")
+    @Getter
+    private String tokenHash;
+
+    /**
+     * ID пользователя.
+     */
+    @Column(name = "user_id", nullable = false)
+    @Getter
+    private Long userId;
+
+    /**
+     * Семейство токенов - сессия одного устройства.
+     */
+    @Column(name = "family_id", nullable = false)
+    @Getter
+    private String familyId;
+
+    /**
+     * Момент выдачи.
+     */
+    @Column(name = "created_at", nullable = false)
+    @Getter
+    private Instant createdAt;
+
+    /**
+     * Момент истечения.
+     */
+    @Column(name = "expires_at", nullable = false)
+    @Getter
+    private Instant expiresAt;
+
+    /**
+     * Токен уже обменян на новый.
+     */
+    @Column(name = "used", nullable = false)
+    @Getter
+    private boolean used;
+
+    /**
+     * Токен отозван.
+     */
+    @Column(name = "revoked", nullable = false)
+    @Getter
+    private boolean revoked;
+}
@@ -39,8 +39,9 @@ public class Role implements GrantedAuthority {
     /**
      * Пользователи, связанные с этой ролью.
      * Поле не сохраняется в базе данных.
+     * Загружается лениво: иначе загрузка пользователя тянет всех пользователей с теми же ролями.
      */
-    @ManyToMany(mappedBy = "roles", fetch = FetchType.EAGER)
+    @ManyToMany(mappedBy = "roles", fetch = FetchType.LAZY)
     @Getter
     @JsonIgnore
     private List<User> users;
@@ -0,0 +1,33 @@
+package com.good.ivrstand.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Отзыв токенов доступа пользователя.
+ * Токены, выданные до момента отзыва, больше не принимаются.
+ */
+@Entity
+@Table(name = "token_revocations")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class TokenRevocation {
+
+    /**
+     * ID пользователя.
+     */
+    @Id
+    @Column(name = "user_id")
+    @Getter
+    private Long userId;
+
+    /**
+     * Момент отзыва.
+     */
+    @Column(name = "revoked_at", nullable = false)
+    @Getter
+    private Instant revokedAt;
+}
@@ -7,6 +7,7 @@ import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -72,6 +73,30 @@ public class User implements UserDetails {
     @Column(name = "user_reset_token")
     private String resetToken;
 
+    /**
+     * Время истечения токена сброса пароля.
+     */
+    @Getter
+    @Setter
+    @Column(name = "user_reset_token_expires_at")
+    private Instant resetTokenExpiresAt;
+
+    /**
+     * Токен подтверждения email.
+     */
+    @Getter
+    @Setter
+    @Column(name = "user_confirm_token")
+    private String confirmToken;
+
+    /**
+     * Время истечения токена подтверждения email.
+     */
+    @Getter
+    @Setter
+    @Column(name = "user_confirm_token_expires_at")
+    private Instant confirmTokenExpiresAt;
+
     /**
      * Имя пользователя.
      */
@@ -29,8 +29,8 @@ public enum EmailData {
             """
             <html>
                 <body>
-                    <p>Чтобы подтвердить адрес электронной почты, пройдите по ссылке:</p>
-                    <a href="%s%s">Подтвердить</a>
+                    <p>Чтобы подтвердить адрес электронной почты, пройдите по ссылке (действует в течение 24 часов):</p>
+                    <a href="%s%s&token=%s">Подтвердить</a>
                 </body>
             </html>""");
 
@@ -0,0 +1,17 @@
+package com.good.ivrstand.domain.enumeration;
+
+/**
+ * Состояние письма в очереди исходящих.
+ */
+public enum OutboxEmailStatus {
+
+    /**
+     * Ожидает отправки
+     */
+    PENDING,
+
+    /**
+     * Не отправлено за все попытки
+     */
+    FAILED
+}
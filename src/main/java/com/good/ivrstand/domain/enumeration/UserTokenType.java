@@ -0,0 +1,16 @@
+package com.good.ivrstand.domain.enumeration;
+
+/**
+ * Типы одноразовых токенов пользователя, отправляемых по почте.
+ */
+public enum UserTokenType {
+    /**
+     * Токен сброса пароля.
+     */
+    RESET_PASSWORD,
+
+    /**
+     * Токен подтверждения email.
+     */
+    CONFIRM_EMAIL
+}
@@ -0,0 +1,10 @@
+package com.good.ivrstand.exception;
+
+/**
+ * Ошибка запуска импорта каталога
+ */
+public class CatalogImportException extends Exception {
+    public CatalogImportException(String message) {
+        super(message);
+    }
+}
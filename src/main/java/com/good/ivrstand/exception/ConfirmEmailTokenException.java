@@ -0,0 +1,8 @@
+package com.good.ivrstand.exception;
+
+public class ConfirmEmailTokenException extends Exception {
+
+    public ConfirmEmailTokenException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,10 @@
+package com.good.ivrstand.exception;
+
+/**
+ * Ошибка, когда токен продолжения списка не удалось разобрать
+ */
+public class InvalidContinuationTokenException extends Exception {
+    public InvalidContinuationTokenException(String message) {
+        super(message);
+    }
+}
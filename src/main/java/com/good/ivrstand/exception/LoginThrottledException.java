@@ -0,0 +1,8 @@
+package com.good.ivrstand.exception;
+
+public class LoginThrottledException extends Exception {
+
+    public LoginThrottledException(String msg) {
+        super(msg);
+    }
+}
@@ -1,8 +0,0 @@
-package com.good.ivrstand.exception;
-
-public class NoChatsException extends Exception {
-
-    public NoChatsException(String message) {
-        super(message);
-    }
-}
@@ -0,0 +1,8 @@
+package com.good.ivrstand.exception;
+
+public class PasswordHashingRejectedException extends Exception {
+
+    public PasswordHashingRejectedException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package com.good.ivrstand.exception;
+
+public class TelegramUpdateRejectedException extends Exception {
+
+    public TelegramUpdateRejectedException(String msg) {
+        super(msg);
+    }
+}
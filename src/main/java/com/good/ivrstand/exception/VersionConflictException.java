@@ -0,0 +1,10 @@
+package com.good.ivrstand.exception;
+
+/**
+ * Ошибка, когда сущность изменили после того, как клиент получил её версию
+ */
+public class VersionConflictException extends Exception {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.good.ivrstand.exception.notfound;
+
+/**
+ * Ошибка, когда импорт каталога не найден
+ */
+public class CatalogImportNotFoundException extends Exception {
+    public CatalogImportNotFoundException(String message) {
+        super(message);
+    }
+}
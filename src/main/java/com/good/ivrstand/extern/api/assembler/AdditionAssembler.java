@@ -31,6 +31,7 @@ public class AdditionAssembler extends RepresentationModelAssemblerSupport<Addit
         additionDTO.setMainIconLink(addition.getMainIconLink());
         additionDTO.setAudio(addition.getAudio());
         additionDTO.setTitleAudio(addition.getTitleAudio());
+        additionDTO.setVersion(addition.getVersion());
 
         additionDTO.add(linkTo(methodOn(AdditionController.class).getAdditionById(addition.getId())).withSelfRel());
 
@@ -39,6 +39,7 @@ public class CategoryAssembler extends RepresentationModelAssemblerSupport<Categ
         categoryDTO.setGifLink(category.getGifLink());
         categoryDTO.setMainIconLink(category.getMainIconLink());
         categoryDTO.setTitleAudio(category.getTitleAudio());
+        categoryDTO.setVersion(category.getVersion());
 
         categoryDTO.add(linkTo(methodOn(CategoryController.class).getCategoryById(category.getId())).withSelfRel());
 
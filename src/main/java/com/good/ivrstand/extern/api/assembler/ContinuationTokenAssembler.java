@@ -0,0 +1,74 @@
+package com.good.ivrstand.extern.api.assembler;
+
+import com.good.ivrstand.exception.InvalidContinuationTokenException;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.ToLongFunction;
+
+/**
+ * Преобразует позицию в списке, отсортированном по идентификатору, в непрозрачный токен продолжения и обратно.
+ * Токен хранит идентификатор последнего отданного элемента, следующая порция начинается после него.
+ */
+@Component
+public class ContinuationTokenAssembler {
+
+    private static final String PREFIX = "after:";
+
+    /**
+     * Наибольший размер порции.
+     */
+    private static final int MAX_SIZE = 100;
+
+    /**
+     * Ограничивает запрошенный размер порции.
+     *
+     * @param size запрошенный размер
+     * @return размер от 1 до 100
+     */
+    public int size(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Формирует токен следующей порции.
+     *
+     * @param window порция
+     * @param id     идентификатор элемента
+     * @return токен или null, если порция последняя
+     */
+    public <T> String next(Window<T> window, ToLongFunction<T> id) {
+        if (window.isEmpty() || !window.hasNext()) {
+            return null;
+        }
+
+        long lastId = id.applyAsLong(window.getContent().get(window.size() - 1));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает токен.
+     *
+     * @param token токен или null для первой порции
+     * @return идентификатор, после которого начинается порция, или null для первой порции
+     * @throws InvalidContinuationTokenException если токен не выдавался приложением
+     */
+    public Long decode(String token) throws InvalidContinuationTokenException {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                throw new InvalidContinuationTokenException("Некорректный токен продолжения");
+            }
+            return Long.parseLong(value.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidContinuationTokenException("Некорректный токен продолжения");
+        }
+    }
+}
@@ -40,6 +40,7 @@ public class ItemAssembler extends RepresentationModelAssemblerSupport<Item, Ite
         itemDTO.setKeywords(item.getKeywords());
         itemDTO.setAudio(item.getAudio());
         itemDTO.setTitleAudio(item.getTitleAudio());
+        itemDTO.setVersion(item.getVersion());
 
         itemDTO.add(linkTo(methodOn(ItemController.class).getItemById(item.getId())).withSelfRel());
 
@@ -1,15 +1,21 @@
 package com.good.ivrstand.extern.api.controller;
 
+import com.good.ivrstand.app.repository.CatalogPatch;
 import com.good.ivrstand.app.service.AdditionService;
 import com.good.ivrstand.app.service.EncodeService;
 import com.good.ivrstand.app.service.ItemService;
 import com.good.ivrstand.domain.Addition;
 import com.good.ivrstand.exception.AdditionUpdateException;
 import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.InvalidContinuationTokenException;
+import com.good.ivrstand.exception.VersionConflictException;
 import com.good.ivrstand.exception.notfound.AdditionNotFoundException;
 import com.good.ivrstand.extern.api.assembler.AdditionAssembler;
+import com.good.ivrstand.extern.api.assembler.ContinuationTokenAssembler;
 import com.good.ivrstand.extern.api.dto.AdditionDTO;
+import com.good.ivrstand.extern.api.dto.CatalogPatchDTO;
 import com.good.ivrstand.extern.api.dto.DescriptionUpdateDTO;
+import com.good.ivrstand.extern.api.dto.ScrollDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -18,6 +24,7 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,6 +32,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/additions")
@@ -35,13 +43,15 @@ public class AdditionController {
     private final AdditionAssembler additionAssembler;
     private final ItemService itemService;
     private final EncodeService encodeService;
+    private final ContinuationTokenAssembler continuationTokenAssembler;
 
     @Autowired
-    public AdditionController(AdditionService additionService, AdditionAssembler additionAssembler, ItemService itemService, EncodeService encodeService) {
+    public AdditionController(AdditionService additionService, AdditionAssembler additionAssembler, ItemService itemService, EncodeService encodeService, ContinuationTokenAssembler continuationTokenAssembler) {
         this.additionService = additionService;
         this.additionAssembler = additionAssembler;
         this.itemService = itemService;
         this.encodeService = encodeService;
+        this.continuationTokenAssembler = continuationTokenAssembler;
     }
 
     @Operation(summary = "Создать дополнение", description = "Создает новое дополнение для указанной услуги. Если включить флаг enableAudio, сгенерируется речь для для заголовка и описания.")
@@ -85,6 +95,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
     @GetMapping("/{id}")
+    @Transactional(readOnly = true)
     public ResponseEntity<AdditionDTO> getAdditionById(@PathVariable long id) {
         try {
             Addition addition = additionService.getAdditionById(id);
@@ -96,6 +107,7 @@ public class AdditionController {
 
     @Operation(summary = "Удалить дополнение", description = "Удаляет дополнение по его идентификатору.")
     @ApiResponse(responseCode = "200", description = "Дополнение успешно удалено")
+    @Transactional
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAddition(@PathVariable long id) {
         additionService.deleteAddition(id);
@@ -107,6 +119,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "200", description = "Заголовок дополнения успешно обновлен"),
             @ApiResponse(responseCode = "500", description = "Ошибка при обновлении аудио в момент обновления заголовка")
     })
+    @Transactional
     @PutMapping("/{id}/title")
     public ResponseEntity<Void> updateAdditionTitle(@PathVariable long id, @RequestBody String title) {
         try {
@@ -123,6 +136,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "409", description = "Дубликат файла аудио по названию"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/description")
     public ResponseEntity<Void> updateDescriptionToAddition(
             @PathVariable long id,
@@ -141,11 +155,34 @@ public class AdditionController {
         }
     }
 
+    @Operation(summary = "Частично изменить дополнение", description = "Применяет изменения ссылок на GIF, GIF-превью и главную иконку и список иконок одним запросом без загрузки дополнения. " +
+            "Не переданные поля не меняются, пустая строка очищает поле. Изменение применяется, только если версия дополнения совпадает с переданной; новая версия возвращается в ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Изменения применены"),
+            @ApiResponse(responseCode = "404", description = "Дополнение не найдено"),
+            @ApiResponse(responseCode = "409", description = "Дополнение изменено после переданной версии")
+    })
+    @Transactional
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchAddition(@PathVariable long id, @RequestBody @Valid CatalogPatchDTO patchDTO) {
+        CatalogPatch patch = new CatalogPatch(patchDTO.getGifLink(), patchDTO.getGifPreview(), patchDTO.getMainIconLink(),
+                patchDTO.getAddIconLinks(), patchDTO.getRemoveIconLinks());
+        try {
+            long version = additionService.patchAddition(id, patchDTO.getVersion(), patch);
+            return ResponseEntity.ok().eTag(String.valueOf(version)).build();
+        } catch (AdditionNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
     @Operation(summary = "Обновить ссылку на GIF-превью дополнения", description = "Обновляет ссылку на GIF-превью дополнения по его идентификатору.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF-превью дополнения успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/gif-preview")
     public ResponseEntity<Void> updateAdditionGifPreview(@PathVariable long id, @RequestBody String gifPreview) {
         try {
@@ -161,6 +198,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF дополнения успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/gif")
     public ResponseEntity<Void> updateAdditionGifLink(@PathVariable long id, @RequestBody String gifLink) {
         try {
@@ -176,6 +214,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "200", description = "Ссылка на главную иконку дополнения успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/main-icon")
     public ResponseEntity<Void> updateAdditionMainIcon(@PathVariable long id, @RequestBody String link) {
         try {
@@ -192,6 +231,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping("/search/item/{itemId}")
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<AdditionDTO>> findByItemId(@PathVariable long itemId, Pageable pageable) {
         Page<AdditionDTO> additions = additionService.findByItemId(itemId, pageable).map(additionAssembler::toModel);
 
@@ -202,12 +242,38 @@ public class AdditionController {
         return ResponseEntity.ok(additions);
     }
 
+    @Operation(summary = "Получить порцию дополнений услуги", description = "Получает порцию дополнений услуги по возрастанию идентификатора. Следующая порция запрашивается с токеном next из ответа.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат"),
+            @ApiResponse(responseCode = "400", description = "Некорректный токен продолжения")
+    })
+    @GetMapping("/search/item/{itemId}/scroll")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ScrollDTO<AdditionDTO>> scrollByItemId(@PathVariable long itemId,
+                                                                 @RequestParam(required = false) String token,
+                                                                 @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long afterId = continuationTokenAssembler.decode(token);
+            Window<Addition> window = additionService.scrollByItemId(itemId, afterId, continuationTokenAssembler.size(size));
+            if (window.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+
+            List<AdditionDTO> additions = window.map(additionAssembler::toModel).getContent();
+            return ResponseEntity.ok(new ScrollDTO<>(additions, continuationTokenAssembler.next(window, Addition::getId)));
+        } catch (InvalidContinuationTokenException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Добавить иконку дополнения", description = "Добавляет иконку для дополнения по его идентификатору.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Иконка для дополнения успешно добавлена"),
             @ApiResponse(responseCode = "409", description = "У дополнения уже есть эта иконка"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/icon/add")
     public ResponseEntity<Void> addAdditionIcon(@PathVariable long id, @RequestBody String iconLink) {
         try {
@@ -225,6 +291,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "200", description = "Иконка для дополнения успешно удалена"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/icon/remove")
     public ResponseEntity<Void> removeAdditionIcon(@PathVariable long id, @RequestBody String iconLink) {
         try {
@@ -240,6 +307,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "200", description = "Иконки дополнения очищены"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/clear-icons")
     public ResponseEntity<Void> clearIcons(@PathVariable long id) {
         try {
@@ -256,6 +324,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "409", description = "У дополнения уже есть аудио заголовка. Иногда (читать как никогда) падает при дубликате заголовка аудио"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/generate")
     public ResponseEntity<Void> generateTitleAudio(@PathVariable long id) throws IOException {
         try {
@@ -274,6 +343,7 @@ public class AdditionController {
             @ApiResponse(responseCode = "409", description = "У дополнения уже нет аудио заголовка"),
             @ApiResponse(responseCode = "404", description = "Дополнение не найдено")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/remove")
     public ResponseEntity<Void> removeTitleAudio(@PathVariable long id) {
         try {
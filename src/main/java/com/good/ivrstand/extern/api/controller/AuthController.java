@@ -1,6 +1,9 @@
 package com.good.ivrstand.extern.api.controller;
 
 import com.good.ivrstand.exception.DifferentPasswordsException;
+import com.good.ivrstand.exception.LoginThrottledException;
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
+import com.good.ivrstand.exception.TokenRefreshException;
 import com.good.ivrstand.exception.UserDuplicateException;
 import com.good.ivrstand.exception.UserRolesException;
 import com.good.ivrstand.extern.api.dto.*;
@@ -11,6 +14,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -36,14 +40,16 @@ public class AuthController {
             @ApiResponse(responseCode = "201", description = "Пользователь успешно создан"),
             @ApiResponse(responseCode = "409", description = "Ошибка валидации - пользователь есть в базе и у него уже есть роль юзера"),
             @ApiResponse(responseCode = "400", description = "Пароли не совпадают"),
-            @ApiResponse(responseCode = "204", description = "Пользователь не создан")
+            @ApiResponse(responseCode = "204", description = "Пользователь не создан"),
+            @ApiResponse(responseCode = "429", description = "Слишком много попыток с адреса клиента"),
+            @ApiResponse(responseCode = "503", description = "Сервис хэширования паролей перегружен")
     })
     @Transactional
     @PostMapping("/sign-up")
-    public ResponseEntity<Map<String, String>> registerUser(@Valid @RequestBody UserRegisterDTO userRegisterDTO) {
+    public ResponseEntity<Map<String, String>> registerUser(@Valid @RequestBody UserRegisterDTO userRegisterDTO, HttpServletRequest request) {
         Map<String, String> response = new HashMap<>();
         try {
-            response = authService.registerUser(userRegisterDTO);
+            response = authService.registerUser(userRegisterDTO, request.getRemoteAddr());
             return new ResponseEntity<>(response, HttpStatus.CREATED);
         } catch (UserDuplicateException | UserRolesException e) {
             response.put("error", "Пользователь уже существует/у него уже есть роль простого юзера");
@@ -54,6 +60,12 @@ public class AuthController {
         } catch (DifferentPasswordsException exc) {
             response.put("error", "Пароли не совпадают");
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        } catch (LoginThrottledException e) {
+            response.put("error", "Слишком много попыток, повторите позже");
+            return new ResponseEntity<>(response, HttpStatus.TOO_MANY_REQUESTS);
+        } catch (PasswordHashingRejectedException e) {
+            response.put("error", "Сервис перегружен, повторите позже");
+            return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
         }
     }
 
@@ -61,13 +73,21 @@ public class AuthController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешный логин"),
             @ApiResponse(responseCode = "401", description = "Ошибка входа"),
+            @ApiResponse(responseCode = "429", description = "Слишком много попыток для логина или адреса клиента"),
+            @ApiResponse(responseCode = "503", description = "Сервис хэширования паролей перегружен")
     })
     @PostMapping("/sign-in")
-    public ResponseEntity<Map<String, String>> loginUser(@Valid @RequestBody UserLoginDTO userLoginDTO) {
+    public ResponseEntity<Map<String, String>> loginUser(@Valid @RequestBody UserLoginDTO userLoginDTO, HttpServletRequest request) {
         Map<String, String> response = new HashMap<>();
         try {
-            response = authService.loginUser(userLoginDTO.getUsername(), userLoginDTO.getPassword());
+            response = authService.loginUser(userLoginDTO.getUsername(), userLoginDTO.getPassword(), request.getRemoteAddr());
             return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (LoginThrottledException e) {
+            response.put("error", "Слишком много попыток входа, повторите позже");
+            return new ResponseEntity<>(response, HttpStatus.TOO_MANY_REQUESTS);
+        } catch (PasswordHashingRejectedException e) {
+            response.put("error", "Сервис перегружен, повторите позже");
+            return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
         } catch (Exception ex) {
             response.put("error", "Введены неверные данные для входа");
             return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
@@ -96,30 +116,34 @@ public class AuthController {
         }
     }
 
-    @Operation(summary = "Обновить токен доступа", description = "Обновляет токен доступа.")
+    @Operation(summary = "Обновить токен доступа", description = "Обменивает токен обновления на новую пару токенов. Токен обновления одноразовый: повторное использование отзывает сессию устройства. Токен доступа в запросе больше не нужен и не проверяется.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное обновление"),
-            @ApiResponse(responseCode = "401", description = "Ошибка - токен доступа/обновления истёк"),
-            @ApiResponse(responseCode = "403", description = "Ошибка валидации токенов"),
+            @ApiResponse(responseCode = "403", description = "Токен обновления не найден, истёк, отозван или уже использован"),
             @ApiResponse(responseCode = "400", description = "Некорректные токены")
     })
     @PostMapping("/refresh-token")
     public ResponseEntity<Map<String, String>> refreshToken(@RequestBody RefreshAndAuthTokenDTO refreshAndAuthTokenDTO) {
         Map<String, String> response = new HashMap<>();
-        try {
-            String token = refreshAndAuthTokenDTO.getToken();
-            String refreshToken = refreshAndAuthTokenDTO.getRefreshToken();
-            response = authService.refreshToken(token, refreshToken);
-            return new ResponseEntity<>(response, HttpStatus.OK);
-        } catch (ExpiredJwtException e) {
-            response.put("error", "Токен доступа/обновления истёк");
-            return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-        } catch (MalformedJwtException e) {
+        String refreshToken = refreshAndAuthTokenDTO.getRefreshToken();
+        if (refreshToken == null || refreshToken.isBlank()) {
             response.put("error", "Некорректные токены");
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        } catch (Exception e) {
+        }
+        try {
+            response = authService.refreshToken(refreshToken);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (TokenRefreshException e) {
             response.put("error", "Ошибка валидации токенов");
             return new ResponseEntity<>(response, HttpStatus.FORBIDDEN);
         }
     }
+
+    @Operation(summary = "Выйти из аккаунта", description = "Отзывает сессию устройства, которому выдан токен обновления.")
+    @ApiResponse(responseCode = "200", description = "Сессия завершена")
+    @PostMapping("/sign-out")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenDTO refreshTokenDTO) {
+        authService.logout(refreshTokenDTO.getRefreshToken());
+        return ResponseEntity.ok().build();
+    }
 }
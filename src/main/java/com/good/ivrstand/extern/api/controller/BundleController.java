@@ -0,0 +1,106 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.BundleService;
+import com.good.ivrstand.exception.NoSuchFileException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/bundles")
+@Tag(name = "BundleController", description = "Контроллер для выгрузки каталога на стенды")
+public class BundleController {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    private final BundleService bundleService;
+
+    public BundleController(BundleService bundleService) {
+        this.bundleService = bundleService;
+    }
+
+    @Operation(summary = "Выгрузить бандл", description = "Запускает в фоне выгрузку каталога и всех медиафайлов в архив, а также патча относительно предыдущей версии.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Выгрузка запущена"),
+            @ApiResponse(responseCode = "409", description = "Выгрузка уже выполняется")
+    })
+    @PostMapping("/export")
+    public ResponseEntity<Void> exportBundle() {
+        if (bundleService.startExport()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+        } else {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    @Operation(summary = "Получить последнюю версию", description = "Возвращает номер последнего выгруженного бандла.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Версия найдена"),
+            @ApiResponse(responseCode = "404", description = "Бандлы ещё не выгружались")
+    })
+    @GetMapping("/latest")
+    public ResponseEntity<Map<String, Long>> getLatestVersion() {
+        try {
+            return ResponseEntity.ok(Map.of("version", bundleService.getLatestVersion()));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "Скачать бандл", description = "Отдаёт полный бандл указанной версии. Поддерживаются Range-запросы для докачки.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Бандл найден"),
+            @ApiResponse(responseCode = "404", description = "Бандл не найден")
+    })
+    @GetMapping("/{version}")
+    public ResponseEntity<Resource> getBundle(@PathVariable long version) {
+        try {
+            return archive(bundleService.getBundle(version));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "Скачать патч", description = "Отдаёт патч от версии from до указанной версии. Если патча нет, стенд должен скачать полный бандл.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Патч найден"),
+            @ApiResponse(responseCode = "404", description = "Патч не найден")
+    })
+    @GetMapping("/{version}/patch")
+    public ResponseEntity<Resource> getPatch(@PathVariable long version, @RequestParam("from") long fromVersion) {
+        try {
+            return archive(bundleService.getPatch(fromVersion, version));
+        } catch (NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<Resource> archive(Path file) {
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_ZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(file.getFileName().toString())
+                        .build()
+                        .toString())
+                // Архив версии после выгрузки не меняется
+                .header(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable")
+                .body(new FileSystemResource(file));
+    }
+}
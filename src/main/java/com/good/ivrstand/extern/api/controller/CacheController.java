@@ -0,0 +1,50 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.CacheStatisticsService;
+import com.good.ivrstand.extern.api.dto.CacheRegionDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+@Tag(name = "CacheController", description = "Контроллер для кэша второго уровня")
+public class CacheController {
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    public CacheController(CacheStatisticsService cacheStatisticsService) {
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    @Operation(summary = "Статистика кэша", description = "Возвращает попадания, промахи, записи и долю попаданий по каждому региону кэша второго уровня.")
+    @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса")
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheRegionDTO>> getStatistics() {
+        List<CacheRegionDTO> regions = cacheStatisticsService.getRegionStatistics().stream()
+                .map(region -> new CacheRegionDTO(
+                        region.region(),
+                        region.hits(),
+                        region.misses(),
+                        region.puts(),
+                        region.hitRatio(),
+                        region.elementsInMemory()))
+                .toList();
+        return ResponseEntity.ok(regions);
+    }
+
+    @Operation(summary = "Очистить кэш", description = "Очищает все регионы кэша второго уровня. Нужно после изменения данных в базе в обход приложения.")
+    @ApiResponse(responseCode = "200", description = "Кэш очищен")
+    @PostMapping("/evict")
+    public ResponseEntity<Void> evictAll() {
+        cacheStatisticsService.evictAll();
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,105 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.CatalogImportService;
+import com.good.ivrstand.exception.CatalogImportException;
+import com.good.ivrstand.exception.notfound.CatalogImportNotFoundException;
+import com.good.ivrstand.extern.api.dto.CatalogImportDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/imports")
+@Tag(name = "CatalogImportController", description = "Контроллер для массового импорта услуг")
+public class CatalogImportController {
+
+    private final CatalogImportService catalogImportService;
+
+    public CatalogImportController(CatalogImportService catalogImportService) {
+        this.catalogImportService = catalogImportService;
+    }
+
+    @Operation(summary = "Импортировать услуги", description = "Запускает в фоне импорт услуг из JSON-массива или CSV с заголовком " +
+            "(title, description, categoryId, gifLink, gifPreview, mainIconLink, iconLinks, keywords; элементы списков в CSV разделяются '|'). " +
+            "Формат определяется по параметру format, а без него - по расширению файла. Аудио не генерируется.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Импорт запущен"),
+            @ApiResponse(responseCode = "400", description = "Неизвестный формат"),
+            @ApiResponse(responseCode = "409", description = "Импорт уже выполняется"),
+            @ApiResponse(responseCode = "500", description = "Файл не удалось сохранить")
+    })
+    @PostMapping("/items")
+    public ResponseEntity<CatalogImportDTO> importItems(@RequestParam("file") MultipartFile file,
+                                                        @RequestParam(value = "format", required = false) String format) {
+        CatalogImportService.Format importFormat;
+        try {
+            importFormat = resolveFormat(file, format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try (InputStream input = file.getInputStream()) {
+            CatalogImportService.ImportReport report = catalogImportService.startImport(input, importFormat);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(toDto(report));
+        } catch (CatalogImportException e) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        } catch (IOException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @Operation(summary = "Отчёт импорта", description = "Возвращает ход импорта: сколько записей разобрано, сохранено, добавлено в поиск, и ошибки по записям.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Импорт найден"),
+            @ApiResponse(responseCode = "404", description = "Импорт не найден")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<CatalogImportDTO> getReport(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(toDto(catalogImportService.getReport(id)));
+        } catch (CatalogImportNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private CatalogImportService.Format resolveFormat(MultipartFile file, String format) {
+        if (format != null) {
+            return CatalogImportService.Format.valueOf(format.toUpperCase());
+        }
+
+        String name = file.getOriginalFilename();
+        return name != null && name.toLowerCase().endsWith(".csv")
+                ? CatalogImportService.Format.CSV
+                : CatalogImportService.Format.JSON;
+    }
+
+    private CatalogImportDTO toDto(CatalogImportService.ImportReport report) {
+        return new CatalogImportDTO(
+                report.id(),
+                report.status().name(),
+                report.processed(),
+                report.imported(),
+                report.failed(),
+                report.indexed(),
+                report.indexFailed(),
+                report.message(),
+                report.errors().stream()
+                        .map(error -> new CatalogImportDTO.RecordError(error.record(), error.message()))
+                        .toList(),
+                report.startedAt(),
+                report.finishedAt());
+    }
+}
@@ -1,13 +1,20 @@
 package com.good.ivrstand.extern.api.controller;
 
+import com.good.ivrstand.app.repository.CatalogPatch;
 import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
 import com.good.ivrstand.domain.Category;
 import com.good.ivrstand.exception.CategoryUpdateException;
 import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.InvalidContinuationTokenException;
 import com.good.ivrstand.exception.ItemCategoryAddDeleteException;
+import com.good.ivrstand.exception.VersionConflictException;
 import com.good.ivrstand.exception.notfound.CategoryNotFoundException;
 import com.good.ivrstand.extern.api.assembler.CategoryAssembler;
+import com.good.ivrstand.extern.api.assembler.ContinuationTokenAssembler;
+import com.good.ivrstand.extern.api.dto.CatalogPatchDTO;
 import com.good.ivrstand.extern.api.dto.CategoryDTO;
+import com.good.ivrstand.extern.api.dto.ScrollDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -16,13 +23,18 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/categories")
@@ -31,11 +43,15 @@ public class CategoryController {
 
     private final CategoryService categoryService;
     private final CategoryAssembler categoryAssembler;
+    private final CategoryTreeService categoryTreeService;
+    private final ContinuationTokenAssembler continuationTokenAssembler;
 
     @Autowired
-    public CategoryController(CategoryService categoryService, CategoryAssembler categoryAssembler) {
+    public CategoryController(CategoryService categoryService, CategoryAssembler categoryAssembler, CategoryTreeService categoryTreeService, ContinuationTokenAssembler continuationTokenAssembler) {
         this.categoryService = categoryService;
         this.categoryAssembler = categoryAssembler;
+        this.categoryTreeService = categoryTreeService;
+        this.continuationTokenAssembler = continuationTokenAssembler;
     }
 
     @Operation(summary = "Создать категорию", description = "Создает новую категорию. Если включить флаг enableAudio, сгенерируется речь для для заголовка.")
@@ -57,12 +73,64 @@ public class CategoryController {
         return new ResponseEntity<>(categoryAssembler.toModel(newCategory), HttpStatus.CREATED);
     }
 
+    @Operation(summary = "Получить порцию категорий", description = "Получает порцию всех категорий по возрастанию идентификатора. Следующая порция запрашивается с токеном next из ответа. " +
+            "В отличие от страниц, скорость не падает к концу списка.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат"),
+            @ApiResponse(responseCode = "400", description = "Некорректный токен продолжения")
+    })
+    @GetMapping("/scroll")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ScrollDTO<CategoryDTO>> scrollAllCategories(@RequestParam(required = false) String token,
+                                                                      @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long afterId = continuationTokenAssembler.decode(token);
+            Window<Category> window = categoryService.scrollAllCategories(afterId, continuationTokenAssembler.size(size));
+            if (window.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+
+            List<CategoryDTO> categories = window.map(categoryAssembler::toModel).getContent();
+            return ResponseEntity.ok(new ScrollDTO<>(categories, continuationTokenAssembler.next(window, Category::getId)));
+        } catch (InvalidContinuationTokenException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Получить дерево категорий", description = "Получает все категории с их услугами одним деревом. Дерево кэшируется до изменения состава категорий и услуг, но не дольше category-tree.ttl. ETag меняется вместе с содержимым, If-None-Match принимает список и слабые ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Дерево получено"),
+            @ApiResponse(responseCode = "304", description = "Дерево не изменилось"),
+            @ApiResponse(responseCode = "500", description = "Ошибка сборки дерева")
+    })
+    @GetMapping("/tree")
+    @Transactional(readOnly = true)
+    public ResponseEntity<byte[]> getTree(WebRequest request) {
+        try {
+            CategoryTreeService.CategoryTree tree = categoryTreeService.getTree();
+            // Разбирает список и слабые ETag из If-None-Match и сам выставляет 304 с заголовком ETag
+            if (request.checkNotModified(tree.etag())) {
+                return null;
+            }
+
+            return ResponseEntity.ok()
+                    .eTag(tree.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(tree.body());
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @Operation(summary = "Получить категорию по ID", description = "Получает информацию о категории по ее идентификатору.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Категория найдена"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
     @GetMapping("/{id}")
+    @Transactional(readOnly = true)
     public ResponseEntity<CategoryDTO> getCategoryById(@PathVariable long id) {
         try {
             Category category = categoryService.getCategoryById(id);
@@ -78,6 +146,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Категория успешно удалена"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
+    @Transactional
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCategory(@PathVariable long id) {
         try {
@@ -91,6 +160,7 @@ public class CategoryController {
     @Operation(summary = "Получить все категории", description = "Получает список всех категорий.")
     @ApiResponse(responseCode = "200")
     @GetMapping
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<CategoryDTO>> getAllCategories(Pageable pageable) {
         Page<CategoryDTO> categories = categoryService.getAllCategoriesInBase(pageable).map(categoryAssembler::toModel);
 
@@ -107,6 +177,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping("/search/unallocated")
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<CategoryDTO>> findUnallocatedCategories(Pageable pageable) {
         Page<CategoryDTO> categories = categoryService.findUnallocatedCategories(pageable).map(categoryAssembler::toModel);
         return ResponseEntity.ok(categories);
@@ -118,6 +189,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping("/search/main")
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<CategoryDTO>> findMainCategories(Pageable pageable) {
         Page<CategoryDTO> categories = categoryService.findMainCategories(pageable).map(categoryAssembler::toModel);
 
@@ -128,10 +200,57 @@ public class CategoryController {
         return ResponseEntity.ok(categories);
     }
 
+    @Operation(summary = "Получить поддерево категории", description = "Получает категорию и всех её потомков по уровням одним запросом.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Поддерево найдено"),
+            @ApiResponse(responseCode = "404", description = "Категория не найдена")
+    })
+    @GetMapping("/{id}/subtree")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<CategoryDTO>> getSubtree(@PathVariable long id) {
+        try {
+            List<CategoryDTO> subtree = categoryService.getSubtree(id).stream().map(categoryAssembler::toModel).toList();
+            return ResponseEntity.ok(subtree);
+        } catch (CategoryNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "Получить путь к категории", description = "Получает категории от главной до указанной одним запросом.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Путь найден"),
+            @ApiResponse(responseCode = "404", description = "Категория не найдена")
+    })
+    @GetMapping("/{id}/path")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<CategoryDTO>> getPath(@PathVariable long id) {
+        try {
+            List<CategoryDTO> path = categoryService.getPath(id).stream().map(categoryAssembler::toModel).toList();
+            return ResponseEntity.ok(path);
+        } catch (CategoryNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    @Operation(summary = "Получить глубину категории", description = "Получает глубину категории в дереве. У главных категорий глубина 0.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Глубина получена"),
+            @ApiResponse(responseCode = "404", description = "Категория не найдена")
+    })
+    @GetMapping("/{id}/depth")
+    @Transactional(readOnly = true)
+    public ResponseEntity<Integer> getDepth(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(categoryService.getDepth(id));
+        } catch (CategoryNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @Operation(summary = "Установить родительскую категорию", description = "Устанавливает указанную категорию в качестве родительской для другой категории.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Родительская категория успешно установлена"),
-            @ApiResponse(responseCode = "409", description = "Подкатегория уже в категории или категория, в которую добавляют, имеет услуги"),
+            @ApiResponse(responseCode = "409", description = "Подкатегория уже в категории, категория, в которую добавляют, имеет услуги или является потомком подкатегории"),
             @ApiResponse(responseCode = "404", description = "Категория/подкатегория не найдена")
     })
     @Transactional
@@ -166,11 +285,37 @@ public class CategoryController {
         }
     }
 
+    @Operation(summary = "Частично изменить категорию", description = "Применяет изменения ссылок на GIF, GIF-превью и главную иконку одним запросом без загрузки категории. " +
+            "Не переданные поля не меняются, пустая строка очищает поле. Изменение применяется, только если версия категории совпадает с переданной; новая версия возвращается в ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Изменения применены"),
+            @ApiResponse(responseCode = "400", description = "Переданы иконки: у категорий есть только главная иконка"),
+            @ApiResponse(responseCode = "404", description = "Категория не найдена"),
+            @ApiResponse(responseCode = "409", description = "Категория изменена после переданной версии")
+    })
+    @Transactional
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchCategory(@PathVariable long id, @RequestBody @Valid CatalogPatchDTO patchDTO) {
+        CatalogPatch patch = new CatalogPatch(patchDTO.getGifLink(), patchDTO.getGifPreview(), patchDTO.getMainIconLink(),
+                patchDTO.getAddIconLinks(), patchDTO.getRemoveIconLinks());
+        try {
+            long version = categoryService.patchCategory(id, patchDTO.getVersion(), patch);
+            return ResponseEntity.ok().eTag(String.valueOf(version)).build();
+        } catch (CategoryUpdateException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (CategoryNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
     @Operation(summary = "Обновить ссылку на GIF-превью категории", description = "Обновляет ссылку на GIF-превью категории по её идентификатору.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF-превью категории успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/gif-preview")
     public ResponseEntity<Void> updateCategoryGifPreview(@PathVariable long id, @RequestBody String gifPreview) {
         try {
@@ -186,6 +331,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF категории успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/gif")
     public ResponseEntity<Void> updateCategoryGifLink(@PathVariable long id, @RequestBody String gifLink) {
         try {
@@ -198,6 +344,7 @@ public class CategoryController {
 
     @Operation(summary = "Обновить ссылку на главную иконку категории", description = "Обновляет ссылку на главную иконку категории по ее идентификатору.")
     @ApiResponse(responseCode = "200", description = "Ссылка на главную иконку категории успешно обновлена")
+    @Transactional
     @PutMapping("/{id}/main-icon")
     public ResponseEntity<Void> updateCategoryMainIcon(@PathVariable long id, @RequestBody String link) {
         try {
@@ -214,6 +361,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "409", description = "У категории уже есть аудио заголовка. Иногда (читать как никогда) падает при дубликате заголовка аудио"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/generate")
     public ResponseEntity<Void> generateTitleAudio(@PathVariable long id) throws IOException {
         try {
@@ -232,6 +380,7 @@ public class CategoryController {
             @ApiResponse(responseCode = "409", description = "У категории уже нет аудио заголовка"),
             @ApiResponse(responseCode = "404", description = "Категория не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/remove")
     public ResponseEntity<Void> removeTitleAudio(@PathVariable long id) {
         try {
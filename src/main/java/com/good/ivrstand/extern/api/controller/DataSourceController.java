@@ -0,0 +1,42 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.extern.api.dto.DataSourcePoolDTO;
+import com.good.ivrstand.extern.infrastructure.datasource.RoutingDataSource;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/datasource")
+@Tag(name = "DataSourceController", description = "Контроллер для пулов соединений с базой данных")
+public class DataSourceController {
+
+    private final RoutingDataSource routingDataSource;
+
+    public DataSourceController(RoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Operation(summary = "Статистика пулов", description = "Возвращает занятые, свободные и ожидающие соединения основного пула и пула реплики, а также число соединений, выданных через каждый маршрут.")
+    @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса")
+    @GetMapping("/stats")
+    public ResponseEntity<List<DataSourcePoolDTO>> getStatistics() {
+        List<DataSourcePoolDTO> pools = routingDataSource.getPoolStatistics().stream()
+                .map(pool -> new DataSourcePoolDTO(
+                        pool.route().name(),
+                        pool.pool(),
+                        pool.active(),
+                        pool.idle(),
+                        pool.total(),
+                        pool.awaiting(),
+                        pool.routedConnections()))
+                .toList();
+        return ResponseEntity.ok(pools);
+    }
+}
@@ -0,0 +1,39 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.extern.api.dto.EmailOutboxStatsDTO;
+import com.good.ivrstand.extern.infrastructure.service.EmailOutboxDispatcher;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/email-outbox")
+@Tag(name = "EmailOutboxController", description = "Контроллер для очереди исходящих писем")
+public class EmailOutboxController {
+
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+
+    public EmailOutboxController(EmailOutboxDispatcher emailOutboxDispatcher) {
+        this.emailOutboxDispatcher = emailOutboxDispatcher;
+    }
+
+    @Operation(summary = "Статистика очереди исходящих писем", description = "Возвращает глубину очереди, число отправленных, повторенных и не отправленных писем, среднее время отправки пакета и время от постановки письма в очередь до отправки.")
+    @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса")
+    @GetMapping("/stats")
+    public ResponseEntity<EmailOutboxStatsDTO> getStatistics() {
+        EmailOutboxDispatcher.Statistics statistics = emailOutboxDispatcher.getStatistics();
+        return ResponseEntity.ok(new EmailOutboxStatsDTO(
+                statistics.pending(),
+                statistics.failed(),
+                statistics.delivered(),
+                statistics.retried(),
+                statistics.abandoned(),
+                statistics.averageBatchSendMillis(),
+                statistics.averageDeliveryDelayMillis(),
+                statistics.maxDeliveryDelayMillis()));
+    }
+}
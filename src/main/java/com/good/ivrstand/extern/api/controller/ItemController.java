@@ -1,17 +1,25 @@
 package com.good.ivrstand.extern.api.controller;
 
+import com.good.ivrstand.app.repository.CatalogPatch;
+import com.good.ivrstand.app.service.AudioStreamService;
 import com.good.ivrstand.app.service.EncodeService;
 import com.good.ivrstand.app.service.ItemService;
 import com.good.ivrstand.domain.Item;
 import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.InvalidContinuationTokenException;
 import com.good.ivrstand.exception.ItemCategoryAddDeleteException;
 import com.good.ivrstand.exception.ItemUpdateException;
 import com.good.ivrstand.exception.ItemsFindException;
+import com.good.ivrstand.exception.NoSuchFileException;
+import com.good.ivrstand.exception.VersionConflictException;
 import com.good.ivrstand.exception.notfound.CategoryNotFoundException;
 import com.good.ivrstand.exception.notfound.ItemNotFoundException;
+import com.good.ivrstand.extern.api.assembler.ContinuationTokenAssembler;
 import com.good.ivrstand.extern.api.assembler.ItemAssembler;
+import com.good.ivrstand.extern.api.dto.CatalogPatchDTO;
 import com.good.ivrstand.extern.api.dto.DescriptionUpdateDTO;
 import com.good.ivrstand.extern.api.dto.ItemDTO;
+import com.good.ivrstand.extern.api.dto.ScrollDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -20,14 +28,20 @@ import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 @RestController
 @RequestMapping("/items")
@@ -37,12 +51,16 @@ public class ItemController {
     private final ItemService itemService;
     private final ItemAssembler itemAssembler;
     private final EncodeService encodeService;
+    private final AudioStreamService audioStreamService;
+    private final ContinuationTokenAssembler continuationTokenAssembler;
 
     @Autowired
-    public ItemController(ItemService itemService, ItemAssembler itemAssembler, EncodeService encodeService) {
+    public ItemController(ItemService itemService, ItemAssembler itemAssembler, EncodeService encodeService, AudioStreamService audioStreamService, ContinuationTokenAssembler continuationTokenAssembler) {
         this.itemService = itemService;
         this.itemAssembler = itemAssembler;
         this.encodeService = encodeService;
+        this.audioStreamService = audioStreamService;
+        this.continuationTokenAssembler = continuationTokenAssembler;
     }
 
     @Operation(summary = "Создать услугу", description = "Создает новую услугу. Если включить флаг enableAudio, сгенерируется речь для для заголовка и описания.")
@@ -79,6 +97,7 @@ public class ItemController {
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
     @GetMapping("/{id}")
+    @Transactional(readOnly = true)
     public ResponseEntity<ItemDTO> getItemById(@PathVariable long id) {
         try {
             Item item = itemService.getItemById(id);
@@ -93,6 +112,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Услуга успешно удалена"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteItem(@PathVariable long id) {
         try {
@@ -147,6 +167,7 @@ public class ItemController {
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<ItemDTO>> getAllItems(Pageable pageable) {
         Page<ItemDTO> items = itemService.getAllItemsInBase(pageable).map(itemAssembler::toModel);
 
@@ -157,7 +178,26 @@ public class ItemController {
         return ResponseEntity.ok(items);
     }
 
-    @Operation(summary = "Найти услуги по заголовку (заголовок можно ввести частично)", description = "Поиск услуг по заголовку (или его части).")
+    @Operation(summary = "Получить порцию услуг", description = "Получает порцию всех услуг по возрастанию идентификатора. Следующая порция запрашивается с токеном next из ответа. " +
+            "В отличие от страниц, скорость не падает к концу списка.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат"),
+            @ApiResponse(responseCode = "400", description = "Некорректный токен продолжения")
+    })
+    @GetMapping("/scroll")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ScrollDTO<ItemDTO>> scrollAllItems(@RequestParam(required = false) String token,
+                                                             @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long afterId = continuationTokenAssembler.decode(token);
+            return toScroll(itemService.scrollAllItems(afterId, continuationTokenAssembler.size(size)));
+        } catch (InvalidContinuationTokenException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Найти услуги по заголовку (заголовок можно ввести частично)", description = "Поиск услуг по заголовку (или его части). Если указать categoryId, в результатах останутся только услуги из этой категории и её подкатегорий.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
             @ApiResponse(responseCode = "204", description = "Пустой возврат"),
@@ -165,9 +205,9 @@ public class ItemController {
             @ApiResponse(responseCode = "404", description = "Ошибка приложения при поиске")
     })
     @GetMapping("/search")
-    public ResponseEntity<Object> findItemsByTitle(@RequestParam String title, Pageable pageable) {
+    public ResponseEntity<Object> findItemsByTitle(@RequestParam String title, @RequestParam(required = false) Long categoryId, Pageable pageable) {
         try {
-            Page<ItemDTO> items = itemService.findItemsByTitle(title, pageable).map(itemAssembler::toModel);
+            Page<ItemDTO> items = itemService.findItemsByTitle(title, categoryId, pageable, itemAssembler::toModel);
             if (items.isEmpty()) {
                 return ResponseEntity.noContent().build();
             }
@@ -187,6 +227,7 @@ public class ItemController {
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping("/search/withoutCategory")
+    @Transactional(readOnly = true)
     public ResponseEntity<Page<ItemDTO>> findItemsWithoutCategory(Pageable pageable) {
         Page<ItemDTO> items = itemService.findItemsWithoutCategory(pageable).map(itemAssembler::toModel);
 
@@ -197,14 +238,38 @@ public class ItemController {
         return ResponseEntity.ok(items);
     }
 
-    @Operation(summary = "Найти услуги по категории", description = "Поиск услуг по категории.")
+    @Operation(summary = "Получить порцию услуг без категории", description = "Получает порцию услуг без категории по возрастанию идентификатора. Следующая порция запрашивается с токеном next из ответа.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат"),
+            @ApiResponse(responseCode = "400", description = "Некорректный токен продолжения")
+    })
+    @GetMapping("/search/withoutCategory/scroll")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ScrollDTO<ItemDTO>> scrollItemsWithoutCategory(@RequestParam(required = false) String token,
+                                                                         @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long afterId = continuationTokenAssembler.decode(token);
+            return toScroll(itemService.scrollItemsWithoutCategory(afterId, continuationTokenAssembler.size(size)));
+        } catch (InvalidContinuationTokenException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Найти услуги по категории", description = "Поиск услуг по категории. Если включить флаг includeSubcategories, найдутся также услуги всех подкатегорий.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
             @ApiResponse(responseCode = "204", description = "Пустой возврат")
     })
     @GetMapping("/search/byCategory")
-    public ResponseEntity<Page<ItemDTO>> findItemsByCategory(@RequestParam long categoryId, Pageable pageable) {
-        Page<ItemDTO> items = itemService.findItemsByCategory(categoryId, pageable).map(itemAssembler::toModel);
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ItemDTO>> findItemsByCategory(@RequestParam long categoryId,
+                                                             @RequestParam(defaultValue = "false") boolean includeSubcategories,
+                                                             Pageable pageable) {
+        Page<Item> found = includeSubcategories
+                ? itemService.findItemsInCategoryTree(categoryId, pageable)
+                : itemService.findItemsByCategory(categoryId, pageable);
+        Page<ItemDTO> items = found.map(itemAssembler::toModel);
 
         if (items.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -213,12 +278,34 @@ public class ItemController {
         return ResponseEntity.ok(items);
     }
 
+    @Operation(summary = "Получить порцию услуг категории", description = "Получает порцию услуг категории по возрастанию идентификатора. Если включить флаг includeSubcategories, найдутся также услуги всех подкатегорий. " +
+            "Следующая порция запрашивается с токеном next из ответа.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат"),
+            @ApiResponse(responseCode = "400", description = "Некорректный токен продолжения")
+    })
+    @GetMapping("/search/byCategory/scroll")
+    @Transactional(readOnly = true)
+    public ResponseEntity<ScrollDTO<ItemDTO>> scrollItemsByCategory(@RequestParam long categoryId,
+                                                                    @RequestParam(defaultValue = "false") boolean includeSubcategories,
+                                                                    @RequestParam(required = false) String token,
+                                                                    @RequestParam(defaultValue = "20") int size) {
+        try {
+            Long afterId = continuationTokenAssembler.decode(token);
+            return toScroll(itemService.scrollItemsByCategory(categoryId, includeSubcategories, afterId, continuationTokenAssembler.size(size)));
+        } catch (InvalidContinuationTokenException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @Operation(summary = "Обновить описание услуги", description = "Обновляет описание услуги по ее идентификатору. Если включить флаг enableAudio, сгенерируется речь описания, иначе - удалится (если есть) или не будет сгененрирована.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Описание услуги успешно обновлено"),
             @ApiResponse(responseCode = "409", description = "Дубликат файла аудио по названию"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/description")
     public ResponseEntity<Void> updateDescriptionToItem(
             @PathVariable long id,
@@ -237,11 +324,34 @@ public class ItemController {
         }
     }
 
+    @Operation(summary = "Частично изменить услугу", description = "Применяет изменения ссылок на GIF, GIF-превью и главную иконку и список иконок одним запросом без загрузки услуги. " +
+            "Не переданные поля не меняются, пустая строка очищает поле. Изменение применяется, только если версия услуги совпадает с переданной; новая версия возвращается в ETag.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Изменения применены"),
+            @ApiResponse(responseCode = "404", description = "Услуга не найдена"),
+            @ApiResponse(responseCode = "409", description = "Услуга изменена после переданной версии")
+    })
+    @Transactional
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchItem(@PathVariable long id, @RequestBody @Valid CatalogPatchDTO patchDTO) {
+        CatalogPatch patch = new CatalogPatch(patchDTO.getGifLink(), patchDTO.getGifPreview(), patchDTO.getMainIconLink(),
+                patchDTO.getAddIconLinks(), patchDTO.getRemoveIconLinks());
+        try {
+            long version = itemService.patchItem(id, patchDTO.getVersion(), patch);
+            return ResponseEntity.ok().eTag(String.valueOf(version)).build();
+        } catch (ItemNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
     @Operation(summary = "Обновить ссылку на GIF-превью услуги", description = "Обновляет ссылку на GIF-превью услуги по ее идентификатору.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF-превью услуги успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/gif-preview")
     public ResponseEntity<Void> updateItemGifPreview(@PathVariable long id, @RequestBody String gifPreview) {
         try {
@@ -257,6 +367,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Ссылка на GIF услуги успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/gif")
     public ResponseEntity<Void> updateItemGifLink(@PathVariable long id, @RequestBody String gifLink) {
         try {
@@ -272,6 +383,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Ссылка на главную иконку услуги успешно обновлена"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/main-icon")
     public ResponseEntity<Void> updateItemMainIcon(@PathVariable long id, @RequestBody String link) {
         try {
@@ -288,6 +400,7 @@ public class ItemController {
             @ApiResponse(responseCode = "409", description = "У услуги уже есть эта иконка"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/icon/add")
     public ResponseEntity<Void> addItemIcon(@PathVariable long id, @RequestBody String iconLink) {
         try {
@@ -305,6 +418,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Иконка для услуги успешно удалена"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/icon/remove")
     public ResponseEntity<Void> removeItemIcon(@PathVariable long id, @RequestBody String iconLink) {
         try {
@@ -320,6 +434,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Иконки услуги очищены"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/clear-icons")
     public ResponseEntity<Void> clearIcons(@PathVariable long id) {
         try {
@@ -336,6 +451,7 @@ public class ItemController {
             @ApiResponse(responseCode = "409", description = "У услуги уже есть это ключевое слово"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/keyword/add")
     public ResponseEntity<Void> addKeyword(@PathVariable long id, @RequestBody String word) {
         try {
@@ -353,6 +469,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Ключевое слово для услуги успешно удалено"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/keyword/remove")
     public ResponseEntity<Void> removeKeyword(@PathVariable long id, @RequestBody String word) {
         try {
@@ -368,6 +485,7 @@ public class ItemController {
             @ApiResponse(responseCode = "200", description = "Ключевые слова услуги очищены"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/clear-keywords")
     public ResponseEntity<Void> clearKeywords(@PathVariable long id) {
         try {
@@ -384,6 +502,7 @@ public class ItemController {
             @ApiResponse(responseCode = "409", description = "У услуги уже есть аудио заголовка. Иногда (читать как никогда) падает при дубликате заголовка аудио"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/generate")
     public ResponseEntity<Void> generateTitleAudio(@PathVariable long id) throws IOException {
         try {
@@ -402,6 +521,7 @@ public class ItemController {
             @ApiResponse(responseCode = "409", description = "У услуги уже нет аудио заголовка"),
             @ApiResponse(responseCode = "404", description = "Услуга не найдена")
     })
+    @Transactional
     @PutMapping("/{id}/title-audio/remove")
     public ResponseEntity<Void> removeTitleAudio(@PathVariable long id) {
         try {
@@ -413,4 +533,76 @@ public class ItemController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    @Operation(summary = "Потоковое аудио описания услуги", description = "Отдаёт все блоки озвучки описания как один непрерывный WAV-поток. Поддерживаются Range-запросы (в том числе через границы блоков), ETag строится по хэшу описания.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Аудио описания"),
+            @ApiResponse(responseCode = "206", description = "Запрошенный диапазон аудио описания"),
+            @ApiResponse(responseCode = "304", description = "Аудио не изменилось"),
+            @ApiResponse(responseCode = "404", description = "Услуга или её озвучка не найдены"),
+            @ApiResponse(responseCode = "416", description = "Некорректный диапазон")
+    })
+    @GetMapping("/{id}/audio/stream")
+    public ResponseEntity<StreamingResponseBody> streamDescriptionAudio(@PathVariable long id, @RequestHeader HttpHeaders headers) {
+        try {
+            Item item = itemService.getItemById(id);
+            AudioStreamService.AudioLayout layout = audioStreamService.getLayout(item.getAudio());
+            String etag = item.getDescriptionHash() != null ? "\"" + item.getDescriptionHash() + "\"" : null;
+
+            if (etag != null && headers.getIfNoneMatch().contains(etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+
+            long length = layout.length();
+            String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+            List<HttpRange> ranges;
+            try {
+                ranges = ifRange == null || ifRange.equals(etag) ? headers.getRange() : List.of();
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+
+            ResponseEntity.BodyBuilder response;
+            long start = 0;
+            long end = length - 1;
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                            .build();
+                }
+                response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            } else {
+                response = ResponseEntity.ok();
+            }
+
+            long rangeStart = start;
+            long rangeEnd = end;
+            if (etag != null) {
+                response.eTag(etag);
+            }
+            return response
+                    .contentType(MediaType.parseMediaType("audio/wav"))
+                    .contentLength(rangeEnd - rangeStart + 1)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .body(output -> audioStreamService.write(layout, rangeStart, rangeEnd, output));
+        } catch (ItemNotFoundException | NoSuchFileException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private ResponseEntity<ScrollDTO<ItemDTO>> toScroll(Window<Item> window) {
+        if (window.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        List<ItemDTO> items = window.map(itemAssembler::toModel).getContent();
+        return ResponseEntity.ok(new ScrollDTO<>(items, continuationTokenAssembler.next(window, Item::getId)));
+    }
 }
@@ -1,9 +1,9 @@
 package com.good.ivrstand.extern.api.controller;
 
+import com.good.ivrstand.app.service.RefreshTokenService;
 import com.good.ivrstand.extern.api.dto.RefreshTokenDTO;
 import com.good.ivrstand.extern.api.dto.TokenDTO;
 import com.good.ivrstand.extern.infrastructure.authentication.JwtService;
-import com.good.ivrstand.extern.infrastructure.authentication.TokenType;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
@@ -28,9 +28,11 @@ import java.util.Map;
 public class JwtController {
 
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
 
-    public JwtController(JwtService jwtService) {
+    public JwtController(JwtService jwtService, RefreshTokenService refreshTokenService) {
         this.jwtService = jwtService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @Operation(summary = "Проверить токен доступа", description = "Проверяет токен доступа.")
@@ -43,7 +45,7 @@ public class JwtController {
         String token = tokenDTO.getToken();
         Map<String, Boolean> response = new HashMap<>();
         try {
-            boolean validationResult = jwtService.isTokenValid(token, TokenType.ACCESS_TOKEN);
+            boolean validationResult = jwtService.isTokenValid(token);
             response.put("valid", validationResult);
             return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (ExpiredJwtException | SignatureException e) {
@@ -55,25 +57,12 @@ public class JwtController {
         }
     }
 
-    @Operation(summary = "Проверить токен сброса", description = "Проверяет токен сброса.")
-    @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Проверка произведена"),
-            @ApiResponse(responseCode = "400", description = "Некорректные токены")
-    })
+    @Operation(summary = "Проверить токен обновления", description = "Проверяет, что токен обновления не истёк, не отозван и ещё не обменян.")
+    @ApiResponse(responseCode = "200", description = "Проверка произведена")
     @PostMapping("/validate-refresh-token")
     public ResponseEntity<Map<String, Boolean>> validateRefreshToken(@RequestBody @Valid RefreshTokenDTO refreshTokenDTO) {
-        String token = refreshTokenDTO.getRefreshToken();
         Map<String, Boolean> response = new HashMap<>();
-        try {
-            boolean validationResult = jwtService.isTokenValid(token, TokenType.REFRESH_TOKEN);
-            response.put("valid", validationResult);
-            return new ResponseEntity<>(response, HttpStatus.OK);
-        } catch (ExpiredJwtException | SignatureException e) {
-            response.put("valid", false);
-            return new ResponseEntity<>(response, HttpStatus.OK);
-        } catch (MalformedJwtException e) {
-            response.put("valid", false);
-            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
-        }
+        response.put("valid", refreshTokenService.isActive(refreshTokenDTO.getRefreshToken()));
+        return new ResponseEntity<>(response, HttpStatus.OK);
     }
 }
@@ -0,0 +1,93 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.exception.NoSuchFileException;
+import com.good.ivrstand.extern.infrastructure.service.LocalS3Service;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+@RestController
+@RequestMapping("/files")
+@Profile("local-storage")
+@Tag(name = "LocalFileController", description = "Контроллер для выдачи файлов из локального хранилища")
+public class LocalFileController {
+
+    private static final String PATH_PREFIX = "/files/";
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final LocalS3Service localS3Service;
+    private final MediaUsageService mediaUsageService;
+
+    public LocalFileController(LocalS3Service localS3Service, MediaUsageService mediaUsageService) {
+        this.localS3Service = localS3Service;
+        this.mediaUsageService = mediaUsageService;
+    }
+
+    @Operation(summary = "Скачать файл", description = "Отдаёт файл из локального хранилища без копирования через heap (sendfile/transferTo).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Файл найден"),
+            @ApiResponse(responseCode = "404", description = "Файл не найден")
+    })
+    @GetMapping("/**")
+    public void downloadFile(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = UriUtils.decode((String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE), StandardCharsets.UTF_8);
+
+        String key;
+        Path file;
+        try {
+            key = path.substring(PATH_PREFIX.length());
+            file = localS3Service.resolveFile(key);
+        } catch (NoSuchFileException | IndexOutOfBoundsException e) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        long size = Files.size(file);
+        mediaUsageService.recordAccess(localS3Service.getLinkByKey(key));
+        String contentType = Files.probeContentType(file);
+        response.setContentType(contentType != null ? contentType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(size);
+        // Имена файлов содержат UUID, поэтому содержимое по ссылке никогда не меняется
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=31536000, immutable");
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, output);
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.MediaUsageSeedService;
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.domain.MediaUsage;
+import com.good.ivrstand.extern.api.dto.MediaUsageDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/media-usage")
+@Tag(name = "MediaUsageController", description = "Контроллер для статистики использования медиафайлов")
+public class MediaUsageController {
+
+    private final MediaUsageService mediaUsageService;
+    private final MediaUsageSeedService mediaUsageSeedService;
+
+    public MediaUsageController(MediaUsageService mediaUsageService, MediaUsageSeedService mediaUsageSeedService) {
+        this.mediaUsageService = mediaUsageService;
+        this.mediaUsageSeedService = mediaUsageSeedService;
+    }
+
+    @Operation(summary = "Отчёт об использовании медиафайлов", description = "Возвращает файлы, отсортированные по стоимости: размер, умноженный на число обращений в сутки. С флагом leastUsed сначала идут невостребованные файлы, среди них - самые большие. "
+            + "Обращения учитываются только когда файл отдаёт само приложение: все файлы в профиле local-storage и потоковое аудио. "
+            + "При хранении в S3 клиенты скачивают иконки и GIF по прямым ссылкам на бакет, такие обращения не учитываются, "
+            + "поэтому leastUsed показывает их как невостребованные - в этом развёртывании отчёт годится только для оценки размеров. "
+            + "Файлы, загруженные до появления учёта, попадают в отчёт после POST /media-usage/seed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
+            @ApiResponse(responseCode = "204", description = "Пустой возврат")
+    })
+    @GetMapping("/report")
+    public ResponseEntity<Page<MediaUsageDTO>> getUsageReport(@RequestParam(defaultValue = "false") boolean leastUsed, Pageable pageable) {
+        Page<MediaUsageDTO> report = mediaUsageService.getUsageReport(leastUsed, pageable).map(this::toDTO);
+
+        if (report.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+
+        return ResponseEntity.ok(report);
+    }
+
+    @Operation(summary = "Сбросить статистику", description = "Немедленно сбрасывает накопленную в памяти статистику в базу.")
+    @ApiResponse(responseCode = "200", description = "Статистика сброшена")
+    @PostMapping("/flush")
+    public ResponseEntity<Void> flush() {
+        mediaUsageService.flush();
+        return ResponseEntity.ok().build();
+    }
+
+    @Operation(summary = "Заполнить статистику по хранилищу", description = "Добавляет в статистику все файлы хранилища с их размерами, в том числе загруженные до появления учёта. Накопленные обращения сохраняются.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Статистика заполнена, в ответе количество учтённых файлов"),
+            @ApiResponse(responseCode = "500", description = "Хранилище не удалось прочитать")
+    })
+    @PostMapping("/seed")
+    public ResponseEntity<Long> seed() {
+        try {
+            return ResponseEntity.ok(mediaUsageSeedService.seedFromStorage());
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private MediaUsageDTO toDTO(MediaUsage usage) {
+        double accessesPerDay = mediaUsageService.getAccessFrequency(usage);
+        long size = usage.getSizeBytes() != null ? usage.getSizeBytes() : 0;
+        return new MediaUsageDTO(
+                usage.getUrl(),
+                usage.getSizeBytes(),
+                usage.getAccessCount(),
+                accessesPerDay,
+                size * accessesPerDay,
+                usage.getFirstSeenAt(),
+                usage.getLastAccessedAt()
+        );
+    }
+}
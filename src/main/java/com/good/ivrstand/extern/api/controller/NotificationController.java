@@ -1,17 +1,17 @@
 package com.good.ivrstand.extern.api.controller;
 
 import com.good.ivrstand.extern.infrastructure.bot.HelpEvent;
-import com.good.ivrstand.extern.infrastructure.bot.TelegramBot;
-import com.good.ivrstand.exception.NoChatsException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -19,7 +19,6 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "NotificationController", description = "Контроллер для управления уведомлениями")
 public class NotificationController {
 
-
     private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
@@ -27,13 +26,33 @@ public class NotificationController {
         this.eventPublisher = eventPublisher;
     }
 
-    @Operation(summary = "Отправить сообщение о вызове помощи", description = "Отправление сообщения о вызове помощи в Telegram-бот сотрудникам, которые подписались на уведомления")
+    @Operation(summary = "Отправить сообщение о вызове помощи", description = "Отправление сообщения о вызове помощи в Telegram-бот сотрудникам, которые подписались на уведомления. Рассылка выполняется в фоне, ответ возвращается сразу. Повторные вызовы со стенда standId в течение окна от первого вызова объединяются в одно сообщение, которое обновляется. Без standId стенд определяется по адресу клиента: первому адресу X-Forwarded-For от прокси или адресу соединения.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса"),
     })
     @PostMapping("/help")
-    public ResponseEntity<Void> sendHelpMessage() {
-        eventPublisher.publishEvent(new HelpEvent(this));
+    public ResponseEntity<Void> sendHelpMessage(@RequestParam(required = false) String standId, HttpServletRequest request) {
+        String stand = standId == null || standId.isBlank() ? clientAddress(request) : standId;
+        eventPublisher.publishEvent(new HelpEvent(this, stand));
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Определяет адрес стенда. За обратным прокси адрес соединения у всех стендов один - адрес прокси,
+     * поэтому сначала берётся исходный адрес клиента из X-Forwarded-For.
+     *
+     * @param request запрос
+     * @return адрес клиента
+     */
+    private static String clientAddress(HttpServletRequest request) {
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null) {
+            String client = forwardedFor.split(",", 2)[0].trim();
+            if (!client.isEmpty()) {
+                return client;
+            }
+        }
+
+        return request.getRemoteAddr();
+    }
 }
@@ -0,0 +1,42 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.extern.api.dto.PasswordHashingStatsDTO;
+import com.good.ivrstand.extern.infrastructure.authentication.LoginThrottle;
+import com.good.ivrstand.extern.infrastructure.authentication.PasswordHashingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/password-hashing")
+@Tag(name = "PasswordHashingController", description = "Контроллер для пула хэширования паролей")
+public class PasswordHashingController {
+
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
+
+    public PasswordHashingController(PasswordHashingService passwordHashingService, LoginThrottle loginThrottle) {
+        this.passwordHashingService = passwordHashingService;
+        this.loginThrottle = loginThrottle;
+    }
+
+    @Operation(summary = "Статистика хэширования паролей", description = "Возвращает число выполненных и отклоненных операций, среднее и максимальное время хэширования, загрузку пула и число попыток входа, отклоненных ограничителем.")
+    @ApiResponse(responseCode = "200", description = "Успешное выполнение запроса")
+    @GetMapping("/stats")
+    public ResponseEntity<PasswordHashingStatsDTO> getStatistics() {
+        PasswordHashingService.Statistics statistics = passwordHashingService.getStatistics();
+        return ResponseEntity.ok(new PasswordHashingStatsDTO(
+                statistics.completed(),
+                statistics.rejected(),
+                statistics.averageLatencyMillis(),
+                statistics.maxLatencyMillis(),
+                statistics.active(),
+                statistics.queued(),
+                loginThrottle.getThrottledByUsername(),
+                loginThrottle.getThrottledByAddress()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.good.ivrstand.extern.api.controller;
 
+import com.good.ivrstand.app.service.GifPreviewService;
 import com.good.ivrstand.app.service.externinterfaces.S3Service;
 import com.good.ivrstand.exception.FileDuplicateException;
 import com.good.ivrstand.exception.NoSuchFileException;
@@ -8,6 +9,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -25,12 +27,14 @@ import java.util.Map;
 public class S3Controller {
 
     private final S3Service s3Service;
+    private final GifPreviewService gifPreviewService;
 
-    public S3Controller(S3Service s3Service) {
+    public S3Controller(S3Service s3Service, GifPreviewService gifPreviewService) {
         this.s3Service = s3Service;
+        this.gifPreviewService = gifPreviewService;
     }
 
-    @Operation(summary = "Загрузить файл в S3", description = "Загружает файл в указанную папку в S3.")
+    @Operation(summary = "Загрузить файл в S3", description = "Загружает файл в указанную папку в S3. Для GIF-анимаций в фоне генерируется превью, которое проставится услугам, категориям и дополнениям с этой анимацией.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Файл успешно загружен"),
             @ApiResponse(responseCode = "409", description = "Файл с таким именем уже существует"),
@@ -41,6 +45,9 @@ public class S3Controller {
         Map<String, String> response = new HashMap<>();
         try {
             String link = s3Service.uploadFile(multipartFile, folder);
+            if (isGif(multipartFile)) {
+                gifPreviewService.submit(multipartFile.getBytes(), link);
+            }
             response.put("link", link);
             return ResponseEntity.status(HttpStatus.OK).body(response);
         } catch (FileDuplicateException ex) {
@@ -73,4 +80,16 @@ public class S3Controller {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Проверяет, является ли файл GIF-анимацией.
+     *
+     * @param multipartFile файл
+     * @return true, если файл - GIF
+     */
+    private boolean isGif(MultipartFile multipartFile) {
+        String fileName = multipartFile.getOriginalFilename();
+        return MediaType.IMAGE_GIF_VALUE.equals(multipartFile.getContentType())
+                || (fileName != null && fileName.toLowerCase().endsWith(".gif"));
+    }
 }
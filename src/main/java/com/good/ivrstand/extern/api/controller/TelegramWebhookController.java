@@ -0,0 +1,55 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.exception.TelegramUpdateRejectedException;
+import com.good.ivrstand.extern.infrastructure.bot.BotInitializer;
+import com.good.ivrstand.extern.infrastructure.bot.TelegramWebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/telegram")
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = BotInitializer.WEBHOOK_MODE)
+@Tag(name = "TelegramWebhookController", description = "Контроллер вебхука Telegram-бота")
+public class TelegramWebhookController {
+
+    private final TelegramWebhookService telegramWebhookService;
+
+    public TelegramWebhookController(TelegramWebhookService telegramWebhookService) {
+        this.telegramWebhookService = telegramWebhookService;
+    }
+
+    @Operation(summary = "Принять обновление Telegram", description = "Принимает обновление от Telegram и ставит его обработку в очередь. Запрос должен содержать секрет вебхука в заголовке X-Telegram-Bot-Api-Secret-Token.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Обновление принято"),
+            @ApiResponse(responseCode = "400", description = "Некорректное обновление"),
+            @ApiResponse(responseCode = "403", description = "Неверный секрет вебхука"),
+            @ApiResponse(responseCode = "503", description = "Очередь обработки заполнена, Telegram повторит доставку")
+    })
+    @PostMapping("/webhook")
+    public ResponseEntity<Void> receiveUpdate(@RequestHeader(value = "X-Telegram-Bot-Api-Secret-Token", required = false) String secret,
+                                              @RequestBody String body) {
+        if (!telegramWebhookService.isSecretValid(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            telegramWebhookService.accept(body);
+            return ResponseEntity.ok().build();
+        } catch (TelegramUpdateRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.good.ivrstand.extern.api.controller;
 
 import com.good.ivrstand.app.service.UserService;
 import com.good.ivrstand.domain.User;
+import com.good.ivrstand.exception.ConfirmEmailTokenException;
 import com.good.ivrstand.exception.NotConfirmedEmailException;
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
 import com.good.ivrstand.exception.ResetPasswordTokenException;
 import com.good.ivrstand.exception.UserRolesException;
 import com.good.ivrstand.exception.notfound.UserNotFoundException;
 import com.good.ivrstand.extern.api.assembler.UserAssembler;
 import com.good.ivrstand.extern.api.dto.UserDTO;
 import com.good.ivrstand.extern.api.dto.UserUpdatePasswordDTO;
+import com.good.ivrstand.extern.infrastructure.authentication.PasswordHashingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -16,7 +19,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -26,19 +28,20 @@ public class UserController {
 
     private final UserService userService;
     private final UserAssembler userAssembler;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordHashingService passwordHashingService;
 
-    public UserController(UserService userService, UserAssembler userAssembler, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public UserController(UserService userService, UserAssembler userAssembler, PasswordHashingService passwordHashingService) {
         this.userService = userService;
         this.userAssembler = userAssembler;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingService = passwordHashingService;
     }
 
     @Operation(summary = "Обновить пароль", description = "Обновляет пароль пользователя.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Пароль успешно обновлен"),
             @ApiResponse(responseCode = "400", description = "Ошибка валидации токена"),
-            @ApiResponse(responseCode = "404", description = "Пользователь не найден")
+            @ApiResponse(responseCode = "404", description = "Пользователь не найден"),
+            @ApiResponse(responseCode = "503", description = "Сервис хэширования паролей перегружен")
     })
     @PutMapping("/update-password")
     public ResponseEntity<Void> updatePassword(@RequestParam String userId, @RequestParam String token, @Valid @RequestBody UserUpdatePasswordDTO userUpdatePasswordDTO) {
@@ -46,13 +49,15 @@ public class UserController {
             return ResponseEntity.badRequest().build();
         }
         try {
-            String encodedPass = bCryptPasswordEncoder.encode(userUpdatePasswordDTO.getPassword());
+            String encodedPass = passwordHashingService.encode(userUpdatePasswordDTO.getPassword());
             userService.updatePassword(userId, encodedPass, token);
             return ResponseEntity.ok().build();
         } catch (ResetPasswordTokenException ex) {
             return ResponseEntity.badRequest().build();
         } catch (UserNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
         }
     }
 
@@ -74,13 +79,16 @@ public class UserController {
     @Operation(summary = "Подтвердить email", description = "Подтверждает email пользователя.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Email успешно подтвержден"),
+            @ApiResponse(responseCode = "400", description = "Ошибка валидации токена"),
             @ApiResponse(responseCode = "404", description = "Пользователь не найден")
     })
     @PutMapping("/confirm-email")
-    public ResponseEntity<Void> confirmEmail(@RequestParam String userId) {
+    public ResponseEntity<Void> confirmEmail(@RequestParam String userId, @RequestParam String token) {
         try {
-            userService.confirmEmail(userId);
+            userService.confirmEmail(userId, token);
             return ResponseEntity.ok().build();
+        } catch (ConfirmEmailTokenException ex) {
+            return ResponseEntity.badRequest().build();
         } catch (UserNotFoundException ex) {
             return ResponseEntity.notFound().build();
         }
@@ -32,6 +32,9 @@ public class AdditionDTO extends RepresentationModel<AdditionDTO> {
 
     private String titleAudio;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private boolean enableAudio = false;
 }
@@ -0,0 +1,23 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CacheRegionDTO {
+
+    private String region;
+
+    private long hits;
+
+    private long misses;
+
+    private long puts;
+
+    private double hitRatio;
+
+    private long elementsInMemory;
+}
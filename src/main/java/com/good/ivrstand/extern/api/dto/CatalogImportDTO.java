@@ -0,0 +1,46 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogImportDTO {
+
+    private long id;
+
+    private String status;
+
+    private long processed;
+
+    private long imported;
+
+    private long failed;
+
+    private long indexed;
+
+    private long indexFailed;
+
+    private String message;
+
+    private List<RecordError> errors;
+
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RecordError {
+
+        private long record;
+
+        private String message;
+    }
+}
@@ -0,0 +1,34 @@
+package com.good.ivrstand.extern.api.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Частичное изменение услуги, категории или дополнения.
+ * Не переданные поля не меняются, пустая строка очищает поле.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogPatchDTO {
+
+    /**
+     * Версия, которую видел клиент.
+     */
+    @NotNull
+    private Long version;
+
+    private String gifLink;
+
+    private String gifPreview;
+
+    private String mainIconLink;
+
+    private List<String> addIconLinks;
+
+    private List<String> removeIconLinks;
+}
@@ -30,6 +30,9 @@ public class CategoryDTO extends RepresentationModel<CategoryDTO> {
 
     private String titleAudio;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private boolean enableAudio = false;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DataSourcePoolDTO {
+
+    private String route;
+
+    private String pool;
+
+    private int active;
+
+    private int idle;
+
+    private int total;
+
+    private int awaiting;
+
+    private long routedConnections;
+}
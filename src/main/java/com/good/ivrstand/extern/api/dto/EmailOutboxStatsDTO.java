@@ -0,0 +1,27 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmailOutboxStatsDTO {
+
+    private long pending;
+
+    private long failed;
+
+    private long delivered;
+
+    private long retried;
+
+    private long abandoned;
+
+    private double averageBatchSendMillis;
+
+    private double averageDeliveryDelayMillis;
+
+    private long maxDeliveryDelayMillis;
+}
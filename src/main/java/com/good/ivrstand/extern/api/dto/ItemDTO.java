@@ -37,6 +37,9 @@ public class ItemDTO extends RepresentationModel<ItemDTO> {
 
     private String titleAudio;
 
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private boolean enableAudio = false;
 }
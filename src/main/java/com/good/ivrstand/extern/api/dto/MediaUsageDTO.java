@@ -0,0 +1,27 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MediaUsageDTO {
+
+    private String url;
+
+    private Long sizeBytes;
+
+    private long accessCount;
+
+    private double accessesPerDay;
+
+    private double cost;
+
+    private Instant firstSeenAt;
+
+    private Instant lastAccessedAt;
+}
@@ -0,0 +1,27 @@
+package com.good.ivrstand.extern.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PasswordHashingStatsDTO {
+
+    private long completed;
+
+    private long rejected;
+
+    private double averageLatencyMillis;
+
+    private double maxLatencyMillis;
+
+    private int active;
+
+    private int queued;
+
+    private long throttledByUsername;
+
+    private long throttledByAddress;
+}
@@ -1,18 +1,19 @@
 package com.good.ivrstand.extern.infrastructure.authentication;
 
-import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.RefreshTokenService;
 import com.good.ivrstand.app.service.UserService;
 import com.good.ivrstand.domain.User;
 import com.good.ivrstand.exception.DifferentPasswordsException;
+import com.good.ivrstand.exception.LoginThrottledException;
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
 import com.good.ivrstand.exception.TokenRefreshException;
 import com.good.ivrstand.exception.UserDuplicateException;
 import com.good.ivrstand.exception.UserRolesException;
+import com.good.ivrstand.exception.notfound.UserNotFoundException;
 import com.good.ivrstand.extern.api.dto.UserRegisterDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -29,15 +30,17 @@ public class AuthService {
     private final UserService userService;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
-    private final EncodeService encodeService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final RefreshTokenService refreshTokenService;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
 
-    public AuthService(UserService userService, JwtService jwtService, AuthenticationManager authenticationManager, EncodeService encodeService, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public AuthService(UserService userService, JwtService jwtService, AuthenticationManager authenticationManager, RefreshTokenService refreshTokenService, PasswordHashingService passwordHashingService, LoginThrottle loginThrottle) {
         this.userService = userService;
         this.jwtService = jwtService;
         this.authenticationManager = authenticationManager;
-        this.encodeService = encodeService;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.refreshTokenService = refreshTokenService;
+        this.passwordHashingService = passwordHashingService;
+        this.loginThrottle = loginThrottle;
     }
 
     /**
@@ -45,14 +48,18 @@ public class AuthService {
      * UserRegisterDTO пробрасывается прямо сюда, чтобы не инжектить энкодер в контроллер - ИБ :)
      *
      * @param userRegisterDTO объект с данными регистрации
+     * @param clientAddress   адрес клиента
      * @return карта с токеном доступа и токеном обновления
+     * @throws LoginThrottledException          если с адреса слишком много попыток
+     * @throws PasswordHashingRejectedException если пул хэширования паролей перегружен
      */
-    public Map<String, String> registerUser(UserRegisterDTO userRegisterDTO) throws UserDuplicateException, DifferentPasswordsException, UserRolesException {
+    public Map<String, String> registerUser(UserRegisterDTO userRegisterDTO, String clientAddress) throws UserDuplicateException, DifferentPasswordsException, UserRolesException, LoginThrottledException, PasswordHashingRejectedException {
         if (!userRegisterDTO.getPassword().equals(userRegisterDTO.getPasswordConfirm())) {
             throw new DifferentPasswordsException("Пароли не совпадают!");
         }
 
-        String encodedPass = bCryptPasswordEncoder.encode(userRegisterDTO.getPassword());
+        loginThrottle.acquireAddress(clientAddress);
+        String encodedPass = passwordHashingService.encode(userRegisterDTO.getPassword());
         User user = User.builder()
                 .username(userRegisterDTO.getUsername())
                 .password(encodedPass)
@@ -62,40 +69,35 @@ public class AuthService {
                 .emailConfirmed(false)
                 .resetToken("no-token")
                 .build();
-        userService.createUser(user);
+        User createdUser = userService.createUser(user);
 
-        String jwt = jwtService.generateToken(user);
-        String refreshJwt = jwtService.generateRefreshToken(user, encodeService.encrypt(userRegisterDTO.getPassword()));
-
-        Map<String, String> result = new HashMap<>();
-        result.put("token", jwt);
-        result.put("refreshToken", refreshJwt);
+        Map<String, String> result = issueTokens(createdUser, refreshTokenService.issue(createdUser.getId()));
         log.info("Пользователь {} зарегистрирован", userRegisterDTO.getUsername());
 
         return result;
     }
 
     /**
-     * Авторизует пользователя
+     * Авторизует пользователя.
+     * Проверка пароля выполняется в пуле хэширования, попытки ограничиваются по логину и адресу клиента.
      *
-     * @param username логин
-     * @param password пароль
+     * @param username      логин
+     * @param password      пароль
+     * @param clientAddress адрес клиента
      * @return карта с токеном доступа и токеном обновления
+     * @throws LoginThrottledException          если для логина или адреса слишком много попыток
+     * @throws PasswordHashingRejectedException если пул хэширования паролей перегружен
      */
-    public Map<String, String> loginUser(String username, String password) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
+    public Map<String, String> loginUser(String username, String password, String clientAddress) throws LoginThrottledException, PasswordHashingRejectedException {
+        loginThrottle.acquireLogin(username, clientAddress);
+        passwordHashingService.verify(() -> authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
                 username,
                 password
-        ));
+        )));
 
-        UserDetails user = userService.userDetailsService().loadUserByUsername(username);
+        User user = (User) userService.userDetailsService().loadUserByUsername(username);
 
-        String jwt = jwtService.generateToken(user);
-        String refreshJwt = jwtService.generateRefreshToken(user, encodeService.encrypt(password));
-
-        Map<String, String> result = new HashMap<>();
-        result.put("token", jwt);
-        result.put("refreshToken", refreshJwt);
+        Map<String, String> result = issueTokens(user, refreshTokenService.issue(user.getId()));
         log.info("Пользователь {} авторизован", username);
 
         return result;
@@ -113,22 +115,39 @@ public class AuthService {
     }
 
     /**
-     * Обновляет токены для пользователя
+     * Обновляет токены для пользователя.
+     * Токен обновления обменивается на новый, пароль при этом не проверяется.
      *
-     * @param token        токен доступа
-     * @param refreshToken токен сброса
+     * @param refreshToken токен обновления
      * @return карта с токеном доступа и токеном обновления
+     * @throws TokenRefreshException если токен обновления недействителен или пользователь удалён
      */
-    public Map<String, String> refreshToken(String token, String refreshToken) throws TokenRefreshException {
-        String username = jwtService.extractUsername(token);
-        String encodedPassword = jwtService.extractPassword(refreshToken).toString();
-        String password = encodeService.decrypt(encodedPassword);
+    public Map<String, String> refreshToken(String refreshToken) throws TokenRefreshException {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
 
-        boolean validationResult = jwtService.isTokenValid(refreshToken, TokenType.REFRESH_TOKEN);
-
-        if (validationResult)
-            return loginUser(username, password);
-        else
+        User user;
+        try {
+            user = userService.getUserById(rotation.userId());
+        } catch (UserNotFoundException e) {
             throw new TokenRefreshException("Ошибка обновления токена");
+        }
+
+        return issueTokens(user, rotation.refreshToken());
+    }
+
+    /**
+     * Завершает сессию устройства: отзывает токен обновления и все его предыдущие версии.
+     *
+     * @param refreshToken токен обновления
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+
+    private Map<String, String> issueTokens(User user, String refreshToken) {
+        Map<String, String> result = new HashMap<>();
+        result.put("token", jwtService.generateToken(user));
+        result.put("refreshToken", refreshToken);
+        return result;
     }
 }
@@ -1,14 +1,19 @@
 package com.good.ivrstand.extern.infrastructure.authentication;
 
+import com.good.ivrstand.app.service.TokenRevocationService;
 import com.good.ivrstand.app.service.UserService;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.security.SignatureException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -18,23 +23,35 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
 
 /**
- * Фильтр авторизации при помощи JWT
+ * Фильтр авторизации при помощи JWT.
+ * В режиме авторизации по токену роли берутся из подписанного токена, а удаление пользователя
+ * и смену ролей учитывает набор отзывов в памяти, без обращения к базе.
+ * Иначе пользователь и его роли загружаются из базы на каждый запрос.
  */
 @Component
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserService userService;
+    private final TokenRevocationService tokenRevocationService;
+    private final boolean statelessAuthorization;
 
-    public JwtAuthorizationFilter(JwtService jwtService, UserService userService) {
+    public JwtAuthorizationFilter(JwtService jwtService,
+                                  UserService userService,
+                                  TokenRevocationService tokenRevocationService,
+                                  @Value("${auth.stateless-authorization}") boolean statelessAuthorization) {
         this.jwtService = jwtService;
         this.userService = userService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.statelessAuthorization = statelessAuthorization;
     }
 
     /**
      * Фильтрует входящий HTTP-запрос для проверки наличия и валидации JWT-токена в заголовке Authorization.
+     * Токен разбирается и проверяется один раз, субъектом аутентификации становится {@link JwtPrincipal}.
      * Если токен действителен, выполняется аутентификация пользователя.
      * Если токен недействителен, возвращается ошибка 403 с соответствующим сообщением.
      *
@@ -46,39 +63,30 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String authorizationHeader = request.getHeader("Authorization");
 
-        String jwt = null;
-        String username = null;
+        JwtPrincipal principal = null;
 
         try {
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-                jwt = authorizationHeader.substring(7);
-                username = jwtService.extractUsername(jwt);
+                principal = jwtService.verifyAccessToken(authorizationHeader.substring(7));
             }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails;
-                try {
-                    userDetails = userService
-                            .userDetailsService()
-                            .loadUserByUsername(username);
-                } catch (UsernameNotFoundException ex) {
-                    response.setStatus(HttpStatus.FORBIDDEN.value());
-                    response.getWriter().write("User with this token was deleted!");
-                    response.getWriter().flush();
+            if (principal != null && principal.username() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                Collection<? extends GrantedAuthority> authorities = canTrustClaims(principal)
+                        ? authoritiesFromClaims(principal, response)
+                        : authoritiesFromDatabase(principal, response);
+                if (authorities == null) {
                     return;
                 }
 
-                if (jwtService.isTokenValidAndMatchesUser(jwt, userDetails)) {
-                    SecurityContext context = SecurityContextHolder.createEmptyContext();
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    context.setAuthentication(authToken);
-                    SecurityContextHolder.setContext(context);
-                }
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        principal,
+                        null,
+                        authorities
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                context.setAuthentication(authToken);
+                SecurityContextHolder.setContext(context);
             }
 
             filterChain.doFilter(request, response);
@@ -86,10 +94,53 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
             response.setStatus(HttpStatus.FORBIDDEN.value());
             response.getWriter().write("JWT expired!");
             response.getWriter().flush();
-        } catch (SignatureException e) {
+        } catch (SignatureException | MalformedJwtException e) {
             response.setStatus(HttpStatus.FORBIDDEN.value());
             response.getWriter().write("JWT error! Use main token instead of refresh token!");
             response.getWriter().flush();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Роли можно брать из токена, если включен режим авторизации по токену
+     * и в токене есть ID пользователя и время выпуска для проверки отзыва.
+     */
+    private boolean canTrustClaims(JwtPrincipal principal) {
+        return statelessAuthorization && principal.id() != null && principal.issuedAt() != null;
+    }
+
+    /**
+     * Возвращает роли из токена. Если токен отозван, пишет ошибку в ответ.
+     *
+     * @return роли или null, если токен отозван
+     */
+    private Collection<? extends GrantedAuthority> authoritiesFromClaims(JwtPrincipal principal, HttpServletResponse response) throws IOException {
+        if (tokenRevocationService.isRevoked(principal.id(), principal.issuedAt())) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.getWriter().write("JWT revoked! Log in again.");
+            response.getWriter().flush();
+            return null;
+        }
+        return principal.roles().stream().map(SimpleGrantedAuthority::new).toList();
+    }
+
+    /**
+     * Возвращает роли пользователя из базы. Если пользователь удален, пишет ошибку в ответ.
+     *
+     * @return роли или null, если пользователя нет
+     */
+    private Collection<? extends GrantedAuthority> authoritiesFromDatabase(JwtPrincipal principal, HttpServletResponse response) throws IOException {
+        UserDetails userDetails;
+        try {
+            userDetails = userService
+                    .userDetailsService()
+                    .loadUserByUsername(principal.username());
+        } catch (UsernameNotFoundException ex) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            response.getWriter().write("User with this token was deleted!");
+            response.getWriter().flush();
+            return null;
+        }
+        return userDetails.getAuthorities();
+    }
+}
@@ -0,0 +1,25 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Пользователь, собранный из проверенного токена доступа.
+ *
+ * @param id       ID пользователя
+ * @param username имя пользователя
+ * @param roles    названия ролей из токена
+ * @param issuedAt время выпуска токена
+ */
+public record JwtPrincipal(Long id, String username, List<String> roles, Instant issuedAt) implements Principal {
+
+    public JwtPrincipal {
+        roles = List.copyOf(roles);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -2,6 +2,7 @@ package com.good.ivrstand.extern.infrastructure.authentication;
 
 import com.good.ivrstand.domain.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -10,13 +11,17 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.function.Function;
 
 /**
- * Сервис для работы с JWT
+ * Сервис для работы с JWT.
+ * Ключи декодируются, а парсеры собираются один раз при создании сервиса.
  */
 @Component
 public class JwtService {
@@ -25,24 +30,12 @@ public class JwtService {
      * Время, которое токен действителен (в часах)
      */
     private static final int HOURS_TO_EXPIRE = 12;
-    @Value("${auth.key}")
-    private String signKey;
-    @Value("${auth.refresh-key}")
-    private String refreshKey;
+    private final SecretKey signKey;
+    private final JwtParser accessParser;
 
-    /**
-     * Генерирует токен обновления сессии.
-     *
-     * @param userDetails данные пользователя
-     * @param password    пароль
-     * @return токен
-     */
-    public String generateRefreshToken(UserDetails userDetails, String password) {
-        Map<String, Object> claims = new HashMap<>();
-        if (userDetails instanceof User) {
-            claims.put("password", password);
-        }
-        return generateToken(claims, userDetails, refreshKey);
+    public JwtService(@Value("${auth.key}") String signKey) {
+        this.signKey = getSignInKey(signKey);
+        this.accessParser = Jwts.parser().verifyWith(this.signKey).build();
     }
 
     /**
@@ -58,38 +51,17 @@ public class JwtService {
             claims.put("id", id);
             claims.put("roles", customUserDetails.getRoles());
         }
-        return generateToken(claims, userDetails, signKey);
+        return generateToken(claims, userDetails);
     }
 
     /**
-     * Проверяет токен на просроченность,
-     * проверяет его соответствие пользователю.
-     *
-     * @param token       токен
-     * @param userDetails детали пользователя
-     * @return true, если токен годен
-     */
-    public boolean isTokenValidAndMatchesUser(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && isTokenValid(token, TokenType.ACCESS_TOKEN));
-    }
-
-    /**
-     * Проверяет валидность токена.
+     * Проверяет валидность токена доступа.
      *
      * @param token токен
-     * @param tokenType тип токена
      * @return true, если токен годен
      */
-    public boolean isTokenValid(String token, TokenType tokenType) {
-        boolean validationResult = false;
-
-        switch (tokenType) {
-            case ACCESS_TOKEN -> validationResult = !(extractExpiration(token, signKey).before(new Date()));
-            case REFRESH_TOKEN -> validationResult = !(extractExpiration(token, refreshKey).before(new Date()));
-        }
-
-        return validationResult;
+    public boolean isTokenValid(String token) {
+        return !(extractExpiration(token).before(new Date()));
     }
 
     /**
@@ -99,7 +71,7 @@ public class JwtService {
      * @return имя юзера
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject, signKey);
+        return extractClaim(token, Claims::getSubject);
     }
 
     /**
@@ -109,17 +81,24 @@ public class JwtService {
      * @return ID пользователя
      */
     public Object extractId(String token) {
-        return extractClaim(token, claims -> claims.get("id"), signKey);
+        return extractClaim(token, claims -> claims.get("id"));
     }
 
     /**
-     * Извлекает пароль из токена обновления.
+     * Проверяет подпись и срок токена доступа за один разбор и собирает из него данные пользователя.
+     * При просроченном токене или неверной подписи выбрасывает исключения парсера, как и остальные методы.
      *
-     * @param token токен
-     * @return пароль пользователя, шифрованный
+     * @param token токен доступа
+     * @return неизменяемые данные пользователя из токена
      */
-    public Object extractPassword(String token) {
-        return extractClaim(token, claims -> claims.get("password"), refreshKey);
+    public JwtPrincipal verifyAccessToken(String token) {
+        Claims claims = accessParser.parseSignedClaims(token).getPayload();
+        Object id = claims.get("id");
+        return new JwtPrincipal(
+                id instanceof Number number ? number.longValue() : null,
+                claims.getSubject(),
+                extractRoles(claims.get("roles")),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null);
     }
 
     /**
@@ -129,14 +108,14 @@ public class JwtService {
      * @param userDetails данные пользователя
      * @return токен
      */
-    private String generateToken(Map<String, Object> extraClaims, UserDetails userDetails, String key) {
+    private String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
         long millisToExpire = HOURS_TO_EXPIRE * 60 * 60 * 1000;
         return Jwts.builder()
                 .claims(extraClaims)
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + millisToExpire))
-                .signWith(getSignInKey(key), Jwts.SIG.HS256)
+                .signWith(signKey, Jwts.SIG.HS256)
                 .compact();
     }
 
@@ -146,10 +125,8 @@ public class JwtService {
      * @param token токен
      * @return данные
      */
-    private Claims getAllClaimsFromToken(String token, String key) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey(key))
-                .build()
+    private Claims getAllClaimsFromToken(String token) {
+        return accessParser
                 .parseSignedClaims(token)
                 .getPayload();
     }
@@ -162,8 +139,8 @@ public class JwtService {
      * @param <T>             тип данных
      * @return данные
      */
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers, String key) {
-        final Claims claims = getAllClaimsFromToken(token, key);
+    private <T> T extractClaim(String token, Function<Claims, T> claimsResolvers) {
+        final Claims claims = getAllClaimsFromToken(token);
         return claimsResolvers.apply(claims);
     }
 
@@ -173,8 +150,25 @@ public class JwtService {
      * @param token токен
      * @return дата истечения
      */
-    private Date extractExpiration(String token, String key) {
-        return extractClaim(token, Claims::getExpiration, key);
+    private Date extractExpiration(String token) {
+        return extractClaim(token, Claims::getExpiration);
+    }
+
+    /**
+     * Извлекает названия ролей. Роли записываются в токен как объекты с полем authority.
+     *
+     * @param roles значение claims roles
+     * @return названия ролей
+     */
+    private List<String> extractRoles(Object roles) {
+        if (!(roles instanceof Collection<?> collection)) {
+            return List.of();
+        }
+        return collection.stream()
+                .map(role -> role instanceof Map<?, ?> map ? map.get("authority") : role)
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .toList();
     }
 
     /**
@@ -0,0 +1,152 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.exception.LoginThrottledException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель попыток входа и регистрации по логину и по адресу клиента.
+ * Попытки считаются в скользящем окне из нескольких корзин на атомарных счетчиках, без блокировок.
+ * Проверка выполняется до хэширования пароля, поэтому отклоненная попытка не нагружает процессор.
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+
+    private static final int BUCKETS = 6;
+
+    private final long bucketMillis;
+    private final int usernameLimit;
+    private final int addressLimit;
+    private final Clock clock;
+    private final Map<String, SlidingWindow> usernames = new ConcurrentHashMap<>();
+    private final Map<String, SlidingWindow> addresses = new ConcurrentHashMap<>();
+    private final LongAdder throttledByUsername = new LongAdder();
+    private final LongAdder throttledByAddress = new LongAdder();
+
+    @Autowired
+    public LoginThrottle(@Value("${auth.login-throttle.window}") Duration window,
+                         @Value("${auth.login-throttle.username-limit}") int usernameLimit,
+                         @Value("${auth.login-throttle.address-limit}") int addressLimit) {
+        this(window, usernameLimit, addressLimit, Clock.systemUTC());
+    }
+
+    public LoginThrottle(Duration window, int usernameLimit, int addressLimit, Clock clock) {
+        this.bucketMillis = Math.max(1, window.toMillis() / BUCKETS);
+        this.usernameLimit = usernameLimit;
+        this.addressLimit = addressLimit;
+        this.clock = clock;
+    }
+
+    /**
+     * Учитывает попытку входа.
+     *
+     * @param username      логин
+     * @param clientAddress адрес клиента
+     * @throws LoginThrottledException если превышен лимит попыток для логина или адреса
+     */
+    public void acquireLogin(String username, String clientAddress) throws LoginThrottledException {
+        acquireAddress(clientAddress);
+        long slot = currentSlot();
+        SlidingWindow window = usernames.computeIfAbsent(username.toLowerCase(Locale.ROOT), key -> new SlidingWindow());
+        if (!window.tryAcquire(slot, usernameLimit)) {
+            throttledByUsername.increment();
+            log.warn("Превышен лимит попыток входа для логина {}", username);
+            throw new LoginThrottledException("Слишком много попыток входа, повторите позже");
+        }
+    }
+
+    /**
+     * Учитывает попытку регистрации или входа с адреса клиента.
+     *
+     * @param clientAddress адрес клиента
+     * @throws LoginThrottledException если превышен лимит попыток для адреса
+     */
+    public void acquireAddress(String clientAddress) throws LoginThrottledException {
+        SlidingWindow window = addresses.computeIfAbsent(clientAddress, key -> new SlidingWindow());
+        if (!window.tryAcquire(currentSlot(), addressLimit)) {
+            throttledByAddress.increment();
+            log.warn("Превышен лимит попыток входа с адреса {}", clientAddress);
+            throw new LoginThrottledException("Слишком много попыток входа, повторите позже");
+        }
+    }
+
+    /**
+     * Возвращает число попыток, отклоненных по логину.
+     */
+    public long getThrottledByUsername() {
+        return throttledByUsername.sum();
+    }
+
+    /**
+     * Возвращает число попыток, отклоненных по адресу клиента.
+     */
+    public long getThrottledByAddress() {
+        return throttledByAddress.sum();
+    }
+
+    /**
+     * Удаляет окна, в которых за последний период не было попыток.
+     */
+    @Scheduled(fixedDelayString = "${auth.login-throttle.cleanup-interval}")
+    public void evictIdle() {
+        long slot = currentSlot();
+        usernames.values().removeIf(window -> window.isIdle(slot));
+        addresses.values().removeIf(window -> window.isIdle(slot));
+    }
+
+    private long currentSlot() {
+        return clock.millis() / bucketMillis;
+    }
+
+    /**
+     * Скользящее окно из корзин. Корзина хранит номер своего интервала и число попыток в нем;
+     * корзина устаревшего интервала обнуляется первым, кто в нее попал. Лимит соблюдается
+     * приблизительно: одновременные попытки могут превысить его на число конкурирующих потоков.
+     */
+    private static final class SlidingWindow {
+
+        private final AtomicLongArray slots = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        boolean tryAcquire(long slot, int limit) {
+            int index = (int) (slot % BUCKETS);
+            long current = slots.get(index);
+            if (current != slot && slots.compareAndSet(index, current, slot)) {
+                counts.set(index, 0);
+            }
+
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (slots.get(i) > slot - BUCKETS) {
+                    total += counts.get(i);
+                }
+            }
+            if (total >= limit) {
+                return false;
+            }
+            counts.incrementAndGet(index);
+            return true;
+        }
+
+        boolean isIdle(long slot) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (slots.get(i) > slot - BUCKETS && counts.get(i) > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
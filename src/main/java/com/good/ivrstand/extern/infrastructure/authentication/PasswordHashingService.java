@@ -0,0 +1,144 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Сервис хэширования и проверки паролей в отдельном ограниченном пуле.
+ * Поток запроса ждет результат не дольше заданного времени, а при заполненной очереди
+ * получает отказ сразу, поэтому всплеск входов не занимает все потоки сервера.
+ */
+@Component
+@Slf4j
+public class PasswordHashingService {
+
+    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final ThreadPoolTaskExecutor passwordHashingExecutor;
+    private final Duration timeout;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public PasswordHashingService(BCryptPasswordEncoder bCryptPasswordEncoder,
+                                  @Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor passwordHashingExecutor,
+                                  @Value("${password-hashing.timeout}") Duration timeout) {
+        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Хэширует пароль.
+     *
+     * @param rawPassword пароль
+     * @return хэш пароля
+     * @throws PasswordHashingRejectedException если пул перегружен
+     */
+    public String encode(String rawPassword) throws PasswordHashingRejectedException {
+        return execute(() -> bCryptPasswordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Выполняет проверку пароля, например аутентификацию, в пуле хэширования.
+     * Непроверяемые исключения проверки пробрасываются вызывающему как есть.
+     *
+     * @param verification проверка
+     * @return результат проверки
+     * @throws PasswordHashingRejectedException если пул перегружен
+     */
+    public <T> T verify(Supplier<T> verification) throws PasswordHashingRejectedException {
+        return execute(verification);
+    }
+
+    /**
+     * Возвращает статистику пула хэширования.
+     *
+     * @return статистика
+     */
+    public Statistics getStatistics() {
+        long completedCount = completed.sum();
+        double averageLatency = completedCount == 0 ? 0 : toMillis(totalLatencyNanos.sum()) / completedCount;
+        return new Statistics(
+                completedCount,
+                rejected.sum(),
+                averageLatency,
+                toMillis(maxLatencyNanos.get()),
+                passwordHashingExecutor.getActiveCount(),
+                passwordHashingExecutor.getThreadPoolExecutor().getQueue().size());
+    }
+
+    private <T> T execute(Supplier<T> task) throws PasswordHashingRejectedException {
+        Future<T> future;
+        try {
+            future = passwordHashingExecutor.submit(() -> measure(task));
+        } catch (TaskRejectedException e) {
+            rejected.increment();
+            log.warn("Очередь хэширования паролей заполнена, запрос отклонен");
+            throw new PasswordHashingRejectedException("Сервис перегружен, повторите попытку позже");
+        }
+
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            log.warn("Хэширование пароля не уложилось в {}", timeout);
+            throw new PasswordHashingRejectedException("Сервис перегружен, повторите попытку позже");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Хэширование пароля прервано");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ошибка хэширования пароля", e.getCause());
+        }
+    }
+
+    private <T> T measure(Supplier<T> task) {
+        long start = System.nanoTime();
+        try {
+            return task.get();
+        } finally {
+            long latency = System.nanoTime() - start;
+            completed.increment();
+            totalLatencyNanos.add(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Статистика пула хэширования паролей.
+     *
+     * @param completed            выполнено операций
+     * @param rejected             отклонено из-за заполненной очереди или превышения времени ожидания
+     * @param averageLatencyMillis среднее время операции в миллисекундах
+     * @param maxLatencyMillis     максимальное время операции в миллисекундах
+     * @param active               занятые потоки
+     * @param queued               задачи в очереди
+     */
+    public record Statistics(long completed, long rejected, double averageLatencyMillis, double maxLatencyMillis,
+                             int active, int queued) {
+    }
+}
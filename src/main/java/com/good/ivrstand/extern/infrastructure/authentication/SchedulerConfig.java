@@ -3,21 +3,24 @@ package com.good.ivrstand.extern.infrastructure.authentication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 /**
  * Конфигурация планировщика задач
  */
 @Configuration
+@EnableScheduling
 public class SchedulerConfig {
 
     /**
      * Конфигурирует планировщик задач.
+     * Планировщик выполняет только периодические задачи, сроки токенов отслеживает таймер в TokenService.
      */
     @Bean
     public TaskScheduler taskScheduler() {
         ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
-        taskScheduler.setPoolSize(50);
+        taskScheduler.setPoolSize(4);
         taskScheduler.setThreadNamePrefix("TaskScheduler-");
         return taskScheduler;
     }
@@ -52,7 +52,10 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/items/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/categories/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/additions/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/files/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/bundles/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/notifications/**").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/telegram/webhook").permitAll()
                         .requestMatchers("/auth/**", "/jwt/**").permitAll()
                         .requestMatchers("/users/delete/{userId}", "/users/name/{userId}", "/users/surname/{userId}")
                         .access((authentication, context) -> {
@@ -28,6 +28,9 @@ public class SecurityContextService {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null) {
             Object context = authentication.getPrincipal();
+            if (context instanceof JwtPrincipal principal) {
+                return principal.id() != null && principal.id() == userId;
+            }
             if (context instanceof User contextUser) {
                 String username = contextUser.getUsername();
 
@@ -1,24 +1,42 @@
 package com.good.ivrstand.extern.infrastructure.bot;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
 /**
- * Инициализатор Telegram-бота
+ * Инициализатор Telegram-бота.
+ * В режиме polling бот регистрируется с сессией long polling, в режиме webhook в Telegram устанавливается
+ * адрес вебхука приложения, и обновления принимает {@link TelegramWebhookService}.
  */
 @Slf4j
 @Component
 public class BotInitializer {
 
+    /**
+     * Режим приема обновлений через вебхук
+     */
+    public static final String WEBHOOK_MODE = "webhook";
+
     private final TelegramBot bot;
+    private final String mode;
+    private final String webhookUrl;
+    private final String webhookSecret;
 
-    public BotInitializer(TelegramBot bot) {
+    public BotInitializer(TelegramBot bot,
+                          @Value("${telegram.bot.mode}") String mode,
+                          @Value("${telegram.bot.webhook.url}") String webhookUrl,
+                          @Value("${telegram.bot.webhook.secret}") String webhookSecret) {
         this.bot = bot;
+        this.mode = mode;
+        this.webhookUrl = webhookUrl;
+        this.webhookSecret = webhookSecret;
     }
 
     /**
@@ -27,8 +45,18 @@ public class BotInitializer {
     @EventListener({ContextRefreshedEvent.class})
     public void init() {
         try {
-            TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
-            telegramBotsApi.registerBot(bot);
+            if (WEBHOOK_MODE.equals(mode)) {
+                SetWebhook setWebhook = SetWebhook.builder()
+                        .url(webhookUrl)
+                        .secretToken(webhookSecret)
+                        .build();
+                bot.execute(setWebhook);
+                log.info("Вебхук Telegram-бота установлен: {}", webhookUrl);
+            } else {
+                // При регистрации с сессией long polling ранее установленный вебхук удаляется
+                TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
+                telegramBotsApi.registerBot(bot);
+            }
         } catch (TelegramApiException e) {
             log.error(e.getMessage());
         }
@@ -0,0 +1,274 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import com.good.ivrstand.app.repository.NotificationChatRepository;
+import com.good.ivrstand.app.service.NotificationService;
+import com.good.ivrstand.domain.enumeration.NotificationCategory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервис рассылки вызова помощи в Telegram.
+ * Рассылка выполняется в отдельном пуле, поэтому запрос со стенда не ждет Telegram.
+ * Отправки соблюдают общий лимит Bot API и лимит на чат, а после временных ошибок повторяются.
+ * Повторные вызовы с одного стенда в пределах окна от первого вызова не рассылаются заново: уже отправленные
+ * сообщения правятся, показывая количество вызовов и время последнего. После окна рассылается новое сообщение.
+ */
+@Component
+@Slf4j
+public class HelpBroadcastService {
+
+    private static final String NOT_MODIFIED = "message is not modified";
+
+    private final NotificationChatRepository notificationChatRepository;
+    private final NotificationService notificationService;
+    private final TelegramBot telegramBot;
+    private final Executor telegramBroadcastExecutor;
+    private final TokenBucket globalLimit;
+    private final double chatPerSecond;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration window;
+    private final Clock clock;
+    private final Map<String, TokenBucket> chatLimits = new ConcurrentHashMap<>();
+    private final Map<String, HelpCall> helpCalls = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HelpBroadcastService(NotificationChatRepository notificationChatRepository,
+                                NotificationService notificationService,
+                                TelegramBot telegramBot,
+                                @Qualifier("telegramBroadcastExecutor") Executor telegramBroadcastExecutor,
+                                @Value("${telegram.broadcast.global-per-second}") int globalPerSecond,
+                                @Value("${telegram.broadcast.chat-per-minute}") int chatPerMinute,
+                                @Value("${telegram.broadcast.max-attempts}") int maxAttempts,
+                                @Value("${telegram.broadcast.backoff}") Duration backoff,
+                                @Value("${telegram.help.window}") Duration window) {
+        this(notificationChatRepository, notificationService, telegramBot, telegramBroadcastExecutor,
+                globalPerSecond, chatPerMinute, maxAttempts, backoff, window, Clock.systemDefaultZone());
+    }
+
+    public HelpBroadcastService(NotificationChatRepository notificationChatRepository,
+                                NotificationService notificationService,
+                                TelegramBot telegramBot,
+                                Executor telegramBroadcastExecutor,
+                                int globalPerSecond,
+                                int chatPerMinute,
+                                int maxAttempts,
+                                Duration backoff,
+                                Duration window,
+                                Clock clock) {
+        this.notificationChatRepository = notificationChatRepository;
+        this.notificationService = notificationService;
+        this.telegramBot = telegramBot;
+        this.telegramBroadcastExecutor = telegramBroadcastExecutor;
+        this.globalLimit = new TokenBucket(globalPerSecond, globalPerSecond);
+        this.chatPerSecond = chatPerMinute / 60.0;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.window = window;
+        this.clock = clock;
+    }
+
+    /**
+     * Учитывает вызов помощи при публикации события.
+     * Первый вызов со стенда ставит рассылку в очередь, повторный в пределах окна - обновление разосланных сообщений.
+     * Пока обновление ждет в очереди, новые вызовы только увеличивают счетчик.
+     */
+    @EventListener
+    public void onHelpEvent(HelpEvent event) {
+        Instant now = clock.instant();
+        boolean[] created = {false};
+        HelpCall call = helpCalls.compute(event.getStandId(), (standId, current) -> {
+            if (current != null && current.register(now, window)) {
+                return current;
+            }
+            created[0] = true;
+            return new HelpCall(standId, now);
+        });
+
+        if (created[0]) {
+            submit(() -> broadcastHelp(call));
+        } else if (call.requestUpdate()) {
+            submit(() -> updateHelp(call));
+        }
+    }
+
+    /**
+     * Удаляет вызовы, окно которых истекло.
+     */
+    @Scheduled(fixedDelayString = "${telegram.help.cleanup-interval}")
+    public void evictExpiredCalls() {
+        Instant now = clock.instant();
+        helpCalls.values().removeIf(call -> call.isExpired(now, window));
+    }
+
+    /**
+     * Рассылает сообщение о вызове помощи всем чатам, подписанным на категорию помощи.
+     * Отправка в каждый чат - отдельная задача пула.
+     */
+    void broadcastHelp(HelpCall call) {
+        List<String> chatIds = notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP);
+        if (chatIds.isEmpty()) {
+            log.warn("Нет чатов для отправки сообщения о вызове помощи");
+            return;
+        }
+
+        call.setChatIds(chatIds);
+        for (String chatId : chatIds) {
+            submit(() -> deliver(call, chatId));
+        }
+        log.info("Вызов помощи со стенда {} разослан в {} чатов", call.getStandId(), chatIds.size());
+    }
+
+    /**
+     * Обновляет разосланные сообщения о вызове. Если рассылка еще не выполнена,
+     * сообщения будут отправлены сразу с актуальным счетчиком.
+     */
+    void updateHelp(HelpCall call) {
+        call.startUpdate();
+        List<String> chatIds = call.getChatIds();
+        if (chatIds == null) {
+            return;
+        }
+        for (String chatId : chatIds) {
+            submit(() -> edit(call, chatId));
+        }
+    }
+
+    private void deliver(HelpCall call, String chatId) {
+        try {
+            Message message = execute(chatId, () -> telegramBot.sendMessage(chatId, render(call.show(chatId))));
+            if (message == null) {
+                return;
+            }
+            call.setMessageId(chatId, message.getMessageId());
+            // Вызовы, пришедшие во время отправки, показываются правкой нового сообщения
+            if (call.isOutdated(chatId)) {
+                edit(call, chatId);
+            }
+        } catch (TelegramApiRequestException e) {
+            log.error("Сообщение в чат {} отклонено: {}", chatId, e.getApiResponse());
+        }
+    }
+
+    private void edit(HelpCall call, String chatId) {
+        Integer messageId = call.getMessageId(chatId);
+        if (messageId == null) {
+            // Сообщение еще отправляется и после отправки будет обновлено само
+            return;
+        }
+        try {
+            execute(chatId, () -> {
+                if (call.isOutdated(chatId)) {
+                    telegramBot.editMessage(chatId, messageId, render(call.show(chatId)));
+                }
+                return Boolean.TRUE;
+            });
+        } catch (TelegramApiRequestException e) {
+            if (e.getApiResponse() != null && e.getApiResponse().contains(NOT_MODIFIED)) {
+                return;
+            }
+            // Например, сотрудник удалил сообщение: вызов показывается новым сообщением
+            log.warn("Не удалось изменить сообщение {} в чате {}: {}", messageId, chatId, e.getApiResponse());
+            deliver(call, chatId);
+        }
+    }
+
+    /**
+     * Выполняет запрос к Bot API для чата с учетом лимитов и повторами.
+     * Ответ 429 повторяется через указанное Telegram время, ошибки сервера и сети - с экспоненциальной задержкой.
+     *
+     * @param chatId id чата
+     * @param call   запрос
+     * @return результат запроса или null, если запрос не удался за все попытки
+     * @throws TelegramApiRequestException запрос отклонен (например, бот заблокирован в чате), повтор не поможет
+     */
+    <T> T execute(String chatId, BotCall<T> call) throws TelegramApiRequestException {
+        TokenBucket chatLimit = chatLimits.computeIfAbsent(chatId, id -> new TokenBucket(chatPerSecond, 1));
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!pause(Math.max(globalLimit.reserve(), chatLimit.reserve()))) {
+                return null;
+            }
+            try {
+                return call.execute();
+            } catch (TelegramApiRequestException e) {
+                Integer errorCode = e.getErrorCode();
+                if (errorCode != null && errorCode != 429 && errorCode < 500) {
+                    throw e;
+                }
+                if (attempt < maxAttempts && !pause(retryDelay(e, attempt))) {
+                    return null;
+                }
+            } catch (TelegramApiException e) {
+                if (attempt < maxAttempts && !pause(backoff.multipliedBy(1L << (attempt - 1)).toNanos())) {
+                    return null;
+                }
+            }
+        }
+        log.error("Не удалось выполнить запрос в чат {} за {} попыток", chatId, maxAttempts);
+        return null;
+    }
+
+    private String render(HelpCall.State state) {
+        ZoneId zone = clock.getZone();
+        return notificationService.createHelpMessage(state.standId(), state.count(),
+                LocalDateTime.ofInstant(state.firstCall(), zone), LocalDateTime.ofInstant(state.lastCall(), zone));
+    }
+
+    private long retryDelay(TelegramApiRequestException e, int attempt) {
+        if (e.getParameters() != null && e.getParameters().getRetryAfter() != null) {
+            return TimeUnit.SECONDS.toNanos(e.getParameters().getRetryAfter());
+        }
+        return backoff.multipliedBy(1L << (attempt - 1)).toNanos();
+    }
+
+    private void submit(Runnable task) {
+        try {
+            telegramBroadcastExecutor.execute(task);
+        } catch (TaskRejectedException e) {
+            log.warn("Очередь рассылки Telegram заполнена, сообщение не отправлено");
+        }
+    }
+
+    private static boolean pause(long nanos) {
+        if (nanos <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Запрос к Bot API.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    interface BotCall<T> {
+        T execute() throws TelegramApiException;
+    }
+}
@@ -0,0 +1,119 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Вызов помощи со стенда, объединяющий повторные нажатия в пределах окна.
+ * Окно отсчитывается от первого нажатия, а не от последнего: иначе стенд, на котором нажимают
+ * чаще окна, бесконечно обновлял бы одно старое сообщение и новое уведомление не приходило бы.
+ * Хранит количество нажатий, время первого и последнего и сообщения, уже отправленные в чаты.
+ */
+class HelpCall {
+
+    private final String standId;
+    private final Instant firstCall;
+    private Instant lastCall;
+    private int count = 1;
+    private boolean updatePending;
+    private volatile List<String> chatIds;
+    private final Map<String, Integer> messageIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> shownCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param standId идентификатор стенда
+     * @param time    время первого нажатия
+     */
+    HelpCall(String standId, Instant time) {
+        this.standId = standId;
+        this.firstCall = time;
+        this.lastCall = time;
+    }
+
+    /**
+     * Учитывает повторное нажатие, если с первого прошло не больше окна.
+     *
+     * @return false, если вызов уже завершен и нажатие начинает новый
+     */
+    synchronized boolean register(Instant time, Duration window) {
+        if (isExpired(time, window)) {
+            return false;
+        }
+        count++;
+        lastCall = time;
+        return true;
+    }
+
+    /**
+     * @return true, если с первого нажатия прошло больше окна
+     */
+    synchronized boolean isExpired(Instant time, Duration window) {
+        return firstCall.plus(window).isBefore(time);
+    }
+
+    /**
+     * Отмечает, что сообщения нужно обновить.
+     *
+     * @return true, если обновление еще не запланировано
+     */
+    synchronized boolean requestUpdate() {
+        if (updatePending) {
+            return false;
+        }
+        updatePending = true;
+        return true;
+    }
+
+    /**
+     * Снимает отметку об обновлении перед его выполнением: нажатия во время обновления запланируют следующее.
+     */
+    synchronized void startUpdate() {
+        updatePending = false;
+    }
+
+    /**
+     * Запоминает, какое состояние вызова показывается в чате.
+     *
+     * @return состояние для текста сообщения
+     */
+    synchronized State show(String chatId) {
+        shownCounts.put(chatId, count);
+        return new State(standId, count, firstCall, lastCall);
+    }
+
+    /**
+     * @return true, если в чате показано меньше нажатий, чем было
+     */
+    synchronized boolean isOutdated(String chatId) {
+        return shownCounts.getOrDefault(chatId, 0) < count;
+    }
+
+    String getStandId() {
+        return standId;
+    }
+
+    List<String> getChatIds() {
+        return chatIds;
+    }
+
+    void setChatIds(List<String> chatIds) {
+        this.chatIds = chatIds;
+    }
+
+    Integer getMessageId(String chatId) {
+        return messageIds.get(chatId);
+    }
+
+    void setMessageId(String chatId, int messageId) {
+        messageIds.put(chatId, messageId);
+    }
+
+    /**
+     * Состояние вызова на момент формирования сообщения.
+     */
+    record State(String standId, int count, Instant firstCall, Instant lastCall) {
+    }
+}
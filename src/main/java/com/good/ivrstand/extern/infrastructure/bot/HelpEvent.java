@@ -7,7 +7,21 @@ import org.springframework.context.ApplicationEvent;
  */
 public class HelpEvent extends ApplicationEvent {
 
-    public HelpEvent(Object source) {
+    private final String standId;
+
+    /**
+     * @param source  источник события
+     * @param standId идентификатор стенда, с которого вызвана помощь
+     */
+    public HelpEvent(Object source, String standId) {
         super(source);
+        this.standId = standId;
+    }
+
+    /**
+     * @return идентификатор стенда
+     */
+    public String getStandId() {
+        return standId;
     }
 }
@@ -2,24 +2,26 @@ package com.good.ivrstand.extern.infrastructure.bot;
 
 import com.good.ivrstand.app.repository.NotificationChatRepository;
 import com.good.ivrstand.app.service.NotificationService;
-import com.good.ivrstand.domain.enumeration.NotificationCategory;
 import com.good.ivrstand.domain.NotificationChat;
-import com.good.ivrstand.exception.NoChatsException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Сервис Telegram-бота
+ * Сервис Telegram-бота.
+ * Обновления приходят либо через long polling, либо через вебхук, в зависимости от режима в конфигурации.
  */
 @Component
+@Slf4j
 public class TelegramBot extends TelegramLongPollingBot {
 
     private final NotificationChatRepository notificationChatRepository;
@@ -29,8 +31,9 @@ public class TelegramBot extends TelegramLongPollingBot {
     public TelegramBot(NotificationChatRepository notificationChatRepository,
                        NotificationService notificationService,
                        @Value("${telegram.bot.token}") String botToken,
-                       @Value("${telegram.bot.username}") String username) {
-        super(botToken);
+                       @Value("${telegram.bot.username}") String username,
+                       @Value("${telegram.bot.api-url}") String apiUrl) {
+        super(botOptions(apiUrl), botToken);
         this.username = username;
         this.notificationChatRepository = notificationChatRepository;
         this.notificationService = notificationService;
@@ -68,35 +71,47 @@ public class TelegramBot extends TelegramLongPollingBot {
      * @param id      id чата
      */
     private void sendMessageToChat(String message, String id) {
-        SendMessage tgMessage = new SendMessage();
-        tgMessage.setText(message);
-        tgMessage.setChatId(id);
         try {
-            execute(tgMessage);
+            sendMessage(id, message);
         } catch (TelegramApiException e) {
-            e.printStackTrace();
+            log.error("Ошибка отправки сообщения в чат {}: {}", id, e.getMessage());
         }
     }
 
     /**
-     * Отправляет сообщения о вызове помощи на IVR-стенде при публикации события
+     * Отправляет сообщение в указанный чат.
+     *
+     * @param chatId  id чата
+     * @param message сообщение
+     * @return отправленное сообщение
+     * @throws TelegramApiException ошибка Bot API
      */
-    @EventListener
-    private void sendHelpMessage(HelpEvent event) throws NoChatsException {
-        List<NotificationChat> chats = notificationChatRepository.findAll();
-
-        List<String> chatIds = new ArrayList<>();
-        for (NotificationChat chat : chats) {
-            if (chat.getNotificationCategory() == NotificationCategory.HELP)
-                chatIds.add(chat.getChatId());
-        }
+    public Message sendMessage(String chatId, String message) throws TelegramApiException {
+        SendMessage tgMessage = new SendMessage();
+        tgMessage.setText(message);
+        tgMessage.setChatId(chatId);
+        return execute(tgMessage);
+    }
 
-        if (chatIds.isEmpty()) {
-            throw new NoChatsException("Нет чатов для отправки сообщения!");
-        }
+    /**
+     * Заменяет текст ранее отправленного ботом сообщения.
+     *
+     * @param chatId    id чата
+     * @param messageId id сообщения
+     * @param message   новый текст
+     * @throws TelegramApiException ошибка Bot API
+     */
+    public void editMessage(String chatId, int messageId, String message) throws TelegramApiException {
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(chatId);
+        edit.setMessageId(messageId);
+        edit.setText(message);
+        execute(edit);
+    }
 
-        String message = notificationService.createHelpMessage();
-        for (String chatId : chatIds)
-            sendMessageToChat(message, chatId);
+    private static DefaultBotOptions botOptions(String apiUrl) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(apiUrl);
+        return options;
     }
 }
@@ -0,0 +1,82 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.exception.TelegramUpdateRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.Executor;
+
+/**
+ * Сервис приема обновлений Telegram-бота через вебхук.
+ * Обновление только разбирается и ставится в ограниченный пул, поэтому Telegram получает ответ сразу,
+ * а несколько экземпляров приложения за балансировщиком обрабатывают обновления без конкуренции за getUpdates.
+ */
+@Component
+@ConditionalOnProperty(name = "telegram.bot.mode", havingValue = BotInitializer.WEBHOOK_MODE)
+@Slf4j
+public class TelegramWebhookService {
+
+    private final TelegramBot telegramBot;
+    private final Executor telegramWebhookExecutor;
+    private final byte[] secret;
+    // Bot API добавляет в обновления новые поля, поэтому неизвестные поля не считаются ошибкой
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public TelegramWebhookService(TelegramBot telegramBot,
+                                  @Qualifier("telegramWebhookExecutor") Executor telegramWebhookExecutor,
+                                  @Value("${telegram.bot.webhook.secret}") String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("Для режима вебхука не задан секрет telegram.bot.webhook.secret");
+        }
+        this.telegramBot = telegramBot;
+        this.telegramWebhookExecutor = telegramWebhookExecutor;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Проверяет секрет из заголовка X-Telegram-Bot-Api-Secret-Token. Секреты сравниваются за постоянное время.
+     *
+     * @param presentedSecret секрет из запроса
+     * @return true, если запрос отправлен Telegram
+     */
+    public boolean isSecretValid(String presentedSecret) {
+        return presentedSecret != null
+                && MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает обновление и ставит его обработку в очередь.
+     *
+     * @param body тело запроса Telegram
+     * @throws IOException                     некорректное обновление
+     * @throws TelegramUpdateRejectedException очередь обработки заполнена
+     */
+    public void accept(String body) throws IOException, TelegramUpdateRejectedException {
+        Update update = objectMapper.readValue(body, Update.class);
+        try {
+            telegramWebhookExecutor.execute(() -> process(update));
+        } catch (TaskRejectedException e) {
+            log.warn("Очередь обработки обновлений Telegram заполнена, обновление {} отклонено", update.getUpdateId());
+            throw new TelegramUpdateRejectedException("Очередь обработки обновлений Telegram заполнена");
+        }
+    }
+
+    private void process(Update update) {
+        try {
+            telegramBot.onUpdateReceived(update);
+        } catch (RuntimeException e) {
+            log.error("Ошибка обработки обновления Telegram {}: {}", update.getUpdateId(), e.getMessage());
+        }
+    }
+}
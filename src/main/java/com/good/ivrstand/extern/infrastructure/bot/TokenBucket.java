@@ -0,0 +1,49 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ведро токенов для ограничения частоты отправки сообщений.
+ * Реализовано как алгоритм GCRA: вместо количества токенов хранится теоретическое время следующей отправки,
+ * которое обновляется одной атомарной операцией без блокировок.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param permitsPerSecond разрешенное количество отправок в секунду
+     * @param capacity         сколько отправок можно сделать подряд без ожидания
+     * @param nanoClock        источник времени в наносекундах
+     */
+    public TokenBucket(double permitsPerSecond, int capacity, LongSupplier nanoClock) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = (capacity - 1) * intervalNanos;
+        this.nanoClock = nanoClock;
+        this.theoreticalArrival = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public TokenBucket(double permitsPerSecond, int capacity) {
+        this(permitsPerSecond, capacity, System::nanoTime);
+    }
+
+    /**
+     * Резервирует отправку.
+     *
+     * @return сколько наносекунд нужно подождать перед отправкой, 0 - можно отправлять сразу
+     */
+    public long reserve() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + intervalNanos;
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return Math.max(0, arrival - burstNanos - now);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.good.ivrstand.extern.infrastructure.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -34,4 +35,81 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Конфигурирует пул генерации превью GIF-анимаций.
+     * Пул и очередь ограничены, при переполнении задачи отклоняются, а не выполняются в потоке запроса.
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity емкость очереди
+     */
+    @Bean
+    public Executor gifPreviewExecutor(@Value("${gif-preview.threads}") int threads,
+                                       @Value("${gif-preview.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("GifPreview-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Конфигурирует пул хэширования и проверки паролей.
+     * BCrypt нагружает процессор, поэтому работа с паролями вынесена из потоков обработки запросов
+     * в отдельный ограниченный пул. При заполненной очереди задача сразу отклоняется.
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity емкость очереди
+     */
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashingExecutor(@Value("${password-hashing.threads}") int threads,
+                                                          @Value("${password-hashing.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("PasswordHashing-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Конфигурирует пул рассылки уведомлений в Telegram.
+     * Отправки ждут лимитов Bot API и повторяются после ошибок, поэтому выполняются вне потоков обработки запросов.
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity емкость очереди
+     */
+    @Bean
+    public Executor telegramBroadcastExecutor(@Value("${telegram.broadcast.threads}") int threads,
+                                              @Value("${telegram.broadcast.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("TelegramBroadcast-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Конфигурирует пул обработки обновлений, полученных Telegram-ботом через вебхук.
+     * При заполненной очереди обновление отклоняется, и Telegram повторяет его доставку позже.
+     *
+     * @param threads       количество потоков
+     * @param queueCapacity емкость очереди
+     */
+    @Bean
+    public Executor telegramWebhookExecutor(@Value("${telegram.bot.webhook.threads}") int threads,
+                                            @Value("${telegram.bot.webhook.queue-capacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("TelegramWebhook-");
+        executor.initialize();
+        return executor;
+    }
 }
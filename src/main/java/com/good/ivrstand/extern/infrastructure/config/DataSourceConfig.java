@@ -0,0 +1,102 @@
+package com.good.ivrstand.extern.infrastructure.config;
+
+import com.good.ivrstand.extern.infrastructure.datasource.ReadYourWritesTracker;
+import com.good.ivrstand.extern.infrastructure.datasource.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Конфигурация источников данных: основной пул, пул реплики для чтения и маршрутизация между ними.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Конфигурирует пул соединений основной базы по настройкам spring.datasource.
+     *
+     * @param properties настройки источника данных
+     */
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Конфигурирует пул соединений реплики. Создается, только если задан адрес реплики.
+     *
+     * @param url             адрес реплики
+     * @param username        пользователь
+     * @param password        пароль
+     * @param maximumPoolSize максимальный размер пула
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("!'${datasource-routing.replica.url:}'.isBlank()")
+    public HikariDataSource replicaDataSource(@Value("${datasource-routing.replica.url}") String url,
+                                              @Value("${datasource-routing.replica.username}") String username,
+                                              @Value("${datasource-routing.replica.password}") String password,
+                                              @Value("${datasource-routing.replica.maximum-pool-size}") int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setReadOnly(true);
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+
+    /**
+     * Конфигурирует маршрутизацию: транзакции только для чтения идут в реплику, остальные — в основную базу.
+     *
+     * @param primaryDataSource     основной пул
+     * @param replicaDataSource     пул реплики, если настроен
+     * @param readYourWritesTracker учет изменений каталога
+     */
+    @Bean
+    public RoutingDataSource routingDataSource(@Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+                                               @Qualifier("replicaDataSource") ObjectProvider<HikariDataSource> replicaDataSource,
+                                               ReadYourWritesTracker readYourWritesTracker) {
+        return new RoutingDataSource(primaryDataSource, replicaDataSource.getIfAvailable(), readYourWritesTracker);
+    }
+
+    /**
+     * Источник данных приложения. Соединение берется лениво, при первом запросе,
+     * когда признак readOnly транзакции уже известен маршрутизатору.
+     *
+     * @param routingDataSource маршрутизатор
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(RoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * Возвращает соединение сессии Hibernate в пул после каждой транзакции.
+     * По умолчанию Spring держит соединение до закрытия сессии, а при open-in-view это весь запрос:
+     * соединение, взятое первой транзакцией только для чтения из реплики, досталось бы и следующей
+     * пишущей транзакции. Теперь маршрут выбирается для каждой транзакции заново.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer connectionHandlingCustomizer() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
@@ -0,0 +1,13 @@
+package com.good.ivrstand.extern.infrastructure.config;
+
+import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Конфигурация Feign-клиентов.
+ * Вынесена из главного класса приложения, чтобы срезы контекста в тестах (например, JPA) не поднимали клиентов.
+ */
+@Configuration
+@EnableFeignClients(basePackages = "com.good.ivrstand.extern.infrastructure.clients")
+public class FeignConfig {
+}
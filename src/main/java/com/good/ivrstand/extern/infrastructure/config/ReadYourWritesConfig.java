@@ -0,0 +1,27 @@
+package com.good.ivrstand.extern.infrastructure.config;
+
+import com.good.ivrstand.extern.infrastructure.datasource.ReadYourWritesInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Конфигурация чтения собственных изменений
+ */
+@Configuration
+public class ReadYourWritesConfig implements WebMvcConfigurer {
+
+    private final ReadYourWritesInterceptor readYourWritesInterceptor;
+
+    public ReadYourWritesConfig(ReadYourWritesInterceptor readYourWritesInterceptor) {
+        this.readYourWritesInterceptor = readYourWritesInterceptor;
+    }
+
+    /**
+     * Регистрирует перехватчик, направляющий чтение редактора в основную базу после его изменений.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(readYourWritesInterceptor);
+    }
+}
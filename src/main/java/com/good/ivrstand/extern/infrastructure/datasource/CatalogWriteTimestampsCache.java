@@ -0,0 +1,89 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Метки времени изменения таблиц, которые дополнительно отмечают изменения каталога в {@link ReadYourWritesTracker}.
+ * Hibernate обновляет метки при любом изменении таблицы: сущностей, коллекций, массовых и нативных запросов
+ * с указанными таблицами. preInvalidate вызывается при выполнении изменения, invalidate — после завершения транзакции.
+ */
+class CatalogWriteTimestampsCache implements TimestampsCache {
+
+    private final TimestampsCache delegate;
+
+    private final Supplier<Set<String>> catalogSpacesSupplier;
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    private volatile Set<String> catalogSpaces;
+
+    /**
+     * @param delegate              стандартные метки времени Hibernate
+     * @param catalogSpacesSupplier таблицы каталога; вычисляются при первом изменении, когда модель уже построена
+     * @param readYourWritesTracker учет изменений каталога
+     */
+    CatalogWriteTimestampsCache(TimestampsCache delegate, Supplier<Set<String>> catalogSpacesSupplier,
+                                ReadYourWritesTracker readYourWritesTracker) {
+        this.delegate = delegate;
+        this.catalogSpacesSupplier = catalogSpacesSupplier;
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public TimestampsRegion getRegion() {
+        return delegate.getRegion();
+    }
+
+    @Override
+    public void preInvalidate(String[] spaces, SharedSessionContractImplementor session) {
+        recordCatalogWrite(spaces);
+        delegate.preInvalidate(spaces, session);
+    }
+
+    @Override
+    public void invalidate(String[] spaces, SharedSessionContractImplementor session) {
+        // Отмечаем до снятия блокировки кэша, чтобы между ними не было чтения с реплики
+        recordCatalogWrite(spaces);
+        delegate.invalidate(spaces, session);
+    }
+
+    @Override
+    public boolean isUpToDate(String[] spaces, Long timestamp, SharedSessionContractImplementor session) {
+        return delegate.isUpToDate(spaces, timestamp, session);
+    }
+
+    @Override
+    public boolean isUpToDate(Collection<String> spaces, Long timestamp, SharedSessionContractImplementor session) {
+        return delegate.isUpToDate(spaces, timestamp, session);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public void destroy() {
+        delegate.destroy();
+    }
+
+    private void recordCatalogWrite(String[] spaces) {
+        Set<String> catalog = catalogSpaces;
+        if (catalog == null) {
+            catalog = catalogSpacesSupplier.get();
+            catalogSpaces = catalog;
+        }
+        for (String space : spaces) {
+            if (catalog.contains(space)) {
+                readYourWritesTracker.recordCatalogWrite();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import org.hibernate.cache.internal.TimestampsCacheEnabledImpl;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.TimestampsCacheFactory;
+import org.hibernate.cache.spi.TimestampsRegion;
+import org.hibernate.cfg.CacheSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.metamodel.MappingMetamodel;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Подключает к Hibernate метки времени изменения таблиц, отмечающие изменения каталога.
+ * Каталог — это таблицы сущностей и коллекций, хранящихся в кэше второго уровня.
+ * Метки используются только при включенном кэше запросов.
+ */
+@Component
+public class CatalogWriteTimestampsCacheFactory implements TimestampsCacheFactory, HibernatePropertiesCustomizer {
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public CatalogWriteTimestampsCacheFactory(ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(CacheSettings.QUERY_CACHE_FACTORY, this);
+    }
+
+    @Override
+    public TimestampsCache buildTimestampsCache(CacheImplementor cacheImplementor, TimestampsRegion timestampsRegion) {
+        return new CatalogWriteTimestampsCache(new TimestampsCacheEnabledImpl(timestampsRegion),
+                () -> catalogSpaces(cacheImplementor.getSessionFactory()), readYourWritesTracker);
+    }
+
+    private static Set<String> catalogSpaces(SessionFactoryImplementor sessionFactory) {
+        Set<String> spaces = new HashSet<>();
+        MappingMetamodel metamodel = sessionFactory.getMappingMetamodel();
+        metamodel.forEachEntityDescriptor(persister -> {
+            if (persister.canWriteToCache()) {
+                spaces.addAll(Arrays.asList(persister.getPropertySpaces()));
+            }
+        });
+        metamodel.forEachCollectionDescriptor(persister -> {
+            if (persister.hasCache()) {
+                spaces.addAll(Arrays.asList(persister.getCollectionSpaces()));
+            }
+        });
+        return Set.copyOf(spaces);
+    }
+}
@@ -0,0 +1,16 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+/**
+ * Маршрут соединения с базой данных.
+ */
+public enum DataSourceRoute {
+    /**
+     * Основная база, принимает запись и чтение.
+     */
+    PRIMARY,
+
+    /**
+     * Реплика, принимает только чтение.
+     */
+    REPLICA
+}
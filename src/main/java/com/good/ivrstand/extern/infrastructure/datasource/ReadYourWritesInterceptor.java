@@ -0,0 +1,52 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.security.Principal;
+
+/**
+ * Направляет чтение пользователя в основную базу сразу после его изменений,
+ * чтобы редактор не видел устаревшие данные с реплики.
+ * Изменяющие запросы целиком идут в основную базу: прочитанное в них с отстающей реплики
+ * легло бы в основу записи.
+ */
+@Component
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public ReadYourWritesInterceptor(ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isRead(request)) {
+            RoutingDataSource.pinToPrimary();
+            return true;
+        }
+
+        Principal principal = request.getUserPrincipal();
+        if (principal != null && readYourWritesTracker.hasRecentWrite(principal.getName())) {
+            RoutingDataSource.pinToPrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RoutingDataSource.unpin();
+        Principal principal = request.getUserPrincipal();
+        if (!isRead(request) && principal != null && ex == null && response.getStatus() < 400) {
+            readYourWritesTracker.recordWrite(principal.getName());
+        }
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+    }
+}
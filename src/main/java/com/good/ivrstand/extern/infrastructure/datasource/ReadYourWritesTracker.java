@@ -0,0 +1,79 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Запоминает, когда пользователь последний раз что-то изменял.
+ * Пока не прошло окно задержки реплики, чтение этого пользователя идет в основную базу.
+ * Отдельно запоминается последнее изменение каталога: после него в основную базу идет чтение всех пользователей.
+ * Состояние хранится в памяти экземпляра приложения.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    private final Duration stickyWindow;
+
+    private volatile Long lastCatalogWrite;
+
+    private final Clock clock;
+
+    @Autowired
+    public ReadYourWritesTracker(@Value("${datasource-routing.sticky-window}") Duration stickyWindow) {
+        this(stickyWindow, Clock.systemUTC());
+    }
+
+    public ReadYourWritesTracker(Duration stickyWindow, Clock clock) {
+        this.stickyWindow = stickyWindow;
+        this.clock = clock;
+    }
+
+    /**
+     * Отмечает запись пользователя.
+     *
+     * @param username имя пользователя
+     */
+    public void recordWrite(String username) {
+        long now = clock.millis();
+        lastWrites.put(username, now);
+        lastWrites.values().removeIf(time -> now - time > stickyWindow.toMillis());
+    }
+
+    /**
+     * Проверяет, писал ли пользователь в пределах окна задержки реплики.
+     *
+     * @param username имя пользователя
+     * @return true, если чтение пользователя нужно направить в основную базу
+     */
+    public boolean hasRecentWrite(String username) {
+        Long lastWrite = lastWrites.get(username);
+        return lastWrite != null && clock.millis() - lastWrite <= stickyWindow.toMillis();
+    }
+
+    /**
+     * Отмечает изменение каталога, кем бы оно ни было сделано.
+     * После изменения кэш второго уровня и дерево категорий заполняются заново, и заполнять их
+     * с реплики, которая еще не получила изменение, нельзя: устаревшие данные останутся в кэше.
+     */
+    public void recordCatalogWrite() {
+        lastCatalogWrite = clock.millis();
+    }
+
+    /**
+     * Проверяет, менялся ли каталог в пределах окна задержки реплики.
+     *
+     * @return true, если любое чтение нужно направить в основную базу
+     */
+    public boolean hasRecentCatalogWrite() {
+        Long lastWrite = lastCatalogWrite;
+        return lastWrite != null && clock.millis() - lastWrite <= stickyWindow.toMillis();
+    }
+}
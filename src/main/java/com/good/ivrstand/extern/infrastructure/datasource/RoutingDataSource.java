@@ -0,0 +1,112 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Источник данных, направляющий транзакции только для чтения в пул реплики, а остальные — в основной пул.
+ * Решение принимается при получении соединения, поэтому источник нужно оборачивать в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: иначе соединение берется
+ * до того, как транзакция помечена как readOnly.
+ * Если реплика не настроена, все соединения идут в основной пул.
+ * Сессия Hibernate отдает соединение после каждой транзакции (см. DataSourceConfig), иначе при open-in-view
+ * соединение реплики, выбранное первой транзакцией запроса, использовалось бы и для записи.
+ * <p>
+ * Пока не прошло окно задержки реплики после изменения каталога, все чтение идет в основной пул:
+ * изменение сбрасывает кэши каталога, и чтение с отстающей реплики положило бы в них старые данные.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private final Map<DataSourceRoute, HikariDataSource> pools = new EnumMap<>(DataSourceRoute.class);
+
+    private final Map<DataSourceRoute, LongAdder> routed = new EnumMap<>(DataSourceRoute.class);
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+
+    public RoutingDataSource(HikariDataSource primary, HikariDataSource replica, ReadYourWritesTracker readYourWritesTracker) {
+        this.readYourWritesTracker = readYourWritesTracker;
+        pools.put(DataSourceRoute.PRIMARY, primary);
+        pools.put(DataSourceRoute.REPLICA, replica != null ? replica : primary);
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            routed.put(route, new LongAdder());
+        }
+
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(primary);
+        initialize();
+    }
+
+    /**
+     * Направляет чтение текущего потока в основной пул до вызова {@link #unpin()}.
+     * Нужно, чтобы пользователь сразу видел свои изменения, пока реплика их не догнала.
+     */
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    /**
+     * Снимает привязку текущего потока к основному пулу.
+     */
+    public static void unpin() {
+        PINNED_TO_PRIMARY.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && PINNED_TO_PRIMARY.get() == null
+                && !readYourWritesTracker.hasRecentCatalogWrite()
+                ? DataSourceRoute.REPLICA
+                : DataSourceRoute.PRIMARY;
+        routed.get(route).increment();
+        return route;
+    }
+
+    /**
+     * Возвращает состояние пулов и количество выданных через каждый маршрут соединений.
+     * Если реплика не настроена, маршрут реплики показывает основной пул.
+     *
+     * @return статистика по каждому маршруту
+     */
+    public List<PoolStatistics> getPoolStatistics() {
+        List<PoolStatistics> result = new ArrayList<>();
+        for (DataSourceRoute route : DataSourceRoute.values()) {
+            HikariDataSource pool = pools.get(route);
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            result.add(new PoolStatistics(route,
+                    pool.getPoolName(),
+                    bean != null ? bean.getActiveConnections() : 0,
+                    bean != null ? bean.getIdleConnections() : 0,
+                    bean != null ? bean.getTotalConnections() : 0,
+                    bean != null ? bean.getThreadsAwaitingConnection() : 0,
+                    routed.get(route).sum()));
+        }
+        return result;
+    }
+
+    /**
+     * Статистика пула соединений.
+     *
+     * @param route              маршрут
+     * @param pool               имя пула
+     * @param active             занятые соединения
+     * @param idle               свободные соединения
+     * @param total              всего соединений
+     * @param awaiting           потоки, ожидающие соединения
+     * @param routedConnections  соединения, выданные через маршрут с момента запуска
+     */
+    public record PoolStatistics(DataSourceRoute route, String pool, int active, int idle, int total, int awaiting,
+                                 long routedConnections) {
+    }
+}
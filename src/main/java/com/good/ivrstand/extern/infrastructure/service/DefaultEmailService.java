@@ -1,51 +1,57 @@
 package com.good.ivrstand.extern.infrastructure.service;
 
+import com.good.ivrstand.app.repository.OutboxEmailRepository;
 import com.good.ivrstand.app.service.externinterfaces.EmailService;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import com.good.ivrstand.domain.OutboxEmail;
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Clock;
+import java.time.Instant;
+
 /**
- * Сервис отправки Email
+ * Сервис отправки Email.
+ * Письма не отправляются в потоке запроса, а сохраняются в очередь исходящих,
+ * откуда их отправляет {@link EmailOutboxDispatcher}. Поэтому письмо не теряется при ошибке SMTP или перезапуске.
  */
 @Component
+@Slf4j
 public class DefaultEmailService implements EmailService {
 
-    private final JavaMailSender javaMailSender;
+    private final OutboxEmailRepository outboxEmailRepository;
+
+    private final Clock clock;
 
-    private final String emailFrom;
+    @Autowired
+    public DefaultEmailService(OutboxEmailRepository outboxEmailRepository) {
+        this(outboxEmailRepository, Clock.systemUTC());
+    }
 
-    public DefaultEmailService(JavaMailSender javaMailSender,
-                               @Value("${spring.mail.username}") String emailFrom) {
-        this.javaMailSender = javaMailSender;
-        this.emailFrom = emailFrom;
+    public DefaultEmailService(OutboxEmailRepository outboxEmailRepository, Clock clock) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.clock = clock;
     }
 
     /**
-     * Отправляет сообщение на эл. почту
+     * Ставит сообщение на эл. почту в очередь исходящих
      *
      * @param receiver получатель
      * @param subject тема сообщения
      * @param content текст сообщения
      */
-    @Async
     public void sendEmail(String receiver, String subject, String content) {
-        try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-
-            helper.setFrom(emailFrom);
-            helper.setTo(receiver);
-            helper.setSubject(subject);
-            helper.setText(content, true);
-
-            javaMailSender.send(mimeMessage);
-        } catch (MessagingException e) {
-            e.printStackTrace();
-        }
+        Instant now = clock.instant();
+        OutboxEmail email = outboxEmailRepository.save(OutboxEmail.builder()
+                .receiver(receiver)
+                .subject(subject)
+                .content(content)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .attempts(0)
+                .status(OutboxEmailStatus.PENDING)
+                .build());
+        log.info("Письмо {} поставлено в очередь отправки", email.getId());
     }
 }
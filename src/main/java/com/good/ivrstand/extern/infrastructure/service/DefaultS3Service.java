@@ -1,37 +1,48 @@
 package com.good.ivrstand.extern.infrastructure.service;
 
+import com.good.ivrstand.app.service.MediaUsageService;
 import com.good.ivrstand.app.service.externinterfaces.S3Service;
 import com.good.ivrstand.exception.FileDuplicateException;
 import com.good.ivrstand.exception.NoSuchFileException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.UUID;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Сервис для работы с хранилищем S3.
  */
 @Slf4j
 @Component
+@Profile("!local-storage")
 public class DefaultS3Service implements S3Service {
 
     private final S3Client s3Client;
+    private final MediaUsageService mediaUsageService;
 
     @Value("${yandex.cloud.bucket}")
     private String bucketName;
 
-    public DefaultS3Service(S3Client s3Client) {
+    public DefaultS3Service(S3Client s3Client, MediaUsageService mediaUsageService) {
         this.s3Client = s3Client;
+        this.mediaUsageService = mediaUsageService;
     }
 
     /**
@@ -58,9 +69,36 @@ public class DefaultS3Service implements S3Service {
         int lastDot = fileName.lastIndexOf('.');
         String name = fileName.substring(0, lastDot);
         String extension = fileName.substring(lastDot);
-        String mimeType = multipartFile.getContentType();
 
         String key = folderName + "/" + name + "_" + generateUUID() + extension;
+        return putFile(multipartFile, key);
+    }
+
+    /**
+     * Загружает файл в S3 рядом с уже загруженным: к имени исходного файла перед расширением добавляется суффикс.
+     *
+     * @param multipartFile файл для загрузки
+     * @param url           ссылка на исходный файл
+     * @param suffix        суффикс имени файла
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким именем уже существует
+     */
+    public String uploadFileNextTo(MultipartFile multipartFile, String url, String suffix) throws IOException, FileDuplicateException {
+        return putFile(multipartFile, S3Service.insertSuffix(extractKey(url), suffix));
+    }
+
+    /**
+     * Кладет файл в S3 по указанному ключу и учитывает его в статистике хранилища.
+     *
+     * @param multipartFile файл для загрузки
+     * @param key           ключ файла в S3
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким ключом уже существует
+     */
+    private String putFile(MultipartFile multipartFile, String key) throws IOException, FileDuplicateException {
+        String mimeType = multipartFile.getContentType();
 
         if (!doesFileExist(key)) {
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
@@ -72,7 +110,9 @@ public class DefaultS3Service implements S3Service {
             s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(multipartFile.getInputStream(), multipartFile.getSize()));
             log.info("Файл добавлен в S3.");
 
-            return String.format("https://storage.yandexcloud.net/%s/%s", bucketName, key);
+            String link = getLinkByKey(key);
+            mediaUsageService.recordUpload(link, multipartFile.getSize());
+            return link;
         } else {
             throw new FileDuplicateException("Файл с таким именем уже был добавлен!");
         }
@@ -85,9 +125,7 @@ public class DefaultS3Service implements S3Service {
      * @throws NoSuchFileException если файл не найден
      */
     public void deleteFileByUrl(String url) throws NoSuchFileException {
-        URI uri = URI.create(url);
-        String path = uri.getPath().substring(1);
-        String key = path.substring(path.indexOf(bucketName) + bucketName.length() + 1);
+        String key = extractKey(url);
         if (doesFileExist(key)) {
             DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
                     .bucket(bucketName)
@@ -95,12 +133,109 @@ public class DefaultS3Service implements S3Service {
                     .build();
 
             s3Client.deleteObject(deleteObjectRequest);
+            mediaUsageService.recordDeletion(url);
             log.info("Файл удалён из S3.");
         } else {
             throw new NoSuchFileException("Файл не найден!");
         }
     }
 
+    /**
+     * Открывает поток для чтения файла из S3 по указанному URL.
+     * Содержимое не буферизуется целиком, а читается из ответа S3 по мере чтения потока.
+     *
+     * @param url ссылка на файл
+     * @return поток с содержимым файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    public InputStream downloadFile(String url) throws NoSuchFileException {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(extractKey(url))
+                .build();
+
+        try {
+            return s3Client.getObject(getObjectRequest);
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+    }
+
+    /**
+     * Возвращает размер файла в S3.
+     *
+     * @param url ссылка на файл
+     * @return размер файла в байтах
+     * @throws NoSuchFileException если файл не найден
+     */
+    public long getFileSize(String url) throws NoSuchFileException {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(extractKey(url))
+                .build();
+
+        try {
+            HeadObjectResponse response = s3Client.headObject(headObjectRequest);
+            return response.contentLength();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException("Файл не найден!");
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Открывает поток для чтения части файла из S3.
+     * Из S3 запрашивается только указанный диапазон байт.
+     *
+     * @param url   ссылка на файл
+     * @param start смещение первого байта
+     * @param end   смещение последнего байта включительно
+     * @return поток с указанной частью файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    public InputStream downloadFileRange(String url, long start, long end) throws NoSuchFileException {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(extractKey(url))
+                .range("bytes=" + start + "-" + end)
+                .build();
+
+        try {
+            return s3Client.getObject(getObjectRequest);
+        } catch (NoSuchKeyException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+    }
+
+    /**
+     * Перебирает все файлы бакета постраничным листингом, по 1000 ключей на запрос.
+     *
+     * @param consumer получает ссылку на файл и его размер в байтах
+     */
+    public void forEachFile(ObjLongConsumer<String> consumer) {
+        ListObjectsV2Request listObjectsRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .build();
+
+        s3Client.listObjectsV2Paginator(listObjectsRequest).contents()
+                .forEach(object -> consumer.accept(getLinkByKey(object.key()), object.size()));
+    }
+
+    /**
+     * Извлекает ключ файла в S3 из ссылки на него.
+     *
+     * @param url ссылка на файл
+     * @return ключ файла
+     */
+    private String extractKey(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getPath().substring(1);
+        return path.substring(path.indexOf(bucketName) + bucketName.length() + 1);
+    }
+
     /**
      * Проверяет, существует ли файл в S3.
      *
@@ -135,6 +270,16 @@ public class DefaultS3Service implements S3Service {
      */
     public String getLinkByFile(MultipartFile multipartFile, String folderName) {
         String key = folderName + "/" + multipartFile.getOriginalFilename();
+        return getLinkByKey(key);
+    }
+
+    /**
+     * Возвращает ссылку на файл по его ключу в S3.
+     *
+     * @param key ключ файла
+     * @return ссылка на файл
+     */
+    private String getLinkByKey(String key) {
         return String.format("https://storage.yandexcloud.net/%s/%s", bucketName, key);
     }
 }
@@ -0,0 +1,268 @@
+package com.good.ivrstand.extern.infrastructure.service;
+
+import com.good.ivrstand.app.repository.OutboxEmailRepository;
+import com.good.ivrstand.domain.OutboxEmail;
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Диспетчер очереди исходящих писем.
+ * Письма забираются пакетами, и весь пакет отправляется через одно SMTP-соединение.
+ * Отправленные письма удаляются из очереди, неотправленные повторяются с экспоненциальной задержкой,
+ * а после исчерпания попыток остаются в очереди со статусом {@link OutboxEmailStatus#FAILED}.
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEmailRepository outboxEmailRepository;
+    private final JavaMailSender javaMailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final String emailFrom;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration lease;
+    private final Clock clock;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder totalSendNanos = new LongAdder();
+    private final LongAdder totalDeliveryMillis = new LongAdder();
+    private final AtomicLong maxDeliveryMillis = new AtomicLong();
+
+    @Autowired
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository,
+                                 JavaMailSender javaMailSender,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${spring.mail.username}") String emailFrom,
+                                 @Value("${email-outbox.batch-size}") int batchSize,
+                                 @Value("${email-outbox.max-attempts}") int maxAttempts,
+                                 @Value("${email-outbox.backoff}") Duration backoff,
+                                 @Value("${email-outbox.lease}") Duration lease) {
+        this(outboxEmailRepository, javaMailSender, transactionManager, emailFrom, batchSize, maxAttempts, backoff, lease,
+                Clock.systemUTC());
+    }
+
+    public EmailOutboxDispatcher(OutboxEmailRepository outboxEmailRepository, JavaMailSender javaMailSender,
+                                 PlatformTransactionManager transactionManager, String emailFrom, int batchSize,
+                                 int maxAttempts, Duration backoff, Duration lease, Clock clock) {
+        this.outboxEmailRepository = outboxEmailRepository;
+        this.javaMailSender = javaMailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.emailFrom = emailFrom;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.lease = lease;
+        this.clock = clock;
+    }
+
+    /**
+     * Отправляет письма, которым подошел срок, пока очередь не опустеет.
+     */
+    @Scheduled(fixedDelayString = "${email-outbox.poll-interval}")
+    public void dispatch() {
+        while (dispatchBatch() == batchSize) {
+            log.debug("Отправлен полный пакет писем, берется следующий");
+        }
+    }
+
+    /**
+     * Захватывает и отправляет один пакет писем.
+     *
+     * @return количество писем в пакете
+     */
+    int dispatchBatch() {
+        Instant now = clock.instant();
+        List<OutboxEmail> emails = transactionTemplate.execute(status -> claimBatch(now));
+        if (emails.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxEmail> failed = new ArrayList<>();
+        List<OutboxEmail> queued = new ArrayList<>();
+        List<MimeMessage> messages = new ArrayList<>();
+        for (OutboxEmail email : emails) {
+            try {
+                messages.add(createMessage(email));
+                queued.add(email);
+            } catch (MessagingException e) {
+                // Письмо с некорректным адресом не отправится и при повторе
+                fail(email, e, now, false, failed);
+            }
+        }
+
+        Map<Object, Exception> failures = send(messages);
+        Instant sentAt = clock.instant();
+        List<OutboxEmail> sent = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            OutboxEmail email = queued.get(i);
+            Exception failure = failures.get(messages.get(i));
+            if (failure != null) {
+                fail(email, failure, sentAt, true, failed);
+            } else {
+                sent.add(email);
+                recordDelivery(email, sentAt);
+            }
+        }
+
+        outboxEmailRepository.deleteAllInBatch(sent);
+        outboxEmailRepository.saveAll(failed);
+        log.info("Пакет писем обработан: отправлено {}, не отправлено {}", sent.size(), failed.size());
+        return emails.size();
+    }
+
+    /**
+     * Захватывает пакет писем и загружает захваченные письма.
+     * Выполняется в одной пишущей транзакции, поэтому все чтения идут в основную базу:
+     * отстающая реплика не видит только что захваченных писем, и они ждали бы окончания аренды.
+     *
+     * @param now текущее время
+     * @return захваченные письма
+     */
+    private List<OutboxEmail> claimBatch(Instant now) {
+        List<Long> dueIds = outboxEmailRepository.findDueIds(now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) {
+            return List.of();
+        }
+        String claimId = UUID.randomUUID().toString();
+        if (outboxEmailRepository.claim(dueIds, claimId, now.plus(lease), now) == 0) {
+            return List.of();
+        }
+        return outboxEmailRepository.findByClaimIdOrderById(claimId);
+    }
+
+    /**
+     * Возвращает статистику очереди исходящих писем.
+     *
+     * @return статистика
+     */
+    public Statistics getStatistics() {
+        long deliveredCount = delivered.sum();
+        long batchCount = batches.sum();
+        return new Statistics(
+                outboxEmailRepository.countByStatus(OutboxEmailStatus.PENDING),
+                outboxEmailRepository.countByStatus(OutboxEmailStatus.FAILED),
+                deliveredCount,
+                retried.sum(),
+                abandoned.sum(),
+                batchCount == 0 ? 0 : totalSendNanos.sum() / 1_000_000.0 / batchCount,
+                deliveredCount == 0 ? 0 : (double) totalDeliveryMillis.sum() / deliveredCount,
+                maxDeliveryMillis.get());
+    }
+
+    private MimeMessage createMessage(OutboxEmail email) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+
+        helper.setFrom(emailFrom);
+        helper.setTo(email.getReceiver());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getContent(), true);
+        return mimeMessage;
+    }
+
+    /**
+     * Отправляет пакет через одно SMTP-соединение.
+     *
+     * @return неотправленные письма и причины
+     */
+    private Map<Object, Exception> send(List<MimeMessage> messages) {
+        if (messages.isEmpty()) {
+            return Map.of();
+        }
+        long start = System.nanoTime();
+        try {
+            javaMailSender.send(messages.toArray(new MimeMessage[0]));
+            return Map.of();
+        } catch (MailSendException e) {
+            // Список пуст, если ошибка не относится к конкретным письмам
+            return e.getFailedMessages().isEmpty() ? allFailed(messages, e) : e.getFailedMessages();
+        } catch (MailException e) {
+            return allFailed(messages, e);
+        } finally {
+            batches.increment();
+            totalSendNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(List<MimeMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        messages.forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private void fail(OutboxEmail email, Exception error, Instant now, boolean retry, List<OutboxEmail> failed) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setClaimId(null);
+        email.setLastError(truncate(String.valueOf(error.getMessage())));
+        if (!retry || attempts >= maxAttempts) {
+            email.setStatus(OutboxEmailStatus.FAILED);
+            abandoned.increment();
+            log.error("Письмо {} не отправлено за {} попыток: {}", email.getId(), attempts, error.getMessage());
+        } else {
+            email.setNextAttemptAt(now.plus(backoff.multipliedBy(1L << Math.min(attempts - 1, 20))));
+            retried.increment();
+            log.warn("Ошибка отправки письма {}, попытка {}: {}", email.getId(), attempts, error.getMessage());
+        }
+        failed.add(email);
+    }
+
+    private void recordDelivery(OutboxEmail email, Instant sentAt) {
+        long deliveryMillis = Duration.between(email.getCreatedAt(), sentAt).toMillis();
+        delivered.increment();
+        totalDeliveryMillis.add(deliveryMillis);
+        maxDeliveryMillis.accumulateAndGet(deliveryMillis, Math::max);
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Статистика очереди исходящих писем.
+     *
+     * @param pending                    писем в очереди
+     * @param failed                     писем, не отправленных за все попытки
+     * @param delivered                  отправлено писем
+     * @param retried                    неудачных попыток, после которых назначен повтор
+     * @param abandoned                  писем, для которых попытки исчерпаны
+     * @param averageBatchSendMillis     среднее время отправки пакета через SMTP в миллисекундах
+     * @param averageDeliveryDelayMillis среднее время от постановки письма в очередь до отправки в миллисекундах
+     * @param maxDeliveryDelayMillis     максимальное время от постановки письма в очередь до отправки в миллисекундах
+     */
+    public record Statistics(long pending, long failed, long delivered, long retried, long abandoned,
+                             double averageBatchSendMillis, double averageDeliveryDelayMillis,
+                             long maxDeliveryDelayMillis) {
+    }
+}
@@ -0,0 +1,352 @@
+package com.good.ivrstand.extern.infrastructure.service;
+
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.NoSuchFileException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.ObjLongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Сервис хранения файлов в локальной файловой системе.
+ * Используется вместо S3 на площадках без доступа к объектному хранилищу (профиль local-storage).
+ * <p>
+ * Файлы раскладываются по подкаталогам по первым символам UUID, чтобы не получать
+ * каталоги с сотнями тысяч записей. Запись атомарная: содержимое пишется во временный файл,
+ * сбрасывается на диск и только потом переименовывается в итоговое имя.
+ */
+@Slf4j
+@Component
+@Profile("local-storage")
+public class LocalS3Service implements S3Service {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path rootDirectory;
+    private final String publicUrl;
+    private final String publicPath;
+    private final MediaUsageService mediaUsageService;
+
+    public LocalS3Service(@Value("${local-storage.root}") String rootDirectory,
+                          @Value("${local-storage.public-url}") String publicUrl,
+                          MediaUsageService mediaUsageService) throws IOException {
+        this.mediaUsageService = mediaUsageService;
+        this.rootDirectory = Path.of(rootDirectory).toAbsolutePath().normalize();
+        this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        this.publicPath = URI.create(this.publicUrl).getPath() + "/";
+        Files.createDirectories(this.rootDirectory);
+        log.info("Локальное хранилище файлов: {}", this.rootDirectory);
+    }
+
+    /**
+     * Генерирует UUID.
+     *
+     * @return строковое представление UUID
+     */
+    private static String generateUUID() {
+        UUID uuid = UUID.randomUUID();
+        return uuid.toString();
+    }
+
+    /**
+     * Сохраняет файл в локальное хранилище и возвращает ссылку на него.
+     *
+     * @param multipartFile файл для загрузки
+     * @param folderName    имя папки, в которую будет загружен файл
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким именем уже существует
+     */
+    public String uploadFile(MultipartFile multipartFile, String folderName) throws IOException, FileDuplicateException {
+        String fileName = multipartFile.getOriginalFilename();
+        int lastDot = fileName.lastIndexOf('.');
+        String name = fileName.substring(0, lastDot);
+        String extension = fileName.substring(lastDot);
+
+        String uuid = generateUUID();
+        String key = folderName + "/" + uuid.substring(0, 2) + "/" + uuid.substring(2, 4) + "/" + name + "_" + uuid + extension;
+        return writeFile(multipartFile, key);
+    }
+
+    /**
+     * Сохраняет файл рядом с уже загруженным: к имени исходного файла перед расширением добавляется суффикс.
+     *
+     * @param multipartFile файл для загрузки
+     * @param url           ссылка на исходный файл
+     * @param suffix        суффикс имени файла
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким именем уже существует
+     * @throws NoSuchFileException    если ссылка не относится к хранилищу
+     */
+    public String uploadFileNextTo(MultipartFile multipartFile, String url, String suffix)
+            throws IOException, FileDuplicateException, NoSuchFileException {
+        return writeFile(multipartFile, S3Service.insertSuffix(extractKey(url), suffix));
+    }
+
+    /**
+     * Сохраняет файл по указанному ключу и учитывает его в статистике хранилища.
+     *
+     * @param multipartFile файл для загрузки
+     * @param key           ключ файла
+     * @return ссылка на загруженный файл
+     * @throws IOException            если происходит ошибка ввода/вывода
+     * @throws FileDuplicateException если файл с таким ключом уже существует
+     */
+    private String writeFile(MultipartFile multipartFile, String key) throws IOException, FileDuplicateException {
+        Path target = resolveKey(key);
+
+        if (Files.exists(target)) {
+            throw new FileDuplicateException("Файл с таким именем уже был добавлен!");
+        }
+
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            writeAtomically(inputStream, target);
+        }
+        log.info("Файл добавлен в локальное хранилище.");
+
+        String link = getLinkByKey(key);
+        mediaUsageService.recordUpload(link, multipartFile.getSize());
+        return link;
+    }
+
+    /**
+     * Удаляет файл из локального хранилища по указанному URL.
+     *
+     * @param url ссылка на файл, который нужно удалить
+     * @throws NoSuchFileException если файл не найден
+     */
+    public void deleteFileByUrl(String url) throws NoSuchFileException {
+        Path file = resolveFile(extractKey(url));
+        try {
+            Files.delete(file);
+            mediaUsageService.recordDeletion(url);
+            log.info("Файл удалён из локального хранилища.");
+        } catch (IOException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+    }
+
+    /**
+     * Открывает поток для чтения файла из локального хранилища по указанному URL.
+     *
+     * @param url ссылка на файл
+     * @return поток с содержимым файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    public InputStream downloadFile(String url) throws NoSuchFileException {
+        Path file = resolveFile(extractKey(url));
+        try {
+            return Files.newInputStream(file);
+        } catch (java.nio.file.NoSuchFileException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Возвращает размер файла в локальном хранилище.
+     *
+     * @param url ссылка на файл
+     * @return размер файла в байтах
+     * @throws NoSuchFileException если файл не найден
+     */
+    public long getFileSize(String url) throws NoSuchFileException {
+        Path file = resolveFile(extractKey(url));
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+    }
+
+    /**
+     * Открывает поток для чтения части файла из локального хранилища.
+     *
+     * @param url   ссылка на файл
+     * @param start смещение первого байта
+     * @param end   смещение последнего байта включительно
+     * @return поток с указанной частью файла, который нужно закрыть после чтения
+     * @throws NoSuchFileException если файл не найден
+     */
+    public InputStream downloadFileRange(String url, long start, long end) throws NoSuchFileException {
+        Path file = resolveFile(extractKey(url));
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                channel.position(start);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            return new BoundedInputStream(Channels.newInputStream(channel), end - start + 1);
+        } catch (IOException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+    }
+
+    /**
+     * Перебирает все файлы хранилища. Временные файлы незавершённых загрузок пропускаются.
+     *
+     * @param consumer получает ссылку на файл и его размер в байтах
+     * @throws IOException если каталог хранилища не удалось прочитать
+     */
+    public void forEachFile(ObjLongConsumer<String> consumer) throws IOException {
+        try (Stream<Path> files = Files.walk(rootDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!Files.isRegularFile(file) || file.getFileName().toString().startsWith(".upload-")) {
+                    continue;
+                }
+
+                String key = rootDirectory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+                consumer.accept(getLinkByKey(key), Files.size(file));
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Возвращает ссылку на файл в локальном хранилище.
+     *
+     * @param multipartFile файл, для которого нужно получить ссылку
+     * @param folderName    имя папки, в которой находится файл
+     * @return ссылка на файл
+     */
+    public String getLinkByFile(MultipartFile multipartFile, String folderName) {
+        return publicUrl + "/" + folderName + "/" + multipartFile.getOriginalFilename();
+    }
+
+    /**
+     * Возвращает ссылку на файл по его ключу.
+     *
+     * @param key ключ файла (путь относительно корня хранилища)
+     * @return ссылка на файл
+     */
+    public String getLinkByKey(String key) {
+        return publicUrl + "/" + key;
+    }
+
+    /**
+     * Возвращает путь к существующему файлу по его ключу.
+     *
+     * @param key ключ файла (путь относительно корня хранилища)
+     * @return путь к файлу
+     * @throws NoSuchFileException если файла нет или ключ выходит за пределы хранилища
+     */
+    public Path resolveFile(String key) throws NoSuchFileException {
+        Path file;
+        try {
+            file = resolveKey(key);
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+
+        return file;
+    }
+
+    /**
+     * Извлекает ключ файла из ссылки, выданной этим хранилищем.
+     *
+     * @param url ссылка на файл
+     * @return ключ файла
+     * @throws NoSuchFileException если ссылка не относится к хранилищу
+     */
+    private String extractKey(String url) throws NoSuchFileException {
+        String path = URI.create(url).getPath();
+        if (path == null || !path.startsWith(publicPath)) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+
+        return path.substring(publicPath.length());
+    }
+
+    /**
+     * Преобразует ключ в путь внутри корня хранилища.
+     *
+     * @param key ключ файла
+     * @return путь к файлу
+     * @throws IllegalArgumentException если ключ выходит за пределы хранилища
+     */
+    private Path resolveKey(String key) {
+        Path file = rootDirectory.resolve(key).normalize();
+        if (!file.startsWith(rootDirectory) || file.equals(rootDirectory)) {
+            throw new IllegalArgumentException("Некорректный ключ файла: " + key);
+        }
+
+        return file;
+    }
+
+    /**
+     * Записывает поток во временный файл рядом с целевым, сбрасывает данные на диск
+     * и атомарно переименовывает его в целевой файл.
+     *
+     * @param inputStream содержимое файла
+     * @param target      целевой путь
+     * @throws IOException если происходит ошибка ввода/вывода
+     */
+    private void writeAtomically(InputStream inputStream, Path target) throws IOException {
+        Path directory = target.getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, ".upload-", ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(inputStream)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                channel.force(true);
+            }
+
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(directory);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Сбрасывает на диск запись каталога, чтобы переименование пережило сбой питания.
+     * На платформах, где каталог нельзя открыть как канал, ничего не делает.
+     *
+     * @param directory каталог
+     */
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Не удалось синхронизировать каталог {}", directory);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+-- Исходящие письма сохраняются в базе и отправляются фоновым диспетчером пакетами.
+-- Письмо удаляется после отправки, а после исчерпания попыток остается со статусом FAILED.
+
+create table email_outbox (
+    email_id bigserial not null,
+    receiver varchar(255) not null,
+    subject varchar(255) not null,
+    content text not null,
+    created_at timestamp(6) with time zone not null,
+    next_attempt_at timestamp(6) with time zone not null,
+    attempts integer not null,
+    status varchar(16) not null,
+    claim_id varchar(64),
+    last_error varchar(1000),
+    primary key (email_id)
+);
+
+create index idx_email_outbox_pending on email_outbox (next_attempt_at)
+    where status = 'PENDING';
+create index idx_email_outbox_claim on email_outbox (claim_id)
+    where claim_id is not null;
@@ -0,0 +1,22 @@
+-- Таблица замыкания дерева категорий и учет использования медиафайлов появились после исходной схемы,
+-- поэтому на базах с базовой версией 1 их создает эта миграция. Базы, где таблицы уже создал Hibernate
+-- (ddl-auto: update), не меняются. Пустую таблицу замыкания при запуске заполняет CategoryService.rebuildTreeIfNeeded.
+
+create table if not exists category_closure (
+    depth integer not null,
+    ancestor_id bigint not null,
+    descendant_id bigint not null,
+    primary key (ancestor_id, descendant_id)
+);
+
+create index if not exists idx_category_closure_descendant
+    on category_closure (descendant_id, depth);
+
+create table if not exists media_usage (
+    access_count bigint not null,
+    first_seen_at timestamp(6) with time zone not null,
+    last_accessed_at timestamp(6) with time zone,
+    size_bytes bigint,
+    url TEXT not null,
+    primary key (url)
+);
@@ -0,0 +1,144 @@
+-- Исходная схема в том виде, в каком её создавал Hibernate (ddl-auto: update) до перехода на миграции.
+-- Таблицы, появившиеся позже, создаются следующими миграциями: иначе они не попали бы в базы с базовой версией 1.
+-- На существующих базах эта миграция не выполняется: они получают базовую версию 1 (baseline-on-migrate).
+
+create table addition_audio (
+    addition_id bigint not null,
+    audio varchar(255)
+);
+
+create table addition_icons (
+    addition_id bigint not null,
+    icon_link varchar(255)
+);
+
+create table additions (
+    addition_id bigserial not null,
+    item_id bigint,
+    addition_deschash varchar(255),
+    addition_description TEXT,
+    addition_gif_link varchar(255),
+    addition_gif_preview varchar(255),
+    addition_main_icon_link varchar(255),
+    addition_title TEXT,
+    addition_titleaudio varchar(255),
+    primary key (addition_id)
+);
+
+create table categories (
+    category_id bigserial not null,
+    parent_category_id bigint,
+    cat_gif_link varchar(255),
+    cat_gif_preview varchar(255),
+    cat_main_icon_link varchar(255),
+    cat_titleaudio varchar(255),
+    category_title TEXT,
+    primary key (category_id)
+);
+
+create table item_audio (
+    item_id bigint not null,
+    audio varchar(255)
+);
+
+create table item_icons (
+    item_id bigint not null,
+    icon_link varchar(255)
+);
+
+create table item_keywords (
+    item_id bigint not null,
+    keyword varchar(255)
+);
+
+create table items (
+    category_id bigint,
+    item_id bigserial not null,
+    gif_link varchar(255),
+    gif_preview varchar(255),
+    item_deschash varchar(255),
+    item_description TEXT,
+    item_title TEXT,
+    item_titleaudio varchar(255),
+    main_icon_link varchar(255),
+    primary key (item_id)
+);
+
+create table notification_chats (
+    id bigserial not null,
+    notification_category varchar(255) check (notification_category in ('HELP','SEARCH_ERROR')),
+    notification_chat_id varchar(255),
+    primary key (id)
+);
+
+create table roles (
+    role_id bigserial not null,
+    role_name varchar(255) check (role_name in ('ROLE_USER','ROLE_ADMIN')),
+    primary key (role_id)
+);
+
+create table user_roles (
+    role_id bigint not null,
+    user_id bigint not null
+);
+
+create table users (
+    user_conf boolean,
+    user_id bigserial not null,
+    user_first_name varchar(255),
+    user_last_name varchar(255),
+    user_name varchar(255),
+    user_pass varchar(255),
+    user_reset_token varchar(255),
+    primary key (user_id)
+);
+
+alter table if exists addition_audio
+   add constraint FK1o4pffayq5brdilep71vtf1jb
+   foreign key (addition_id)
+   references additions;
+
+alter table if exists addition_icons
+   add constraint FK6yv9va8vo640bij4jauotmcg3
+   foreign key (addition_id)
+   references additions;
+
+alter table if exists additions
+   add constraint FKn22y0o59vobw49k49b54ir8oy
+   foreign key (item_id)
+   references items;
+
+alter table if exists categories
+   add constraint FK9il7y6fehxwunjeepq0n7g5rd
+   foreign key (parent_category_id)
+   references categories;
+
+alter table if exists item_audio
+   add constraint FKb07089dnidqhh2bqwknhk1tv
+   foreign key (item_id)
+   references items;
+
+alter table if exists item_icons
+   add constraint FKh341qscvwu6qpxcs8bliai30m
+   foreign key (item_id)
+   references items;
+
+alter table if exists item_keywords
+   add constraint FK20ss97ij2rscgrps6rcov7638
+   foreign key (item_id)
+   references items;
+
+alter table if exists items
+   add constraint FKjcdcde7htb3tyjgouo4g9xbmr
+   foreign key (category_id)
+   references categories;
+
+alter table if exists user_roles
+   add constraint FKh8ciramu9cc9q3qcqiv4ue8a6
+   foreign key (role_id)
+   references roles;
+
+alter table if exists user_roles
+   add constraint FKhfh9dx7w3ubf1co1vdev94g3f
+   foreign key (user_id)
+   references users;
@@ -0,0 +1,16 @@
+-- Услуги, категории и дополнения получают идентификаторы из последовательностей с шагом 50
+-- (allocationSize в сущностях), чтобы Hibernate мог вставлять их пакетами.
+-- На старых базах идентификаторы выдавали identity-столбцы: последовательность сдвигается
+-- за максимальный существующий идентификатор, а identity снимается.
+
+create sequence if not exists items_seq start with 1 increment by 50;
+create sequence if not exists categories_seq start with 1 increment by 50;
+create sequence if not exists additions_seq start with 1 increment by 50;
+
+select setval('items_seq', greatest((select coalesce(max(item_id), 0) from items), (select last_value from items_seq)));
+select setval('categories_seq', greatest((select coalesce(max(category_id), 0) from categories), (select last_value from categories_seq)));
+select setval('additions_seq', greatest((select coalesce(max(addition_id), 0) from additions), (select last_value from additions_seq)));
+
+alter table items alter column item_id drop identity if exists;
+alter table categories alter column category_id drop identity if exists;
+alter table additions alter column addition_id drop identity if exists;
@@ -0,0 +1,41 @@
+-- Индексы под запросы репозиториев app/repository. Первичные ключи и индекс таблицы замыкания
+-- (поддерево - по первичному ключу, путь - по idx_category_closure_descendant) уже есть.
+
+-- Услуги категории: страницы и порции findByCategoryId, поиск в поддереве (category_id IN ...),
+-- дерево категорий и проверка ссылок при удалении категории. item_id - для порций по возрастанию идентификатора.
+create index if not exists idx_items_category on items (category_id, item_id);
+
+-- Услуги без категории.
+create index if not exists idx_items_without_category on items (item_id) where category_id is null;
+
+-- Поиск уже озвученного описания (findByHashAndAudioExistence).
+create index if not exists idx_items_deschash on items (item_deschash);
+create index if not exists idx_additions_deschash on additions (addition_deschash);
+
+-- Проставление превью по ссылке на GIF (fillMissingGifPreview) затрагивает только записи без превью.
+create index if not exists idx_items_gif_link on items (gif_link) where gif_preview is null;
+create index if not exists idx_categories_gif_link on categories (cat_gif_link) where cat_gif_preview is null;
+create index if not exists idx_additions_gif_link on additions (addition_gif_link) where addition_gif_preview is null;
+
+-- Подкатегории: childrenCategories, перенос детей при удалении категории, нераспределённые категории.
+create index if not exists idx_categories_parent on categories (parent_category_id);
+
+-- Дополнения услуги: страницы и порции findByItemId, проверка ссылок при удалении услуги.
+create index if not exists idx_additions_item on additions (item_id, addition_id);
+
+-- Коллекции элементов догружаются пакетами по ключу владельца.
+create index if not exists idx_item_icons_item on item_icons (item_id);
+create index if not exists idx_item_keywords_item on item_keywords (item_id);
+create index if not exists idx_item_audio_item on item_audio (item_id);
+create index if not exists idx_addition_icons_addition on addition_icons (addition_id);
+create index if not exists idx_addition_audio_addition on addition_audio (addition_id);
+
+-- Чаты уведомлений по идентификатору чата (findByChatId).
+create index if not exists idx_notification_chats_chat on notification_chats (notification_chat_id);
+
+-- Вход по имени без учёта регистра: findByUsernameIgnoreCase сравнивает upper(user_name).
+create index if not exists idx_users_name_upper on users (upper(user_name));
+
+-- Роли пользователя и пользователи роли.
+create index if not exists idx_user_roles_user on user_roles (user_id, role_id);
+create index if not exists idx_user_roles_role on user_roles (role_id);
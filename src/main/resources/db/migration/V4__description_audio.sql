@@ -0,0 +1,50 @@
+-- Озвучка описаний по хэшу текста, общая для услуг и дополнений.
+-- Проверка, озвучивалось ли описание, - одно чтение по первичному ключу.
+
+create table description_audio (
+    description_hash varchar(255) not null,
+    primary key (description_hash)
+);
+
+create table description_audio_links (
+    description_hash varchar(255) not null,
+    audio_order integer not null,
+    audio varchar(255) not null,
+    primary key (description_hash, audio_order)
+);
+
+alter table if exists description_audio_links
+    add constraint fk_description_audio_links_description
+    foreign key (description_hash)
+    references description_audio;
+
+-- Перенос уже озвученных описаний: для каждого хэша берётся услуга или дополнение с наименьшим идентификатором.
+with sources as (
+    select i.item_deschash as description_hash, 0 as kind, i.item_id as owner_id
+    from items i
+    where i.item_deschash is not null
+      and exists (select 1 from item_audio a where a.item_id = i.item_id)
+    union all
+    select ad.addition_deschash, 1, ad.addition_id
+    from additions ad
+    where ad.addition_deschash is not null
+      and exists (select 1 from addition_audio a where a.addition_id = ad.addition_id)
+),
+chosen as (
+    select distinct on (description_hash) description_hash, kind, owner_id
+    from sources
+    order by description_hash, kind, owner_id
+),
+inserted as (
+    insert into description_audio (description_hash)
+    select description_hash from chosen
+)
+insert into description_audio_links (description_hash, audio_order, audio)
+select c.description_hash, row_number() over (partition by c.description_hash order by l.ord) - 1, l.audio
+from chosen c
+join lateral (
+    select a.audio, a.ctid as ord from item_audio a where c.kind = 0 and a.item_id = c.owner_id
+    union all
+    select a.audio, a.ctid from addition_audio a where c.kind = 1 and a.addition_id = c.owner_id
+) l on true
+where l.audio is not null;
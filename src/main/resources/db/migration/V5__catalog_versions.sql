@@ -0,0 +1,5 @@
+-- Версии услуг, категорий и дополнений для оптимистичной блокировки при частичных изменениях.
+
+alter table items add column item_version bigint not null default 0;
+alter table categories add column cat_version bigint not null default 0;
+alter table additions add column addition_version bigint not null default 0;
@@ -0,0 +1,10 @@
+-- Отзывы токенов доступа: при авторизации по ролям из токена удаление пользователя
+-- и смена его ролей должны действовать сразу. Строки старше срока жизни токена удаляются.
+
+create table token_revocations (
+    user_id bigint not null,
+    revoked_at timestamp(6) with time zone not null,
+    primary key (user_id)
+);
+
+create index idx_token_revocations_revoked_at on token_revocations (revoked_at);
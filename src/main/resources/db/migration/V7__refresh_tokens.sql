@@ -0,0 +1,23 @@
+-- Токены обновления хранятся на сервере в виде хэшей. Обновление - поиск по первичному ключу
+-- и условная пометка использованным вместо проверки пароля через BCrypt.
+
+create table refresh_tokens (
+    token_hash varchar(255) not null,
+    user_id bigint not null,
+    family_id varchar(255) not null,
+    created_at timestamp(6) with time zone not null,
+    expires_at timestamp(6) with time zone not null,
+    used boolean not null,
+    revoked boolean not null,
+    primary key (token_hash)
+);
+
+alter table if exists refresh_tokens
+    add constraint fk_refresh_tokens_user
+    foreign key (user_id)
+    references users
+    on delete cascade;
+
+create index idx_refresh_tokens_family on refresh_tokens (family_id);
+create index idx_refresh_tokens_user on refresh_tokens (user_id);
+create index idx_refresh_tokens_expires_at on refresh_tokens (expires_at);
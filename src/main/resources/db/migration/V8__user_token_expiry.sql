@@ -0,0 +1,11 @@
+-- Токены сброса пароля и подтверждения email хранят время истечения. Проверка токена сравнивает его
+-- с текущим временем, а периодическая очистка находит истекшие токены по частичным индексам.
+
+alter table users add column user_reset_token_expires_at timestamp(6) with time zone;
+alter table users add column user_confirm_token varchar(255);
+alter table users add column user_confirm_token_expires_at timestamp(6) with time zone;
+
+create index idx_users_reset_token_expires_at on users (user_reset_token_expires_at)
+    where user_reset_token_expires_at is not null;
+create index idx_users_confirm_token_expires_at on users (user_confirm_token_expires_at)
+    where user_confirm_token_expires_at is not null;
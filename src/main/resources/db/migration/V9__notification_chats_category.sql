@@ -0,0 +1,2 @@
+-- Рассылка вызова помощи выбирает чаты по категории уведомлений, а не читает всю таблицу.
+create index if not exists idx_notification_chats_category on notification_chats (notification_category, notification_chat_id);
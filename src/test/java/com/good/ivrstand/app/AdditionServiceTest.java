@@ -36,6 +36,18 @@ class AdditionServiceTest {
     @Mock
     private EncodeService encodeService;
 
+
+    @Mock
+    private GifPreviewService gifPreviewService;
+
+    @Mock
+    private DescriptionAudioService descriptionAudioService;
+
+    @BeforeEach
+    void setUp() {
+        when(gifPreviewService.resolvePreview(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
     @Test
     void testCreateAddition() throws Exception {
         Item item = new Item();
@@ -49,11 +61,10 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.save(addition)).thenReturn(addition);
-        when(additionRepository.findByHashAndAudioExistence("hash", PageRequest.of(0, 1)))
-                .thenReturn(Page.empty());
+        when(descriptionAudioService.findAudio("hash")).thenReturn(Optional.empty());
         when(speechService.splitDescription("desc")).thenReturn(new String[]{"desc"});
 
         Addition createdAddition = additionService.createAddition(addition, true);
@@ -62,6 +73,32 @@ class AdditionServiceTest {
         assertEquals("title", createdAddition.getTitle());
         verify(additionRepository).save(addition);
         verify(speechService).generateAudio("title");
+        verify(descriptionAudioService).saveAudio("hash", addition.getAudio());
+    }
+
+    @Test
+    void testUpdateDescriptionReusesAudio() throws Exception {
+        Addition addition = new Addition(1L,
+                "title",
+                "desc",
+                "preview",
+                "gif",
+                new Item(),
+                new ArrayList<>(),
+                "icon",
+                new ArrayList<>(List.of("oldAudio")),
+                "audio",
+                "hash", 0L);
+
+        when(additionRepository.findById(1L)).thenReturn(addition);
+        when(encodeService.generateHashForAudio("New Description")).thenReturn("newHash");
+        when(descriptionAudioService.findAudio("newHash")).thenReturn(Optional.of(List.of("audio1")));
+
+        additionService.updateDescriptionToAddition(1L, "New Description", true);
+
+        assertEquals(List.of("audio1"), addition.getAudio());
+        verify(speechService, never()).generateAudio(any());
+        verify(additionRepository).save(addition);
     }
 
     @Test
@@ -77,7 +114,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -111,7 +148,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -133,14 +170,13 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         String newDescription = "New Description";
 
         when(additionRepository.findById(1L)).thenReturn(addition);
         when(encodeService.generateHashForAudio("New Description")).thenReturn("newHash");
-        when(additionRepository.findByHashAndAudioExistence("newHash", PageRequest.of(0, 1)))
-                .thenReturn(Page.empty());
+        when(descriptionAudioService.findAudio("newHash")).thenReturn(Optional.empty());
         when(speechService.splitDescription("New Description")).thenReturn(new String[]{"New Description"});
 
         additionService.updateDescriptionToAddition(1L, newDescription, true);
@@ -164,7 +200,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -187,7 +223,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -211,7 +247,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -235,7 +271,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -259,7 +295,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -282,7 +318,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -305,7 +341,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -328,7 +364,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -353,7 +389,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 null,
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -377,7 +413,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 null,
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
         when(speechService.generateAudio("title")).thenReturn("audio");
@@ -401,7 +437,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -425,7 +461,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
@@ -448,7 +484,7 @@ class AdditionServiceTest {
                 "icon",
                 new ArrayList<>(),
                 null,
-                "hash");
+                "hash", 0L);
 
         when(additionRepository.findById(1L)).thenReturn(addition);
 
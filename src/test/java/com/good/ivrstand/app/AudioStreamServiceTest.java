@@ -0,0 +1,169 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.service.AudioStreamService;
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.exception.NoSuchFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class AudioStreamServiceTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private MediaUsageService mediaUsageService;
+
+    @InjectMocks
+    private AudioStreamService audioStreamService;
+
+    private final Map<String, byte[]> storage = new HashMap<>();
+
+    @BeforeEach
+    void setUp() throws NoSuchFileException {
+        when(s3Service.getFileSize(anyString())).thenAnswer(invocation -> (long) file(invocation.getArgument(0)).length);
+        when(s3Service.downloadFileRange(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            byte[] content = file(invocation.getArgument(0));
+            int start = (int) (long) invocation.getArgument(1);
+            int end = (int) (long) invocation.getArgument(2);
+            return new ByteArrayInputStream(Arrays.copyOfRange(content, start, end + 1));
+        });
+    }
+
+    private byte[] file(String url) throws NoSuchFileException {
+        byte[] content = storage.get(url);
+        if (content == null) {
+            throw new NoSuchFileException("Файл не найден!");
+        }
+        return content;
+    }
+
+    private byte[] createWav(byte[] data, short sampleRate) {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(36 + data.length);
+        buffer.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(16);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 1);
+        buffer.putInt(sampleRate);
+        buffer.putInt(sampleRate * 2);
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 16);
+        buffer.put("data".getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    private byte[] read(AudioStreamService.AudioLayout layout, long start, long end) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        audioStreamService.write(layout, start, end, output);
+        return output.toByteArray();
+    }
+
+    @Test
+    void testStreamWholeDescription() throws IOException, NoSuchFileException {
+        storage.put("a1", createWav(new byte[]{1, 2, 3, 4}, (short) 16000));
+        storage.put("a2", createWav(new byte[]{5, 6, 7, 8, 9, 10}, (short) 16000));
+
+        AudioStreamService.AudioLayout layout = audioStreamService.getLayout(List.of("a1", "a2"));
+
+        assertEquals(44 + 10, layout.length());
+        byte[] stream = read(layout, 0, layout.length() - 1);
+        ByteBuffer header = ByteBuffer.wrap(stream).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", new String(stream, 0, 4, StandardCharsets.US_ASCII));
+        assertEquals(46, header.getInt(4));
+        assertEquals("data", new String(stream, 36, 4, StandardCharsets.US_ASCII));
+        assertEquals(10, header.getInt(40));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, Arrays.copyOfRange(stream, 44, stream.length));
+    }
+
+    @Test
+    void testStreamRangeAcrossBlocks() throws IOException, NoSuchFileException {
+        storage.put("a1", createWav(new byte[]{1, 2, 3, 4}, (short) 16000));
+        storage.put("a2", createWav(new byte[]{5, 6, 7, 8, 9, 10}, (short) 16000));
+        storage.put("a3", createWav(new byte[]{11, 12}, (short) 16000));
+        AudioStreamService.AudioLayout layout = audioStreamService.getLayout(List.of("a1", "a2", "a3"));
+        clearInvocations(s3Service);
+
+        assertArrayEquals(new byte[]{3, 4, 5, 6, 7, 8, 9, 10, 11}, read(layout, 46, 54));
+
+        verify(s3Service).downloadFileRange("a1", 46, 47);
+        verify(s3Service).downloadFileRange("a2", 44, 49);
+        verify(s3Service).downloadFileRange("a3", 44, 44);
+        verify(mediaUsageService).recordAccess("a1");
+        verify(mediaUsageService).recordAccess("a3");
+    }
+
+    @Test
+    void testStreamRangeSkipsUnrequestedBlocks() throws IOException, NoSuchFileException {
+        storage.put("a1", createWav(new byte[]{1, 2, 3, 4}, (short) 16000));
+        storage.put("a2", createWav(new byte[]{5, 6}, (short) 16000));
+        AudioStreamService.AudioLayout layout = audioStreamService.getLayout(List.of("a1", "a2"));
+        clearInvocations(s3Service);
+
+        assertArrayEquals(new byte[]{6}, read(layout, 49, 49));
+
+        verify(s3Service, never()).downloadFileRange(eq("a1"), anyLong(), anyLong());
+    }
+
+    @Test
+    void testLayoutCached() throws IOException, NoSuchFileException {
+        storage.put("a1", createWav(new byte[]{1, 2}, (short) 16000));
+
+        AudioStreamService.AudioLayout first = audioStreamService.getLayout(List.of("a1"));
+        AudioStreamService.AudioLayout second = audioStreamService.getLayout(List.of("a1"));
+
+        assertSame(first, second);
+        verify(s3Service, times(1)).getFileSize("a1");
+    }
+
+    @Test
+    void testDifferentFormats() {
+        storage.put("a1", createWav(new byte[]{1, 2}, (short) 16000));
+        storage.put("a2", createWav(new byte[]{3, 4}, (short) 22050));
+
+        assertThrows(IOException.class, () -> audioStreamService.getLayout(List.of("a1", "a2")));
+    }
+
+    @Test
+    void testNoAudio() {
+        assertThrows(NoSuchFileException.class, () -> audioStreamService.getLayout(List.of()));
+        assertThrows(NoSuchFileException.class, () -> audioStreamService.getLayout(List.of("missing")));
+    }
+
+    @Test
+    void testNotWav() {
+        storage.put("a1", "not a wav file at all".getBytes(StandardCharsets.US_ASCII));
+
+        assertThrows(IOException.class, () -> audioStreamService.getLayout(List.of("a1")));
+    }
+}
@@ -0,0 +1,254 @@
+package com.good.ivrstand.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.BundleService;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.NoSuchFileException;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class BundleServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private AdditionRepository additionRepository;
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> storage = new HashMap<>();
+
+    private BundleService bundleService;
+
+    private Item item;
+
+    @BeforeEach
+    void setUp() throws IOException, NoSuchFileException {
+        bundleService = new BundleService(categoryRepository, itemRepository, additionRepository, s3Service,
+                objectMapper, entityManager, transactionManager, Runnable::run, directory.toString(), 2);
+
+        Category category = new Category(1L, "category", new ArrayList<>(), new ArrayList<>(), null,
+                null, null, "https://s/icons/cat.png", "https://s/audio/cat.wav", 0L);
+        item = new Item(2L, "title", "desc", null, "https://s/gifs/item.gif", category, new ArrayList<>(),
+                new ArrayList<>(List.of("https://s/icons/icon.png")), "https://s/icons/cat.png",
+                new ArrayList<>(List.of("keyword")), new ArrayList<>(List.of("https://s/audio/desc.wav")), null, "hash", 0L);
+        Addition addition = new Addition(3L, "addition", "text", null, null, item, new ArrayList<>(), null,
+                new ArrayList<>(), null, "hash", 0L);
+
+        when(categoryRepository.findAllByOrderByIdAsc(any(), any())).thenReturn(window(List.of(category), false));
+        when(itemRepository.findAllByOrderByIdAsc(any(), any())).thenReturn(window(List.of(item), false));
+        when(additionRepository.findAllByOrderByIdAsc(any(), any())).thenReturn(window(List.of(addition), false));
+
+        storage.put("https://s/icons/cat.png", "cat-icon");
+        storage.put("https://s/audio/cat.wav", "cat-audio");
+        storage.put("https://s/gifs/item.gif", "item-gif");
+        storage.put("https://s/icons/icon.png", "item-icon");
+        storage.put("https://s/audio/desc.wav", "item-audio");
+        when(s3Service.downloadFile(anyString())).thenAnswer(invocation -> {
+            String content = storage.get(invocation.<String>getArgument(0));
+            if (content == null) {
+                throw new NoSuchFileException("Файл не найден!");
+            }
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    private static <T> Window<T> window(List<T> content, boolean hasNext) {
+        return Window.from(content, index -> ScrollPosition.forward(Map.of("id", (long) index)), hasNext);
+    }
+
+    private JsonNode readEntry(ZipFile zip, String name) throws IOException {
+        ZipEntry entry = zip.getEntry(name);
+        assertNotNull(entry, name);
+        return objectMapper.readTree(zip.getInputStream(entry));
+    }
+
+    @Test
+    void testExportBundle() throws IOException, NoSuchFileException {
+        long version = bundleService.exportBundle();
+
+        assertEquals(version, bundleService.getLatestVersion());
+        try (ZipFile zip = new ZipFile(bundleService.getBundle(version).toFile())) {
+            JsonNode catalog = readEntry(zip, BundleService.CATALOG_ENTRY);
+            assertEquals(1, catalog.get("categories").size());
+            assertEquals(2, catalog.get("items").get(0).get("id").asLong());
+            assertEquals(1, catalog.get("items").get(0).get("categoryId").asLong());
+            assertEquals(2, catalog.get("additions").get(0).get("itemId").asLong());
+
+            JsonNode manifest = readEntry(zip, BundleService.MANIFEST_ENTRY);
+            assertEquals(version, manifest.get("version").asLong());
+            assertTrue(manifest.get("baseVersion").isNull());
+            assertEquals(5, manifest.get("media").size());
+            for (JsonNode media : manifest.get("media")) {
+                ZipEntry entry = zip.getEntry(media.get("entry").asText());
+                String content = new String(zip.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+                assertEquals(storage.get(media.get("url").asText()), content);
+            }
+        }
+
+        assertThrows(NoSuchFileException.class, () -> bundleService.getPatch(version - 1, version));
+    }
+
+    @Test
+    void testExportReadsCatalogByKeyset() throws IOException, NoSuchFileException {
+        List<Item> firstPage = new ArrayList<>();
+        for (long id = 10; id < 110; id++) {
+            firstPage.add(new Item(id, "item " + id, "desc", null, null, null, new ArrayList<>(), new ArrayList<>(),
+                    null, new ArrayList<>(), new ArrayList<>(), null, "hash", 0L));
+        }
+        when(itemRepository.findAllByOrderByIdAsc(any(), any()))
+                .thenReturn(window(firstPage, true))
+                .thenReturn(window(List.of(item), false));
+
+        long version = bundleService.exportBundle();
+
+        ArgumentCaptor<ScrollPosition> positions = ArgumentCaptor.forClass(ScrollPosition.class);
+        verify(itemRepository, times(2)).findAllByOrderByIdAsc(positions.capture(), eq(Limit.of(100)));
+        assertTrue(positions.getAllValues().get(0).isInitial());
+        assertEquals(99L, ((KeysetScrollPosition) positions.getAllValues().get(1)).getKeys().get("id"));
+        // После каждой порции категорий, услуг и дополнений
+        verify(entityManager, times(4)).clear();
+
+        try (ZipFile zip = new ZipFile(bundleService.getBundle(version).toFile())) {
+            assertEquals(101, readEntry(zip, BundleService.CATALOG_ENTRY).get("items").size());
+        }
+    }
+
+    @Test
+    void testExportPatch() throws IOException, NoSuchFileException {
+        long first = bundleService.exportBundle();
+
+        storage.put("https://s/audio/new.wav", "new-audio");
+        item.getAudio().clear();
+        item.getAudio().add("https://s/audio/new.wav");
+        long second = bundleService.exportBundle();
+
+        assertTrue(second > first);
+        try (ZipFile zip = new ZipFile(bundleService.getPatch(first, second).toFile())) {
+            assertNotNull(zip.getEntry(BundleService.CATALOG_ENTRY));
+
+            JsonNode manifest = readEntry(zip, BundleService.MANIFEST_ENTRY);
+            assertEquals(first, manifest.get("baseVersion").asLong());
+            assertEquals(1, manifest.get("media").size());
+            assertEquals("https://s/audio/new.wav", manifest.get("media").get(0).get("url").asText());
+            assertEquals(1, manifest.get("removed").size());
+            assertEquals("https://s/audio/desc.wav", manifest.get("removed").get(0).asText());
+        }
+    }
+
+    @Test
+    void testExportSkipsMissingMedia() throws IOException, NoSuchFileException {
+        long first = bundleService.exportBundle();
+        storage.remove("https://s/gifs/item.gif");
+
+        long second = bundleService.exportBundle();
+
+        try (ZipFile zip = new ZipFile(bundleService.getBundle(second).toFile())) {
+            JsonNode manifest = readEntry(zip, BundleService.MANIFEST_ENTRY);
+            assertEquals(4, manifest.get("media").size());
+            assertEquals("https://s/gifs/item.gif", manifest.get("missing").get(0).asText());
+        }
+        try (ZipFile zip = new ZipFile(bundleService.getPatch(first, second).toFile())) {
+            JsonNode manifest = readEntry(zip, BundleService.MANIFEST_ENTRY);
+            assertEquals(0, manifest.get("removed").size());
+            assertEquals(1, manifest.get("missing").size());
+        }
+    }
+
+    @Test
+    void testExportFailsOnStorageError() throws IOException, NoSuchFileException {
+        when(s3Service.downloadFile("https://s/icons/icon.png")).thenThrow(new IllegalStateException("Хранилище недоступно"));
+
+        assertThrows(IllegalStateException.class, () -> bundleService.exportBundle());
+
+        assertThrows(NoSuchFileException.class, () -> bundleService.getLatestVersion());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testOldBundlesDeleted() throws IOException, NoSuchFileException {
+        long first = bundleService.exportBundle();
+        long second = bundleService.exportBundle();
+        long third = bundleService.exportBundle();
+        long fourth = bundleService.exportBundle();
+
+        assertThrows(NoSuchFileException.class, () -> bundleService.getBundle(first));
+        assertThrows(NoSuchFileException.class, () -> bundleService.getBundle(second));
+        assertThrows(NoSuchFileException.class, () -> bundleService.getPatch(first, second));
+        assertNotNull(bundleService.getBundle(third));
+        assertNotNull(bundleService.getPatch(second, third));
+        assertNotNull(bundleService.getPatch(third, fourth));
+        assertEquals(fourth, bundleService.getLatestVersion());
+    }
+
+    @Test
+    void testLatestVersionWithoutBundles() {
+        assertThrows(NoSuchFileException.class, () -> bundleService.getLatestVersion());
+    }
+
+    @Test
+    void testStartExport() throws NoSuchFileException {
+        assertTrue(bundleService.startExport());
+
+        assertFalse(bundleService.isExportRunning());
+        bundleService.getLatestVersion();
+    }
+}
@@ -0,0 +1,211 @@
+package com.good.ivrstand.app;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.repository.RefreshTokenRepository;
+import com.good.ivrstand.app.service.CacheStatisticsService;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.extern.infrastructure.datasource.CatalogWriteTimestampsCacheFactory;
+import com.good.ivrstand.extern.infrastructure.datasource.ReadYourWritesTracker;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Проверяет кэш второго уровня каталога: повторные чтения не ходят в базу, а записи через сервисы его сбрасывают.
+ * Каждое обращение к репозиторию выполняется в своей транзакции, как в приложении.
+ */
+@DataJpaTest
+@Import({CacheStatisticsService.class, CatalogWriteTimestampsCacheFactory.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogCacheTest {
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+
+    @SpyBean
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Category createCategory(String title, Category parent) {
+        return categoryRepository.save(Category.builder()
+                .title(title)
+                .parentCategory(parent)
+                .itemsInCategory(new ArrayList<>())
+                .childrenCategories(new ArrayList<>())
+                .build());
+    }
+
+    private Item createItem(String title, Category category) {
+        return itemRepository.save(Item.builder()
+                .title(title)
+                .description("description")
+                .category(category)
+                .iconLinks(new ArrayList<>(List.of("icon")))
+                .keywords(new ArrayList<>())
+                .audio(new ArrayList<>())
+                .build());
+    }
+
+    private List<Long> itemIdsInCategory(long categoryId) {
+        return transactionTemplate.execute(status -> categoryRepository.findById(categoryId).getItemsInCategory().stream()
+                .map(Item::getId)
+                .toList());
+    }
+
+    private long countStatements(Runnable scenario) {
+        statistics.clear();
+        scenario.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void testRepeatedReadsServedFromCache() {
+        Category category = createCategory("category", null);
+        Item item = createItem("item", category);
+
+        Runnable read = () -> transactionTemplate.executeWithoutResult(status -> {
+            Item found = itemRepository.findById(item.getId());
+            found.getIconLinks().size();
+            found.getCategory().getTitle();
+            itemRepository.findByCategoryId(category.getId(), PageRequest.of(0, 10)).getContent();
+        });
+
+        assertTrue(countStatements(read) > 0);
+        assertEquals(0, countStatements(read));
+    }
+
+    @Test
+    void testItemMoveEvictsCategoryCollections() {
+        Category first = createCategory("first", null);
+        Category second = createCategory("second", null);
+        Item item = createItem("item", first);
+
+        assertEquals(List.of(item.getId()), itemIdsInCategory(first.getId()));
+        assertEquals(List.of(), itemIdsInCategory(second.getId()));
+        assertEquals(1, itemRepository.findByCategoryId(first.getId(), PageRequest.of(0, 10)).getTotalElements());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Item found = itemRepository.findById(item.getId());
+            found.setCategory(categoryRepository.findById(second.getId()));
+            itemRepository.save(found);
+        });
+
+        assertEquals(List.of(), itemIdsInCategory(first.getId()));
+        assertEquals(List.of(item.getId()), itemIdsInCategory(second.getId()));
+        assertEquals(0, itemRepository.findByCategoryId(first.getId(), PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void testBulkReparentEvictsCategories() {
+        Category root = createCategory("root", null);
+        Category parent = createCategory("parent", root);
+        Category child = createCategory("child", parent);
+
+        assertEquals(parent.getId(), (long) transactionTemplate.execute(status ->
+                categoryRepository.findById(child.getId()).getParentCategory().getId()));
+
+        categoryRepository.reparentChildren(parent.getId(), root);
+
+        assertEquals(root.getId(), (long) transactionTemplate.execute(status ->
+                categoryRepository.findById(child.getId()).getParentCategory().getId()));
+        assertEquals(List.of(), transactionTemplate.execute(status ->
+                categoryRepository.findById(parent.getId()).getChildrenCategories().stream().map(Category::getId).toList()));
+    }
+
+    @Test
+    void testRegionStatistics() {
+        Category category = createCategory("category", null);
+        categoryRepository.findById(category.getId());
+        categoryRepository.findById(category.getId());
+
+        CacheStatisticsService.RegionStatistics queries = cacheStatisticsService.getRegionStatistics().stream()
+                .filter(region -> region.region().equals("catalog-queries"))
+                .findFirst()
+                .orElseThrow();
+
+        assertTrue(queries.hits() > 0);
+        assertTrue(queries.hitRatio() > 0 && queries.hitRatio() <= 1);
+    }
+
+    @Test
+    void testCatalogWritesRecorded() {
+        Category category = createCategory("category", null);
+        verify(readYourWritesTracker, atLeastOnce()).recordCatalogWrite();
+
+        clearInvocations(readYourWritesTracker);
+        categoryRepository.reparentChildren(category.getId(), null);
+        verify(readYourWritesTracker, atLeastOnce()).recordCatalogWrite();
+
+        clearInvocations(readYourWritesTracker);
+        transactionTemplate.execute(status -> categoryRepository.findById(category.getId()));
+        transactionTemplate.execute(status -> refreshTokenRepository.deleteExpired(Instant.now()));
+        verify(readYourWritesTracker, never()).recordCatalogWrite();
+    }
+
+    private CaffeineConfiguration<?, ?> regionConfiguration(String region) {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        JCacheRegionFactory regionFactory = (JCacheRegionFactory) sessionFactory.getCache().getRegionFactory();
+        return regionFactory.getCacheManager().getCache(region).getConfiguration(CaffeineConfiguration.class);
+    }
+
+    @Test
+    void testCatalogRegionsExpire() {
+        for (String region : List.of("catalog-items", "catalog-categories-collections", "catalog-queries")) {
+            CaffeineConfiguration<?, ?> configuration = regionConfiguration(region);
+            assertEquals(TimeUnit.MINUTES.toNanos(5), configuration.getExpireAfterWrite().orElseThrow(), region);
+            assertTrue(configuration.getMaximumSize().isPresent(), region);
+        }
+
+        CaffeineConfiguration<?, ?> timestamps = regionConfiguration("default-update-timestamps-region");
+        assertTrue(timestamps.getExpireAfterWrite().isEmpty());
+        assertEquals(10000, timestamps.getMaximumSize().orElseThrow());
+    }
+}
@@ -0,0 +1,200 @@
+package com.good.ivrstand.app;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.extern.api.assembler.AdditionAssembler;
+import com.good.ivrstand.extern.api.assembler.CategoryAssembler;
+import com.good.ivrstand.extern.api.assembler.ItemAssembler;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет, что количество SQL-запросов на типовые сценарии чтения каталога не растёт с размером страницы.
+ * Кэш второго уровня отключён, чтобы считать запросы самого плана загрузки.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.default_batch_fetch_size=50",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+@Import({ItemAssembler.class, CategoryAssembler.class, AdditionAssembler.class})
+public class CatalogFetchPlanTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private AdditionRepository additionRepository;
+
+    @Autowired
+    private ItemAssembler itemAssembler;
+
+    @Autowired
+    private CategoryAssembler categoryAssembler;
+
+    @Autowired
+    private AdditionAssembler additionAssembler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Statistics statistics;
+
+    private Category parent;
+
+    private final List<Long> itemIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        parent = persistCategory("parent", null);
+        for (int c = 0; c < 5; c++) {
+            Category category = persistCategory("category" + c, parent);
+            persistCategory("child" + c, category);
+            for (int i = 0; i < 4; i++) {
+                Item item = entityManager.persist(Item.builder()
+                        .title("item" + c + i)
+                        .description("description")
+                        .category(category)
+                        .iconLinks(new ArrayList<>(List.of("icon1", "icon2")))
+                        .keywords(new ArrayList<>(List.of("keyword")))
+                        .audio(new ArrayList<>(List.of("audio1", "audio2")))
+                        .build());
+                itemIds.add(item.getId());
+                for (int a = 0; a < 2; a++) {
+                    entityManager.persist(Addition.builder()
+                            .title("addition" + a)
+                            .description("text")
+                            .item(item)
+                            .iconLinks(new ArrayList<>(List.of("icon")))
+                            .audio(new ArrayList<>(List.of("audio")))
+                            .build());
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Category persistCategory(String title, Category parentCategory) {
+        return entityManager.persist(Category.builder()
+                .title(title)
+                .parentCategory(parentCategory)
+                .build());
+    }
+
+    /**
+     * Выполняет сценарий на чистом контексте и возвращает количество подготовленных запросов.
+     * Сценарий собирает ответ теми же ассемблерами, что и контроллер, и сериализует его,
+     * поэтому учитываются все ленивые загрузки при формировании ответа.
+     */
+    private long countStatements(Supplier<?> scenario) {
+        entityManager.clear();
+        statistics.clear();
+        try {
+            objectMapper.writeValueAsString(scenario.get());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countItemsPage(int size) {
+        return countStatements(() -> itemRepository.findAll(PageRequest.of(0, size)).map(itemAssembler::toModel).getContent());
+    }
+
+    private long countCategoriesPage(int size) {
+        return countStatements(() -> categoryRepository.findAll(PageRequest.of(0, size)).map(categoryAssembler::toModel).getContent());
+    }
+
+    @Test
+    void testItemsPageStatementsDoNotGrow() {
+        long small = countItemsPage(2);
+        long large = countItemsPage(20);
+
+        assertEquals(small, large);
+        assertTrue(large <= 6, "Запросов на страницу услуг: " + large);
+    }
+
+    @Test
+    void testItemsInCategoryPageStatementsDoNotGrow() {
+        long categoryId = itemRepository.findById((long) itemIds.get(0)).getCategory().getId();
+
+        long count = countStatements(() -> itemRepository.findByCategoryId(categoryId, PageRequest.of(0, 20))
+                .map(itemAssembler::toModel).getContent());
+
+        assertTrue(count <= 6, "Запросов на страницу услуг категории: " + count);
+    }
+
+    @Test
+    void testItemDetailStatements() {
+        long count = countStatements(() -> itemAssembler.toModel(itemRepository.findById((long) itemIds.get(0))));
+
+        assertTrue(count <= 4, "Запросов на карточку услуги: " + count);
+    }
+
+    @Test
+    void testSearchHitsStatementsDoNotGrow() {
+        long small = countStatements(() -> itemRepository.findByIdIn(itemIds.subList(0, 2)).stream()
+                .map(itemAssembler::toModel).toList());
+        long large = countStatements(() -> itemRepository.findByIdIn(itemIds).stream()
+                .map(itemAssembler::toModel).toList());
+
+        assertEquals(small, large);
+        assertEquals(itemIds.size(), itemRepository.findByIdIn(itemIds).size());
+    }
+
+    @Test
+    void testAdditionsPageStatements() {
+        long count = countStatements(() -> additionRepository.findByItemId(itemIds.get(0), PageRequest.of(0, 20))
+                .map(additionAssembler::toModel).getContent());
+
+        assertTrue(count <= 3, "Запросов на страницу дополнений: " + count);
+    }
+
+    @Test
+    void testCategoryDetailStatements() {
+        long count = countStatements(() -> categoryAssembler.toModel(categoryRepository.findById(parent.getId())));
+
+        assertTrue(count <= 2, "Запросов на карточку категории: " + count);
+    }
+
+    @Test
+    void testCategoriesPageStatementsDoNotGrow() {
+        long small = countCategoriesPage(2);
+        long large = countCategoriesPage(10);
+
+        assertEquals(small, large);
+        assertTrue(large <= 4, "Запросов на страницу категорий: " + large);
+    }
+}
@@ -0,0 +1,239 @@
+package com.good.ivrstand.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.CatalogImportService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.ItemService;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.CatalogImportException;
+import com.good.ivrstand.exception.notfound.CatalogImportNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CatalogImportServiceTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ItemService itemService;
+
+    @Mock
+    private EncodeService encodeService;
+
+    @Mock
+    private CategoryTreeService categoryTreeService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CatalogImportService catalogImportService;
+
+    private final Map<Long, Item> saved = new HashMap<>();
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private boolean runTasks = true;
+
+    @BeforeEach
+    void setUp() {
+        catalogImportService = new CatalogImportService(itemRepository, categoryRepository, itemService, encodeService,
+                categoryTreeService, new ObjectMapper(), transactionManager, task -> {
+            if (runTasks) {
+                task.run();
+            } else {
+                tasks.add(task);
+            }
+        }, 2, 100, 10);
+
+        Category leaf = new Category(1, "leaf", new ArrayList<>(), new ArrayList<>(), null, null, null, null, null, 0L);
+        Category parent = new Category(2, "parent", new ArrayList<>(), new ArrayList<>(List.of(leaf)), null, null, null, null, null, 0L);
+        when(categoryRepository.findById(1L)).thenReturn(leaf);
+        when(categoryRepository.findById(2L)).thenReturn(parent);
+        when(categoryRepository.getReferenceById(1L)).thenReturn(leaf);
+        when(encodeService.generateHashForAudio(anyString())).thenReturn("hash");
+
+        AtomicLong ids = new AtomicLong();
+        when(itemRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Item> items = invocation.getArgument(0);
+            batchSizes.add(items.size());
+            List<Item> result = new ArrayList<>();
+            for (Item item : items) {
+                if (item.getTitle().equals("bad")) {
+                    throw new DataIntegrityViolationException("value too long");
+                }
+                Item copy = new Item(ids.incrementAndGet(), item.getTitle(), item.getDescription(), item.getGifPreview(),
+                        item.getGifLink(), item.getCategory(), item.getAdditions(), item.getIconLinks(), item.getMainIconLink(),
+                        item.getKeywords(), item.getAudio(), item.getTitleAudio(), item.getDescriptionHash(), 0L);
+                result.add(copy);
+            }
+            result.forEach(item -> saved.put(item.getId(), item));
+            return result;
+        });
+        when(itemRepository.findByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> requested = invocation.getArgument(0);
+            return requested.stream().map(saved::get).toList();
+        });
+    }
+
+    private InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private CatalogImportService.ImportReport importJson(String json) throws CatalogImportException, IOException {
+        return catalogImportService.startImport(input(json), CatalogImportService.Format.JSON);
+    }
+
+    private List<Long> errorRecords(CatalogImportService.ImportReport report) {
+        return report.errors().stream().map(CatalogImportService.ImportError::record).toList();
+    }
+
+    @Test
+    void testImportJson() throws CatalogImportException, IOException {
+        CatalogImportService.ImportReport report = importJson("""
+                [
+                  {"title": "first", "description": "d", "categoryId": 1, "keywords": ["a", " "]},
+                  {"title": "", "description": "d"},
+                  {"title": "second", "description": "d"},
+                  {"title": "third", "description": "d", "categoryId": 5},
+                  {"title": "fourth", "description": "d", "categoryId": 2},
+                  {"title": "fifth", "description": "d", "iconLinks": ["icon"]}
+                ]
+                """);
+
+        assertEquals(CatalogImportService.ImportStatus.DONE, report.status());
+        assertEquals(6, report.processed());
+        assertEquals(3, report.imported());
+        assertEquals(3, report.failed());
+        assertEquals(3, report.indexed());
+        assertEquals(List.of(2L, 4L, 5L), errorRecords(report));
+        assertEquals(List.of(2, 1), batchSizes);
+
+        Item first = saved.get(1L);
+        assertEquals(1L, first.getCategory().getId());
+        assertEquals(List.of("a"), first.getKeywords());
+        assertEquals("hash", first.getDescriptionHash());
+        assertEquals(List.of("icon"), saved.get(3L).getIconLinks());
+        verify(itemService, times(3)).addToVectorSearch(any());
+        verify(categoryTreeService).invalidate();
+        verify(categoryRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void testImportCsv() throws CatalogImportException, IOException {
+        CatalogImportService.ImportReport report = catalogImportService.startImport(input("""
+                title,description,categoryId,keywords
+                first,"описание, с запятой",1,a|b
+                second,d,,
+                """), CatalogImportService.Format.CSV);
+
+        assertEquals(CatalogImportService.ImportStatus.DONE, report.status());
+        assertEquals(2, report.imported());
+        assertEquals("описание, с запятой", saved.get(1L).getDescription());
+        assertEquals(List.of("a", "b"), saved.get(1L).getKeywords());
+        assertNull(saved.get(2L).getCategory());
+        assertEquals(List.of(), saved.get(2L).getKeywords());
+    }
+
+    @Test
+    void testFailedBatchSavedOneByOne() throws CatalogImportException, IOException {
+        CatalogImportService.ImportReport report = importJson("""
+                [{"title": "first", "description": "d"}, {"title": "bad", "description": "d"}, {"title": "second", "description": "d"}]
+                """);
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(2L), errorRecords(report));
+        assertTrue(report.errors().get(0).message().contains("value too long"));
+        assertEquals(List.of("first", "second"), saved.values().stream().map(Item::getTitle).toList());
+    }
+
+    @Test
+    void testInvalidRecordSkipped() throws CatalogImportException, IOException {
+        CatalogImportService.ImportReport report = importJson("""
+                [{"title": "first", "description": "d", "categoryId": "abc"}, {"title": "second", "description": "d", "unknown": 1}, {"title": "third", "description": "d"}]
+                """);
+
+        assertEquals(CatalogImportService.ImportStatus.DONE, report.status());
+        assertEquals(List.of(1L, 2L), errorRecords(report));
+        assertEquals(1, report.imported());
+    }
+
+    @Test
+    void testMalformedFileKeepsParsedRecords() throws CatalogImportException, IOException {
+        CatalogImportService.ImportReport report = importJson("""
+                [{"title": "first", "description": "d"}, {"title": "second", "description":
+                """);
+
+        assertEquals(CatalogImportService.ImportStatus.FAILED, report.status());
+        assertNotNull(report.message());
+        assertEquals(1, report.imported());
+        assertEquals(1, report.indexed());
+    }
+
+    @Test
+    void testIndexFailureCounted() throws CatalogImportException, IOException {
+        doThrow(new RuntimeException("qdrant")).doNothing().when(itemService).addToVectorSearch(any());
+
+        CatalogImportService.ImportReport report = importJson("""
+                [{"title": "first", "description": "d"}, {"title": "second", "description": "d"}]
+                """);
+
+        assertEquals(1, report.indexed());
+        assertEquals(1, report.indexFailed());
+        assertEquals(2, report.imported());
+    }
+
+    @Test
+    void testSingleImportAtATime() throws CatalogImportException, IOException, CatalogImportNotFoundException {
+        runTasks = false;
+        CatalogImportService.ImportReport started = importJson("[{\"title\": \"first\", \"description\": \"d\"}]");
+
+        assertEquals(CatalogImportService.ImportStatus.RUNNING, started.status());
+        assertThrows(CatalogImportException.class, () -> importJson("[]"));
+
+        tasks.get(0).run();
+
+        assertEquals(CatalogImportService.ImportStatus.DONE, catalogImportService.getReport(started.id()).status());
+        assertEquals(1, catalogImportService.getReport(started.id()).imported());
+        assertDoesNotThrow(() -> importJson("[]"));
+        assertThrows(CatalogImportNotFoundException.class, () -> catalogImportService.getReport(100));
+        verify(itemRepository, never()).findById(anyLong());
+    }
+}
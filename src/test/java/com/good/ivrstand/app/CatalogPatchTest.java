@@ -0,0 +1,240 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CatalogPatch;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.AdditionService;
+import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.app.service.DescriptionAudioService;
+import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.GifPreviewService;
+import com.good.ivrstand.app.service.ItemService;
+import com.good.ivrstand.app.service.SpeechService;
+import com.good.ivrstand.app.service.externinterfaces.FlaskApiVectorSearchService;
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.CategoryUpdateException;
+import com.good.ivrstand.exception.VersionConflictException;
+import com.good.ivrstand.exception.notfound.ItemNotFoundException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверяет частичные изменения: точечные UPDATE без загрузки сущности, проверку версии и сброс кэша второго уровня.
+ * Каждое обращение к репозиторию выполняется в своей транзакции, как в приложении.
+ */
+@DataJpaTest
+@Import({ItemService.class, CategoryService.class, AdditionService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class CatalogPatchTest {
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private AdditionService additionService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private AdditionRepository additionRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private FlaskApiVectorSearchService flaskApiVectorSearchService;
+
+    @MockBean
+    private SpeechService speechService;
+
+    @MockBean
+    private GifPreviewService gifPreviewService;
+
+    @MockBean
+    private EncodeService encodeService;
+
+    @MockBean
+    private CategoryTreeService categoryTreeService;
+
+    @MockBean
+    private DescriptionAudioService descriptionAudioService;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Тест работает без откатываемой транзакции, поэтому убирает за собой данные и кэш:
+     * контекст переиспользуют другие тесты, а регионы кэша общие для всех контекстов.
+     */
+    @AfterEach
+    void tearDown() {
+        additionRepository.deleteAllInBatch();
+        itemRepository.deleteAllInBatch();
+        categoryRepository.deleteAllInBatch();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private Item createItem(String gifPreview, List<String> iconLinks) {
+        return itemRepository.save(Item.builder()
+                .title("item")
+                .description("description")
+                .gifPreview(gifPreview)
+                .iconLinks(new ArrayList<>(iconLinks))
+                .keywords(new ArrayList<>())
+                .audio(new ArrayList<>())
+                .build());
+    }
+
+    /**
+     * Читает услугу в отдельной транзакции вместе с иконками.
+     */
+    private Item readItem(long itemId) {
+        return transactionTemplate.execute(status -> {
+            Item item = itemRepository.findById(itemId);
+            item.getIconLinks().size();
+            return item;
+        });
+    }
+
+    private <T> T withStatistics(Supplier<T> scenario) {
+        statistics.clear();
+        return scenario.get();
+    }
+
+    @Test
+    void testPatchItemWithoutLoading() throws Exception {
+        Item item = createItem("preview", List.of("a", "b"));
+        assertEquals(List.of("a", "b"), readItem(item.getId()).getIconLinks());
+
+        CatalogPatch patch = new CatalogPatch("gif", null, "main", List.of("c", "a"), List.of("b"));
+        long version = withStatistics(() -> {
+            try {
+                return itemService.patchItem(item.getId(), item.getVersion(), patch);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(item.getVersion() + 1, version);
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(0, statistics.getCollectionLoadCount());
+        assertEquals(4, statistics.getPrepareStatementCount());
+
+        Item patched = readItem(item.getId());
+        assertEquals("gif", patched.getGifLink());
+        assertEquals("preview", patched.getGifPreview());
+        assertEquals("main", patched.getMainIconLink());
+        assertEquals(List.of("a", "c"), patched.getIconLinks());
+        assertEquals(version, patched.getVersion());
+        verify(categoryTreeService).invalidate();
+    }
+
+    @Test
+    void testPatchItemVersionConflict() throws Exception {
+        Item item = createItem(null, List.of());
+        CatalogPatch patch = new CatalogPatch(null, null, "main", null, null);
+
+        itemService.patchItem(item.getId(), item.getVersion(), patch);
+
+        assertThrows(VersionConflictException.class, () -> itemService.patchItem(item.getId(), item.getVersion(), patch));
+        assertThrows(ItemNotFoundException.class, () -> itemService.patchItem(item.getId() + 1000, 0, patch));
+        assertEquals(item.getVersion() + 1, readItem(item.getId()).getVersion());
+    }
+
+    @Test
+    void testPatchItemKnownPreviewAndClear() throws Exception {
+        Item item = createItem(null, List.of());
+        when(gifPreviewService.resolvePreview(any(CatalogPatch.class))).thenReturn("generated");
+
+        long version = itemService.patchItem(item.getId(), item.getVersion(), new CatalogPatch("gif", null, null, null, null));
+        assertEquals("generated", readItem(item.getId()).getGifPreview());
+
+        when(gifPreviewService.resolvePreview(any(CatalogPatch.class))).thenReturn(null);
+        itemService.patchItem(item.getId(), version, new CatalogPatch("", "", null, null, null));
+
+        Item patched = readItem(item.getId());
+        assertNull(patched.getGifLink());
+        assertNull(patched.getGifPreview());
+    }
+
+    @Test
+    void testPatchCategory() throws Exception {
+        Category category = categoryRepository.save(Category.builder()
+                .title("category")
+                .itemsInCategory(new ArrayList<>())
+                .childrenCategories(new ArrayList<>())
+                .build());
+
+        assertThrows(CategoryUpdateException.class, () -> categoryService.patchCategory(category.getId(), category.getVersion(),
+                new CatalogPatch(null, null, null, List.of("icon"), null)));
+
+        categoryService.patchCategory(category.getId(), category.getVersion(), new CatalogPatch(null, "preview", "main", null, null));
+
+        Category patched = categoryRepository.findById(category.getId());
+        assertEquals("preview", patched.getGifPreview());
+        assertEquals("main", patched.getMainIconLink());
+        assertEquals(category.getVersion() + 1, patched.getVersion());
+        verify(categoryTreeService).invalidate();
+    }
+
+    @Test
+    void testPatchAdditionIcons() throws Exception {
+        Item item = createItem(null, List.of());
+        Addition addition = additionRepository.save(Addition.builder()
+                .title("addition")
+                .item(item)
+                .description("description")
+                .iconLinks(new ArrayList<>(List.of("a")))
+                .audio(new ArrayList<>())
+                .build());
+        assertEquals(List.of("a"), transactionTemplate.execute(status ->
+                new ArrayList<>(additionRepository.findById(addition.getId()).getIconLinks())));
+
+        additionService.patchAddition(addition.getId(), addition.getVersion(), new CatalogPatch(null, null, null, List.of("b"), List.of("a")));
+
+        assertEquals(List.of("b"), transactionTemplate.execute(status ->
+                new ArrayList<>(additionRepository.findById(addition.getId()).getIconLinks())));
+    }
+}
@@ -1,7 +1,10 @@
 package com.good.ivrstand.app;
 
+import com.good.ivrstand.app.repository.CategoryClosureRepository;
 import com.good.ivrstand.app.repository.CategoryRepository;
 import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.app.service.GifPreviewService;
 import com.good.ivrstand.app.service.SpeechService;
 import com.good.ivrstand.domain.Category;
 import com.good.ivrstand.domain.Item;
@@ -9,6 +12,7 @@ import com.good.ivrstand.exception.CategoryUpdateException;
 import com.good.ivrstand.exception.FileDuplicateException;
 import com.good.ivrstand.exception.ItemCategoryAddDeleteException;
 import com.good.ivrstand.exception.notfound.CategoryNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -23,6 +27,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,12 +37,27 @@ class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private CategoryClosureRepository categoryClosureRepository;
+
     @Mock
     private SpeechService speechService;
 
     @InjectMocks
     private CategoryService categoryService;
 
+
+    @Mock
+    private GifPreviewService gifPreviewService;
+
+    @Mock
+    private CategoryTreeService categoryTreeService;
+
+    @BeforeEach
+    void setUp() {
+        when(gifPreviewService.resolvePreview(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
     @Test
     void testCreateCategory() throws IOException, FileDuplicateException {
         Category category = new Category(1L,
@@ -48,7 +68,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(speechService.generateAudio("Test Title")).thenReturn("audioLink");
         when(categoryRepository.save(any(Category.class))).thenReturn(category);
@@ -58,6 +78,7 @@ class CategoryServiceTest {
         assertEquals("audioLink", result.getTitleAudio());
         verify(speechService).generateAudio("Test Title");
         verify(categoryRepository).save(category);
+        verify(categoryClosureRepository).addCategory(1L);
     }
 
     @Test
@@ -70,7 +91,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -101,7 +122,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -111,6 +132,23 @@ class CategoryServiceTest {
         verify(categoryRepository).save(category);
     }
 
+    @Test
+    void testDeleteCategoryReparentsChildren() throws CategoryNotFoundException {
+        Category grandparent = new Category(1L, "Grandparent", new ArrayList<>(), new ArrayList<>(), null,
+                "preview", "link", "icon", "audio", 0L);
+        Category category = new Category(2L, "Parent", new ArrayList<>(), new ArrayList<>(), grandparent,
+                "preview", "link", "icon", "audio", 0L);
+
+        when(categoryRepository.findById(2L)).thenReturn(category);
+
+        categoryService.deleteCategory(2L);
+
+        verify(categoryRepository).reparentChildren(2L, grandparent);
+        verify(categoryClosureRepository).shortenPathsThrough(2L);
+        verify(categoryClosureRepository).removeCategory(2L);
+        verify(categoryRepository).deleteById(2L);
+    }
+
     @Test
     void testAddToCategory() throws ItemCategoryAddDeleteException, CategoryNotFoundException {
         Category parent = new Category(1L,
@@ -121,7 +159,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Category child = new Category(2L,
                 "Child",
@@ -131,7 +169,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(parent);
         when(categoryRepository.findById(2L)).thenReturn(child);
@@ -141,6 +179,26 @@ class CategoryServiceTest {
         assertEquals(parent, child.getParentCategory());
         verify(categoryRepository).save(parent);
         verify(categoryRepository).save(child);
+        verify(categoryClosureRepository).attachSubtree(2L, 1L);
+        verify(categoryTreeService).invalidate();
+    }
+
+    @Test
+    void testAddToCategoryDescendant() {
+        Category category = new Category(1L, "Category", new ArrayList<>(), new ArrayList<>(), null,
+                "preview", "link", "icon", "audio", 0L);
+        Category descendant = new Category(2L, "Descendant", new ArrayList<>(), new ArrayList<>(), category,
+                "preview", "link", "icon", "audio", 0L);
+
+        when(categoryRepository.findById(1L)).thenReturn(category);
+        when(categoryRepository.findById(2L)).thenReturn(descendant);
+        when(categoryClosureRepository.existsByAncestorIdAndDescendantId(1L, 2L)).thenReturn(true);
+
+        Exception e = assertThrows(ItemCategoryAddDeleteException.class, () -> categoryService.addToCategory(1L, 2L));
+
+        assertEquals("Категория с id 2 является потомком подкатегории с id 1!", e.getMessage());
+        assertNull(category.getParentCategory());
+        verify(categoryClosureRepository, never()).attachSubtree(anyLong(), anyLong());
     }
 
     @Test
@@ -157,7 +215,7 @@ class CategoryServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         Category parent = new Category(1L,
                 "Parent",
@@ -167,7 +225,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Category child = new Category(2L,
                 "Child",
@@ -177,7 +235,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(parent);
         when(categoryRepository.findById(2L)).thenReturn(child);
@@ -199,7 +257,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Category category1 = new Category(2L,
                 "Child",
@@ -209,7 +267,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Category category2 = new Category(3L,
                 "Child1",
@@ -219,7 +277,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(parent);
         when(categoryRepository.findById(2L)).thenReturn(category1);
@@ -251,7 +309,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Category category2 = new Category(2L,
                 "Child",
@@ -261,7 +319,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
         when(categoryRepository.findById(2L)).thenReturn(category2);
@@ -270,6 +328,40 @@ class CategoryServiceTest {
 
         assertNull(category2.getParentCategory());
         verify(categoryRepository).save(category2);
+        verify(categoryClosureRepository).detachSubtree(2L);
+    }
+
+    @Test
+    void testGetSubtreeNotFound() {
+        when(categoryRepository.findSubtree(1L)).thenReturn(List.of());
+
+        assertThrows(CategoryNotFoundException.class, () -> categoryService.getSubtree(1L));
+    }
+
+    @Test
+    void testGetDepth() throws CategoryNotFoundException {
+        when(categoryClosureRepository.findDepth(1L)).thenReturn(2);
+        when(categoryClosureRepository.findDepth(3L)).thenReturn(null);
+
+        assertEquals(2, categoryService.getDepth(1L));
+        assertThrows(CategoryNotFoundException.class, () -> categoryService.getDepth(3L));
+    }
+
+    @Test
+    void testRebuildTreeIfNeeded() {
+        when(categoryRepository.count()).thenReturn(3L);
+        when(categoryClosureRepository.countRoots()).thenReturn(3L);
+
+        categoryService.rebuildTreeIfNeeded();
+
+        verify(categoryClosureRepository, never()).rebuild();
+
+        when(categoryClosureRepository.countRoots()).thenReturn(0L);
+
+        categoryService.rebuildTreeIfNeeded();
+
+        verify(categoryClosureRepository).clear();
+        verify(categoryClosureRepository).rebuild();
     }
 
     @Test
@@ -282,7 +374,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -303,7 +395,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                null);
+                null, 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
         when(speechService.generateAudio("Test Title")).thenReturn("audioLink");
@@ -324,7 +416,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "existingAudio");
+                "existingAudio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -345,7 +437,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "existingAudio");
+                "existingAudio", 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -365,7 +457,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                null);
+                null, 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -386,7 +478,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                null);
+                null, 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -406,7 +498,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                null);
+                null, 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
@@ -426,7 +518,7 @@ class CategoryServiceTest {
                 "preview",
                 "link",
                 "icon",
-                null);
+                null, 0L);
 
         when(categoryRepository.findById(1L)).thenReturn(category);
 
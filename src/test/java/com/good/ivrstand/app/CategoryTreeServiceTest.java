@@ -0,0 +1,139 @@
+package com.good.ivrstand.app;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.CategorySummary;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.repository.ItemSummary;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class CategoryTreeServiceTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MutableClock clock;
+
+    private CategoryTreeService categoryTreeService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        categoryTreeService = new CategoryTreeService(categoryRepository, itemRepository, objectMapper,
+                Duration.ofMinutes(5), clock);
+
+        when(categoryRepository.findAllSummaries()).thenReturn(List.of(
+                new CategorySummary(1L, null, "root", "icon", "audio"),
+                new CategorySummary(2L, 1L, "child", null, null),
+                new CategorySummary(3L, null, "other", null, null)));
+        when(itemRepository.findAllSummaries()).thenReturn(List.of(
+                new ItemSummary(10L, 2L, "item", "item-icon", null)));
+    }
+
+    @Test
+    void testBuildTree() throws IOException {
+        CategoryTreeService.CategoryTree tree = categoryTreeService.getTree();
+
+        JsonNode roots = objectMapper.readTree(tree.body());
+        assertEquals(2, roots.size());
+        assertEquals("root", roots.get(0).get("title").asText());
+        JsonNode child = roots.get(0).get("children").get(0);
+        assertEquals(2, child.get("id").asLong());
+        assertEquals(10, child.get("items").get(0).get("id").asLong());
+        assertEquals("item-icon", child.get("items").get(0).get("mainIconLink").asText());
+        assertEquals(0, roots.get(1).get("children").size());
+        assertTrue(tree.etag().startsWith("\""));
+    }
+
+    @Test
+    void testTreeCachedUntilInvalidated() throws IOException {
+        CategoryTreeService.CategoryTree first = categoryTreeService.getTree();
+        CategoryTreeService.CategoryTree second = categoryTreeService.getTree();
+
+        assertSame(first, second);
+        verify(categoryRepository, times(1)).findAllSummaries();
+
+        when(itemRepository.findAllSummaries()).thenReturn(List.of());
+        categoryTreeService.invalidate();
+        CategoryTreeService.CategoryTree third = categoryTreeService.getTree();
+
+        assertNotSame(first, third);
+        assertNotEquals(first.etag(), third.etag());
+        verify(categoryRepository, times(2)).findAllSummaries();
+    }
+
+    @Test
+    void testSameContentSameEtag() throws IOException {
+        CategoryTreeService.CategoryTree first = categoryTreeService.getTree();
+        categoryTreeService.invalidate();
+        CategoryTreeService.CategoryTree second = categoryTreeService.getTree();
+
+        assertEquals(first.etag(), second.etag());
+    }
+
+    @Test
+    void testTreeRebuiltAfterTtl() throws IOException {
+        CategoryTreeService.CategoryTree first = categoryTreeService.getTree();
+
+        clock.advance(Duration.ofMinutes(4));
+        assertSame(first, categoryTreeService.getTree());
+
+        // Изменение через другой экземпляр: поколение здесь не менялось
+        when(itemRepository.findAllSummaries()).thenReturn(List.of());
+        clock.advance(Duration.ofMinutes(1));
+        CategoryTreeService.CategoryTree second = categoryTreeService.getTree();
+
+        assertNotEquals(first.etag(), second.etag());
+        verify(categoryRepository, times(2)).findAllSummaries();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
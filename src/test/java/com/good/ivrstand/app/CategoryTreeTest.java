@@ -0,0 +1,163 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.CategoryClosureRepository;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.app.service.GifPreviewService;
+import com.good.ivrstand.app.service.SpeechService;
+import com.good.ivrstand.app.service.externinterfaces.FlaskApiVectorSearchService;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import com.good.ivrstand.exception.ItemCategoryAddDeleteException;
+import com.good.ivrstand.exception.notfound.CategoryNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет обслуживание таблицы замыкания дерева категорий на реальной базе.
+ */
+@DataJpaTest
+@Import(CategoryService.class)
+public class CategoryTreeTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryClosureRepository categoryClosureRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @MockBean
+    private FlaskApiVectorSearchService flaskApiVectorSearchService;
+
+    @MockBean
+    private SpeechService speechService;
+
+    @MockBean
+    private GifPreviewService gifPreviewService;
+
+    @MockBean
+    private CategoryTreeService categoryTreeService;
+
+    private Category root;
+    private Category first;
+    private Category second;
+    private Category third;
+    private Category other;
+
+    @BeforeEach
+    void setUp() throws ItemCategoryAddDeleteException, CategoryNotFoundException {
+        root = createCategory("root");
+        first = createCategory("first");
+        second = createCategory("second");
+        third = createCategory("third");
+        other = createCategory("other");
+
+        categoryService.addToCategory(first.getId(), root.getId());
+        categoryService.addToCategory(second.getId(), first.getId());
+        categoryService.addToCategory(third.getId(), second.getId());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Category createCategory(String title) {
+        return categoryService.createCategory(Category.builder()
+                .title(title)
+                .itemsInCategory(new ArrayList<>())
+                .childrenCategories(new ArrayList<>())
+                .build(), false);
+    }
+
+    private List<Long> ids(List<Category> categories) {
+        return categories.stream().map(Category::getId).toList();
+    }
+
+    @Test
+    void testTreeQueries() throws CategoryNotFoundException {
+        assertEquals(List.of(root.getId(), first.getId(), second.getId(), third.getId()), ids(categoryService.getPath(third.getId())));
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), ids(categoryService.getSubtree(first.getId())));
+        assertEquals(3, categoryService.getDepth(third.getId()));
+        assertEquals(0, categoryService.getDepth(other.getId()));
+        assertEquals(List.of(other.getId()), ids(categoryService.getSubtree(other.getId())));
+    }
+
+    @Test
+    void testAddAncestorToDescendant() {
+        assertThrows(ItemCategoryAddDeleteException.class, () -> categoryService.addToCategory(root.getId(), third.getId()));
+    }
+
+    @Test
+    void testRemoveFromCategory() throws ItemCategoryAddDeleteException, CategoryNotFoundException {
+        categoryService.removeFromCategory(second.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(second.getId(), third.getId()), ids(categoryService.getPath(third.getId())));
+        assertEquals(List.of(root.getId(), first.getId()), ids(categoryService.getSubtree(root.getId())));
+        assertEquals(1, categoryService.getDepth(third.getId()));
+    }
+
+    @Test
+    void testDeleteCategory() throws CategoryNotFoundException {
+        categoryService.deleteCategory(first.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(root.getId(), categoryRepository.findById((long) second.getId()).getParentCategory().getId());
+        assertEquals(List.of(root.getId(), second.getId(), third.getId()), ids(categoryService.getPath(third.getId())));
+        assertEquals(2, categoryService.getDepth(third.getId()));
+        assertThrows(CategoryNotFoundException.class, () -> categoryService.getDepth(first.getId()));
+    }
+
+    @Test
+    void testRebuildTree() throws CategoryNotFoundException {
+        categoryClosureRepository.clear();
+
+        categoryService.rebuildTreeIfNeeded();
+
+        assertEquals(List.of(root.getId(), first.getId(), second.getId(), third.getId()), ids(categoryService.getPath(third.getId())));
+        assertEquals(3, categoryService.getDepth(third.getId()));
+        assertEquals(5, categoryClosureRepository.countRoots());
+    }
+
+    @Test
+    void testItemsInCategoryTree() {
+        for (Category category : List.of(root, second, third, other)) {
+            entityManager.persist(Item.builder()
+                    .title("item " + category.getTitle())
+                    .description("description")
+                    .category(categoryRepository.findById(category.getId()))
+                    .build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<String> titles = itemRepository.findInCategoryTree(first.getId(), PageRequest.of(0, 10))
+                .map(Item::getTitle)
+                .getContent();
+
+        assertEquals(2, titles.size());
+        assertTrue(titles.containsAll(List.of("item second", "item third")));
+    }
+}
@@ -0,0 +1,104 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.DescriptionAudioRepository;
+import com.good.ivrstand.app.service.DescriptionAudioService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сохранение и поиск озвучки описаний. Сохранение использует ON CONFLICT, поэтому H2 запускается в режиме PostgreSQL.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:description-audio;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password="
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DescriptionAudioService.class)
+public class DescriptionAudioServiceTest {
+
+    @Autowired
+    private DescriptionAudioService descriptionAudioService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DescriptionAudioRepository descriptionAudioRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testSaveAndFindAudio() {
+        descriptionAudioService.saveAudio("hash", List.of("audio2", "audio1", "audio3"));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertEquals(Optional.of(List.of("audio2", "audio1", "audio3")), descriptionAudioService.findAudio("hash"));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindUnknownAudio() {
+        assertEquals(Optional.empty(), descriptionAudioService.findAudio("unknown"));
+        assertEquals(Optional.empty(), descriptionAudioService.findAudio(null));
+    }
+
+    @Test
+    void testEmptyAudioNotSaved() {
+        descriptionAudioService.saveAudio("hash", List.of());
+        descriptionAudioService.saveAudio(null, List.of("audio"));
+
+        assertEquals(Optional.empty(), descriptionAudioService.findAudio("hash"));
+    }
+
+    @Test
+    void testDuplicateKeepsSavedAudio() {
+        descriptionAudioService.saveAudio("hash", List.of("first"));
+        descriptionAudioService.saveAudio("hash", List.of("second", "third"));
+        entityManager.clear();
+
+        assertEquals(Optional.of(List.of("first")), descriptionAudioService.findAudio("hash"));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testDuplicateDoesNotRollBackCallerTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            // Как создание услуги: озвучка сохраняется внутри транзакции вызывающего
+            transactionTemplate.executeWithoutResult(status -> {
+                descriptionAudioService.saveAudio("committed", List.of("first"));
+                descriptionAudioService.saveAudio("committed", List.of("second"));
+                assertFalse(status.isRollbackOnly());
+            });
+
+            assertEquals(Optional.of(List.of("first")), descriptionAudioService.findAudio("committed"));
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> descriptionAudioRepository.deleteById("committed"));
+        }
+    }
+}
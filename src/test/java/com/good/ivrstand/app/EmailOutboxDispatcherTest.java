@@ -0,0 +1,206 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.OutboxEmailRepository;
+import com.good.ivrstand.domain.OutboxEmail;
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
+import com.good.ivrstand.extern.infrastructure.service.DefaultEmailService;
+import com.good.ivrstand.extern.infrastructure.service.EmailOutboxDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+public class EmailOutboxDispatcherTest {
+
+    private static final Duration BACKOFF = Duration.ofSeconds(30);
+
+    @Autowired
+    private OutboxEmailRepository outboxEmailRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private FakeSmtpServer smtpServer;
+
+    private MutableClock clock;
+
+    private DefaultEmailService emailService;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtpServer = new FakeSmtpServer();
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(smtpServer.getPort());
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        clock = new MutableClock();
+        emailService = new DefaultEmailService(outboxEmailRepository, clock);
+        dispatcher = new EmailOutboxDispatcher(outboxEmailRepository, mailSender, transactionManager, "ivr@mail.ru",
+                10, 3, BACKOFF, Duration.ofMinutes(5), clock);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        smtpServer.close();
+    }
+
+    @Test
+    void testEmailIsQueuedWithoutSending() {
+        emailService.sendEmail("user@mail.ru", "Тема", "<p>Текст</p>");
+
+        List<OutboxEmail> emails = outboxEmailRepository.findAll();
+        assertEquals(1, emails.size());
+        assertEquals(OutboxEmailStatus.PENDING, emails.get(0).getStatus());
+        assertEquals(0, smtpServer.getConnections());
+    }
+
+    @Test
+    void testBatchIsSentOverOneConnection() {
+        for (int i = 0; i < 25; i++) {
+            emailService.sendEmail("user" + i + "@mail.ru", "Subject " + i, "<p>Текст</p>");
+        }
+        clock.advance(Duration.ofSeconds(2));
+
+        dispatcher.dispatch();
+
+        assertEquals(25, smtpServer.getMessages().size());
+        assertEquals(3, smtpServer.getConnections());
+        assertEquals(List.of("user0@mail.ru"), smtpServer.getMessages().get(0).recipients());
+        assertTrue(smtpServer.getMessages().get(0).data().contains("Subject: Subject 0"));
+        assertEquals(0, outboxEmailRepository.count());
+
+        EmailOutboxDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertEquals(0, statistics.pending());
+        assertEquals(25, statistics.delivered());
+        assertEquals(2000, statistics.averageDeliveryDelayMillis());
+        assertEquals(2000, statistics.maxDeliveryDelayMillis());
+    }
+
+    @Test
+    void testClaimAndLoadRunInOneWriteTransaction() {
+        OutboxEmailRepository repository = mock(OutboxEmailRepository.class);
+        PlatformTransactionManager manager = mock(PlatformTransactionManager.class);
+        when(repository.findDueIds(any(), any(Pageable.class))).thenReturn(List.of(1L));
+        when(repository.claim(anyList(), anyString(), any(), any())).thenReturn(1);
+        when(repository.findByClaimIdOrderById(anyString())).thenReturn(List.of());
+        EmailOutboxDispatcher mocked = new EmailOutboxDispatcher(repository, new JavaMailSenderImpl(), manager,
+                "ivr@mail.ru", 10, 3, BACKOFF, Duration.ofMinutes(5), clock);
+
+        mocked.dispatch();
+
+        // Загрузка захваченных писем не должна уйти в отстающую реплику отдельной транзакцией только для чтения
+        InOrder order = inOrder(manager, repository);
+        order.verify(manager).getTransaction(argThat((TransactionDefinition definition) -> !definition.isReadOnly()));
+        order.verify(repository).findDueIds(any(), any(Pageable.class));
+        order.verify(repository).claim(anyList(), anyString(), any(), any());
+        order.verify(repository).findByClaimIdOrderById(anyString());
+        order.verify(manager).commit(any());
+    }
+
+    @Test
+    void testRetriesWithBackoff() {
+        smtpServer.setAvailable(false);
+        emailService.sendEmail("user@mail.ru", "Subject", "<p>Текст</p>");
+
+        dispatcher.dispatch();
+
+        OutboxEmail email = outboxEmailRepository.findAll().get(0);
+        assertEquals(1, email.getAttempts());
+        assertEquals(clock.instant().plus(BACKOFF), email.getNextAttemptAt());
+        assertNull(email.getClaimId());
+        assertNotNull(email.getLastError());
+        assertEquals(1, dispatcher.getStatistics().pending());
+
+        smtpServer.setAvailable(true);
+        dispatcher.dispatch();
+        assertEquals(1, smtpServer.getConnections());
+
+        clock.advance(BACKOFF);
+        dispatcher.dispatch();
+        assertEquals(1, smtpServer.getMessages().size());
+        assertEquals(0, outboxEmailRepository.count());
+        assertEquals(1, dispatcher.getStatistics().retried());
+    }
+
+    @Test
+    void testRejectedRecipientDoesNotFailBatch() {
+        smtpServer.rejectRecipient("bad@mail.ru");
+        emailService.sendEmail("first@mail.ru", "Subject", "<p>Текст</p>");
+        emailService.sendEmail("bad@mail.ru", "Subject", "<p>Текст</p>");
+        emailService.sendEmail("second@mail.ru", "Subject", "<p>Текст</p>");
+
+        dispatcher.dispatch();
+
+        assertEquals(2, smtpServer.getMessages().size());
+        assertEquals(1, smtpServer.getConnections());
+        List<OutboxEmail> remaining = outboxEmailRepository.findAll();
+        assertEquals(1, remaining.size());
+        assertEquals("bad@mail.ru", remaining.get(0).getReceiver());
+        assertEquals(1, remaining.get(0).getAttempts());
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        smtpServer.setAvailable(false);
+        emailService.sendEmail("user@mail.ru", "Subject", "<p>Текст</p>");
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            dispatcher.dispatch();
+            clock.advance(BACKOFF.multipliedBy(4));
+        }
+        dispatcher.dispatch();
+
+        OutboxEmail email = outboxEmailRepository.findAll().get(0);
+        assertEquals(OutboxEmailStatus.FAILED, email.getStatus());
+        assertEquals(3, email.getAttempts());
+        assertEquals(3, smtpServer.getConnections());
+        EmailOutboxDispatcher.Statistics statistics = dispatcher.getStatistics();
+        assertEquals(0, statistics.pending());
+        assertEquals(1, statistics.failed());
+        assertEquals(1, statistics.abandoned());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
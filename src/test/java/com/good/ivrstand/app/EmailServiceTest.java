@@ -1,29 +1,36 @@
 package com.good.ivrstand.app;
 
+import com.good.ivrstand.app.repository.OutboxEmailRepository;
+import com.good.ivrstand.domain.OutboxEmail;
+import com.good.ivrstand.domain.enumeration.OutboxEmailStatus;
 import com.good.ivrstand.extern.infrastructure.service.DefaultEmailService;
-import jakarta.mail.internet.MimeMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.mail.javamail.JavaMailSender;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class EmailServiceTest {
 
-    @Mock
-    private JavaMailSender javaMailSender;
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
 
     @Mock
-    private MimeMessage mimeMessage;
+    private OutboxEmailRepository outboxEmailRepository;
 
     private DefaultEmailService emailService;
 
     @BeforeEach
     public void setUp() {
-        this.emailService = new DefaultEmailService(javaMailSender, "test@mail.ru");
+        this.emailService = new DefaultEmailService(outboxEmailRepository, Clock.fixed(NOW, ZoneOffset.UTC));
     }
 
     @Test
@@ -32,10 +39,18 @@ public class EmailServiceTest {
         String subject = "Test Subject";
         String content = "Test Content";
 
-        when(javaMailSender.createMimeMessage()).thenReturn(mimeMessage);
+        when(outboxEmailRepository.save(any(OutboxEmail.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         emailService.sendEmail(receiver, subject, content);
 
-        verify(javaMailSender, times(1)).send(any(MimeMessage.class));
+        ArgumentCaptor<OutboxEmail> captor = ArgumentCaptor.forClass(OutboxEmail.class);
+        verify(outboxEmailRepository, times(1)).save(captor.capture());
+        OutboxEmail email = captor.getValue();
+        assertEquals(receiver, email.getReceiver());
+        assertEquals(subject, email.getSubject());
+        assertEquals(content, email.getContent());
+        assertEquals(OutboxEmailStatus.PENDING, email.getStatus());
+        assertEquals(NOW, email.getNextAttemptAt());
+        assertEquals(0, email.getAttempts());
     }
-}
\ No newline at end of file
+}
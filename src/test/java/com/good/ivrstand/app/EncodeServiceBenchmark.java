@@ -0,0 +1,101 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.service.EncodeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает прежние шифрование и хэширование, создававшие шифр, ключ и дайджест на каждый вызов,
+ * с пулами EncodeService. Хэш считается для короткого токена и длинного описания.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.good.ivrstand.app.EncodeServiceBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class EncodeServiceBenchmark {
+
+    private static final String KEY = "BC1D9VG58QKH6CYK99DGB1UBESR8VRXD";
+
+    @Param({"43", "65536"})
+    private int textLength;
+
+    private EncodeService encodeService;
+
+    private String text;
+
+    private String encrypted;
+
+    @Setup
+    public void setUp() {
+        encodeService = new EncodeService(KEY);
+        text = "Описание экспоната ".repeat(textLength / 19 + 1).substring(0, textLength);
+        encrypted = encodeService.encrypt("12345");
+    }
+
+    @Benchmark
+    public String legacyEncrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(), "AES"));
+        return Base64.getEncoder().encodeToString(cipher.doFinal("12345".getBytes()));
+    }
+
+    @Benchmark
+    public String pooledEncrypt() {
+        return encodeService.encrypt("12345");
+    }
+
+    @Benchmark
+    public String legacyDecrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(KEY.getBytes(), "AES"));
+        return new String(cipher.doFinal(Base64.getDecoder().decode(encrypted)));
+    }
+
+    @Benchmark
+    public String pooledDecrypt() {
+        return encodeService.decrypt(encrypted);
+    }
+
+    @Benchmark
+    public String legacyHash() throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String pooledStreamingHash() {
+        return encodeService.generateHash(text);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncodeServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
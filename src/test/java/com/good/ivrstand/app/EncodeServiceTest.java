@@ -5,6 +5,18 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class EncodeServiceTest {
 
     private EncodeService encodeService;
@@ -33,4 +45,38 @@ public class EncodeServiceTest {
         Assertions.assertNotNull(decryptedText);
         Assertions.assertEquals(expectedText, decryptedText);
     }
+
+    @Test
+    public void decryptInvalidTextTest() {
+        Assertions.assertThrows(RuntimeException.class, () -> encodeService.decrypt("AAAA"));
+        Assertions.assertEquals("text123", encodeService.decrypt("bQd+8RRXsEd8DaOsQFkGmw=="));
+    }
+
+    @Test
+    public void concurrentRoundTripTest() throws Exception {
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                String text = "user-" + i;
+                results.add(executor.submit(() -> text.equals(encodeService.decrypt(encodeService.encrypt(text)))
+                        && sha256(text).equals(encodeService.generateHash(text))));
+            }
+        }
+        for (Future<Boolean> result : results) {
+            Assertions.assertTrue(result.get());
+        }
+    }
+
+    @Test
+    public void generateHashLargeTextTest() throws NoSuchAlgorithmException, IOException {
+        String text = "Описание экспоната \uD83C\uDFA8 ".repeat(5000) + "\uD800";
+
+        Assertions.assertEquals(sha256(text), encodeService.generateHash(text));
+        Assertions.assertEquals(sha256(text), encodeService.generateHash(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+        Assertions.assertEquals(sha256(""), encodeService.generateHash(""));
+    }
+
+    private static String sha256(String text) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
 }
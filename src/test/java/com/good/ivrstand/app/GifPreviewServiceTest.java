@@ -0,0 +1,253 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.AdditionRepository;
+import com.good.ivrstand.app.repository.CategoryRepository;
+import com.good.ivrstand.app.repository.ItemRepository;
+import com.good.ivrstand.app.service.GifPreviewService;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.NoSuchFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.multipart.MultipartFile;
+import org.w3c.dom.NodeList;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class GifPreviewServiceTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private AdditionRepository additionRepository;
+
+    private GifPreviewService gifPreviewService;
+
+    @BeforeEach
+    void setUp() throws IOException, FileDuplicateException, NoSuchFileException {
+        gifPreviewService = new GifPreviewService(s3Service, itemRepository, categoryRepository, additionRepository,
+                Runnable::run, new int[]{160, 320}, 0.75f, false);
+        when(s3Service.uploadFile(any(), eq("previews")))
+                .thenAnswer(invocation -> "link/" + ((MultipartFile) invocation.getArgument(0)).getOriginalFilename());
+        when(s3Service.uploadFileNextTo(any(), anyString(), anyString()))
+                .thenAnswer(invocation -> ((String) invocation.getArgument(1)).replace(".jpg", invocation.getArgument(2) + ".jpg"));
+    }
+
+    private byte[] createGif(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "gif", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Собирает GIF-анимацию из кадров с указанными смещениями и способами удаления.
+     */
+    private byte[] createAnimation(BufferedImage[] frames, int[][] positions, String[] disposals) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("gif").next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            writer.prepareWriteSequence(null);
+            for (int i = 0; i < frames.length; i++) {
+                IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(frames[i]), null);
+                String format = metadata.getNativeMetadataFormatName();
+                IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+
+                IIOMetadataNode descriptor = (IIOMetadataNode) root.getElementsByTagName("ImageDescriptor").item(0);
+                descriptor.setAttribute("imageLeftPosition", String.valueOf(positions[i][0]));
+                descriptor.setAttribute("imageTopPosition", String.valueOf(positions[i][1]));
+
+                IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+                control.setAttribute("disposalMethod", disposals[i]);
+                control.setAttribute("userInputFlag", "FALSE");
+                control.setAttribute("transparentColorFlag", "FALSE");
+                control.setAttribute("delayTime", "10");
+                control.setAttribute("transparentColorIndex", "0");
+                NodeList existing = root.getElementsByTagName("GraphicControlExtension");
+                if (existing.getLength() > 0) {
+                    root.replaceChild(control, existing.item(0));
+                } else {
+                    root.appendChild(control);
+                }
+
+                metadata.setFromTree(format, root);
+                writer.writeToSequence(new IIOImage(frames[i], null, metadata), null);
+            }
+            writer.endWriteSequence();
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private BufferedImage filled(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    private BufferedImage decodePreview(byte[] gif) throws IOException, FileDuplicateException, NoSuchFileException {
+        GifPreviewService service = new GifPreviewService(s3Service, itemRepository, categoryRepository, additionRepository,
+                Runnable::run, new int[]{160}, 1.0f, true);
+        service.generatePreview(gif, "gif");
+
+        ArgumentCaptor<MultipartFile> captor = ArgumentCaptor.forClass(MultipartFile.class);
+        verify(s3Service).uploadFile(captor.capture(), eq("previews"));
+        return ImageIO.read(new ByteArrayInputStream(captor.getValue().getBytes()));
+    }
+
+    private void assertColor(Color expected, int rgb) {
+        Color actual = new Color(rgb);
+        assertTrue(Math.abs(expected.getRed() - actual.getRed()) < 40
+                        && Math.abs(expected.getGreen() - actual.getGreen()) < 40
+                        && Math.abs(expected.getBlue() - actual.getBlue()) < 40,
+                "Ожидался цвет " + expected + ", получен " + actual);
+    }
+
+    @Test
+    void testGeneratePreview() throws IOException, FileDuplicateException, NoSuchFileException {
+        String link = gifPreviewService.generatePreview(createGif(800, 400), "gif");
+
+        assertEquals("link/preview.jpg", link);
+
+        ArgumentCaptor<MultipartFile> primary = ArgumentCaptor.forClass(MultipartFile.class);
+        verify(s3Service).uploadFile(primary.capture(), eq("previews"));
+        BufferedImage small = ImageIO.read(new ByteArrayInputStream(primary.getValue().getBytes()));
+        assertEquals(160, small.getWidth());
+        assertEquals(80, small.getHeight());
+
+        ArgumentCaptor<MultipartFile> variant = ArgumentCaptor.forClass(MultipartFile.class);
+        verify(s3Service).uploadFileNextTo(variant.capture(), eq(link), eq("_320"));
+        BufferedImage large = ImageIO.read(new ByteArrayInputStream(variant.getValue().getBytes()));
+        assertEquals(320, large.getWidth());
+        assertEquals("link/preview_320.jpg", gifPreviewService.previewLink(link, 320));
+        assertEquals(link, gifPreviewService.previewLink(link, 160));
+        assertThrows(IllegalArgumentException.class, () -> gifPreviewService.previewLink(link, 640));
+
+        verify(itemRepository).fillMissingGifPreview("gif", link);
+        verify(categoryRepository).fillMissingGifPreview("gif", link);
+        verify(additionRepository).fillMissingGifPreview("gif", link);
+    }
+
+    @Test
+    void testGeneratePreviewSmallGifNotUpscaled() throws IOException, FileDuplicateException, NoSuchFileException {
+        gifPreviewService.generatePreview(createGif(100, 50), "gif");
+
+        ArgumentCaptor<MultipartFile> captor = ArgumentCaptor.forClass(MultipartFile.class);
+        verify(s3Service).uploadFileNextTo(captor.capture(), anyString(), eq("_320"));
+        BufferedImage large = ImageIO.read(new ByteArrayInputStream(captor.getValue().getBytes()));
+        assertEquals(100, large.getWidth());
+    }
+
+    @Test
+    void testGeneratePreviewVariantFailureDeletesUploaded() throws IOException, FileDuplicateException, NoSuchFileException {
+        when(s3Service.uploadFileNextTo(any(), anyString(), anyString())).thenThrow(new IOException("S3 недоступен"));
+        doThrow(new NoSuchFileException("Файл не найден!")).when(s3Service).deleteFileByUrl("link/preview_320.jpg");
+
+        assertThrows(IOException.class, () -> gifPreviewService.generatePreview(createGif(800, 400), "gif"));
+
+        verify(s3Service).deleteFileByUrl("link/preview.jpg");
+        verify(itemRepository, never()).fillMissingGifPreview(anyString(), anyString());
+        assertNull(gifPreviewService.resolvePreview("gif", null));
+    }
+
+    @Test
+    void testRepresentativeFrameRestoresToBackground() throws IOException, FileDuplicateException, NoSuchFileException {
+        byte[] gif = createAnimation(
+                new BufferedImage[]{filled(20, 20, Color.RED), filled(10, 10, Color.BLUE), filled(20, 20, Color.RED)},
+                new int[][]{{0, 0}, {0, 0}, {0, 0}},
+                new String[]{"restoreToBackgroundColor", "none", "none"});
+
+        BufferedImage preview = decodePreview(gif);
+
+        assertColor(Color.BLUE, preview.getRGB(5, 5));
+        assertColor(Color.WHITE, preview.getRGB(15, 15));
+    }
+
+    @Test
+    void testRepresentativeFrameRestoresToPrevious() throws IOException, FileDuplicateException, NoSuchFileException {
+        byte[] gif = createAnimation(
+                new BufferedImage[]{filled(20, 20, Color.RED), filled(10, 10, Color.BLUE),
+                        filled(10, 10, Color.GREEN), filled(20, 20, Color.RED)},
+                new int[][]{{0, 0}, {0, 0}, {10, 10}, {0, 0}},
+                new String[]{"none", "restoreToPrevious", "none", "none"});
+
+        BufferedImage preview = decodePreview(gif);
+
+        assertColor(Color.RED, preview.getRGB(5, 5));
+        assertColor(Color.GREEN, preview.getRGB(15, 15));
+    }
+
+    @Test
+    void testGeneratePreviewInvalidGif() throws IOException, FileDuplicateException {
+        assertThrows(IOException.class, () -> gifPreviewService.generatePreview(new byte[]{1, 2, 3}, "gif"));
+
+        verify(s3Service, never()).uploadFile(any(), anyString());
+    }
+
+    @Test
+    void testResolvePreview() throws IOException {
+        assertNull(gifPreviewService.resolvePreview("gif", null));
+
+        gifPreviewService.submit(createGif(200, 200), "gif");
+
+        assertEquals("link/preview.jpg", gifPreviewService.resolvePreview("gif", null));
+        assertEquals("preview", gifPreviewService.resolvePreview("gif", "preview"));
+        assertNull(gifPreviewService.resolvePreview(null, null));
+    }
+
+    @Test
+    void testSubmitQueueFull() throws IOException, FileDuplicateException {
+        GifPreviewService rejecting = new GifPreviewService(s3Service, itemRepository, categoryRepository, additionRepository,
+                command -> {
+                    throw new RejectedExecutionException();
+                }, new int[]{160}, 0.75f, false);
+
+        assertDoesNotThrow(() -> rejecting.submit(createGif(10, 10), "gif"));
+
+        verify(s3Service, never()).uploadFile(any(), anyString());
+    }
+
+    @Test
+    void testConstructorWithoutSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new GifPreviewService(s3Service, itemRepository,
+                categoryRepository, additionRepository, Runnable::run, new int[0], 0.75f, false));
+    }
+}
@@ -16,6 +16,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.*;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.io.IOException;
 import java.util.*;
@@ -45,6 +46,24 @@ class ItemServiceTest {
     @InjectMocks
     private ItemService itemService;
 
+
+    @Mock
+    private GifPreviewService gifPreviewService;
+
+    @Mock
+    private DescriptionAudioService descriptionAudioService;
+
+    @Mock
+    private CategoryTreeService categoryTreeService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        when(gifPreviewService.resolvePreview(any(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
     @Test
     void testCreateItem() throws Exception {
         Item item = new Item(1L,
@@ -59,11 +78,10 @@ class ItemServiceTest {
                             new ArrayList<>(),
                             new ArrayList<>(),
                             "titleAuido",
-                            "hash");
+                            "hash", 0L);
 
         when(itemRepository.save(item)).thenReturn(item);
-        when(itemRepository.findByHashAndAudioExistence("hash", PageRequest.of(0, 1)))
-                .thenReturn(Page.empty());
+        when(descriptionAudioService.findAudio("hash")).thenReturn(Optional.empty());
         when(speechService.splitDescription("desc")).thenReturn(new String[]{"desc"});
 
         Item createdItem = itemService.createItem(item, true);
@@ -72,10 +90,38 @@ class ItemServiceTest {
         assertEquals("title", createdItem.getTitle());
         verify(itemRepository).save(item);
         verify(speechService).generateAudio("title");
+        verify(descriptionAudioService).saveAudio("hash", item.getAudio());
         verify(flaskApiVectorSearchService).addTitle(argThat(
                 addTitleRequest -> addTitleRequest.getText().equals("title  desc")));
     }
 
+    @Test
+    void testCreateItemReusesDescriptionAudio() throws Exception {
+        Item item = new Item(1L,
+                "title",
+                "desc",
+                "preview",
+                "gif",
+                null,
+                new ArrayList<>(),
+                new ArrayList<>(),
+                "mainIcon",
+                new ArrayList<>(),
+                new ArrayList<>(),
+                "titleAuido",
+                "hash", 0L);
+
+        when(itemRepository.save(item)).thenReturn(item);
+        when(descriptionAudioService.findAudio("hash")).thenReturn(Optional.of(List.of("audio1", "audio2")));
+
+        itemService.createItem(item, true);
+
+        assertEquals(List.of("audio1", "audio2"), item.getAudio());
+        verify(speechService, never()).splitDescription(any());
+        verify(speechService).generateAudio("title");
+        verify(descriptionAudioService, never()).saveAudio(any(), any());
+    }
+
     @Test
     void testGetItemById() throws ItemNotFoundException {
         Item item = new Item(1L,
@@ -90,7 +136,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -125,7 +171,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -150,7 +196,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         Category category = new Category(1L,
                 "ctitle",
@@ -160,7 +206,7 @@ class ItemServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
         when(categoryService.getCategoryById(1L)).thenReturn(category);
@@ -173,6 +219,7 @@ class ItemServiceTest {
                 titleRequest -> titleRequest.getText().equals("title  desc")));
         verify(flaskApiVectorSearchService).addTitle(argThat(
                 addTitleRequest -> addTitleRequest.getText().equals("title  ctitle desc")));
+        verify(categoryTreeService).invalidate();
     }
 
     @Test
@@ -185,7 +232,7 @@ class ItemServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Item item = new Item(1L,
                 "title",
@@ -199,7 +246,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
         when(categoryService.getCategoryById(1L)).thenReturn(category);
@@ -221,7 +268,7 @@ class ItemServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
         
         Category category2 = new Category(1L,
                 "ctitle",
@@ -231,7 +278,7 @@ class ItemServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Item item = new Item(1L,
                 "title",
@@ -245,7 +292,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
         when(categoryService.getCategoryById(1L)).thenReturn(category1);
@@ -268,7 +315,7 @@ class ItemServiceTest {
                 "preview",
                 "link",
                 "icon",
-                "audio");
+                "audio", 0L);
 
         Item item = new Item(1L,
                 "title",
@@ -282,7 +329,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -310,7 +357,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -335,14 +382,13 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         String newDescription = "New Description";
 
         when(itemRepository.findById(1L)).thenReturn(item);
         when(encodeService.generateHashForAudio("New Description")).thenReturn("newHash");
-        when(itemRepository.findByHashAndAudioExistence("newHash", PageRequest.of(0, 1)))
-                .thenReturn(Page.empty());
+        when(descriptionAudioService.findAudio("newHash")).thenReturn(Optional.empty());
         when(speechService.splitDescription("New Description")).thenReturn(new String[]{"New Description"});
 
         itemService.updateDescriptionToItem(1L, newDescription, true);
@@ -371,7 +417,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -395,7 +441,7 @@ class ItemServiceTest {
                 List.of("TestKeyword"),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -420,7 +466,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -445,7 +491,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -470,7 +516,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -494,7 +540,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -519,7 +565,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -544,7 +590,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -569,7 +615,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -593,7 +639,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -617,7 +663,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "titleAuido",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -641,7 +687,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 null,
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
         when(speechService.generateAudio("title")).thenReturn("audio");
@@ -666,7 +712,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -691,7 +737,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 "audio",
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -715,7 +761,7 @@ class ItemServiceTest {
                 new ArrayList<>(),
                 new ArrayList<>(),
                 null,
-                "hash");
+                "hash", 0L);
 
         when(itemRepository.findById(1L)).thenReturn(item);
 
@@ -725,4 +771,60 @@ class ItemServiceTest {
 
         assertEquals("У услуги 1 нет аудио заголовка!", e.getMessage());
     }
+
+    @Test
+    void testFindItemsByTitleInCategoryTree() throws Exception {
+        Category category = new Category(1L, "category", new ArrayList<>(), new ArrayList<>(), null,
+                null, null, null, null, 0L);
+        Category other = new Category(2L, "other", new ArrayList<>(), new ArrayList<>(), null,
+                null, null, null, null, 0L);
+        Item first = new Item(1L, "first", "desc", null, null, other, new ArrayList<>(), new ArrayList<>(), null,
+                new ArrayList<>(), new ArrayList<>(), null, null, 0L);
+        Item second = new Item(2L, "second", "desc", null, null, category, new ArrayList<>(), new ArrayList<>(), null,
+                new ArrayList<>(), new ArrayList<>(), null, null, 0L);
+
+        when(flaskApiVectorSearchService.getItemIds("title")).thenReturn(List.of(2L, 1L));
+        when(itemRepository.findByIdIn(List.of(2L, 1L))).thenReturn(List.of(first, second));
+        when(itemRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(first, second)));
+        when(categoryService.getSubtreeIds(1L)).thenReturn(List.of(1L, 3L));
+
+        Page<Item> all = itemService.findItemsByTitle("title", PageRequest.of(0, 10));
+        Page<Item> filtered = itemService.findItemsByTitle("title", 1L, PageRequest.of(0, 10));
+
+        assertEquals(List.of(second, first), all.getContent());
+        assertEquals(List.of(second), filtered.getContent());
+        assertEquals(1, filtered.getTotalElements());
+    }
+
+    @Test
+    void testFindItemsByTitleSyncsAfterReadTransaction() throws Exception {
+        Item first = new Item(1L, "first", "desc", null, null, null, new ArrayList<>(), new ArrayList<>(), null,
+                new ArrayList<>(), new ArrayList<>(), null, null, 0L);
+        Item second = new Item(2L, "second", "desc", null, null, null, new ArrayList<>(), new ArrayList<>(), null,
+                new ArrayList<>(), new ArrayList<>(), null, null, 0L);
+
+        when(flaskApiVectorSearchService.getItemIds("title")).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findByIdIn(List.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(itemRepository.findAll(any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(first, second, first, second, first)));
+
+        Page<String> titles = itemService.findItemsByTitle("title", null, PageRequest.of(0, 10), Item::getTitle);
+
+        assertEquals(List.of("first", "second"), titles.getContent());
+        // Синхронизация ждет сервис поиска уже после фиксации транзакции, не занимая соединение
+        InOrder order = inOrder(itemRepository, transactionManager, flaskApiVectorSearchService);
+        order.verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()));
+        order.verify(itemRepository).findByIdIn(List.of(1L, 2L));
+        order.verify(transactionManager).commit(any());
+        order.verify(flaskApiVectorSearchService).syncDatabase();
+    }
+
+    @Test
+    void testFindItemsByTitleMissingItem() throws Exception {
+        when(flaskApiVectorSearchService.getItemIds("title")).thenReturn(List.of(5L));
+        when(itemRepository.findByIdIn(List.of(5L))).thenReturn(List.of());
+
+        assertThrows(ItemNotFoundException.class, () -> itemService.findItemsByTitle("title", PageRequest.of(0, 10)));
+        verify(flaskApiVectorSearchService, never()).syncDatabase();
+    }
 }
@@ -0,0 +1,141 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.service.AdditionService;
+import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.app.service.DescriptionAudioService;
+import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.GifPreviewService;
+import com.good.ivrstand.app.service.ItemService;
+import com.good.ivrstand.app.service.SpeechService;
+import com.good.ivrstand.app.service.externinterfaces.FlaskApiVectorSearchService;
+import com.good.ivrstand.domain.Addition;
+import com.good.ivrstand.domain.Category;
+import com.good.ivrstand.domain.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Window;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверяет, что порции по токену продолжения обходят список целиком, без пропусков и повторов.
+ */
+@DataJpaTest
+@Import({ItemService.class, CategoryService.class, AdditionService.class})
+public class KeysetPaginationTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private AdditionService additionService;
+
+    @MockBean
+    private FlaskApiVectorSearchService flaskApiVectorSearchService;
+
+    @MockBean
+    private SpeechService speechService;
+
+    @MockBean
+    private GifPreviewService gifPreviewService;
+
+    @MockBean
+    private EncodeService encodeService;
+
+    @MockBean
+    private CategoryTreeService categoryTreeService;
+
+    @MockBean
+    private DescriptionAudioService descriptionAudioService;
+
+    private Category parent;
+    private Category leaf;
+    private final List<Long> leafItemIds = new ArrayList<>();
+    private final List<Long> freeItemIds = new ArrayList<>();
+    private final List<Long> additionIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        parent = entityManager.persist(Category.builder().title("parent").build());
+        leaf = entityManager.persist(Category.builder().title("leaf").parentCategory(parent).build());
+        for (Category category : List.of(parent, leaf)) {
+            entityManager.persist(Item.builder().title("other").description("d").category(category).build());
+        }
+        for (int i = 0; i < 7; i++) {
+            leafItemIds.add(entityManager.persist(Item.builder().title("leaf" + i).description("d").category(leaf).build()).getId());
+            freeItemIds.add(entityManager.persist(Item.builder().title("free" + i).description("d").build()).getId());
+        }
+        Item item = entityManager.find(Item.class, leafItemIds.get(0));
+        for (int i = 0; i < 5; i++) {
+            additionIds.add(entityManager.persist(Addition.builder().title("addition" + i).description("d").item(item).build()).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        categoryService.rebuildTreeIfNeeded();
+    }
+
+    private <T> List<Long> scrollAll(BiFunction<Long, Integer, Window<T>> scroll, ToLongFunction<T> id) {
+        List<Long> ids = new ArrayList<>();
+        Long afterId = null;
+        int windows = 0;
+        Window<T> window;
+        do {
+            window = scroll.apply(afterId, 3);
+            window.forEach(element -> ids.add(id.applyAsLong(element)));
+            if (!window.isEmpty()) {
+                afterId = id.applyAsLong(window.getContent().get(window.size() - 1));
+            }
+            assertTrue(++windows < 20);
+        } while (window.hasNext());
+        return ids;
+    }
+
+    @Test
+    void testScrollItemsWithoutCategory() {
+        assertEquals(freeItemIds, scrollAll(itemService::scrollItemsWithoutCategory, Item::getId));
+    }
+
+    @Test
+    void testScrollItemsByCategory() {
+        List<Long> inLeaf = scrollAll((after, size) -> itemService.scrollItemsByCategory(leaf.getId(), false, after, size), Item::getId);
+        List<Long> inTree = scrollAll((after, size) -> itemService.scrollItemsByCategory(parent.getId(), true, after, size), Item::getId);
+
+        assertEquals(8, inLeaf.size());
+        assertTrue(inLeaf.containsAll(leafItemIds));
+        assertEquals(9, inTree.size());
+        assertTrue(inTree.containsAll(inLeaf));
+    }
+
+    @Test
+    void testScrollAllItemsAndCategories() {
+        List<Long> items = scrollAll(itemService::scrollAllItems, Item::getId);
+        List<Long> categories = scrollAll(categoryService::scrollAllCategories, Category::getId);
+
+        assertEquals(16, items.size());
+        assertEquals(items.stream().sorted().toList(), items);
+        assertEquals(List.of(parent.getId(), leaf.getId()), categories);
+    }
+
+    @Test
+    void testScrollAdditions() {
+        assertEquals(additionIds, scrollAll((after, size) -> additionService.scrollByItemId(leafItemIds.get(0), after, size), Addition::getId));
+    }
+}
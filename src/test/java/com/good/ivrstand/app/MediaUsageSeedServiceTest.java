@@ -0,0 +1,75 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.MediaUsageRepository;
+import com.good.ivrstand.app.service.MediaUsageSeedService;
+import com.good.ivrstand.app.service.externinterfaces.S3Service;
+import com.good.ivrstand.domain.MediaUsage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MediaUsageSeedServiceTest {
+
+    @Mock
+    private MediaUsageRepository mediaUsageRepository;
+
+    @Mock
+    private S3Service s3Service;
+
+    private MediaUsageSeedService mediaUsageSeedService;
+
+    private final List<List<MediaUsage>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mediaUsageSeedService = new MediaUsageSeedService(mediaUsageRepository, s3Service, 2);
+        doAnswer(invocation -> {
+            Collection<MediaUsage> batch = invocation.getArgument(0);
+            batches.add(new ArrayList<>(batch));
+            return null;
+        }).when(mediaUsageRepository).addUsage(any());
+    }
+
+    @Test
+    void testSeedFromStorageInBatches() throws IOException {
+        doAnswer(invocation -> {
+            ObjLongConsumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("a", 10);
+            consumer.accept("b", 20);
+            consumer.accept("c", 30);
+            return null;
+        }).when(s3Service).forEachFile(any());
+
+        assertEquals(3, mediaUsageSeedService.seedFromStorage());
+
+        assertEquals(2, batches.size());
+        assertEquals(List.of("a", "b"), batches.get(0).stream().map(MediaUsage::getUrl).toList());
+        MediaUsage last = batches.get(1).get(0);
+        assertEquals("c", last.getUrl());
+        assertEquals(30L, last.getSizeBytes());
+        assertEquals(0, last.getAccessCount());
+        assertNull(last.getLastAccessedAt());
+    }
+
+    @Test
+    void testSeedEmptyStorage() throws IOException {
+        assertEquals(0, mediaUsageSeedService.seedFromStorage());
+        verify(mediaUsageRepository, never()).addUsage(any());
+    }
+}
@@ -0,0 +1,145 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.MediaUsageRepository;
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.domain.MediaUsage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class MediaUsageServiceTest {
+
+    @Mock
+    private MediaUsageRepository mediaUsageRepository;
+
+    private MediaUsageService mediaUsageService;
+
+    private final List<MediaUsage> flushed = new ArrayList<>();
+
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        mediaUsageService = new MediaUsageService(mediaUsageRepository, 2, 3);
+        doAnswer(invocation -> {
+            Collection<MediaUsage> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            flushed.addAll(batch);
+            return null;
+        }).when(mediaUsageRepository).addUsage(any());
+    }
+
+    private Map<String, MediaUsage> flushedByUrl() {
+        Map<String, MediaUsage> result = new HashMap<>();
+        for (MediaUsage usage : flushed) {
+            result.put(usage.getUrl(), usage);
+        }
+        return result;
+    }
+
+    @Test
+    void testFlushConcurrentAccesses() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(() -> mediaUsageService.recordAccess("gif"));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        mediaUsageService.flush();
+
+        assertEquals(1, flushed.size());
+        assertEquals(1000, flushed.get(0).getAccessCount());
+        assertNotNull(flushed.get(0).getLastAccessedAt());
+    }
+
+    @Test
+    void testFlushUploadsInBatches() {
+        mediaUsageService.recordUpload("a", 10);
+        mediaUsageService.recordUpload("b", 20);
+        mediaUsageService.recordAccess("b");
+        mediaUsageService.recordAccess("c");
+
+        mediaUsageService.flush();
+
+        assertEquals(List.of(2, 1), batchSizes);
+        Map<String, MediaUsage> usage = flushedByUrl();
+        assertEquals(10L, usage.get("a").getSizeBytes());
+        assertEquals(0, usage.get("a").getAccessCount());
+        assertEquals(20L, usage.get("b").getSizeBytes());
+        assertEquals(1, usage.get("b").getAccessCount());
+        assertNull(usage.get("c").getSizeBytes());
+    }
+
+    @Test
+    void testFlushResetsCounters() {
+        mediaUsageService.recordAccess("a");
+        mediaUsageService.flush();
+        mediaUsageService.flush();
+
+        verify(mediaUsageRepository, times(1)).addUsage(any());
+
+        mediaUsageService.recordAccess("a");
+        mediaUsageService.flush();
+
+        assertEquals(2, flushed.size());
+        assertEquals(1, flushed.get(1).getAccessCount());
+    }
+
+    @Test
+    void testPendingLimit() {
+        mediaUsageService.recordAccess("a");
+        mediaUsageService.recordAccess("b");
+        mediaUsageService.recordAccess("c");
+        mediaUsageService.recordAccess("d");
+        mediaUsageService.recordAccess("a");
+
+        mediaUsageService.flush();
+
+        Map<String, MediaUsage> usage = flushedByUrl();
+        assertEquals(Set.of("a", "b", "c"), usage.keySet());
+        assertEquals(2, usage.get("a").getAccessCount());
+    }
+
+    @Test
+    void testDeletion() {
+        mediaUsageService.recordUpload("a", 10);
+        mediaUsageService.recordDeletion("a");
+
+        mediaUsageService.flush();
+
+        verify(mediaUsageRepository, never()).addUsage(any());
+        verify(mediaUsageRepository).deleteUsage(Set.of("a"));
+    }
+
+    @Test
+    void testGetAccessFrequency() {
+        MediaUsage usage = new MediaUsage("a", 100L, 30, Instant.now().minus(10, ChronoUnit.DAYS), null);
+        MediaUsage fresh = new MediaUsage("b", 100L, 5, Instant.now(), null);
+
+        assertEquals(3.0, mediaUsageService.getAccessFrequency(usage), 0.01);
+        assertEquals(5.0, mediaUsageService.getAccessFrequency(fresh), 0.01);
+    }
+}
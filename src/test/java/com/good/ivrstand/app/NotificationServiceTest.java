@@ -13,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -124,9 +125,17 @@ class NotificationServiceTest {
 
     @Test
     void testCreateHelpMessage() {
-        String result = notificationService.createHelpMessage();
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 30, 15);
+        String result = notificationService.createHelpMessage("stand-1", 1, time, time);
 
-        assertNotNull(result);
-        assertTrue(result.contains("требуется помощь на IVR-стенде"));
+        assertEquals("2024-05-01, 09:30: требуется помощь на IVR-стенде stand-1", result);
+    }
+
+    @Test
+    void testCreateAggregatedHelpMessage() {
+        LocalDateTime first = LocalDateTime.of(2024, 5, 1, 9, 30, 15);
+        String result = notificationService.createHelpMessage("stand-1", 4, first, first.plusSeconds(95));
+
+        assertEquals("2024-05-01, 09:30: требуется помощь на IVR-стенде stand-1\nВызовов: 4, последний в 09:31:50", result);
     }
 }
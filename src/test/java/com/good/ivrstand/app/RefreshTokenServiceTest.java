@@ -0,0 +1,117 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.RefreshTokenRepository;
+import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.RefreshTokenService;
+import com.good.ivrstand.exception.TokenRefreshException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+public class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    private RefreshTokenService refreshTokenService;
+
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, new EncodeService("1234567890123456"),
+                Duration.ofHours(12), clock);
+    }
+
+    @Test
+    void testRotate() throws TokenRefreshException {
+        String issued = refreshTokenService.issue(5);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(issued);
+
+        assertEquals(5, rotation.userId());
+        assertNotEquals(issued, rotation.refreshToken());
+        assertFalse(refreshTokenService.isActive(issued));
+        assertTrue(refreshTokenService.isActive(rotation.refreshToken()));
+        assertEquals(2, refreshTokenRepository.count());
+        assertTrue(refreshTokenRepository.findAll().stream().noneMatch(token -> token.getTokenHash().equals(issued)));
+    }
+
+    @Test
+    void testReuseRevokesFamily() throws TokenRefreshException {
+        String issued = refreshTokenService.issue(5);
+        String otherDevice = refreshTokenService.issue(5);
+        String rotated = refreshTokenService.rotate(issued).refreshToken();
+
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(issued));
+
+        assertFalse(refreshTokenService.isActive(rotated));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(rotated));
+        assertTrue(refreshTokenService.isActive(otherDevice));
+    }
+
+    @Test
+    void testRevokeDeviceAndUser() throws TokenRefreshException {
+        String first = refreshTokenService.issue(5);
+        String second = refreshTokenService.issue(5);
+        String foreign = refreshTokenService.issue(6);
+
+        refreshTokenService.revoke(first);
+
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(first));
+        assertTrue(refreshTokenService.isActive(second));
+
+        refreshTokenService.revokeAllForUser(5);
+
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(second));
+        assertNotNull(refreshTokenService.rotate(foreign));
+    }
+
+    @Test
+    void testExpired() {
+        String issued = refreshTokenService.issue(5);
+        clock.advance(Duration.ofHours(13));
+
+        assertFalse(refreshTokenService.isActive(issued));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate(issued));
+        assertThrows(TokenRefreshException.class, () -> refreshTokenService.rotate("unknown"));
+
+        refreshTokenService.deleteExpired();
+        assertEquals(0, refreshTokenRepository.count());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
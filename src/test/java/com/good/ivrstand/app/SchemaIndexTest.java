@@ -0,0 +1,119 @@
+package com.good.ivrstand.app;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Накатывает миграции на PostgreSQL, проверяет схему по сущностям и смотрит планы горячих запросов.
+ * Последовательное сканирование запрещается, чтобы на пустых таблицах план показывал, есть ли подходящий индекс.
+ * Без Docker тест пропускается.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+public class SchemaIndexTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String explain(String sql) {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class);
+        return String.join("\n", plan);
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(index), "Ожидался индекс " + index + ":\n" + plan);
+    }
+
+    @Test
+    void testItemsByCategory() {
+        assertUsesIndex("idx_items_category",
+                "SELECT * FROM items WHERE category_id = 1 ORDER BY item_id LIMIT 20");
+        assertUsesIndex("idx_items_category",
+                "SELECT * FROM items WHERE category_id IN (1, 2, 3) AND item_id > 100 ORDER BY item_id LIMIT 20");
+    }
+
+    @Test
+    void testItemsWithoutCategory() {
+        assertUsesIndex("idx_items_without_category",
+                "SELECT * FROM items WHERE category_id IS NULL ORDER BY item_id LIMIT 20");
+    }
+
+    @Test
+    void testDescriptionHash() {
+        assertUsesIndex("idx_items_deschash", "SELECT * FROM items WHERE item_deschash = 'hash'");
+        assertUsesIndex("idx_additions_deschash", "SELECT * FROM additions WHERE addition_deschash = 'hash'");
+    }
+
+    @Test
+    void testMissingGifPreview() {
+        assertUsesIndex("idx_items_gif_link",
+                "UPDATE items SET gif_preview = 'p' WHERE gif_link = 'g' AND gif_preview IS NULL");
+        assertUsesIndex("idx_categories_gif_link",
+                "UPDATE categories SET cat_gif_preview = 'p' WHERE cat_gif_link = 'g' AND cat_gif_preview IS NULL");
+        assertUsesIndex("idx_additions_gif_link",
+                "UPDATE additions SET addition_gif_preview = 'p' WHERE addition_gif_link = 'g' AND addition_gif_preview IS NULL");
+    }
+
+    @Test
+    void testCategoryChildren() {
+        assertUsesIndex("idx_categories_parent", "SELECT * FROM categories WHERE parent_category_id = 1");
+    }
+
+    @Test
+    void testAdditionsByItem() {
+        assertUsesIndex("idx_additions_item",
+                "SELECT * FROM additions WHERE item_id = 1 ORDER BY addition_id LIMIT 20");
+    }
+
+    @Test
+    void testElementCollections() {
+        assertUsesIndex("idx_item_icons_item", "SELECT * FROM item_icons WHERE item_id IN (1, 2)");
+        assertUsesIndex("idx_item_audio_item", "SELECT * FROM item_audio WHERE item_id IN (1, 2)");
+        assertUsesIndex("idx_addition_icons_addition", "SELECT * FROM addition_icons WHERE addition_id IN (1, 2)");
+    }
+
+    @Test
+    void testUserByName() {
+        assertUsesIndex("idx_users_name_upper", "SELECT * FROM users WHERE upper(user_name) = upper('Admin')");
+    }
+
+    @Test
+    void testNotificationChats() {
+        assertUsesIndex("idx_notification_chats_chat",
+                "SELECT * FROM notification_chats WHERE notification_chat_id = '1'");
+    }
+
+    @Test
+    void testNotificationChatsByCategory() {
+        assertUsesIndex("idx_notification_chats_category",
+                "SELECT notification_chat_id FROM notification_chats WHERE notification_category = 'HELP'");
+    }
+
+    @Test
+    void testEmailOutbox() {
+        assertUsesIndex("idx_email_outbox_pending",
+                "SELECT email_id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= now() ORDER BY next_attempt_at LIMIT 50");
+        assertUsesIndex("idx_email_outbox_claim", "SELECT * FROM email_outbox WHERE claim_id = 'claim'");
+    }
+}
@@ -0,0 +1,71 @@
+package com.good.ivrstand.app;
+
+import com.good.ivrstand.app.repository.TokenRevocationRepository;
+import com.good.ivrstand.app.service.TokenRevocationService;
+import com.good.ivrstand.domain.TokenRevocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class TokenRevocationServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00.500Z");
+
+    @Mock
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenRevocationService = new TokenRevocationService(tokenRevocationRepository, Duration.ofHours(12),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void testRevoke() {
+        tokenRevocationService.revoke(7);
+
+        verify(tokenRevocationRepository).save(any(TokenRevocation.class));
+        assertEquals(1, tokenRevocationService.getVersion());
+        assertTrue(tokenRevocationService.isRevoked(7, NOW.minusSeconds(60)));
+        assertTrue(tokenRevocationService.isRevoked(7, Instant.parse("2024-01-01T12:00:00Z")));
+        assertFalse(tokenRevocationService.isRevoked(7, NOW.plusSeconds(1)));
+        assertFalse(tokenRevocationService.isRevoked(8, NOW.minusSeconds(60)));
+    }
+
+    @Test
+    void testSyncLoadsRemoteAndDropsExpired() {
+        when(tokenRevocationRepository.findByRevokedAtGreaterThanEqual(any())).thenReturn(List.of(
+                new TokenRevocation(1L, NOW.minusSeconds(30)),
+                new TokenRevocation(2L, NOW.minus(Duration.ofHours(13)))));
+
+        tokenRevocationService.sync();
+
+        assertTrue(tokenRevocationService.isRevoked(1, NOW.minusSeconds(60)));
+        assertFalse(tokenRevocationService.isRevoked(2, NOW.minus(Duration.ofHours(14))));
+        assertEquals(1, tokenRevocationService.getVersion());
+        verify(tokenRevocationRepository).deleteRevokedBefore(NOW.minus(Duration.ofHours(12)));
+
+        tokenRevocationService.sync();
+
+        assertEquals(1, tokenRevocationService.getVersion());
+        verify(tokenRevocationRepository).findByRevokedAtGreaterThanEqual(NOW.minusSeconds(60));
+    }
+}
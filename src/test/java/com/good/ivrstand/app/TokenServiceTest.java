@@ -2,76 +2,79 @@ package com.good.ivrstand.app;
 
 import com.good.ivrstand.app.service.TokenService;
 import com.good.ivrstand.app.repository.UserRepository;
-import com.good.ivrstand.domain.User;
+import com.good.ivrstand.domain.enumeration.UserTokenType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.scheduling.TaskScheduler;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.ScheduledFuture;
+import java.time.ZoneOffset;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class TokenServiceTest {
 
-    @Mock
-    private TaskScheduler taskScheduler;
+    private static final Instant NOW = Instant.parse("2024-01-01T00:00:00Z");
 
     @Mock
     private UserRepository userRepository;
 
-    @Mock
-    private ScheduledFuture<?> scheduledFuture;
-
-    @InjectMocks
     private TokenService tokenService;
 
+    @BeforeEach
+    public void setUp() {
+        tokenService = new TokenService(userRepository, Duration.ofMillis(50), Duration.ofHours(24),
+                Duration.ofMillis(10), 8, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        tokenService.shutdown();
+    }
 
     @Test
-    public void testGenerateResetPasswordToken() {
-        String token = tokenService.generateResetPasswordToken();
+    public void testGenerateToken() {
+        String token = tokenService.generateToken();
         assertNotNull(token);
         assertEquals(32, token.length());
+        assertNotEquals(token, tokenService.generateToken());
     }
 
     @Test
     public void testScheduleTokenInvalidation() {
-        User user = User.builder()
-                .id(23L)
-                .username("min@list.ru")
-                .password("test")
-                .resetToken("token")
-                .build();
+        assertEquals(NOW.plusMillis(50), tokenService.scheduleTokenInvalidation(1L, UserTokenType.RESET_PASSWORD));
+        assertEquals(NOW.plus(Duration.ofHours(24)), tokenService.scheduleTokenInvalidation(1L, UserTokenType.CONFIRM_EMAIL));
+        tokenService.scheduleTokenInvalidation(2L, UserTokenType.RESET_PASSWORD);
 
-        when(userRepository.findById(1L)).thenReturn(user);
-        when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(unused -> scheduledFuture);
-
-        tokenService.scheduleTokenInvalidation(1L, 10000);
-
-        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
-        verify(userRepository, times(1)).findById(1L);
+        verify(userRepository, timeout(2000)).expireResetTokens(argThat(ids -> ids.contains(1L)), eq(NOW));
+        verify(userRepository, timeout(2000)).expireResetTokens(argThat(ids -> ids.contains(2L)), eq(NOW));
+        verify(userRepository, never()).expireConfirmTokens(any(), any());
     }
 
     @Test
-    public void testInvalidateToken() {
-        User user = User.builder()
-                .id(23L)
-                .username("min@list.ru")
-                .password("test")
-                .resetToken("token")
-                .build();
-
-        when(userRepository.findById(1L)).thenReturn(user);
+    public void testIsTokenValid() {
+        assertTrue(tokenService.isTokenValid("token", NOW.plusSeconds(1), "token"));
+        assertFalse(tokenService.isTokenValid("token", NOW.plusSeconds(1), "other"));
+        assertFalse(tokenService.isTokenValid("token", NOW, "token"));
+        assertFalse(tokenService.isTokenValid("token", null, "token"));
+        assertFalse(tokenService.isTokenValid("no-token", NOW.plusSeconds(1), "no-token"));
+    }
 
-        tokenService.invalidateToken(1L);
+    @Test
+    public void testSweepExpiredTokens() {
+        tokenService.sweepExpiredTokens();
 
-        assertEquals("no-token", user.getResetToken());
-        verify(userRepository, times(1)).save(user);
+        verify(userRepository).expireAllResetTokens(NOW);
+        verify(userRepository).expireAllConfirmTokens(eq(NOW));
     }
 }
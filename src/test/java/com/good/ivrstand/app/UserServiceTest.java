@@ -6,6 +6,8 @@ import com.good.ivrstand.app.service.externinterfaces.EmailService;
 import com.good.ivrstand.domain.Role;
 import com.good.ivrstand.domain.User;
 import com.good.ivrstand.domain.enumeration.UserRole;
+import com.good.ivrstand.domain.enumeration.UserTokenType;
+import com.good.ivrstand.exception.ConfirmEmailTokenException;
 import com.good.ivrstand.exception.NotConfirmedEmailException;
 import com.good.ivrstand.exception.ResetPasswordTokenException;
 import com.good.ivrstand.exception.UserDuplicateException;
@@ -21,6 +23,7 @@ import org.mockito.quality.Strictness;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+import java.time.Instant;
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,6 +34,8 @@ import static org.mockito.Mockito.*;
 @MockitoSettings(strictness = Strictness.LENIENT)
 public class UserServiceTest {
 
+    private static final Instant EXPIRES_AT = Instant.parse("2030-01-01T00:00:00Z");
+
     private UserService userService;
 
     @Mock
@@ -51,6 +56,12 @@ public class UserServiceTest {
     @Mock
     private EncodeService encodeService;
 
+    @Mock
+    private TokenRevocationService tokenRevocationService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @BeforeEach
     public void setUp() {
         this.userService = new UserService(
@@ -59,6 +70,8 @@ public class UserServiceTest {
                 emailService,
                 tokenService,
                 encodeService,
+                tokenRevocationService,
+                refreshTokenService,
                 "reset",
                 "confirm"
         );
@@ -149,6 +162,8 @@ public class UserServiceTest {
         userService.deleteUser(1L);
 
         verify(userRepository, times(1)).deleteById(1L);
+        verify(tokenRevocationService).revoke(1L);
+        verify(refreshTokenService).revokeAllForUser(1L);
     }
 
     @Test
@@ -158,6 +173,7 @@ public class UserServiceTest {
                 .username("min@list.ru")
                 .password("test")
                 .resetToken("token")
+                .resetTokenExpiresAt(Instant.now().plusSeconds(60))
                 .build();
 
         User user2 = User.builder()
@@ -169,6 +185,7 @@ public class UserServiceTest {
 
         when(userRepository.findById(23)).thenReturn(user1);
         when(userRepository.findById(20)).thenReturn(user2);
+        when(tokenService.isTokenValid("token", user1.getResetTokenExpiresAt(), "token")).thenReturn(true);
         when(bCryptPasswordEncoder.encode(anyString())).thenReturn("encodedPassword");
         when(encodeService.decrypt("mCUMoT5ilyKYdeOa8iFI+w==")).thenReturn("23");
         when(encodeService.decrypt("ykcfU3ayqLU9YpCFhDtu+A==")).thenReturn("20");
@@ -180,6 +197,10 @@ public class UserServiceTest {
 
         assertEquals("Ошибка токена сброса пароля!", exception.getMessage());
         assertEquals("encodedPassword", user1.getPassword());
+        assertEquals("no-token", user1.getResetToken());
+        assertNull(user1.getResetTokenExpiresAt());
+        verify(refreshTokenService).revokeAllForUser(23L);
+        verify(refreshTokenService, never()).revokeAllForUser(20L);
     }
 
     @Test
@@ -192,11 +213,16 @@ public class UserServiceTest {
                 .build();
 
         when(userRepository.findByUsernameIgnoreCase("min@list.ru")).thenReturn(user1);
-        when(tokenService.generateResetPasswordToken()).thenReturn("token1");
+        when(tokenService.generateToken()).thenReturn("token1");
+        when(tokenService.scheduleTokenInvalidation(23L, UserTokenType.RESET_PASSWORD)).thenReturn(EXPIRES_AT);
         when(encodeService.encrypt("23")).thenReturn("mCUMoT5ilyKYdeOa8iFI+w==");
 
         userService.sendPasswordResetMessage(user1.getUsername());
 
+        assertEquals("token1", user1.getResetToken());
+        assertEquals(EXPIRES_AT, user1.getResetTokenExpiresAt());
+        verify(userRepository).save(user1);
+
         verify(emailService, times(1)).sendEmail("min@list.ru",
                 "IVRstand - Восстановление пароля",
                 """
@@ -218,36 +244,48 @@ public class UserServiceTest {
                 .build();
 
         when(userRepository.findByUsernameIgnoreCase("min@list.ru")).thenReturn(user1);
+        when(tokenService.generateToken()).thenReturn("token2");
+        when(tokenService.scheduleTokenInvalidation(23L, UserTokenType.CONFIRM_EMAIL)).thenReturn(EXPIRES_AT);
         when(encodeService.encrypt("23")).thenReturn("mCUMoT5ilyKYdeOa8iFI+w==");
 
         userService.sendConfirmEmailMessage(user1.getUsername());
 
+        assertEquals("token2", user1.getConfirmToken());
+        assertEquals(EXPIRES_AT, user1.getConfirmTokenExpiresAt());
+
         verify(emailService, times(1)).sendEmail("min@list.ru", "IVRstand - Подтверждение почты",
                 """
                         <html>
                             <body>
-                                <p>Чтобы подтвердить адрес электронной почты, пройдите по ссылке:</p>
-                                <a href="confirmmCUMoT5ilyKYdeOa8iFI+w==">Подтвердить</a>
+                                <p>Чтобы подтвердить адрес электронной почты, пройдите по ссылке (действует в течение 24 часов):</p>
+                                <a href="confirmmCUMoT5ilyKYdeOa8iFI+w==&token=token2">Подтвердить</a>
                             </body>
                         </html>""");
     }
 
     @Test
-    public void confirmEmailTest() throws UserNotFoundException {
+    public void confirmEmailTest() throws UserNotFoundException, ConfirmEmailTokenException {
         User user1 = User.builder()
                 .id(23L)
                 .username("min@list.ru")
                 .password("test")
                 .resetToken("no-token")
+                .confirmToken("token2")
+                .confirmTokenExpiresAt(EXPIRES_AT)
                 .emailConfirmed(false)
                 .build();
 
         when(userRepository.findById(23)).thenReturn(user1);
         when(encodeService.decrypt("mCUMoT5ilyKYdeOa8iFI+w==")).thenReturn("23");
+        when(tokenService.isTokenValid("token2", EXPIRES_AT, "token2")).thenReturn(true);
+
+        assertThrows(ConfirmEmailTokenException.class, () -> userService.confirmEmail("mCUMoT5ilyKYdeOa8iFI+w==", "expired"));
+        assertFalse(user1.isEmailConfirmed());
 
-        userService.confirmEmail("mCUMoT5ilyKYdeOa8iFI+w==");
+        userService.confirmEmail("mCUMoT5ilyKYdeOa8iFI+w==", "token2");
 
         assertTrue(user1.isEmailConfirmed());
+        assertNull(user1.getConfirmToken());
     }
 
     @Test
@@ -291,6 +329,8 @@ public class UserServiceTest {
 
         assertEquals("Пользователь без подтверждения Email не может быть админом!", exception.getMessage());
         assertEquals(2, user2.getRoles().size());
+        verify(tokenRevocationService).revoke(24L);
+        verify(tokenRevocationService, never()).revoke(23L);
     }
 
     @Test
@@ -346,6 +386,7 @@ public class UserServiceTest {
         userService.removeAdminRulesFromUser(23);
 
         assertEquals(1, user1.getRoles().size());
+        verify(tokenRevocationService).revoke(23L);
     }
 
     @Test
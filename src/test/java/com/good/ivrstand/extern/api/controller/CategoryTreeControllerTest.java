@@ -0,0 +1,72 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.app.service.CategoryService;
+import com.good.ivrstand.app.service.CategoryTreeService;
+import com.good.ivrstand.extern.api.assembler.CategoryAssembler;
+import com.good.ivrstand.extern.api.assembler.ContinuationTokenAssembler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Проверяет условные запросы дерева категорий по заголовку If-None-Match.
+ */
+public class CategoryTreeControllerTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CategoryTreeService categoryTreeService = mock(CategoryTreeService.class);
+        when(categoryTreeService.getTree()).thenReturn(
+                new CategoryTreeService.CategoryTree("[]".getBytes(StandardCharsets.UTF_8), ETAG));
+
+        CategoryController controller = new CategoryController(mock(CategoryService.class), mock(CategoryAssembler.class),
+                categoryTreeService, mock(ContinuationTokenAssembler.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void testTreeWithoutConditionalHeader() throws Exception {
+        mockMvc.perform(get("/categories/tree"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void testStrongEtagNotModified() throws Exception {
+        mockMvc.perform(get("/categories/tree").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void testWeakEtagNotModified() throws Exception {
+        mockMvc.perform(get("/categories/tree").header("If-None-Match", "W/" + ETAG))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testEtagListNotModified() throws Exception {
+        mockMvc.perform(get("/categories/tree").header("If-None-Match", "\"old\", " + ETAG))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testChangedTreeReturned() throws Exception {
+        mockMvc.perform(get("/categories/tree").header("If-None-Match", "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("[]"));
+    }
+}
@@ -0,0 +1,67 @@
+package com.good.ivrstand.extern.api.controller;
+
+import com.good.ivrstand.extern.infrastructure.bot.HelpEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Проверяет, как вызов помощи определяет стенд.
+ */
+public class NotificationControllerTest {
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new NotificationController(eventPublisher)).build();
+    }
+
+    private String publishedStand() {
+        ArgumentCaptor<HelpEvent> event = ArgumentCaptor.forClass(HelpEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        return event.getValue().getStandId();
+    }
+
+    @Test
+    void testStandIdFromParameter() throws Exception {
+        mockMvc.perform(post("/notifications/help").param("standId", "stand-1").header("X-Forwarded-For", "10.0.0.5"))
+                .andExpect(status().isOk());
+
+        assertEquals("stand-1", publishedStand());
+    }
+
+    @Test
+    void testStandFromForwardedFor() throws Exception {
+        mockMvc.perform(post("/notifications/help").header("X-Forwarded-For", " 10.0.0.5, 172.16.0.1")
+                        .with(request -> {
+                            request.setRemoteAddr("172.16.0.2");
+                            return request;
+                        }))
+                .andExpect(status().isOk());
+
+        assertEquals("10.0.0.5", publishedStand());
+    }
+
+    @Test
+    void testStandFromRemoteAddress() throws Exception {
+        mockMvc.perform(post("/notifications/help").with(request -> {
+                    request.setRemoteAddr("10.0.0.7");
+                    return request;
+                }))
+                .andExpect(status().isOk());
+
+        assertEquals("10.0.0.7", publishedStand());
+    }
+}
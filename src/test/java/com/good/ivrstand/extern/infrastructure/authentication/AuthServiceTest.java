@@ -1,12 +1,15 @@
 package com.good.ivrstand.extern.infrastructure.authentication;
 
-import com.good.ivrstand.app.service.EncodeService;
+import com.good.ivrstand.app.service.RefreshTokenService;
 import com.good.ivrstand.app.service.UserService;
 import com.good.ivrstand.domain.User;
 import com.good.ivrstand.exception.DifferentPasswordsException;
+import com.good.ivrstand.exception.LoginThrottledException;
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
 import com.good.ivrstand.exception.TokenRefreshException;
 import com.good.ivrstand.exception.UserDuplicateException;
 import com.good.ivrstand.exception.UserRolesException;
+import com.good.ivrstand.exception.notfound.UserNotFoundException;
 import com.good.ivrstand.extern.api.dto.UserRegisterDTO;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,11 +22,12 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,10 +44,13 @@ class AuthServiceTest {
     private AuthenticationManager authenticationManager;
 
     @Mock
-    private EncodeService encodeService;
+    private RefreshTokenService refreshTokenService;
 
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
 
     @Mock
     private UserDetailsService userDetailsService;
@@ -52,18 +59,20 @@ class AuthServiceTest {
     private AuthService authService;
 
     @Test
-    void registerUser() throws UserDuplicateException, DifferentPasswordsException, UserRolesException {
+    void registerUser() throws UserDuplicateException, DifferentPasswordsException, UserRolesException, LoginThrottledException, PasswordHashingRejectedException {
         UserRegisterDTO userRegisterDTO = new UserRegisterDTO();
         userRegisterDTO.setUsername("testUser");
         userRegisterDTO.setPassword("password123");
         userRegisterDTO.setPasswordConfirm("password123");
 
-        when(bCryptPasswordEncoder.encode("password123")).thenReturn("encodedPassword");
+        when(passwordHashingService.encode("password123")).thenReturn("encodedPassword");
+        when(userService.createUser(any(User.class))).thenReturn(User.builder().id(5L).username("testUser").build());
         when(jwtService.generateToken(any())).thenReturn("accessToken");
-        when(jwtService.generateRefreshToken(any(), any())).thenReturn("refreshToken");
+        when(refreshTokenService.issue(anyLong())).thenReturn("refreshToken");
 
-        Map<String, String> tokens = authService.registerUser(userRegisterDTO);
+        Map<String, String> tokens = authService.registerUser(userRegisterDTO, "10.0.0.1");
 
+        verify(loginThrottle).acquireAddress("10.0.0.1");
         verify(userService).createUser(any(User.class));
         assertEquals("accessToken", tokens.get("token"));
         assertEquals("refreshToken", tokens.get("refreshToken"));
@@ -76,64 +85,67 @@ class AuthServiceTest {
         userRegisterDTO.setPassword("password123");
         userRegisterDTO.setPasswordConfirm("differentPassword");
 
-        Exception e = assertThrows(DifferentPasswordsException.class, () -> authService.registerUser(userRegisterDTO));
+        Exception e = assertThrows(DifferentPasswordsException.class, () -> authService.registerUser(userRegisterDTO, "10.0.0.1"));
         assertEquals("Пароли не совпадают!", e.getMessage());
     }
 
     @Test
-    void loginUser() {
+    void loginUser() throws LoginThrottledException, PasswordHashingRejectedException {
         String username = "testUser";
         String password = "password123";
 
+        when(passwordHashingService.verify(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
         when(userService.userDetailsService()).thenReturn(userDetailsService);
-        UserDetails mockUserDetails = mock(UserDetails.class);
-        when(userService.userDetailsService().loadUserByUsername(username)).thenReturn(mockUserDetails);
-        when(jwtService.generateToken(mockUserDetails)).thenReturn("accessToken");
-        when(jwtService.generateRefreshToken(mockUserDetails, "encryptedPassword")).thenReturn("refreshToken");
-        when(encodeService.encrypt(password)).thenReturn("encryptedPassword");
+        User user = User.builder().id(5L).username(username).build();
+        when(userDetailsService.loadUserByUsername(username)).thenReturn(user);
+        when(jwtService.generateToken(user)).thenReturn("accessToken");
+        when(refreshTokenService.issue(5L)).thenReturn("refreshToken");
 
-        Map<String, String> tokens = authService.loginUser(username, password);
+        Map<String, String> tokens = authService.loginUser(username, password, "10.0.0.1");
 
+        verify(loginThrottle).acquireLogin(username, "10.0.0.1");
         verify(authenticationManager).authenticate(new UsernamePasswordAuthenticationToken(username, password));
         assertEquals("accessToken", tokens.get("token"));
         assertEquals("refreshToken", tokens.get("refreshToken"));
     }
 
     @Test
-    void refreshToken() throws TokenRefreshException {
-        String token = "accessToken";
-        String refreshToken = "refreshToken";
-        String username = "testUser";
-        String password = "password123";
+    void loginUserThrottled() throws LoginThrottledException {
+        doThrow(new LoginThrottledException("Слишком много попыток входа, повторите позже"))
+                .when(loginThrottle).acquireLogin("testUser", "10.0.0.1");
 
-        when(userService.userDetailsService()).thenReturn(userDetailsService);
-        UserDetails mockUserDetails = mock(UserDetails.class);
-        when(userService.userDetailsService().loadUserByUsername(username)).thenReturn(mockUserDetails);
-        when(jwtService.extractUsername(token)).thenReturn(username);
-        when(jwtService.extractPassword(refreshToken)).thenReturn("encryptedPassword");
-        when(encodeService.decrypt("encryptedPassword")).thenReturn(password);
-        when(encodeService.encrypt(password)).thenReturn("password123");
-        when(jwtService.isTokenValid(refreshToken, TokenType.REFRESH_TOKEN)).thenReturn(true);
-        when(jwtService.generateToken(mockUserDetails)).thenReturn("accessToken");
-        when(jwtService.generateRefreshToken(mockUserDetails, "password123")).thenReturn("refreshToken");
-
-        Map<String, String> tokens = authService.refreshToken(token, refreshToken);
-
-        verify(jwtService).isTokenValid(refreshToken, TokenType.REFRESH_TOKEN);
-        assertNotNull(tokens.get("token"));
-        assertNotNull(tokens.get("refreshToken"));
+        assertThrows(LoginThrottledException.class, () -> authService.loginUser("testUser", "password123", "10.0.0.1"));
+        verifyNoInteractions(passwordHashingService, authenticationManager);
+    }
+
+    @Test
+    void refreshToken() throws TokenRefreshException, UserNotFoundException {
+        User user = User.builder().id(5L).username("testUser").build();
+        when(refreshTokenService.rotate("refreshToken")).thenReturn(new RefreshTokenService.Rotation(5L, "rotatedToken"));
+        when(userService.getUserById(5L)).thenReturn(user);
+        when(jwtService.generateToken(user)).thenReturn("accessToken");
+
+        Map<String, String> tokens = authService.refreshToken("refreshToken");
+
+        assertEquals("accessToken", tokens.get("token"));
+        assertEquals("rotatedToken", tokens.get("refreshToken"));
+        verifyNoInteractions(authenticationManager, passwordHashingService);
     }
 
     @Test
-    void refreshTokenInvalidRefreshToken() {
-        String token = "accessToken";
-        String refreshToken = "invalidRefreshToken";
+    void refreshTokenInvalidRefreshToken() throws TokenRefreshException {
+        when(refreshTokenService.rotate("invalidRefreshToken")).thenThrow(new TokenRefreshException("Токен обновления уже использован или отозван"));
 
-        when(jwtService.extractUsername(token)).thenReturn("user");
-        when(jwtService.extractPassword(refreshToken)).thenReturn("wrongPassword");
-        when(jwtService.isTokenValid(refreshToken, TokenType.REFRESH_TOKEN)).thenReturn(false);
+        assertThrows(TokenRefreshException.class, () -> authService.refreshToken("invalidRefreshToken"));
+        verify(jwtService, never()).generateToken(any());
+    }
+
+    @Test
+    void refreshTokenDeletedUser() throws TokenRefreshException, UserNotFoundException {
+        when(refreshTokenService.rotate("refreshToken")).thenReturn(new RefreshTokenService.Rotation(5L, "rotatedToken"));
+        when(userService.getUserById(5L)).thenThrow(new UserNotFoundException("deleted"));
 
-        Exception e = assertThrows(TokenRefreshException.class, () -> authService.refreshToken(token, refreshToken));
+        Exception e = assertThrows(TokenRefreshException.class, () -> authService.refreshToken("refreshToken"));
         assertEquals("Ошибка обновления токена", e.getMessage());
     }
 }
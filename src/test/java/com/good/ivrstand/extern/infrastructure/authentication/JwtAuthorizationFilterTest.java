@@ -0,0 +1,137 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.app.service.TokenRevocationService;
+import com.good.ivrstand.app.service.UserService;
+import com.good.ivrstand.domain.Role;
+import com.good.ivrstand.domain.User;
+import com.good.ivrstand.domain.enumeration.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JwtAuthorizationFilterTest {
+
+    private JwtService jwtService;
+
+    private UserDetailsService userDetailsService;
+
+    private TokenRevocationService tokenRevocationService;
+
+    private JwtAuthorizationFilter filter;
+
+    private JwtAuthorizationFilter statelessFilter;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = spy(new JwtService(JwtServiceTest.SIGN_KEY));
+        userDetailsService = mock(UserDetailsService.class);
+        UserService userService = mock(UserService.class);
+        when(userService.userDetailsService()).thenReturn(userDetailsService);
+        tokenRevocationService = mock(TokenRevocationService.class);
+        filter = new JwtAuthorizationFilter(jwtService, userService, tokenRevocationService, false);
+        statelessFilter = new JwtAuthorizationFilter(jwtService, userService, tokenRevocationService, true);
+
+        user = User.builder()
+                .id(7L)
+                .username("admin@mail.ru")
+                .roles(List.of(Role.builder().id(2L).name(UserRole.ROLE_ADMIN).build()))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletResponse filter(String token) throws Exception {
+        return filter(filter, token);
+    }
+
+    private MockHttpServletResponse filter(JwtAuthorizationFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/items/1");
+        request.addHeader("Authorization", "Bearer " + token);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void testAuthenticatesWithSinglePass() throws Exception {
+        String token = jwtService.generateToken(user);
+        when(userDetailsService.loadUserByUsername("admin@mail.ru")).thenReturn(user);
+
+        MockHttpServletResponse response = filter(token);
+
+        assertEquals(200, response.getStatus());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        JwtPrincipal principal = assertInstanceOf(JwtPrincipal.class, authentication.getPrincipal());
+        assertEquals(7L, principal.id());
+        assertEquals("admin@mail.ru", authentication.getName());
+        assertEquals(List.of("ROLE_ADMIN"), authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        verify(jwtService, times(1)).verifyAccessToken(token);
+        verify(jwtService, never()).extractUsername(any());
+    }
+
+    @Test
+    void testDeletedUserRejected() throws Exception {
+        String token = jwtService.generateToken(user);
+        when(userDetailsService.loadUserByUsername("admin@mail.ru")).thenThrow(new UsernameNotFoundException("deleted"));
+
+        MockHttpServletResponse response = filter(token);
+
+        assertEquals(403, response.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testOpaqueRefreshTokenRejected() throws Exception {
+        MockHttpServletResponse response = filter("opaque-refresh-token");
+
+        assertEquals(403, response.getStatus());
+        assertEquals("JWT error! Use main token instead of refresh token!", response.getContentAsString());
+    }
+
+    @Test
+    void testStatelessAuthorizationTrustsClaims() throws Exception {
+        String token = jwtService.generateToken(user);
+
+        MockHttpServletResponse response = filter(statelessFilter, token);
+
+        assertEquals(200, response.getStatus());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertEquals(List.of("ROLE_ADMIN"), authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        verify(tokenRevocationService).isRevoked(eq(7L), any(Instant.class));
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void testStatelessAuthorizationRejectsRevokedToken() throws Exception {
+        String token = jwtService.generateToken(user);
+        when(tokenRevocationService.isRevoked(eq(7L), any(Instant.class))).thenReturn(true);
+
+        MockHttpServletResponse response = filter(statelessFilter, token);
+
+        assertEquals(403, response.getStatus());
+        assertEquals("JWT revoked! Log in again.", response.getContentAsString());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService);
+    }
+}
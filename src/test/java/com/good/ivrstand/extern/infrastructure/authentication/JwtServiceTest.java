@@ -0,0 +1,88 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.domain.Role;
+import com.good.ivrstand.domain.User;
+import com.good.ivrstand.domain.enumeration.UserRole;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    static final String SIGN_KEY = "c2lnbi1rZXktZm9yLXRlc3RzLXdpdGgtZW5vdWdoLWxlbmd0aC0xMjM0NTY3ODk=";
+
+    static final String OTHER_KEY = "b3RoZXIta2V5LWZvci10ZXN0cy13aXRoLWVub3VnaC1sZW5ndGgtMTIzNDU2Nzg=";
+
+    private JwtService jwtService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SIGN_KEY);
+        user = User.builder()
+                .id(7L)
+                .username("admin@mail.ru")
+                .password("password")
+                .roles(List.of(Role.builder().id(1L).name(UserRole.ROLE_USER).build(),
+                        Role.builder().id(2L).name(UserRole.ROLE_ADMIN).build()))
+                .build();
+    }
+
+    @Test
+    void testVerifyAccessToken() {
+        String token = jwtService.generateToken(user);
+
+        JwtPrincipal principal = jwtService.verifyAccessToken(token);
+
+        assertEquals(7L, principal.id());
+        assertEquals("admin@mail.ru", principal.username());
+        assertEquals("admin@mail.ru", principal.getName());
+        assertEquals(List.of("ROLE_USER", "ROLE_ADMIN"), principal.roles());
+        assertThrows(UnsupportedOperationException.class, () -> principal.roles().add("ROLE_HACKER"));
+        assertEquals("admin@mail.ru", jwtService.extractUsername(token));
+        assertTrue(jwtService.isTokenValid(token));
+    }
+
+    @Test
+    void testVerifyForeignSignatureRejected() {
+        String token = new JwtService(OTHER_KEY).generateToken(user);
+
+        assertThrows(SignatureException.class, () -> jwtService.verifyAccessToken(token));
+    }
+
+    @Test
+    void testVerifyExpiredToken() {
+        String token = Jwts.builder()
+                .subject("admin@mail.ru")
+                .claim("id", 7L)
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SIGN_KEY)), Jwts.SIG.HS256)
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verifyAccessToken(token));
+    }
+
+    @Test
+    void testVerifyTokenWithoutRoles() {
+        String token = Jwts.builder()
+                .subject("admin@mail.ru")
+                .expiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SIGN_KEY)), Jwts.SIG.HS256)
+                .compact();
+
+        JwtPrincipal principal = jwtService.verifyAccessToken(token);
+
+        assertNull(principal.id());
+        assertEquals(List.of(), principal.roles());
+    }
+}
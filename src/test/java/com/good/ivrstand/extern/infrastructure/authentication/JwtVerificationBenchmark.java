@@ -0,0 +1,86 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.domain.Role;
+import com.good.ivrstand.domain.User;
+import com.good.ivrstand.domain.enumeration.UserRole;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает проверку токена доступа в фильтре: прежний путь с тремя разборами токена и сборкой ключа
+ * и парсера на каждый разбор против одного разбора готовым парсером.
+ * Запуск: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.good.ivrstand.extern.infrastructure.authentication.JwtVerificationBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerificationBenchmark {
+
+    private JwtService jwtService;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(JwtServiceTest.SIGN_KEY);
+        token = jwtService.generateToken(User.builder()
+                .id(7L)
+                .username("admin@mail.ru")
+                .roles(List.of(Role.builder().id(2L).name(UserRole.ROLE_ADMIN).build()))
+                .build());
+    }
+
+    /**
+     * Прежний путь фильтра: extractUsername, затем isTokenValidAndMatchesUser
+     * с повторными extractUsername и extractExpiration.
+     */
+    @Benchmark
+    public boolean legacyFilter() {
+        String username = parse(token).getSubject();
+        return parse(token).getSubject().equals(username) && !parse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public JwtPrincipal singlePass() {
+        return jwtService.verifyAccessToken(token);
+    }
+
+    private static Claims parse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(JwtServiceTest.SIGN_KEY));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerificationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
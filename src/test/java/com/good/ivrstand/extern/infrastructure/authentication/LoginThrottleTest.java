@@ -0,0 +1,92 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.exception.LoginThrottledException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private MutableClock clock;
+
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        loginThrottle = new LoginThrottle(Duration.ofMinutes(1), 3, 5, clock);
+    }
+
+    @Test
+    void testUsernameLimit() throws LoginThrottledException {
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquireLogin("Admin@mail.ru", "10.0.0." + i);
+        }
+
+        assertThrows(LoginThrottledException.class, () -> loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.9"));
+        loginThrottle.acquireLogin("user@mail.ru", "10.0.0.9");
+        assertEquals(1, loginThrottle.getThrottledByUsername());
+        assertEquals(0, loginThrottle.getThrottledByAddress());
+    }
+
+    @Test
+    void testAddressLimit() throws LoginThrottledException {
+        for (int i = 0; i < 5; i++) {
+            loginThrottle.acquireAddress("10.0.0.1");
+        }
+
+        assertThrows(LoginThrottledException.class, () -> loginThrottle.acquireLogin("user@mail.ru", "10.0.0.1"));
+        loginThrottle.acquireAddress("10.0.0.2");
+        assertEquals(1, loginThrottle.getThrottledByAddress());
+    }
+
+    @Test
+    void testWindowSlides() throws LoginThrottledException {
+        loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1");
+        clock.advance(Duration.ofSeconds(30));
+        loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1");
+        loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1");
+        assertThrows(LoginThrottledException.class, () -> loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1"));
+
+        clock.advance(Duration.ofSeconds(40));
+        loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1");
+        assertThrows(LoginThrottledException.class, () -> loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1"));
+
+        clock.advance(Duration.ofMinutes(2));
+        loginThrottle.evictIdle();
+        for (int i = 0; i < 3; i++) {
+            loginThrottle.acquireLogin("admin@mail.ru", "10.0.0.1");
+        }
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.good.ivrstand.extern.infrastructure.authentication;
+
+import com.good.ivrstand.exception.PasswordHashingRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    private PasswordHashingService passwordHashingService;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        passwordHashingService = new PasswordHashingService(new BCryptPasswordEncoder(4), executor, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testEncodeAndVerify() throws PasswordHashingRejectedException {
+        String encoded = passwordHashingService.encode("password123");
+
+        assertTrue(passwordHashingService.verify(() -> new BCryptPasswordEncoder().matches("password123", encoded)));
+        assertThrows(BadCredentialsException.class, () -> passwordHashingService.verify(() -> {
+            throw new BadCredentialsException("Bad credentials");
+        }));
+
+        PasswordHashingService.Statistics statistics = passwordHashingService.getStatistics();
+        assertEquals(3, statistics.completed());
+        assertEquals(0, statistics.rejected());
+        assertTrue(statistics.maxLatencyMillis() > 0);
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            callers.submit(() -> passwordHashingService.verify(() -> {
+                started.countDown();
+                await(release);
+                return true;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            callers.submit(() -> passwordHashingService.encode("queued"));
+            while (passwordHashingService.getStatistics().queued() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(PasswordHashingRejectedException.class, () -> passwordHashingService.encode("rejected"));
+            assertEquals(1, passwordHashingService.getStatistics().rejected());
+            assertEquals(1, passwordHashingService.getStatistics().active());
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Локальная замена Bot API для тестов: принимает запросы бота по адресу /bot{token}/{method},
+ * запоминает их и отвечает успехом. Сетевой доступ к Telegram не нужен.
+ */
+class FakeBotApiServer implements AutoCloseable {
+
+    static {
+        // Без TCP_NODELAY каждый ответ задерживается на ~40 мс и замер пропускной способности теряет смысл
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, List<JsonNode>> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger messageIds = new AtomicInteger();
+
+    FakeBotApiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return базовый адрес для {@link org.telegram.telegrambots.bots.DefaultBotOptions#setBaseUrl}
+     */
+    String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * @return запросы, полученные методом Bot API
+     */
+    List<JsonNode> requests(String method) {
+        return requests.getOrDefault(method.toLowerCase(), List.of());
+    }
+
+    /**
+     * Ждет, пока метод Bot API не будет вызван заданное количество раз.
+     *
+     * @return true, если вызовы дождались
+     */
+    boolean awaitRequests(String method, int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (requests(method).size() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase();
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        requests.computeIfAbsent(method, m -> new CopyOnWriteArrayList<>()).add(request);
+
+        ObjectNode response = objectMapper.createObjectNode().put("ok", true);
+        if ("sendmessage".equals(method)) {
+            ObjectNode message = response.putObject("result")
+                    .put("message_id", messageIds.incrementAndGet())
+                    .put("date", System.currentTimeMillis() / 1000)
+                    .put("text", request.path("text").asText());
+            message.putObject("chat")
+                    .put("id", request.path("chat_id").asLong())
+                    .put("type", "private");
+        } else {
+            response.put("result", true);
+        }
+
+        byte[] body = objectMapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=" + StandardCharsets.UTF_8.name());
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
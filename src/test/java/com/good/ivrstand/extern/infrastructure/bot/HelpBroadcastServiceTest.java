@@ -0,0 +1,269 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import com.good.ivrstand.app.repository.NotificationChatRepository;
+import com.good.ivrstand.app.service.NotificationService;
+import com.good.ivrstand.domain.enumeration.NotificationCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.ResponseParameters;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class HelpBroadcastServiceTest {
+
+    private static final String FIRST_MESSAGE = "2024-01-01, 09:00: требуется помощь на IVR-стенде stand-1";
+
+    private NotificationChatRepository notificationChatRepository;
+
+    private TelegramBot telegramBot;
+
+    private MutableClock clock;
+
+    private List<Runnable> submitted;
+
+    private HelpBroadcastService helpBroadcastService;
+
+    @BeforeEach
+    void setUp() throws TelegramApiException {
+        notificationChatRepository = mock(NotificationChatRepository.class);
+        NotificationService notificationService = new NotificationService("search", "help", notificationChatRepository);
+        telegramBot = mock(TelegramBot.class);
+        when(telegramBot.sendMessage(anyString(), anyString())).thenReturn(message(10));
+        clock = new MutableClock();
+        submitted = new ArrayList<>();
+        helpBroadcastService = new HelpBroadcastService(notificationChatRepository, notificationService, telegramBot,
+                submitted::add, 1000, 60000, 3, Duration.ofMillis(1), Duration.ofMinutes(5), clock);
+    }
+
+    private void runSubmitted() {
+        while (!submitted.isEmpty()) {
+            submitted.remove(0).run();
+        }
+    }
+
+    private void callHelp(String standId) {
+        helpBroadcastService.onHelpEvent(new HelpEvent(this, standId));
+    }
+
+    private static Message message(int messageId) {
+        Message message = new Message();
+        message.setMessageId(messageId);
+        return message;
+    }
+
+    private static TelegramApiRequestException requestException(int errorCode, Integer retryAfter) {
+        TelegramApiRequestException exception = mock(TelegramApiRequestException.class);
+        when(exception.getErrorCode()).thenReturn(errorCode);
+        if (retryAfter != null) {
+            ResponseParameters parameters = new ResponseParameters();
+            parameters.setRetryAfter(retryAfter);
+            when(exception.getParameters()).thenReturn(parameters);
+        }
+        return exception;
+    }
+
+    @Test
+    void testEventReturnsBeforeSending() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1", "2"));
+
+        callHelp("stand-1");
+
+        verifyNoInteractions(notificationChatRepository, telegramBot);
+        runSubmitted();
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE);
+        verify(telegramBot).sendMessage("2", FIRST_MESSAGE);
+    }
+
+    @Test
+    void testNoChats() {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of());
+
+        callHelp("stand-1");
+
+        assertDoesNotThrow(this::runSubmitted);
+        verifyNoInteractions(telegramBot);
+    }
+
+    @Test
+    void testRepeatedCallsEditSentMessage() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1", "2"));
+        callHelp("stand-1");
+        runSubmitted();
+
+        clock.advance(Duration.ofSeconds(20));
+        callHelp("stand-1");
+        clock.advance(Duration.ofSeconds(30));
+        callHelp("stand-1");
+        callHelp("stand-1");
+
+        assertEquals(1, submitted.size());
+        runSubmitted();
+        String updated = FIRST_MESSAGE + "\nВызовов: 4, последний в 09:00:50";
+        verify(telegramBot).editMessage("1", 10, updated);
+        verify(telegramBot).editMessage("2", 10, updated);
+        verify(telegramBot, times(2)).sendMessage(anyString(), anyString());
+        verify(notificationChatRepository, times(1)).findChatIdsByCategory(NotificationCategory.HELP);
+    }
+
+    @Test
+    void testCallsBeforeBroadcastAreSentOnce() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1"));
+
+        callHelp("stand-1");
+        clock.advance(Duration.ofSeconds(5));
+        callHelp("stand-1");
+        callHelp("stand-1");
+        runSubmitted();
+
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE + "\nВызовов: 3, последний в 09:00:05");
+        verify(telegramBot, never()).editMessage(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void testStandsAreCountedSeparately() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1"));
+
+        callHelp("stand-1");
+        callHelp("stand-2");
+        runSubmitted();
+
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE);
+        verify(telegramBot).sendMessage("1", "2024-01-01, 09:00: требуется помощь на IVR-стенде stand-2");
+    }
+
+    @Test
+    void testCallAfterWindowIsNewMessage() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1"));
+        callHelp("stand-1");
+        runSubmitted();
+
+        clock.advance(Duration.ofMinutes(6));
+        helpBroadcastService.evictExpiredCalls();
+        callHelp("stand-1");
+        runSubmitted();
+
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE);
+        verify(telegramBot).sendMessage("1", "2024-01-01, 09:06: требуется помощь на IVR-стенде stand-1");
+        verify(telegramBot, never()).editMessage(anyString(), anyInt(), anyString());
+    }
+
+    @Test
+    void testFrequentCallsStartNewMessageAfterWindow() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1"));
+        callHelp("stand-1");
+        runSubmitted();
+
+        // Нажатия чаще окна не продлевают вызов бесконечно
+        for (int i = 0; i < 3; i++) {
+            clock.advance(Duration.ofMinutes(2));
+            callHelp("stand-1");
+            runSubmitted();
+        }
+
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE);
+        verify(telegramBot, times(2)).editMessage(eq("1"), eq(10), anyString());
+        verify(telegramBot).sendMessage("1", "2024-01-01, 09:06: требуется помощь на IVR-стенде stand-1");
+    }
+
+    @Test
+    void testSendsNewMessageWhenEditRejected() throws TelegramApiException {
+        when(notificationChatRepository.findChatIdsByCategory(NotificationCategory.HELP)).thenReturn(List.of("1"));
+        callHelp("stand-1");
+        runSubmitted();
+        TelegramApiRequestException notFound = requestException(400, null);
+        when(notFound.getApiResponse()).thenReturn("Bad Request: message to edit not found");
+        doThrow(notFound).when(telegramBot).editMessage(anyString(), anyInt(), anyString());
+
+        callHelp("stand-1");
+        runSubmitted();
+
+        verify(telegramBot).editMessage(eq("1"), eq(10), anyString());
+        verify(telegramBot).sendMessage("1", FIRST_MESSAGE + "\nВызовов: 2, последний в 09:00:00");
+    }
+
+    @Test
+    void testRetriesTooManyRequests() throws TelegramApiException {
+        TelegramApiRequestException tooManyRequests = requestException(429, 0);
+        when(telegramBot.sendMessage("1", "help")).thenThrow(tooManyRequests).thenThrow(new TelegramApiException("timeout")).thenReturn(message(1));
+
+        Message message = helpBroadcastService.execute("1", () -> telegramBot.sendMessage("1", "help"));
+
+        assertEquals(1, message.getMessageId());
+        verify(telegramBot, times(3)).sendMessage("1", "help");
+    }
+
+    @Test
+    void testDoesNotRetryRejectedChat() throws TelegramApiException {
+        TelegramApiRequestException forbidden = requestException(403, null);
+        when(telegramBot.sendMessage(any(), any())).thenThrow(forbidden);
+
+        assertThrows(TelegramApiRequestException.class,
+                () -> helpBroadcastService.execute("1", () -> telegramBot.sendMessage("1", "help")));
+
+        verify(telegramBot, times(1)).sendMessage("1", "help");
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() throws TelegramApiException {
+        TelegramApiRequestException serverError = requestException(502, null);
+        when(telegramBot.sendMessage(any(), any())).thenThrow(serverError);
+
+        assertNull(helpBroadcastService.execute("1", () -> telegramBot.sendMessage("1", "help")));
+
+        verify(telegramBot, times(3)).sendMessage("1", "help");
+    }
+
+    @Test
+    void testTokenBucket() {
+        long[] now = {0};
+        TokenBucket bucket = new TokenBucket(2, 3, () -> now[0]);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(500_000_000L, bucket.reserve());
+
+        now[0] = 5_000_000_000L;
+        assertEquals(0, bucket.reserve());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T09:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
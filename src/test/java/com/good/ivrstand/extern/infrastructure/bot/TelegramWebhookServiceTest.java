@@ -0,0 +1,130 @@
+package com.good.ivrstand.extern.infrastructure.bot;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.good.ivrstand.app.repository.NotificationChatRepository;
+import com.good.ivrstand.app.service.NotificationService;
+import com.good.ivrstand.exception.TelegramUpdateRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class TelegramWebhookServiceTest {
+
+    private static final String SECRET = "webhook-secret";
+
+    private FakeBotApiServer botApi;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private TelegramBot telegramBot;
+
+    private TelegramWebhookService telegramWebhookService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        botApi = new FakeBotApiServer();
+        NotificationChatRepository notificationChatRepository = mock(NotificationChatRepository.class);
+        NotificationService notificationService = mock(NotificationService.class);
+        when(notificationService.performCommand(anyString(), anyString(), anyList()))
+                .thenAnswer(invocation -> "ответ на " + invocation.getArgument(0));
+        telegramBot = new TelegramBot(notificationChatRepository, notificationService, "123:TOKEN", "ivr_bot", botApi.baseUrl());
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(10000);
+        executor.initialize();
+        telegramWebhookService = new TelegramWebhookService(telegramBot, executor, SECRET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        botApi.close();
+    }
+
+    private static String update(int updateId, long chatId, String text) {
+        return """
+                {"update_id":%d,"message":{"message_id":%d,"date":0,"chat":{"id":%d,"type":"private"},"text":"%s"}}
+                """.formatted(updateId, updateId, chatId, text);
+    }
+
+    @Test
+    void testSecretValidation() {
+        assertTrue(telegramWebhookService.isSecretValid(SECRET));
+        assertFalse(telegramWebhookService.isSecretValid("other"));
+        assertFalse(telegramWebhookService.isSecretValid(null));
+        assertThrows(IllegalStateException.class, () -> new TelegramWebhookService(telegramBot, executor, " "));
+    }
+
+    @Test
+    void testRepliesToEveryUpdate() throws Exception {
+        int updates = 1000;
+        long start = System.nanoTime();
+        for (int i = 1; i <= updates; i++) {
+            telegramWebhookService.accept(update(i, 100 + i % 10, "/cmd" + i));
+        }
+
+        assertTrue(botApi.awaitRequests("sendMessage", updates, 30_000));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        log.info("Обработано {} обновлений за {} с: {} обновлений/с", updates, String.format("%.2f", seconds),
+                String.format("%.0f", updates / seconds));
+
+        Set<String> replies = botApi.requests("sendMessage").stream()
+                .map(request -> request.path("text").asText())
+                .collect(Collectors.toSet());
+        assertEquals(updates, replies.size());
+        assertTrue(replies.contains("ответ на /cmd1"));
+        JsonNode last = botApi.requests("sendMessage").stream()
+                .filter(request -> request.path("text").asText().equals("ответ на /cmd" + updates))
+                .findFirst().orElseThrow();
+        assertEquals(String.valueOf(100 + updates % 10), last.path("chat_id").asText());
+    }
+
+    @Test
+    void testIgnoresUnknownFields() throws Exception {
+        telegramWebhookService.accept("""
+                {"update_id":1,"new_field":{"a":1},"message":{"message_id":1,"date":0,"chat":{"id":5,"type":"private","new_chat_field":true},"text":"/start"}}
+                """);
+
+        assertTrue(botApi.awaitRequests("sendMessage", 1, 5_000));
+        assertEquals("ответ на /start", botApi.requests("sendMessage").get(0).path("text").asText());
+    }
+
+    @Test
+    void testMalformedUpdate() {
+        assertThrows(IOException.class, () -> telegramWebhookService.accept("{\"update_id\":"));
+    }
+
+    @Test
+    void testRejectsWhenQueueFull() {
+        TelegramWebhookService rejecting = new TelegramWebhookService(telegramBot, task -> {
+            throw new TaskRejectedException("full");
+        }, SECRET);
+
+        assertThrows(TelegramUpdateRejectedException.class, () -> rejecting.accept(update(1, 5, "/start")));
+    }
+
+    @Test
+    void testInitializerSetsWebhook() throws InterruptedException {
+        new BotInitializer(telegramBot, BotInitializer.WEBHOOK_MODE, "https://ivr.example/telegram/webhook", SECRET).init();
+
+        assertTrue(botApi.awaitRequests("setWebhook", 1, 5_000));
+        JsonNode request = botApi.requests("setWebhook").get(0);
+        assertEquals("https://ivr.example/telegram/webhook", request.path("url").asText());
+        assertEquals(SECRET, request.path("secret_token").asText());
+        assertTrue(botApi.requests("getUpdates").isEmpty());
+    }
+}
@@ -0,0 +1,255 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Две встроенные базы H2 заменяют основную базу и реплику: в каждой лежит своя метка,
+ * по которой видно, куда ушел запрос.
+ */
+class RoutingDataSourceTest {
+
+    private HikariDataSource primary;
+
+    private HikariDataSource replica;
+
+    private MutableClock clock;
+
+    private ReadYourWritesTracker tracker;
+
+    private RoutingDataSource routingDataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate readTransaction;
+
+    private TransactionTemplate writeTransaction;
+
+    private HikariDataSource createPool(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(2);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS marker (name VARCHAR(20))");
+        template.execute("DELETE FROM marker");
+        template.update("INSERT INTO marker VALUES (?)", name);
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = createPool("primary");
+        replica = createPool("replica");
+        clock = new MutableClock();
+        tracker = new ReadYourWritesTracker(Duration.ofSeconds(10), clock);
+        routingDataSource = new RoutingDataSource(primary, replica, tracker);
+
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RoutingDataSource.unpin();
+        primary.close();
+        replica.close();
+    }
+
+    private String marker(TransactionTemplate transaction) {
+        return transaction.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+    }
+
+    private long routed(DataSourceRoute route) {
+        return routingDataSource.getPoolStatistics().stream()
+                .filter(pool -> pool.route() == route)
+                .findFirst()
+                .orElseThrow()
+                .routedConnections();
+    }
+
+    @Test
+    void testReadOnlyTransactionUsesReplica() {
+        // Прокси при первом обращении берет соединение, чтобы узнать его настройки по умолчанию
+        jdbcTemplate.execute("SELECT 1");
+        long primaryBefore = routed(DataSourceRoute.PRIMARY);
+        long replicaBefore = routed(DataSourceRoute.REPLICA);
+
+        assertEquals("replica", marker(readTransaction));
+        assertEquals("primary", marker(writeTransaction));
+        assertEquals("primary", jdbcTemplate.queryForObject("SELECT name FROM marker", String.class));
+
+        assertEquals(1, routed(DataSourceRoute.REPLICA) - replicaBefore);
+        assertEquals(2, routed(DataSourceRoute.PRIMARY) - primaryBefore);
+    }
+
+    @Test
+    void testPinnedReadUsesPrimary() {
+        RoutingDataSource.pinToPrimary();
+        assertEquals("primary", marker(readTransaction));
+
+        RoutingDataSource.unpin();
+        assertEquals("replica", marker(readTransaction));
+    }
+
+    @Test
+    void testCatalogWritePinsAllReads() {
+        TimestampsCache delegate = mock(TimestampsCache.class);
+        CatalogWriteTimestampsCache timestamps = new CatalogWriteTimestampsCache(delegate,
+                () -> Set.of("items", "item_icon_links"), tracker);
+
+        timestamps.preInvalidate(new String[]{"users"}, null);
+        timestamps.invalidate(new String[]{"users"}, null);
+        assertEquals("replica", marker(readTransaction));
+
+        // Редактор изменил услугу: после фиксации Hibernate сбрасывает кэш и снимает блокировку меток
+        timestamps.preInvalidate(new String[]{"item_icon_links", "items"}, null);
+        clock.advance(Duration.ofSeconds(3));
+        timestamps.invalidate(new String[]{"item_icon_links", "items"}, null);
+        verify(delegate).invalidate(new String[]{"item_icon_links", "items"}, null);
+
+        // Чтение другого посетителя заполнит кэш заново, поэтому идет не в отстающую реплику
+        clock.advance(Duration.ofSeconds(10));
+        assertEquals("primary", marker(readTransaction));
+
+        clock.advance(Duration.ofMillis(1));
+        assertEquals("replica", marker(readTransaction));
+    }
+
+    @Test
+    void testWithoutReplica() {
+        RoutingDataSource single = new RoutingDataSource(primary, null, tracker);
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(single)));
+        transaction.setReadOnly(true);
+        JdbcTemplate template = new JdbcTemplate(new LazyConnectionDataSourceProxy(single));
+
+        assertEquals("primary", transaction.execute(status ->
+                template.queryForObject("SELECT name FROM marker", String.class)));
+        assertEquals("primary", single.getPoolStatistics().get(1).pool());
+    }
+
+    @Test
+    void testPoolStatistics() {
+        marker(readTransaction);
+
+        RoutingDataSource.PoolStatistics statistics = routingDataSource.getPoolStatistics().get(1);
+        assertEquals(DataSourceRoute.REPLICA, statistics.route());
+        assertEquals("replica", statistics.pool());
+        assertEquals(0, statistics.active());
+        assertTrue(statistics.total() >= 1);
+    }
+
+    @Test
+    void testTrackerWindow() {
+        MutableClock clock = new MutableClock();
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(10), clock);
+
+        assertFalse(tracker.hasRecentWrite("admin"));
+        tracker.recordWrite("admin");
+        clock.advance(Duration.ofSeconds(10));
+        assertTrue(tracker.hasRecentWrite("admin"));
+        assertFalse(tracker.hasRecentWrite("editor"));
+        clock.advance(Duration.ofMillis(1));
+        assertFalse(tracker.hasRecentWrite("admin"));
+    }
+
+    @Test
+    void testInterceptorPinsEditorAfterWrite() {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(tracker);
+
+        MockHttpServletRequest get = request("GET", "admin");
+        interceptor.preHandle(get, new MockHttpServletResponse(), null);
+        assertEquals("replica", marker(readTransaction));
+        interceptor.afterCompletion(get, new MockHttpServletResponse(), null, null);
+
+        MockHttpServletRequest failedPatch = request("PATCH", "admin");
+        MockHttpServletResponse conflict = new MockHttpServletResponse();
+        conflict.setStatus(409);
+        interceptor.afterCompletion(failedPatch, conflict, null, null);
+        assertFalse(tracker.hasRecentWrite("admin"));
+
+        interceptor.afterCompletion(request("PATCH", "admin"), new MockHttpServletResponse(), null, null);
+        assertTrue(tracker.hasRecentWrite("admin"));
+
+        MockHttpServletRequest nextGet = request("GET", "admin");
+        interceptor.preHandle(nextGet, new MockHttpServletResponse(), null);
+        assertEquals("primary", marker(readTransaction));
+        interceptor.afterCompletion(nextGet, new MockHttpServletResponse(), null, null);
+        assertEquals("replica", marker(readTransaction));
+
+        MockHttpServletRequest anonymous = request("GET", null);
+        interceptor.preHandle(anonymous, new MockHttpServletResponse(), null);
+        assertEquals("replica", marker(readTransaction));
+    }
+
+    @Test
+    void testInterceptorPinsWriteRequests() {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(tracker);
+
+        // Чтение внутри изменяющего запроса ложится в основу записи, поэтому не идет в реплику
+        MockHttpServletRequest put = request("PUT", null);
+        interceptor.preHandle(put, new MockHttpServletResponse(), null);
+        assertEquals("primary", marker(readTransaction));
+        interceptor.afterCompletion(put, new MockHttpServletResponse(), null, null);
+
+        assertEquals("replica", marker(readTransaction));
+    }
+
+    private MockHttpServletRequest request(String method, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/items/1");
+        if (username != null) {
+            Principal principal = () -> username;
+            request.setUserPrincipal(principal);
+        }
+        return request;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.good.ivrstand.extern.infrastructure.datasource;
+
+import com.good.ivrstand.extern.infrastructure.config.DataSourceConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Маршрутизация через JPA так, как она работает в приложении: менеджер сущностей открыт на весь запрос
+ * (open-in-view), транзакциями управляет JpaTransactionManager, а настройки Hibernate берутся из DataSourceConfig.
+ * Чтение и запись выполняются отдельными транзакциями, как findById и save репозитория без общей транзакции.
+ */
+class RoutingJpaTest {
+
+    private HikariDataSource primary;
+
+    private HikariDataSource replica;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private EntityManager entityManager;
+
+    private TransactionTemplate readTransaction;
+
+    private TransactionTemplate writeTransaction;
+
+    private HikariDataSource createPool(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:jpa-" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(2);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS route_marker (id BIGINT PRIMARY KEY, name VARCHAR(20))");
+        template.execute("DELETE FROM route_marker");
+        template.update("INSERT INTO route_marker VALUES (1, ?)", name);
+        return dataSource;
+    }
+
+    @BeforeEach
+    void setUp() {
+        primary = createPool("primary");
+        replica = createPool("replica");
+        RoutingDataSource routingDataSource = new RoutingDataSource(primary, replica,
+                new ReadYourWritesTracker(Duration.ofSeconds(10)));
+
+        Map<String, Object> properties = new HashMap<>();
+        new DataSourceConfig().connectionHandlingCustomizer().customize(properties);
+        properties.put("hibernate.hbm2ddl.auto", "none");
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(new LazyConnectionDataSourceProxy(routingDataSource));
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setManagedTypes(PersistenceManagedTypes.of(RouteMarker.class.getName()));
+        factoryBean.setJpaPropertyMap(properties);
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+
+        // Как OpenEntityManagerInViewInterceptor: один менеджер сущностей на весь запрос
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(entityManagerFactory.createEntityManager()));
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        holder.getEntityManager().close();
+        factoryBean.destroy();
+        primary.close();
+        replica.close();
+    }
+
+    private String stored(HikariDataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("SELECT name FROM route_marker WHERE id = 1", String.class);
+    }
+
+    @Test
+    void testWriteAfterReplicaReadGoesToPrimary() {
+        RouteMarker marker = readTransaction.execute(status -> entityManager.find(RouteMarker.class, 1L));
+        assertEquals("replica", marker.getName());
+
+        writeTransaction.executeWithoutResult(status -> {
+            marker.setName("edited");
+            entityManager.merge(marker);
+        });
+
+        assertEquals("edited", stored(primary));
+        assertEquals("replica", stored(replica));
+    }
+
+    @Test
+    void testReadAfterWriteInRequestUsesReplicaAgain() {
+        writeTransaction.executeWithoutResult(status -> entityManager.find(RouteMarker.class, 1L).setName("edited"));
+        entityManager.clear();
+
+        RouteMarker marker = readTransaction.execute(status -> entityManager.find(RouteMarker.class, 1L));
+
+        assertEquals("replica", marker.getName());
+        assertEquals("edited", stored(primary));
+    }
+
+    @Entity
+    @Table(name = "route_marker")
+    static class RouteMarker {
+
+        @Id
+        private Long id;
+
+        private String name;
+
+        String getName() {
+            return name;
+        }
+
+        void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.good.ivrstand.extern.infrastructure.service;
+
+import com.good.ivrstand.app.service.MediaUsageService;
+import com.good.ivrstand.exception.FileDuplicateException;
+import com.good.ivrstand.exception.NoSuchFileException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LocalS3ServiceTest {
+
+    @TempDir
+    Path root;
+
+    private LocalS3Service localS3Service;
+
+    private MediaUsageService mediaUsageService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mediaUsageService = mock(MediaUsageService.class);
+        localS3Service = new LocalS3Service(root.toString(), "http://localhost:5003/files/", mediaUsageService);
+    }
+
+    @Test
+    void testUploadFile() throws IOException, FileDuplicateException, NoSuchFileException {
+        byte[] content = {1, 2, 3, 4};
+        MockMultipartFile file = new MockMultipartFile("file", "audio.wav", "audio/wav", content);
+
+        String link = localS3Service.uploadFile(file, "audio");
+
+        assertTrue(link.startsWith("http://localhost:5003/files/audio/"));
+        assertTrue(link.endsWith(".wav"));
+        verify(mediaUsageService).recordUpload(link, 4);
+
+        String key = link.substring("http://localhost:5003/files/".length());
+        assertEquals(4, key.split("/").length);
+        Path stored = localS3Service.resolveFile(key);
+        assertArrayEquals(content, Files.readAllBytes(stored));
+
+        try (Stream<Path> files = Files.walk(root)) {
+            assertTrue(files.noneMatch(path -> path.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testDeleteFileByUrl() throws IOException, FileDuplicateException, NoSuchFileException {
+        MockMultipartFile file = new MockMultipartFile("file", "icon.png", "image/png", new byte[]{5});
+        String link = localS3Service.uploadFile(file, "icons");
+        String key = link.substring("http://localhost:5003/files/".length());
+
+        localS3Service.deleteFileByUrl(link);
+        verify(mediaUsageService).recordDeletion(link);
+
+        assertThrows(NoSuchFileException.class, () -> localS3Service.resolveFile(key));
+        assertThrows(NoSuchFileException.class, () -> localS3Service.deleteFileByUrl(link));
+    }
+
+    @Test
+    void testUploadFileNextTo() throws IOException, FileDuplicateException, NoSuchFileException {
+        String link = localS3Service.uploadFile(new MockMultipartFile("file", "preview.jpg", "image/jpeg", new byte[]{1}), "previews");
+
+        String variant = localS3Service.uploadFileNextTo(
+                new MockMultipartFile("file", "preview.jpg", "image/jpeg", new byte[]{2, 3}), link, "_320");
+
+        assertEquals(link.replace(".jpg", "_320.jpg"), variant);
+        verify(mediaUsageService).recordUpload(variant, 2);
+        String key = variant.substring("http://localhost:5003/files/".length());
+        assertArrayEquals(new byte[]{2, 3}, Files.readAllBytes(localS3Service.resolveFile(key)));
+
+        assertThrows(FileDuplicateException.class, () -> localS3Service.uploadFileNextTo(
+                new MockMultipartFile("file", "preview.jpg", "image/jpeg", new byte[]{4}), link, "_320"));
+        assertThrows(NoSuchFileException.class, () -> localS3Service.uploadFileNextTo(
+                new MockMultipartFile("file", "preview.jpg", "image/jpeg", new byte[]{4}), "http://localhost:5003/other/a.jpg", "_320"));
+    }
+
+    @Test
+    void testForEachFile() throws IOException, FileDuplicateException {
+        String audio = localS3Service.uploadFile(new MockMultipartFile("file", "audio.wav", "audio/wav", new byte[]{1, 2, 3}), "audio");
+        String icon = localS3Service.uploadFile(new MockMultipartFile("file", "icon.png", "image/png", new byte[]{4}), "icons");
+        Files.createTempFile(root, ".upload-", ".tmp");
+
+        Map<String, Long> files = new HashMap<>();
+        localS3Service.forEachFile(files::put);
+
+        assertEquals(Map.of(audio, 3L, icon, 1L), files);
+    }
+
+    @Test
+    void testResolveFileOutsideRoot() {
+        assertThrows(NoSuchFileException.class, () -> localS3Service.resolveFile("../outside.txt"));
+        assertThrows(NoSuchFileException.class, () -> localS3Service.deleteFileByUrl("http://localhost:5003/other/file.txt"));
+    }
+
+    @Test
+    void testGetLinkByFile() {
+        MockMultipartFile file = new MockMultipartFile("file", "anim.gif", "image/gif", new byte[]{1});
+
+        assertEquals("http://localhost:5003/files/gifs/anim.gif", localS3Service.getLinkByFile(file, "gifs"));
+    }
+}